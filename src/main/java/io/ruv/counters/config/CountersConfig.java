@@ -1,24 +1,96 @@
 package io.ruv.counters.config;
 
 import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.concurrentmap.CellLayout;
+import io.ruv.counters.repo.concurrentmap.ConcurrentAtomicCountersRepository;
+import io.ruv.counters.repo.concurrentmap.ConcurrentLongArrayCountersRepository;
 import io.ruv.counters.repo.concurrentmap.ConcurrentLongCountersRepository;
+import io.ruv.counters.repo.durable.DurableCountersRepository;
+import io.ruv.counters.repo.lockfree.LockFreeCountersRepository;
+import io.ruv.counters.repo.mapped.MappedCountersRepository;
+import io.ruv.counters.repo.offheap.OffHeapCountersRepository;
+import io.ruv.counters.repo.striped.SegmentedCountersRepository;
+import io.ruv.counters.repo.striped.StampedCountersRepository;
+import io.ruv.counters.repo.striped.StripedAtomicCountersRepository;
+import io.ruv.counters.repo.striped.StripedLongArrayCountersRepository;
+import io.ruv.counters.repo.striped.StripedLongCountersRepository;
 import io.ruv.counters.service.CountersService;
 import io.ruv.counters.service.impl.CountersServiceImpl;
+import io.ruv.counters.util.striped.ResizeSettings;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+
 @Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(CountersProperties.class)
 public class CountersConfig {
 
+    private final CountersProperties properties;
+
     @Bean
-    public CountersService countersService() {
+    public CountersService countersService() throws IOException {
 
         return new CountersServiceImpl(countersRepository());
     }
 
+    /**
+     * Repository of configured type, replayed from and logging into write-ahead log when it is enabled
+     *
+     * @throws IllegalStateException when write-ahead log is enabled for mapped repository
+     */
     @Bean
-    public CountersRepository countersRepository() {
+    public CountersRepository countersRepository() throws IOException {
+
+        val type = properties.getRepository();
+        val wal = properties.getWal();
+
+        if (type == RepositoryType.MAPPED && wal.isEnabled()) {
+
+            // table file already outlives restarts, the log would be replayed over counters it holds
+            throw new IllegalStateException("Write-ahead log can not be enabled for mapped repository");
+        }
+
+        val repository = type == RepositoryType.MAPPED
+                ? MappedCountersRepository.open(properties.getMapped())
+                : createRepository(type, properties.getResize().getOrDefault(type, new ResizeSettings()));
+
+        return wal.isEnabled() ? DurableCountersRepository.open(repository, wal) : repository;
+    }
+
+    /**
+     * Creates new empty repository of specified type with default settings
+     */
+    public static CountersRepository createRepository(RepositoryType type) {
+
+        return createRepository(type, new ResizeSettings());
+    }
+
+    /**
+     * Creates new empty repository of specified type, mapped repository is created in a temporary directory
+     *
+     * @param resize stripe resize settings, used by striped repositories only
+     */
+    public static CountersRepository createRepository(RepositoryType type, ResizeSettings resize) {
 
-        return new ConcurrentLongCountersRepository();
+        return switch (type) {
+            case CONCURRENT_LONG -> new ConcurrentLongCountersRepository();
+            case CONCURRENT_ATOMIC -> new ConcurrentAtomicCountersRepository();
+            case CONCURRENT_ATOMIC_PADDED -> new ConcurrentAtomicCountersRepository(CellLayout.PADDED);
+            case CONCURRENT_LONG_ARRAY -> new ConcurrentLongArrayCountersRepository();
+            case CONCURRENT_LONG_ARRAY_PADDED -> new ConcurrentLongArrayCountersRepository(CellLayout.PADDED);
+            case STRIPED_LONG -> new StripedLongCountersRepository(resize);
+            case STRIPED_ATOMIC -> new StripedAtomicCountersRepository(resize);
+            case STRIPED_LONG_ARRAY -> new StripedLongArrayCountersRepository(resize);
+            case SEGMENTED -> new SegmentedCountersRepository();
+            case STAMPED -> new StampedCountersRepository();
+            case OFF_HEAP -> new OffHeapCountersRepository();
+            case LOCK_FREE -> new LockFreeCountersRepository();
+            case MAPPED -> MappedCountersRepository.temporary();
+        };
     }
 }
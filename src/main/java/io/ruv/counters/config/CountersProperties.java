@@ -0,0 +1,37 @@
+package io.ruv.counters.config;
+
+import io.ruv.counters.repo.durable.WalSettings;
+import io.ruv.counters.repo.mapped.MappedSettings;
+import io.ruv.counters.util.striped.ResizeSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("counters")
+public class CountersProperties {
+
+    /**
+     * Counters repository implementation
+     */
+    private RepositoryType repository = RepositoryType.CONCURRENT_LONG;
+
+    /**
+     * Stripe resize settings of striped repositories, per repository type
+     * e.g. {@code counters.resize.striped-long.interval=500ms}, defaults apply to types not listed
+     */
+    private Map<RepositoryType, ResizeSettings> resize = new EnumMap<>(RepositoryType.class);
+
+    /**
+     * Write-ahead log settings, e.g. {@code counters.wal.enabled=true}, {@code counters.wal.durability=async}
+     * Not supported by mapped repository, its table file survives restarts on its own
+     */
+    private WalSettings wal = new WalSettings();
+
+    /**
+     * Table file settings of mapped repository, e.g. {@code counters.mapped.directory=/var/lib/counters}
+     */
+    private MappedSettings mapped = new MappedSettings();
+}
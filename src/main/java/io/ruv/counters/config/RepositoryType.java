@@ -0,0 +1,23 @@
+package io.ruv.counters.config;
+
+import io.ruv.counters.repo.CountersRepository;
+
+/**
+ * Available {@link CountersRepository} implementations
+ */
+public enum RepositoryType {
+
+    CONCURRENT_LONG,
+    CONCURRENT_ATOMIC,
+    CONCURRENT_ATOMIC_PADDED,
+    CONCURRENT_LONG_ARRAY,
+    CONCURRENT_LONG_ARRAY_PADDED,
+    STRIPED_LONG,
+    STRIPED_ATOMIC,
+    STRIPED_LONG_ARRAY,
+    SEGMENTED,
+    STAMPED,
+    OFF_HEAP,
+    LOCK_FREE,
+    MAPPED
+}
@@ -0,0 +1,106 @@
+package io.ruv.counters.repo;
+
+import lombok.Getter;
+import lombok.val;
+import org.springframework.lang.NonNull;
+
+import java.util.Optional;
+
+/**
+ * Caller-owned outcome of a single counter operation, filled in by primitive {@link CountersRepository} methods
+ * Reusing one instance for many operations keeps them free of allocations
+ * Value is meaningful only for {@linkplain Status#OK} results
+ */
+@Getter
+public final class CounterResult {
+
+    @NonNull
+    private Status status = Status.NOT_FOUND;
+
+    private long value;
+
+    /**
+     * @return this result holding specified counter value
+     */
+    @NonNull
+    public CounterResult ok(long value) {
+
+        this.status = Status.OK;
+        this.value = value;
+        return this;
+    }
+
+    @NonNull
+    public CounterResult notFound() {
+
+        return empty(Status.NOT_FOUND);
+    }
+
+    @NonNull
+    public CounterResult duplicate() {
+
+        return empty(Status.DUPLICATE);
+    }
+
+    @NonNull
+    public CounterResult overflow() {
+
+        return empty(Status.OVERFLOW);
+    }
+
+    /**
+     * Adds specified delta to specified value without throwing on overflow
+     *
+     * @return this result holding sum of specified values or overflow result
+     */
+    @NonNull
+    public CounterResult adding(long value, long delta) {
+
+        val result = value + delta;
+
+        // overflow iff both arguments have the opposite sign of the result
+        if (((value ^ result) & (delta ^ result)) < 0) {
+
+            return overflow();
+        }
+
+        return ok(result);
+    }
+
+    public boolean isOk() {
+
+        return status == Status.OK;
+    }
+
+    /**
+     * @param name counter name
+     * @return {@link Optional} containing counter with result value or empty {@link Optional}
+     * if counter was not found or already exists
+     * @throws ArithmeticException when update was rejected because of overflow
+     */
+    @NonNull
+    public Optional<Counter> toCounter(@NonNull String name) throws ArithmeticException {
+
+        return switch (status) {
+
+            case OK -> Optional.of(new SimpleCounter(name, value));
+            case NOT_FOUND, DUPLICATE -> Optional.empty();
+            case OVERFLOW -> throw new ArithmeticException("long overflow");
+        };
+    }
+
+    private CounterResult empty(Status status) {
+
+        this.status = status;
+        this.value = 0;
+        return this;
+    }
+
+    public enum Status {
+
+        OK,
+        NOT_FOUND,
+        DUPLICATE,
+        OVERFLOW
+    }
+}
@@ -1,13 +1,24 @@
 package io.ruv.counters.repo;
 
+import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Interface detailing counter repository contracts
  * All methods return {@link Counter} abstraction, possibly locked {@linkplain Counter#release()}
+ * <p>
+ * Single counter operations come in two flavours: primitive ones fill in caller-owned {@link CounterResult}
+ * and do not allocate on lookups and updates, {@link Optional}-returning ones are layered on top of them
  */
 public interface CountersRepository {
 
@@ -19,7 +30,21 @@ public interface CountersRepository {
      * or empty {@link Optional} if counter with specified name does not exist
      */
     @NonNull
-    Optional<Counter> findByName(@NonNull String name);
+    default Optional<Counter> findByName(@NonNull String name) {
+
+        return findByName(name, new CounterResult()).toCounter(name);
+    }
+
+    /**
+     * Retrieves value of counter specified by name without allocating
+     *
+     * @param name   target counter name
+     * @param result result to fill in
+     * @return specified result holding counter value, or {@linkplain CounterResult.Status#NOT_FOUND}
+     * if counter with specified name does not exist
+     */
+    @NonNull
+    CounterResult findByName(@NonNull String name, @NonNull CounterResult result);
 
     /**
      * Retrieves stream containing all counters present at the start of operation
@@ -41,7 +66,22 @@ public interface CountersRepository {
      * or empty {@link Optional} if counter with specified name already exists
      */
     @NonNull
-    Optional<Counter> create(@NonNull String name, @NonNull long value);
+    default Optional<Counter> create(@NonNull String name, long value) {
+
+        return create(name, value, new CounterResult()).toCounter(name);
+    }
+
+    /**
+     * Creates new counter with specified name and initial value if no counter with same name already exists
+     *
+     * @param name   new counter name
+     * @param value  new counter value
+     * @param result result to fill in
+     * @return specified result holding counter value, or {@linkplain CounterResult.Status#DUPLICATE}
+     * if counter with specified name already exists
+     */
+    @NonNull
+    CounterResult create(@NonNull String name, long value, @NonNull CounterResult result);
 
     /**
      * Increments value of counter with specified name if it exists
@@ -52,7 +92,90 @@ public interface CountersRepository {
      * @throws ArithmeticException when incrementing counter value will result in overflow
      */
     @NonNull
-    Optional<Counter> incrementByName(@NonNull String name) throws ArithmeticException;
+    default Optional<Counter> incrementByName(@NonNull String name) throws ArithmeticException {
+
+        return addByName(name, 1, new CounterResult()).toCounter(name);
+    }
+
+    /**
+     * Increments value of counter with specified name if it exists, without reporting new value
+     * Relaxed increments let implementations spread increments of contended counters instead of serializing them -
+     * they are never lost and never overflow counter value, but are not ordered against
+     * {@linkplain #findAll()} copies: increments in flight when copy is taken may or may not be seen in it
+     *
+     * @param name target counter name
+     * @return true if counter was incremented, false if counter with specified name does not exist
+     * @throws ArithmeticException when incrementing counter value will result in overflow
+     */
+    default boolean incrementByNameRelaxed(@NonNull String name) throws ArithmeticException {
+
+        return incrementByName(name).isPresent();
+    }
+
+    /**
+     * Adds specified delta to value of counter with specified name if it exists
+     *
+     * @param name  target counter name
+     * @param delta amount to add, may be negative
+     * @return {@link Optional} containing updated counter
+     * or empty {@link Optional} if counter with specified name does not exist
+     * @throws ArithmeticException when adding delta to counter value will result in overflow, as in {@link Math#addExact}
+     */
+    @NonNull
+    default Optional<Counter> addByName(@NonNull String name, long delta) throws ArithmeticException {
+
+        return addByName(name, delta, new CounterResult()).toCounter(name);
+    }
+
+    /**
+     * Adds specified delta to value of counter with specified name if it exists, without allocating
+     *
+     * @param name   target counter name
+     * @param delta  amount to add, may be negative
+     * @param result result to fill in
+     * @return specified result holding new counter value, {@linkplain CounterResult.Status#NOT_FOUND}
+     * if counter with specified name does not exist or {@linkplain CounterResult.Status#OVERFLOW}
+     * if counter was left untouched because adding delta would overflow its value
+     */
+    @NonNull
+    CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result);
+
+    /**
+     * Creates counters in bulk, every one of them only if no counter with same name exists yet
+     * Implementations backed by a growing table may grow it once for the whole batch
+     *
+     * @param names  new counter names, only the first {@code count} ones are used
+     * @param values initial values of new counters, matching names by index
+     * @param count  amount of counters in the batch
+     * @return amount of counters created - names already present or repeated in the batch are not
+     */
+    default int createAll(@NonNull String[] names, @NonNull long[] values, int count) {
+
+        val result = new CounterResult();
+        int created = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            if (create(names[i], values[i], result).isOk()) {
+
+                created++;
+            }
+        }
+
+        return created;
+    }
+
+    /**
+     * Adds specified deltas to values of counters with specified names
+     * Implementations guarded by {@link io.ruv.counters.util.lock.GlobalLock} acquire it once for the whole batch
+     * Every counter is updated atomically on its own, the batch as a whole is not atomic -
+     * missing counters and counters whose value would overflow are left untouched and reported in results
+     *
+     * @param deltas amounts to add keyed by counter name
+     * @return result for every name present in specified deltas
+     */
+    @NonNull
+    Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas);
 
     /**
      * Removes and returns counter with specified name if it exists
@@ -62,6 +185,56 @@ public interface CountersRepository {
      * or empty {@link Optional} if counter with specified name does not exist
      */
     @NonNull
-    Optional<Counter> deleteByName(@NonNull String name);
+    default Optional<Counter> deleteByName(@NonNull String name) {
+
+        return deleteByName(name, new CounterResult()).toCounter(name);
+    }
+
+    /**
+     * Removes counter with specified name if it exists
+     *
+     * @param name   target counter name
+     * @param result result to fill in
+     * @return specified result holding removed counter value, or {@linkplain CounterResult.Status#NOT_FOUND}
+     * if counter with specified name does not exist
+     */
+    @NonNull
+    CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result);
+
+    /**
+     * Retrieves sum of all counter values, maintained by modifying operations instead of being computed on demand
+     * If there are no counters present - returns 0
+     * While modifications are in progress sum may only reflect part of them
+     *
+     * @return sum of all counter values
+     */
+    @NonNull
+    BigInteger valuesSum();
+
+    /**
+     * Retrieves a page of counter names in natural {@link String} order without copying the rest of repository
+     * Names created or removed while this operation is in progress may or may not be present
+     *
+     * @param after name preceding requested page, first page is returned when null
+     * @param limit max amount of names in the page
+     * @return names following specified one, empty list if there are none
+     */
+    @NonNull
+    List<String> findNames(@Nullable String after, int limit);
+
+    /**
+     * Streams counter names in natural {@link String} order, starting right after specified name
+     * Names are read lazily with {@linkplain #findNames(String, int)} one page at a time as stream is consumed,
+     * so memory taken does not depend on amount of counters
+     * Names created or removed while stream is consumed may or may not be present
+     *
+     * @param after name preceding streamed names, all names are streamed when null
+     * @return sequential {@link Stream} of counter names following specified one
+     */
+    @NonNull
+    default Stream<String> streamNames(@Nullable String after) {
 
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new NamePages(this, after, NamePages.PAGE_SIZE),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
 }
@@ -0,0 +1,72 @@
+package io.ruv.counters.repo;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+
+/**
+ * Outcome of adding a delta to a single counter
+ * Value is meaningful only for {@linkplain Status#UPDATED} results
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class IncrementResult {
+
+    private static final IncrementResult NOT_FOUND = new IncrementResult(Status.NOT_FOUND, 0);
+    private static final IncrementResult OVERFLOW = new IncrementResult(Status.OVERFLOW, 0);
+
+    @NonNull
+    private final Status status;
+
+    private final long value;
+
+    /**
+     * @return result holding new counter value
+     */
+    @NonNull
+    public static IncrementResult updated(long value) {
+
+        return new IncrementResult(Status.UPDATED, value);
+    }
+
+    @NonNull
+    public static IncrementResult notFound() {
+
+        return NOT_FOUND;
+    }
+
+    @NonNull
+    public static IncrementResult overflow() {
+
+        return OVERFLOW;
+    }
+
+    /**
+     * @param result outcome of adding a delta with primitive repository method
+     * @return immutable copy of specified result
+     */
+    @NonNull
+    public static IncrementResult from(@NonNull CounterResult result) {
+
+        return switch (result.getStatus()) {
+
+            case OK -> updated(result.getValue());
+            case NOT_FOUND -> NOT_FOUND;
+            case OVERFLOW -> OVERFLOW;
+            case DUPLICATE -> throw new IllegalArgumentException("Not an increment result: " + result.getStatus());
+        };
+    }
+
+    public boolean isUpdated() {
+
+        return status == Status.UPDATED;
+    }
+
+    public enum Status {
+
+        UPDATED,
+        NOT_FOUND,
+        OVERFLOW
+    }
+}
@@ -0,0 +1,72 @@
+package io.ruv.counters.repo;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator walking repository names page by page with {@link CountersRepository#findNames(String, int)}
+ * Only the current page is held, so memory taken does not depend on amount of counters
+ */
+final class NamePages implements Iterator<String> {
+
+    static final int PAGE_SIZE = 1000;
+
+    private final CountersRepository repository;
+    private final int pageSize;
+
+    private List<String> page = List.of();
+    private int position;
+    private boolean last;
+
+    @Nullable
+    private String cursor;
+
+    NamePages(CountersRepository repository, @Nullable String after, int pageSize) {
+
+        this.repository = repository;
+        this.cursor = after;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        if (position < page.size()) {
+
+            return true;
+        }
+
+        if (last) {
+
+            return false;
+        }
+
+        page = repository.findNames(cursor, pageSize);
+        position = 0;
+
+        // short page means the end has been reached
+        last = page.size() < pageSize;
+
+        if (page.isEmpty()) {
+
+            return false;
+        }
+
+        cursor = page.get(page.size() - 1);
+        return true;
+    }
+
+    @Override
+    public String next() {
+
+        if (!hasNext()) {
+
+            throw new NoSuchElementException();
+        }
+
+        return page.get(position++);
+    }
+}
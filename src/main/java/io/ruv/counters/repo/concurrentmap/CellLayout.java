@@ -0,0 +1,61 @@
+package io.ruv.counters.repo.concurrentmap;
+
+import lombok.val;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory layout of mutable counter cells
+ */
+public enum CellLayout {
+
+    /**
+     * Smallest possible cells - cells allocated one after another share cache lines,
+     * so updates of unrelated counters by different cores invalidate each other's lines
+     */
+    COMPACT {
+        @Override
+        long[] newArrayCell(long value) {
+
+            return new long[]{value};
+        }
+
+        @Override
+        AtomicLong newAtomicCell(long value) {
+
+            return new AtomicLong(value);
+        }
+    },
+
+    /**
+     * Value at the start of a cell followed by 128 bytes of padding, so the next object allocated
+     * can not share a cache line (or an adjacent-line prefetch pair) with the value
+     */
+    PADDED {
+        @Override
+        long[] newArrayCell(long value) {
+
+            val cell = new long[PADDED_ARRAY_LENGTH];
+            cell[0] = value;
+            return cell;
+        }
+
+        @Override
+        AtomicLong newAtomicCell(long value) {
+
+            return new PaddedAtomicLong(value);
+        }
+    };
+
+    private static final int PADDED_ARRAY_LENGTH = 17;
+
+    /**
+     * @return new long[] cell holding specified value at index 0
+     */
+    abstract long[] newArrayCell(long value);
+
+    /**
+     * @return new atomic cell holding specified value
+     */
+    abstract AtomicLong newAtomicCell(long value);
+}
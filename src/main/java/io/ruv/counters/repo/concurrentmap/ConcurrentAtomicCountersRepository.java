@@ -1,61 +1,86 @@
 package io.ruv.counters.repo.concurrentmap;
 
 import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
-import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.index.LazyNameIndex;
 import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.snapshot.SnapshotTracker;
+import io.ruv.counters.util.sum.StripedSum;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link CountersRepository} backed by {@link ConcurrentHashMap} with {@link AtomicLong} values
- * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()}
+ * {@link SnapshotTracker} is used to create a point-in-time copy in {@linkplain #findAll()} without blocking modifications
+ * {@link CellLayout} decides whether values are padded
  */
 public class ConcurrentAtomicCountersRepository implements CountersRepository {
 
     private final Map<String, AtomicLong> storage = new ConcurrentHashMap<>();
     private final GlobalLock global = new GlobalLock();
+    private final SnapshotTracker snapshots = new SnapshotTracker(global);
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing, storage.keySet()::forEach);
+    private final CellLayout layout;
+
+    // storage computations reused by every operation of a thread, so that updates allocate nothing
+    private final ThreadLocal<Adder> adders = ThreadLocal.withInitial(Adder::new);
+
+    public ConcurrentAtomicCountersRepository() {
+
+        this(CellLayout.COMPACT);
+    }
+
+    /**
+     * @param layout layout of counter cells
+     */
+    public ConcurrentAtomicCountersRepository(CellLayout layout) {
+
+        this.layout = layout;
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     @NonNull
-    public Optional<Counter> findByName(@NonNull String name) {
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
 
         val container = storage.get(name);
 
         if (container == null) {
 
-            return Optional.empty();
+            return result.notFound();
         } else {
 
-            return Optional.of(new SimpleCounter(name, container.get()));
+            return result.ok(container.get());
         }
     }
 
     /**
      * {@inheritDoc}
+     * Returned counters hold values they had at the start of this operation
      */
     @Override
     @NonNull
     public Stream<Counter> findAll() {
 
-        val copy = global.writing(() -> new HashMap<>(storage));
-
-        return copy.entrySet().stream().map(this::entryToCounter);
-    }
-
-    private Counter entryToCounter(Map.Entry<String, AtomicLong> entry) {
+        val copy = snapshots.capture(consumer ->
+                storage.forEach((name, container) -> consumer.accept(name, container.get())));
 
-        return new SimpleCounter(entry.getKey(), entry.getValue().get());
+        return copy.stream();
     }
 
     /**
@@ -63,19 +88,22 @@ public class ConcurrentAtomicCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> create(@NonNull String name, long value) {
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
 
         return global.reading(() -> {
 
-            val container = new AtomicLong(value);
+            final boolean[] created = new boolean[1];
 
-            if (storage.putIfAbsent(name, container) == null) {
+            storage.computeIfAbsent(name, key -> {
 
-                return Optional.of(new SimpleCounter(name, value));
-            } else {
+                snapshots.beforeCreate(key);
+                sum.add(value);
+                index.add(key);
+                created[0] = true;
+                return layout.newAtomicCell(value);
+            });
 
-                return Optional.empty();
-            }
+            return created[0] ? result.ok(value) : result.duplicate();
         });
     }
 
@@ -84,40 +112,67 @@ public class ConcurrentAtomicCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> incrementByName(@NonNull String name) {
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        val ticket = global.enterReading();
+        try {
+
+            return add(name, delta, result);
+        } finally {
+
+            global.exitReading(ticket);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
 
         return global.reading(() -> {
 
-            final SimpleCounter[] counter = new SimpleCounter[1];
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
 
-            val compResult = storage.compute(name, (key, container) -> {
+            return results;
+        });
+    }
 
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
 
-                    return null;
-                } else {
+        return global.reading(() -> {
 
-                    val currentValue = container.get();
-                    if (currentValue == Long.MAX_VALUE) {
+            result.notFound();
 
-                        throw new ArithmeticException("long overflow");
-                    } else {
+            storage.computeIfPresent(name, (key, container) -> {
 
-                        // container is mutable - save value as side effect of atomic operation
-                        counter[0] = new SimpleCounter(name, container.incrementAndGet());
-                        return container;
-                    }
-                }
+                snapshots.beforeDelete(key, container.get());
+                sum.subtract(container.get());
+                index.remove(key);
+                result.ok(container.get());
+                return null;
             });
 
-            if (compResult == null) {
+            return result;
+        });
+    }
 
-                return Optional.empty();
-            } else {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
 
-                return Optional.of(counter[0]);
-            }
-        });
+        return sum.sum();
     }
 
     /**
@@ -125,19 +180,50 @@ public class ConcurrentAtomicCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> deleteByName(@NonNull String name) {
+    public List<String> findNames(@Nullable String after, int limit) {
 
-        return global.reading(() -> {
+        return index.page(after, limit);
+    }
 
-            val container = storage.remove(name);
+    /**
+     * Adds specified delta to counter with specified name, must be called inside {@linkplain GlobalLock#reading}
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
+
+        val adder = adders.get();
+        adder.delta = delta;
+        adder.result = result.notFound();
+        try {
+
+            storage.computeIfPresent(name, adder);
+            return result;
+        } finally {
+
+            adder.result = null;
+        }
+    }
+
+    /**
+     * Storage computation adding a delta, arguments are set before every use
+     */
+    private final class Adder implements BiFunction<String, AtomicLong, AtomicLong> {
+
+        private long delta;
+        private CounterResult result;
+
+        @Override
+        public AtomicLong apply(String key, AtomicLong container) {
 
-            if (container == null) {
+            val current = container.get();
 
-                return Optional.empty();
-            } else {
+            if (result.adding(current, delta).isOk()) {
 
-                return Optional.of(new SimpleCounter(name, container.get()));
+                snapshots.beforeUpdate(key, current);
+                sum.add(delta);
+                container.set(result.getValue());
             }
-        });
+
+            return container;
+        }
     }
 }
@@ -1,81 +1,108 @@
 package io.ruv.counters.repo.concurrentmap;
 
 import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
-import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.index.LazyNameIndex;
 import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.snapshot.SnapshotTracker;
+import io.ruv.counters.util.sum.StripedSum;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link CountersRepository} backed by {@link ConcurrentHashMap} with long[] values
- * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()}
+ * {@link SnapshotTracker} is used to create a point-in-time copy in {@linkplain #findAll()} without blocking modifications
+ * Value is kept at index 0 of every array, {@link CellLayout} decides whether arrays are padded
  */
 public class ConcurrentLongArrayCountersRepository implements CountersRepository {
 
     private final ConcurrentHashMap<String, long[]> storage = new ConcurrentHashMap<>();
     private final GlobalLock global = new GlobalLock();
+    private final SnapshotTracker snapshots = new SnapshotTracker(global);
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing, storage.keySet()::forEach);
+    private final CellLayout layout;
+
+    // storage computations reused by every operation of a thread, so that updates allocate nothing
+    private final ThreadLocal<Adder> adders = ThreadLocal.withInitial(Adder::new);
+
+    public ConcurrentLongArrayCountersRepository() {
+
+        this(CellLayout.COMPACT);
+    }
+
+    /**
+     * @param layout layout of counter cells
+     */
+    public ConcurrentLongArrayCountersRepository(CellLayout layout) {
+
+        this.layout = layout;
+    }
 
     /**
      * {@inheritDoc}
      */
     @NonNull
     @Override
-    public Optional<Counter> findByName(@NonNull String name) {
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
 
         val container = storage.get(name);
 
         if (container == null) {
 
-            return Optional.empty();
+            return result.notFound();
         } else {
 
-            return Optional.of(new SimpleCounter(name, container[0]));
+            return result.ok(container[0]);
         }
     }
 
     /**
      * {@inheritDoc}
+     * Returned counters hold values they had at the start of this operation
      */
     @NonNull
     @Override
     public Stream<Counter> findAll() {
 
-        val copy = global.writing(() -> new HashMap<>(storage));
-
-        return copy.entrySet().stream().map(this::entryToCounter);
-    }
-
-    private Counter entryToCounter(Map.Entry<String, long[]> entry) {
+        val copy = snapshots.capture(consumer ->
+                storage.forEach((name, container) -> consumer.accept(name, container[0])));
 
-        return new SimpleCounter(entry.getKey(), entry.getValue()[0]);
+        return copy.stream();
     }
 
-
     /**
      * {@inheritDoc}
      */
     @NonNull
     @Override
-    public Optional<Counter> create(@NonNull String name, @NonNull long value) {
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
 
         return global.reading(() -> {
 
-            val container = new long[]{value};
+            final boolean[] created = new boolean[1];
 
-            if (storage.putIfAbsent(name, container) == null) {
+            storage.computeIfAbsent(name, key -> {
 
-                return Optional.of(new SimpleCounter(name, value));
-            } else {
+                snapshots.beforeCreate(key);
+                sum.add(value);
+                index.add(key);
+                created[0] = true;
+                return layout.newArrayCell(value);
+            });
 
-                return Optional.empty();
-            }
+            return created[0] ? result.ok(value) : result.duplicate();
         });
     }
 
@@ -84,35 +111,67 @@ public class ConcurrentLongArrayCountersRepository implements CountersRepository
      */
     @NonNull
     @Override
-    public Optional<Counter> incrementByName(@NonNull String name) {
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        val ticket = global.enterReading();
+        try {
+
+            return add(name, delta, result);
+        } finally {
+
+            global.exitReading(ticket);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
 
         return global.reading(() -> {
 
-            final SimpleCounter[] counter = new SimpleCounter[1];
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
 
-            val compResult = storage.compute(name, (key, container) -> {
+            return results;
+        });
+    }
 
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        return global.reading(() -> {
 
-                    return null;
-                } else {
+            result.notFound();
 
-                    container[0] = Math.incrementExact(container[0]);
+            storage.computeIfPresent(name, (key, container) -> {
 
-                    // container is mutable - save value as side effect of atomic operation
-                    counter[0] = new SimpleCounter(name, container[0]);
-                    return container;
-                }
+                snapshots.beforeDelete(key, container[0]);
+                sum.subtract(container[0]);
+                index.remove(key);
+                result.ok(container[0]);
+                return null;
             });
 
-            if (compResult == null) {
+            return result;
+        });
+    }
 
-                return Optional.empty();
-            } else {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
 
-                return Optional.of(counter[0]);
-            }
-        });
+        return sum.sum();
     }
 
     /**
@@ -120,19 +179,50 @@ public class ConcurrentLongArrayCountersRepository implements CountersRepository
      */
     @NonNull
     @Override
-    public Optional<Counter> deleteByName(@NonNull String name) {
+    public List<String> findNames(@Nullable String after, int limit) {
 
-        return global.reading(() -> {
+        return index.page(after, limit);
+    }
 
-            val container = storage.remove(name);
+    /**
+     * Adds specified delta to counter with specified name, must be called inside {@linkplain GlobalLock#reading}
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
+
+        val adder = adders.get();
+        adder.delta = delta;
+        adder.result = result.notFound();
+        try {
+
+            storage.computeIfPresent(name, adder);
+            return result;
+        } finally {
 
-            if (container == null) {
+            adder.result = null;
+        }
+    }
 
-                return Optional.empty();
-            } else {
+    /**
+     * Storage computation adding a delta, arguments are set before every use
+     */
+    private final class Adder implements BiFunction<String, long[], long[]> {
 
-                return Optional.of(new SimpleCounter(name, container[0]));
+        private long delta;
+        private CounterResult result;
+
+        @Override
+        public long[] apply(String key, long[] container) {
+
+            val current = container[0];
+
+            if (result.adding(current, delta).isOk()) {
+
+                snapshots.beforeUpdate(key, current);
+                sum.add(delta);
+                container[0] = result.getValue();
             }
-        });
+
+            return container;
+        }
     }
 }
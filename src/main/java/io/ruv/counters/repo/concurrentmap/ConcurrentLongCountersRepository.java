@@ -1,63 +1,215 @@
 package io.ruv.counters.repo.concurrentmap;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
-import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.index.LazyNameIndex;
 import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.snapshot.SnapshotTracker;
+import io.ruv.counters.util.sum.StripedSum;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 
 /**
  * Implementation of {@link CountersRepository} backed by {@link ConcurrentHashMap} with {@link Long} values
- * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()}
+ * {@link SnapshotTracker} is used to create a point-in-time copy in {@linkplain #findAll()} without blocking modifications
+ * <p>
+ * Counters receiving contended {@linkplain #incrementByNameRelaxed(String) relaxed increments} are promoted
+ * to {@link HotCounter} - relaxed increments of such counters go to striped cells instead of serializing
+ * on a single map bin, while other operations drain cells into stored value and still see exact values
+ * Background thread demotes counters that cooled down, it is stopped by {@linkplain #close()}
  */
-public class ConcurrentLongCountersRepository implements CountersRepository {
+public class ConcurrentLongCountersRepository implements CountersRepository, AutoCloseable {
+
+    private static final int PROMOTION_THRESHOLD = 1024;
+    private static final long DEMOTION_THRESHOLD = 1024;
+    private static final int COOL_DOWN_SECONDS = 10;
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
 
     private final ConcurrentHashMap<String, Long> storage = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, HotCounter> hot = new ConcurrentHashMap<>();
+    private final ContentionSketch contention = new ContentionSketch(PROMOTION_THRESHOLD);
+    private final AtomicLong promotions = new AtomicLong();
     private final GlobalLock global = new GlobalLock();
+    private final SnapshotTracker snapshots = new SnapshotTracker(global);
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing, storage.keySet()::forEach);
+
+    // storage computations reused by every operation of a thread, so that updates allocate nothing but stored values
+    private final ThreadLocal<Adder> adders = ThreadLocal.withInitial(Adder::new);
+
+    private final ScheduledExecutorService daemon;
+
+    public ConcurrentLongCountersRepository() {
+
+        val threadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("HotCountersDaemon-" + INSTANCES.incrementAndGet() + "-%d")
+                .build();
+
+        daemon = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        daemon.scheduleWithFixedDelay(this::coolDown, COOL_DOWN_SECONDS, COOL_DOWN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops demotion of cooled down counters, promoted counters stay promoted and repository stays usable
+     */
+    @Override
+    public void close() {
+
+        daemon.shutdownNow();
+    }
 
     /**
      * {@inheritDoc}
      */
     @NonNull
     @Override
-    public Optional<Counter> findByName(@NonNull String name) {
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
 
-        val container = storage.get(name);
+        return read(name, result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Returned counters hold values they had at the start of this operation,
+     * except for relaxed increments in flight at that moment which may or may not be seen
+     */
+    @NonNull
+    @Override
+    public Stream<Counter> findAll() {
 
-        if (container == null) {
+        val current = new CounterResult();
 
-            return Optional.empty();
-        } else {
+        val copy = snapshots.capture(consumer -> storage.forEach((name, base) -> {
 
-            return Optional.of(new SimpleCounter(name, container));
-        }
+            if (hot.isEmpty()) {
+
+                consumer.accept(name, base);
+            } else if (read(name, current).isOk()) {
+
+                consumer.accept(name, current.getValue());
+            }
+        }));
+
+        return copy.stream();
     }
 
     /**
      * {@inheritDoc}
-     * Immutable value container guarantees that counter values will not change between start of this operation
-     * and the moment when resulting stream is consumed
      */
     @NonNull
     @Override
-    public Stream<Counter> findAll() {
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
 
-        val copy = global.writing(() -> new HashMap<>(storage));
+        return global.reading(() -> {
+
+            final boolean[] created = new boolean[1];
 
-        return copy.entrySet().stream().map(this::entryToCounter);
+            storage.computeIfAbsent(name, key -> {
+
+                snapshots.beforeCreate(key);
+                sum.add(value);
+                index.add(key);
+                created[0] = true;
+                return value;
+            });
+
+            return created[0] ? result.ok(value) : result.duplicate();
+        });
     }
 
-    private Counter entryToCounter(Map.Entry<String, Long> entry) {
+    /**
+     * {@inheritDoc}
+     * Contended counters are promoted to striped cells, relaxed increments of promoted counters
+     * do not block each other and do not take {@link GlobalLock}
+     */
+    @Override
+    public boolean incrementByNameRelaxed(@NonNull String name) {
+
+        while (true) {
+
+            val hotCounter = hot.get(name);
+
+            if (hotCounter != null) {
+
+                if (hotCounter.tryIncrement()) {
+
+                    sum.add(1);
+                    return true;
+                }
+
+                // cell is full - drain it with exact increment
+                val result = new CounterResult();
+                if (!hotCounter.isRetired() && global.reading(() -> addHot(name, hotCounter, 1, result))) {
+
+                    if (result.getStatus() == CounterResult.Status.OVERFLOW) {
+
+                        throw new ArithmeticException("long overflow");
+                    }
+
+                    return true;
+                }
+                continue;
+            }
+
+            val contended = contention.enter(name);
+            try {
+
+                final boolean[] moved = new boolean[1];
+
+                val container = global.reading(() -> storage.compute(name, (key, value) -> {
+
+                    if (value == null) {
+
+                        return null;
+                    } else if (hot.containsKey(key)) {
+
+                        // promoted concurrently
+                        moved[0] = true;
+                        return value;
+                    } else {
 
-        return new SimpleCounter(entry.getKey(), entry.getValue());
+                        val incremented = Math.incrementExact(value);
+                        snapshots.beforeUpdate(key, value);
+                        sum.add(1);
+
+                        if (contended && incremented <= Long.MAX_VALUE - HotCounter.HEADROOM) {
+
+                            promote(key);
+                        }
+
+                        return incremented;
+                    }
+                }));
+
+                if (!moved[0]) {
+
+                    return container != null;
+                }
+            } finally {
+
+                contention.exit(name);
+            }
+        }
     }
 
     /**
@@ -65,17 +217,32 @@ public class ConcurrentLongCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> create(@NonNull String name, long value) {
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
 
-        return global.reading(() -> {
+        val ticket = global.enterReading();
+        try {
 
-            if (storage.putIfAbsent(name, value) == null) {
+            return add(name, delta, result);
+        } finally {
 
-                return Optional.of(new SimpleCounter(name, value));
-            } else {
+            global.exitReading(ticket);
+        }
+    }
 
-                return Optional.empty();
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        return global.reading(() -> {
+
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
+
+            return results;
         });
     }
 
@@ -84,27 +251,65 @@ public class ConcurrentLongCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> incrementByName(@NonNull String name) {
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
 
         return global.reading(() -> {
 
-            val container = storage.compute(name, (key, value) -> {
+            while (true) {
+
+                val hotCounter = hot.get(name);
+
+                if (hotCounter != null) {
+
+                    synchronized (hotCounter) {
+
+                        if (hotCounter.isRetired()) {
+
+                            continue;
+                        }
 
-                if (value == null) {
+                        hotCounter.beginWrite();
+                        try {
 
+                            return result.ok(retire(name, hotCounter, true));
+                        } finally {
+
+                            hotCounter.endWrite();
+                        }
+                    }
+                }
+
+                final boolean[] moved = new boolean[1];
+                final Long[] container = new Long[1];
+
+                storage.computeIfPresent(name, (key, value) -> {
+
+                    if (hot.containsKey(key)) {
+
+                        // promoted concurrently
+                        moved[0] = true;
+                        return value;
+                    }
+
+                    snapshots.beforeDelete(key, value);
+                    sum.subtract(value);
+                    index.remove(key);
+                    container[0] = value;
                     return null;
-                } else {
+                });
+
+                if (moved[0]) {
 
-                    return Math.incrementExact(value);
+                    continue;
                 }
-            });
 
-            if (container == null) {
+                if (container[0] == null) {
 
-                return Optional.empty();
-            } else {
+                    return result.notFound();
+                } else {
 
-                return Optional.of(new SimpleCounter(name, container));
+                    return result.ok(container[0]);
+                }
             }
         });
     }
@@ -114,19 +319,269 @@ public class ConcurrentLongCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> deleteByName(@NonNull String name) {
+    public BigInteger valuesSum() {
 
-        return global.reading(() -> {
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+
+    /**
+     * Reads value of specified counter, adding cells of promoted counter up
+     *
+     * @return specified result holding counter value or not found result
+     */
+    private CounterResult read(String name, CounterResult result) {
+
+        while (true) {
 
-            val container = storage.remove(name);
+            val promoted = promotions.get();
+            val hotCounter = hot.get(name);
 
-            if (container == null) {
+            if (hotCounter == null) {
 
-                return Optional.empty();
+                val value = storage.get(name);
+
+                // promotion in between could have let increments bypass stored value
+                if (promotions.get() == promoted) {
+
+                    return value == null ? result.notFound() : result.ok(value);
+                }
+                continue;
+            }
+
+            val version = hotCounter.version();
+            if ((version & 1) != 0) {
+
+                Thread.onSpinWait();
+                continue;
+            }
+
+            val base = storage.get(name);
+            val cells = hotCounter.cellsSum();
+
+            if (hotCounter.version() == version && !hotCounter.isRetired()) {
+
+                return base == null ? result.notFound() : result.ok(base + cells);
+            }
+        }
+    }
+
+    /**
+     * Promotes specified counter, must be called inside storage computation for the counter
+     */
+    private void promote(String name) {
+
+        hot.put(name, new HotCounter());
+        promotions.incrementAndGet();
+        contention.reset(name);
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called inside {@linkplain GlobalLock#reading}
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
+
+        while (true) {
+
+            val hotCounter = hot.get(name);
+
+            if (hotCounter != null) {
+
+                if (addHot(name, hotCounter, delta, result)) {
+
+                    return result;
+                }
+                continue;
+            }
+
+            val adder = adders.get().reset(delta, result.notFound(), -1);
+            try {
+
+                storage.computeIfPresent(name, adder);
+
+                if (!adder.moved) {
+
+                    return result;
+                }
+            } finally {
+
+                adder.result = null;
+            }
+        }
+    }
+
+    /**
+     * Drains cells of promoted counter and adds specified delta to it
+     * Demotes counter once its value comes too close to overflow for cells to stay safe
+     *
+     * @return true with specified result filled in, false if counter has been retired concurrently
+     */
+    private boolean addHot(String name, HotCounter hotCounter, long delta, CounterResult result) {
+
+        synchronized (hotCounter) {
+
+            if (hotCounter.isRetired()) {
+
+                return false;
+            }
+
+            hotCounter.beginWrite();
+            val adder = adders.get().reset(delta, result.notFound(), hotCounter.drain());
+            try {
+
+                // value is present - removal retires cells first, base stays within headroom
+                storage.compute(name, adder);
+
+                // base has to stay low enough for cells to be unable to overflow it
+                if (adder.stored > Long.MAX_VALUE - HotCounter.HEADROOM) {
+
+                    retire(name, hotCounter, false);
+                }
+
+                return true;
+            } finally {
+
+                adder.result = null;
+                hotCounter.endWrite();
+            }
+        }
+    }
+
+    /**
+     * Moves cells of promoted counter into stored value and removes the counter if requested
+     * Must be called under counter monitor between {@linkplain HotCounter#beginWrite()}
+     * and {@linkplain HotCounter#endWrite()}
+     *
+     * @return counter value
+     */
+    private long retire(String name, HotCounter hotCounter, boolean delete) {
+
+        val drained = hotCounter.retire();
+        final long[] result = new long[1];
+
+        storage.computeIfPresent(name, (key, value) -> {
+
+            result[0] = value + drained;
+
+            if (delete) {
+
+                snapshots.beforeDelete(key, result[0]);
+                sum.subtract(result[0]);
+                index.remove(key);
+                return null;
             } else {
 
-                return Optional.of(new SimpleCounter(name, container));
+                return result[0];
             }
         });
+
+        // removed only after stored value is published - readers retry until then
+        hot.remove(name, hotCounter);
+
+        return result[0];
+    }
+
+    /**
+     * Demotes promoted counters which received few relaxed increments since last run
+     */
+    void coolDown() {
+
+        contention.decay();
+
+        for (val entry : hot.entrySet()) {
+
+            val hotCounter = entry.getValue();
+
+            if (hotCounter.cooledDown(DEMOTION_THRESHOLD)) {
+
+                global.reading(() -> {
+
+                    synchronized (hotCounter) {
+
+                        if (!hotCounter.isRetired()) {
+
+                            hotCounter.beginWrite();
+                            try {
+
+                                retire(entry.getKey(), hotCounter, false);
+                            } finally {
+
+                                hotCounter.endWrite();
+                            }
+                        }
+                    }
+
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Storage computation adding a delta, arguments are set before every use
+     * Adds drained cells of promoted counter first, or bails out if counter has just been promoted
+     */
+    private final class Adder implements BiFunction<String, Long, Long> {
+
+        private long delta;
+        private CounterResult result;
+
+        // cells drained into promoted counter, negative for regular ones
+        private long drained;
+
+        private boolean moved;
+        private long stored;
+
+        Adder reset(long delta, CounterResult result, long drained) {
+
+            this.delta = delta;
+            this.result = result;
+            this.drained = drained;
+            this.moved = false;
+            return this;
+        }
+
+        @Override
+        public Long apply(String key, Long value) {
+
+            if (drained < 0 && hot.containsKey(key)) {
+
+                // promoted concurrently
+                moved = true;
+                return value;
+            }
+
+            val current = drained < 0 ? value : value + drained;
+
+            if (drained >= 0) {
+
+                snapshots.beforeUpdate(key, current);
+            }
+
+            if (result.adding(current, delta).isOk()) {
+
+                if (drained < 0) {
+
+                    snapshots.beforeUpdate(key, current);
+                }
+
+                sum.add(delta);
+                stored = result.getValue();
+            } else {
+
+                stored = current;
+            }
+
+            return stored;
+        }
     }
 }
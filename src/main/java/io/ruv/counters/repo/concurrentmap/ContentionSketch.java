@@ -0,0 +1,73 @@
+package io.ruv.counters.repo.concurrentmap;
+
+import lombok.val;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate per-name contention statistics in a fixed amount of memory
+ * Names are hashed into slots, every slot tracks operations in flight and how many times
+ * an operation started while another one was in flight - names sharing a slot share statistics
+ * Contention counts are halved by {@linkplain #decay()} so only recent contention matters
+ */
+final class ContentionSketch {
+
+    private static final int SLOTS = 1024;
+
+    // one slot per 64 bytes keeps unrelated names off each other's cache lines
+    private static final int STRIDE = 16;
+
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(SLOTS * STRIDE);
+    private final AtomicIntegerArray contended = new AtomicIntegerArray(SLOTS * STRIDE);
+    private final int threshold;
+
+    ContentionSketch(int threshold) {
+
+        this.threshold = threshold;
+    }
+
+    /**
+     * Marks operation on specified name as started, must be followed by {@linkplain #exit(String)}
+     *
+     * @return true if specified name is contended often enough to be promoted
+     */
+    boolean enter(String name) {
+
+        val slot = slot(name);
+
+        if (inFlight.getAndIncrement(slot) > 0) {
+
+            return contended.incrementAndGet(slot) >= threshold;
+        }
+
+        return false;
+    }
+
+    void exit(String name) {
+
+        inFlight.decrementAndGet(slot(name));
+    }
+
+    void decay() {
+
+        for (int i = 0; i < SLOTS; i++) {
+
+            val slot = i * STRIDE;
+            contended.getAndUpdate(slot, count -> count >> 1);
+        }
+    }
+
+    /**
+     * Forgets contention of specified name once it has been promoted
+     */
+    void reset(String name) {
+
+        contended.set(slot(name), 0);
+    }
+
+    private static int slot(String name) {
+
+        val h = name.hashCode();
+        return ((h ^ (h >>> 16)) & (SLOTS - 1)) * STRIDE;
+    }
+}
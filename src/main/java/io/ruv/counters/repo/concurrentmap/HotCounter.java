@@ -0,0 +1,167 @@
+package io.ruv.counters.repo.concurrentmap;
+
+import lombok.val;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped increment cells of a contended counter, counter value is its stored base plus every cell
+ * <p>
+ * Relaxed increments are spread over cells picked by current thread, each cell may take at most
+ * {@linkplain #HEADROOM} / cells increments - base is kept below {@code Long.MAX_VALUE - HEADROOM},
+ * so cells never overflow the counter
+ * Other modifications are done under this object monitor: cells are drained into base (or retired,
+ * once counter is demoted or removed) with version made odd for the duration, readers adding base
+ * and cells up retry when version changes
+ */
+final class HotCounter {
+
+    /**
+     * Max amount of increments all cells can take together
+     */
+    static final long HEADROOM = 1L << 62;
+
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    // one cell per 128 bytes keeps cells off each other's cache lines
+    private static final int STRIDE = 16;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    private final long cellLimit;
+
+    private volatile int version;
+    private volatile boolean retired;
+
+    // guarded by this
+    private long drained;
+
+    // accessed by demotion only
+    private long lastActivity;
+
+    HotCounter() {
+
+        val processors = Runtime.getRuntime().availableProcessors();
+        val size = Math.min(64, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+
+        this.cells = new AtomicLongArray(size * STRIDE);
+        this.mask = size - 1;
+        this.cellLimit = HEADROOM / size;
+    }
+
+    /**
+     * Adds one to the cell of current thread
+     *
+     * @return false if counter is retired or the cell is full and has to be drained
+     */
+    boolean tryIncrement() {
+
+        val id = Thread.currentThread().threadId();
+        val h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        val index = ((h ^ (h >>> 16)) & mask) * STRIDE;
+
+        while (true) {
+
+            val cell = cells.get(index);
+
+            if (cell < 0 || cell >= cellLimit) {
+
+                return false;
+            }
+
+            if (cells.compareAndSet(index, cell, cell + 1)) {
+
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return sum of all cells, zero once retired
+     */
+    long cellsSum() {
+
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+
+            val cell = cells.get(i * STRIDE);
+            if (cell > 0) {
+
+                sum += cell;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Empties every cell, must be called under this object monitor between
+     * {@linkplain #beginWrite()} and {@linkplain #endWrite()}
+     *
+     * @return sum of emptied cells
+     */
+    long drain() {
+
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+
+            sum += cells.getAndSet(i * STRIDE, 0);
+        }
+
+        drained += sum;
+        return sum;
+    }
+
+    /**
+     * Empties every cell and makes cells reject further increments, must be called under this object monitor
+     * between {@linkplain #beginWrite()} and {@linkplain #endWrite()}
+     *
+     * @return sum of emptied cells
+     */
+    long retire() {
+
+        retired = true;
+
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+
+            sum += cells.getAndSet(i * STRIDE, RETIRED);
+        }
+
+        return sum;
+    }
+
+    boolean isRetired() {
+
+        return retired;
+    }
+
+    int version() {
+
+        return version;
+    }
+
+    @SuppressWarnings("NonAtomicOperationOnVolatileField") // guarded by this
+    void beginWrite() {
+
+        version++;
+    }
+
+    @SuppressWarnings("NonAtomicOperationOnVolatileField") // guarded by this
+    void endWrite() {
+
+        version++;
+    }
+
+    /**
+     * @return true if fewer than specified amount of relaxed increments were made since last call
+     */
+    synchronized boolean cooledDown(long minIncrements) {
+
+        val activity = drained + cellsSum();
+        val cool = activity - lastActivity < minIncrements;
+        lastActivity = activity;
+
+        return cool;
+    }
+}
@@ -0,0 +1,18 @@
+package io.ruv.counters.repo.concurrentmap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AtomicLong} followed by 128 bytes of padding - subclass fields are laid out after the inherited value
+ */
+@SuppressWarnings("unused")
+final class PaddedAtomicLong extends AtomicLong {
+
+    private long p01, p02, p03, p04, p05, p06, p07, p08;
+    private long p09, p10, p11, p12, p13, p14, p15, p16;
+
+    PaddedAtomicLong(long initialValue) {
+
+        super(initialValue);
+    }
+}
@@ -0,0 +1,27 @@
+package io.ruv.counters.repo.durable;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * Guarantee given for a modification once it is reported done, picked per {@link WriteAheadLog}
+ */
+public enum Durability {
+
+    /**
+     * Records are written to log files and left for the OS to write back -
+     * they survive a crash of the process, but not of the machine
+     */
+    NONE,
+
+    /**
+     * Every batch of records is {@linkplain FileChannel#force(boolean) forced} to disk right after it is written,
+     * modifications do not wait for it - at most the batches in flight are lost when the machine crashes
+     */
+    ASYNC,
+
+    /**
+     * Modifications wait until the batch holding their record is forced to disk,
+     * all of those waiting at the same time share a single force (group commit)
+     */
+    SYNC
+}
@@ -0,0 +1,783 @@
+package io.ruv.counters.repo.durable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.striped.StampedStriped;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of {@link CountersRepository} logging every modification into {@link WriteAheadLog},
+ * latest snapshot and the log following it are loaded into decorated repository when decorator is opened
+ * <p>
+ * Modifications are logged as the state they leave behind - counter value or its absence - so a record replayed
+ * over a state which already includes it changes nothing. Modification is applied and its record queued
+ * under exclusive stripe lock of the name, keeping records of every name in the order modifications were applied
+ * <p>
+ * Lookups go straight to decorated repository, modifications report done as soon as {@link Durability} allows
+ * <p>
+ * Checkpoints keep the log short: the log is rotated, counters are written into a snapshot one by one
+ * while modifications go on, and segments preceding the rotation are deleted. Modifications racing with
+ * the snapshot are logged after the rotation, so replaying them over the snapshot brings every counter
+ * to its latest state
+ * <p>
+ * With {@linkplain WalSettings#getFlushInterval() flush interval} set modifications are not logged one by one:
+ * they are applied to decorated repository and counter is marked dirty, every flush logs latest state
+ * of dirty counters - any number of modifications costs a single record per flush, while modifications
+ * made since the last flush are lost on crash. Modifications report done right away
+ */
+@Slf4j
+public class DurableCountersRepository implements CountersRepository, AutoCloseable {
+
+    private static final int STRIPES = 1024;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final CountersRepository delegate;
+    private final StampedStriped stripes = new StampedStriped(STRIPES);
+    private final Path directory;
+    private final WriteAheadLog wal;
+
+    /**
+     * Names of counters modified since previous flush, null when every modification is logged
+     */
+    @Nullable
+    private final Set<String> dirty;
+
+    @Nullable
+    private final ScheduledExecutorService daemon;
+
+    // guarded by this
+    private long checkpointedRecords;
+    private boolean closed;
+
+    // written under this
+    private volatile long flushes;
+    private volatile long flushedCounters;
+    private volatile long flushNanos;
+
+    private DurableCountersRepository(CountersRepository delegate, WalSettings settings) throws IOException {
+
+        this.delegate = delegate;
+        this.directory = settings.getDirectory();
+
+        Files.createDirectories(directory);
+        val from = loadSnapshot();
+
+        val replayer = new Replayer(delegate);
+        this.wal = WriteAheadLog.open(settings, from, replayer);
+
+        // replayed tail is worth a checkpoint even if nothing gets logged
+        this.checkpointedRecords = replayer.replayed > 0 ? -1 : 0;
+
+        this.dirty = settings.getFlushInterval().isPositive() ? ConcurrentHashMap.newKeySet() : null;
+        this.daemon = schedule(settings.getCheckpointInterval(), settings.getFlushInterval());
+    }
+
+    /**
+     * Loads latest snapshot and the log following it from specified settings into specified repository
+     * and decorates it
+     *
+     * @param delegate repository to decorate, expected to be empty, closed along with decorator
+     *                 if it is {@link AutoCloseable}
+     */
+    public static DurableCountersRepository open(CountersRepository delegate, WalSettings settings)
+            throws IOException {
+
+        return new DurableCountersRepository(delegate, settings);
+    }
+
+    /**
+     * @return log modifications are recorded into
+     */
+    public WriteAheadLog getWal() {
+
+        return wal;
+    }
+
+    /**
+     * Writes snapshot of counters and truncates the log up to it
+     * Skipped if nothing was logged since previous checkpoint
+     *
+     * @return amount of counters written, -1 if checkpoint was skipped
+     * @throws IOException when snapshot can not be written, log is left as it is
+     */
+    public synchronized long checkpoint() throws IOException {
+
+        val records = wal.getRecords();
+        if (closed || records == checkpointedRecords) {
+
+            return -1;
+        }
+
+        val started = System.nanoTime();
+        val segment = wal.rotate();
+        val snapshot = snapshot(segment);
+        val temporary = snapshot.resolveSibling(snapshot.getFileName() + TEMPORARY_SUFFIX);
+
+        long written;
+        try {
+
+            written = writeSnapshot(temporary);
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+        } catch (IOException | RuntimeException e) {
+
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        // everything older is covered by the new snapshot
+        for (val older : snapshots()) {
+
+            if (number(older) < segment) {
+
+                Files.delete(older);
+            }
+        }
+        wal.truncate(segment);
+
+        checkpointedRecords = records;
+        log.info("Checkpoint of {} counters written in {} ms", written,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        return written;
+    }
+
+    /**
+     * Logs latest state of every counter modified since previous flush and waits for the records
+     * as {@link Durability} requires, does nothing unless flush interval is set
+     *
+     * @return amount of counters logged
+     */
+    public synchronized int flush() {
+
+        if (dirty == null || closed) {
+
+            return 0;
+        }
+
+        val started = System.nanoTime();
+        val result = new CounterResult();
+        val iterator = dirty.iterator();
+        WriteAheadLog.Entry last = null;
+        int flushed = 0;
+
+        // name is unmarked before its state is read, modification applied after the read marks it again
+        while (iterator.hasNext()) {
+
+            val name = iterator.next();
+            iterator.remove();
+            flushed++;
+
+            last = delegate.findByName(name, result).isOk()
+                    ? wal.append(WriteAheadLog.Operation.SET, name, result.getValue())
+                    : wal.append(WriteAheadLog.Operation.DELETE, name, 0);
+        }
+
+        wal.await(last);
+
+        val elapsed = System.nanoTime() - started;
+        flushes++;
+        flushedCounters += flushed;
+        flushNanos += elapsed;
+
+        log.debug("Flushed {} counters in {} ms", flushed, TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        return flushed;
+    }
+
+    /**
+     * @return flushes done so far, including empty ones
+     */
+    public long getFlushes() {
+
+        return flushes;
+    }
+
+    /**
+     * @return counters logged by flushes so far
+     */
+    public long getFlushedCounters() {
+
+        return flushedCounters;
+    }
+
+    /**
+     * @return time spent in flushes so far
+     */
+    public Duration getFlushTime() {
+
+        return Duration.ofNanos(flushNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
+
+        return delegate.findByName(name, result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Stream<Counter> findAll() {
+
+        return delegate.findAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        if (dirty != null) {
+
+            return marked(name, delegate.create(name, value, result));
+        }
+
+        wal.await(createLogged(name, value, result));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Waits for the record of the last counter only - records are written in order
+     */
+    @Override
+    public int createAll(@NonNull String[] names, @NonNull long[] values, int count) {
+
+        if (dirty != null) {
+
+            val created = delegate.createAll(names, values, count);
+
+            // counters not created are flushed as they are, which changes nothing
+            for (int i = 0; i < count; i++) {
+
+                mark(names[i]);
+            }
+
+            return created;
+        }
+
+        val result = new CounterResult();
+        WriteAheadLog.Entry last = null;
+        int created = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            val entry = createLogged(names[i], values[i], result);
+
+            if (entry != null) {
+
+                last = entry;
+                created++;
+            }
+        }
+
+        wal.await(last);
+        return created;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        if (dirty != null) {
+
+            return marked(name, delegate.addByName(name, delta, result));
+        }
+
+        wal.await(addLogged(name, delta, result));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Logging needs the new value, so increment is not relaxed in any way unless modifications are flushed
+     */
+    @Override
+    public boolean incrementByNameRelaxed(@NonNull String name) throws ArithmeticException {
+
+        if (dirty != null) {
+
+            val updated = delegate.incrementByNameRelaxed(name);
+
+            if (updated) {
+
+                mark(name);
+            }
+
+            return updated;
+        }
+
+        val result = addByName(name, 1, new CounterResult());
+
+        if (result.getStatus() == CounterResult.Status.OVERFLOW) {
+
+            throw new ArithmeticException("long overflow");
+        }
+
+        return result.isOk();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Counters are updated one by one, waiting for the record of the last update only
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        if (dirty != null) {
+
+            val results = delegate.incrementAll(deltas);
+
+            for (val result : results.entrySet()) {
+
+                if (result.getValue().isUpdated()) {
+
+                    mark(result.getKey());
+                }
+            }
+
+            return results;
+        }
+
+        val result = new CounterResult();
+        val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+        WriteAheadLog.Entry last = null;
+
+        for (val delta : deltas.entrySet()) {
+
+            val entry = addLogged(delta.getKey(), delta.getValue(), result);
+            results.put(delta.getKey(), IncrementResult.from(result));
+
+            if (entry != null) {
+
+                last = entry;
+            }
+        }
+
+        wal.await(last);
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        if (dirty != null) {
+
+            return marked(name, delegate.deleteByName(name, result));
+        }
+
+        val lock = stripes.lockFor(name);
+        val stamp = lock.writeLock();
+        WriteAheadLog.Entry entry = null;
+        try {
+
+            if (delegate.deleteByName(name, result).isOk()) {
+
+                entry = wal.append(WriteAheadLog.Operation.DELETE, name, 0);
+            }
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+
+        wal.await(entry);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
+
+        return delegate.valuesSum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return delegate.findNames(after, limit);
+    }
+
+    /**
+     * Stops checkpoints, flushes dirty counters, writes records queued so far and closes the log,
+     * then closes decorated repository if it is {@link AutoCloseable}
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (daemon != null) {
+
+            daemon.shutdown();
+        }
+
+        // waits for checkpoint or flush in progress
+        synchronized (this) {
+
+            if (closed) {
+
+                return;
+            }
+
+            flush();
+            closed = true;
+            wal.close();
+        }
+
+        if (delegate instanceof AutoCloseable closeable) {
+
+            try {
+
+                closeable.close();
+            } catch (IOException | RuntimeException e) {
+
+                throw e;
+            } catch (Exception e) {
+
+                throw new IOException("Decorated repository could not be closed", e);
+            }
+        }
+    }
+
+    /**
+     * Loads latest snapshot into decorated repository, leftovers of interrupted checkpoints are deleted
+     *
+     * @return number of the first log segment not covered by the snapshot
+     */
+    private long loadSnapshot() throws IOException {
+
+        try (val files = Files.list(directory)) {
+
+            for (val file : files.filter(file -> file.toString().endsWith(TEMPORARY_SUFFIX)).toList()) {
+
+                Files.delete(file);
+            }
+        }
+
+        val snapshots = snapshots();
+        if (snapshots.isEmpty()) {
+
+            return 1;
+        }
+
+        val latest = snapshots.get(snapshots.size() - 1);
+        val started = System.nanoTime();
+        val loader = new Loader(delegate);
+
+        val loaded = SnapshotFile.read(latest, loader::add);
+        loader.flush();
+
+        log.info("Loaded {} counters from {} in {} ms", loaded, latest,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        return number(latest);
+    }
+
+    /**
+     * @return amount of counters written
+     */
+    private long writeSnapshot(Path file) throws IOException {
+
+        val result = new CounterResult();
+
+        try (val writer = SnapshotFile.writer(file); val names = delegate.streamNames(null)) {
+
+            val iterator = names.iterator();
+            while (iterator.hasNext()) {
+
+                val name = iterator.next();
+
+                if (delegate.findByName(name, result).isOk()) {
+
+                    writer.add(name, result.getValue());
+                }
+            }
+
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * Makes renames within the directory durable
+     */
+    private void syncDirectory() {
+
+        try (val channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+
+            channel.force(true);
+        } catch (IOException ignored) {
+
+            // not every platform allows forcing a directory
+        }
+    }
+
+    @Nullable
+    private ScheduledExecutorService schedule(Duration checkpointInterval, Duration flushInterval) {
+
+        if (!checkpointInterval.isPositive() && dirty == null) {
+
+            return null;
+        }
+
+        val threadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("DurableDaemon-")
+                .build();
+
+        val executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        if (checkpointInterval.isPositive()) {
+
+            val nanos = checkpointInterval.toNanos();
+            executor.scheduleWithFixedDelay(this::scheduledCheckpoint, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (dirty != null) {
+
+            val nanos = flushInterval.toNanos();
+            executor.scheduleWithFixedDelay(this::scheduledFlush, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        return executor;
+    }
+
+    private void scheduledCheckpoint() {
+
+        try {
+
+            checkpoint();
+        } catch (Exception e) {
+
+            log.error("Checkpoint failed", e);
+        }
+    }
+
+    private void scheduledFlush() {
+
+        try {
+
+            flush();
+        } catch (Exception e) {
+
+            log.error("Flush failed", e);
+        }
+    }
+
+    private CounterResult marked(String name, CounterResult result) {
+
+        if (result.isOk()) {
+
+            mark(name);
+        }
+
+        return result;
+    }
+
+    private void mark(String name) {
+
+        // counters modified often are marked already, lookup spares them a write
+        if (!dirty.contains(name)) {
+
+            dirty.add(name);
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+
+        try (val files = Files.list(directory)) {
+
+            return files.filter(file -> {
+
+                        val name = file.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path snapshot(long segment) {
+
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private static long number(Path snapshot) {
+
+        val name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    /**
+     * @return queued record, null if counter was not created
+     */
+    @Nullable
+    private WriteAheadLog.Entry createLogged(String name, long value, CounterResult result) {
+
+        val lock = stripes.lockFor(name);
+        val stamp = lock.writeLock();
+        try {
+
+            return delegate.create(name, value, result).isOk()
+                    ? wal.append(WriteAheadLog.Operation.SET, name, value)
+                    : null;
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return queued record, null if counter was not updated
+     */
+    @Nullable
+    private WriteAheadLog.Entry addLogged(String name, long delta, CounterResult result) {
+
+        val lock = stripes.lockFor(name);
+        val stamp = lock.writeLock();
+        try {
+
+            return delegate.addByName(name, delta, result).isOk()
+                    ? wal.append(WriteAheadLog.Operation.SET, name, result.getValue())
+                    : null;
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Creates snapshot counters in decorated repository, a batch at a time
+     */
+    private static final class Loader {
+
+        private final CountersRepository repository;
+        private final String[] names = new String[LOAD_BATCH_SIZE];
+        private final long[] values = new long[LOAD_BATCH_SIZE];
+
+        private int count;
+
+        private Loader(CountersRepository repository) {
+
+            this.repository = repository;
+        }
+
+        private void add(String name, long value) {
+
+            names[count] = name;
+            values[count] = value;
+
+            if (++count == LOAD_BATCH_SIZE) {
+
+                flush();
+            }
+        }
+
+        private void flush() {
+
+            repository.createAll(names, values, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Applies replayed records to decorated repository, bringing every counter to the logged state
+     */
+    private static final class Replayer implements WriteAheadLog.Replay {
+
+        private final CountersRepository repository;
+        private final CounterResult result = new CounterResult();
+
+        private long replayed;
+
+        private Replayer(CountersRepository repository) {
+
+            this.repository = repository;
+        }
+
+        @Override
+        public void set(String name, long value) {
+
+            replayed++;
+
+            if (!repository.findByName(name, result).isOk()) {
+
+                repository.create(name, value, result);
+                return;
+            }
+
+            val current = result.getValue();
+            if (current == value) {
+
+                return;
+            }
+
+            try {
+
+                repository.addByName(name, Math.subtractExact(value, current), result);
+            } catch (ArithmeticException e) {
+
+                // difference does not fit - counter is recreated instead
+                repository.deleteByName(name, result);
+                repository.create(name, value, result);
+            }
+        }
+
+        @Override
+        public void delete(String name) {
+
+            replayed++;
+            repository.deleteByName(name, result);
+        }
+    }
+}
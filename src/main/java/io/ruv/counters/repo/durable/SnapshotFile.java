@@ -0,0 +1,263 @@
+package io.ruv.counters.repo.durable;
+
+import io.ruv.counters.util.snapshot.SnapshotFormat;
+import io.ruv.counters.util.snapshot.SnapshotReader;
+import io.ruv.counters.util.snapshot.SnapshotWriter;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot of counters in a file, written and read sequentially in {@link SnapshotFormat}
+ * <p>
+ * Files of version 1 are still read: magic (int), version (byte), then a record per counter -
+ * name length + 1 (varint), UTF-8 encoded name and value (long), then 0 (varint) closing the records,
+ * amount of records (long) and CRC32C of everything before it (int)
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SnapshotFile {
+
+    static final byte LEGACY_VERSION = 1;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * Writes records into a new file, file is complete and forced to disk once writer is closed
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final SnapshotWriter writer;
+
+        private Writer(Path file, SnapshotFormat.Compression compression) throws IOException {
+
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.writer = new SnapshotWriter(Channels.newOutputStream(channel), compression);
+        }
+
+        /**
+         * Appends record of specified counter
+         */
+        public void add(String name, long value) throws IOException {
+
+            writer.add(name, value);
+        }
+
+        /**
+         * @return records appended so far
+         */
+        public long getCount() {
+
+            return writer.getCount();
+        }
+
+        /**
+         * Writes the closing block and forces the file to disk
+         */
+        @Override
+        public void close() throws IOException {
+
+            try (channel) {
+
+                writer.finish();
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * @return writer of a new snapshot at specified path, with uncompressed blocks
+     * @throws IOException when file exists or can not be created
+     */
+    public static Writer writer(Path file) throws IOException {
+
+        return writer(file, SnapshotFormat.Compression.NONE);
+    }
+
+    /**
+     * @return writer of a new snapshot at specified path
+     * @throws IOException when file exists or can not be created
+     */
+    public static Writer writer(Path file, SnapshotFormat.Compression compression) throws IOException {
+
+        return new Writer(file, compression);
+    }
+
+    /**
+     * Hands over every record of specified snapshot to the receiver, in the order records were written
+     *
+     * @return amount of records read
+     * @throws IOException           when file can not be read
+     * @throws IllegalStateException when file is not a snapshot, is truncated or does not match its checksum
+     */
+    public static long read(Path file, ObjLongConsumer<String> receiver) throws IOException {
+
+        try (val in = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            // version of a file is peeked at without moving its position
+            val header = ByteBuffer.allocate(Integer.BYTES + 1);
+            in.read(header, 0);
+
+            if (!header.hasRemaining() && header.get(Integer.BYTES) == LEGACY_VERSION) {
+
+                return readLegacy(in, file, receiver);
+            }
+
+            try (val reader = new SnapshotReader(Channels.newInputStream(in))) {
+
+                while (reader.next()) {
+
+                    receiver.accept(reader.getName(), reader.getValue());
+                }
+
+                return reader.getCount();
+            } catch (IllegalStateException e) {
+
+                throw new IllegalStateException(e.getMessage() + " in " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Reads snapshot of version 1, checked against a single checksum at the end
+     */
+    private static long readLegacy(FileChannel in, Path file, ObjLongConsumer<String> receiver) throws IOException {
+
+        val reader = new Reader(in, file);
+
+        if (reader.require(Integer.BYTES + 1).getInt() != SnapshotFormat.MAGIC) {
+
+            throw reader.corrupt("not a snapshot");
+        }
+        reader.chunk.get();
+
+        var bytes = new byte[256];
+        long count = 0;
+
+        while (true) {
+
+            val length = reader.varint() - 1;
+            if (length < 0) {
+
+                break;
+            }
+
+            if (bytes.length < length) {
+
+                bytes = new byte[length];
+            }
+
+            reader.require(length + Long.BYTES).get(bytes, 0, length);
+            receiver.accept(new String(bytes, 0, length, StandardCharsets.UTF_8), reader.chunk.getLong());
+            count++;
+        }
+
+        val written = reader.require(Long.BYTES).getLong();
+        val expected = reader.checksum();
+        val checksum = reader.require(Integer.BYTES).getInt();
+
+        if (written != count || checksum != expected) {
+
+            throw reader.corrupt("checksum mismatch");
+        }
+
+        return count;
+    }
+
+    /**
+     * Sequential reader of file contents, keeping checksum of bytes consumed so far
+     */
+    private static final class Reader {
+
+        private final FileChannel in;
+        private final Path file;
+        private final CRC32C crc = new CRC32C();
+
+        private ByteBuffer chunk = ByteBuffer.allocateDirect(BUFFER_BYTES).limit(0);
+        private boolean eof;
+
+        private Reader(FileChannel in, Path file) {
+
+            this.in = in;
+            this.file = file;
+        }
+
+        /**
+         * @return chunk with at least specified amount of bytes remaining
+         */
+        private ByteBuffer require(int bytes) throws IOException {
+
+            while (chunk.remaining() < bytes) {
+
+                if (eof) {
+
+                    throw corrupt("truncated");
+                }
+
+                // bytes consumed are final, they go into checksum before being dropped
+                crc.update(chunk.duplicate().flip());
+
+                if (chunk.capacity() < bytes) {
+
+                    val larger = ByteBuffer.allocateDirect(bytes);
+                    larger.put(chunk);
+                    chunk = larger;
+                } else {
+
+                    chunk.compact();
+                }
+
+                eof = in.read(chunk) < 0;
+                chunk.flip();
+            }
+
+            return chunk;
+        }
+
+        private int varint() throws IOException {
+
+            int value = 0;
+
+            for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+
+                val b = require(1).get();
+                value |= (b & 0x7F) << shift;
+
+                if (b >= 0) {
+
+                    return value;
+                }
+            }
+
+            throw corrupt("malformed length");
+        }
+
+        /**
+         * @return checksum of every byte consumed so far
+         */
+        private int checksum() {
+
+            crc.update(chunk.duplicate().flip());
+            chunk.compact().flip();
+
+            return (int) crc.getValue();
+        }
+
+        private IllegalStateException corrupt(String reason) {
+
+            return new IllegalStateException("Corrupt snapshot " + file + ": " + reason);
+        }
+    }
+}
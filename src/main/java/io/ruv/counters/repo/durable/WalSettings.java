@@ -0,0 +1,49 @@
+package io.ruv.counters.repo.durable;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * {@link WriteAheadLog} settings, bound from {@code counters.wal.*} properties
+ */
+@Data
+public class WalSettings {
+
+    /**
+     * Whether modifications are logged and replayed into repository on startup
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding log segments and snapshots
+     */
+    private Path directory = Path.of("data", "wal");
+
+    /**
+     * Point at which modifications are reported done
+     */
+    private Durability durability = Durability.SYNC;
+
+    /**
+     * Records written and forced together at most
+     */
+    private int maxBatch = 4096;
+
+    /**
+     * Records waiting for the appender at most, modifications block once it is reached
+     */
+    private int queueCapacity = 1 << 16;
+
+    /**
+     * Time between checkpoints, zero disables them and the log keeps growing
+     */
+    private Duration checkpointInterval = Duration.ofMinutes(1);
+
+    /**
+     * Time between flushes of modified counters, each logged once per flush with its latest value
+     * however many times it was modified - zero logs every modification as it is made
+     */
+    private Duration flushInterval = Duration.ZERO;
+}
@@ -0,0 +1,599 @@
+package io.ruv.counters.repo.durable;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of counter modifications, kept as numbered segment files within a directory
+ * <p>
+ * Records are appended by a single appender thread: whatever got queued while previous batch was written goes out
+ * with one write and, depending on {@link Durability}, one force - concurrent modifications share the cost of syncing
+ * <p>
+ * Record layout: payload length (int), CRC32C of payload (int), then payload - operation (byte), value (long)
+ * and UTF-8 encoded name. Replay stops at the first torn record of the last segment and cuts the segment there,
+ * a broken record anywhere else is reported as corruption
+ * <p>
+ * Log is {@linkplain #rotate() rotated} into a new segment to be checkpointed: once records of older segments are
+ * covered by a snapshot, the log is {@linkplain #truncate(long) truncated} up to the new segment
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    static final int HEADER_BYTES = 8;
+    static final int FIXED_PAYLOAD_BYTES = 9;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long POLL_MILLIS = 10;
+
+    private final Path directory;
+    private final Durability durability;
+    private final int maxBatch;
+    private final BlockingQueue<Entry> queue;
+    private final Thread appender;
+
+    private FileChannel channel;
+    private volatile long segment;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    // written by appender only
+    private volatile long batches;
+    private volatile long records;
+
+    /**
+     * Modification recorded by the log
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Operation {
+
+        /**
+         * Counter exists with specified value - created or updated
+         */
+        SET((byte) 1),
+
+        /**
+         * Counter does not exist
+         */
+        DELETE((byte) 2);
+
+        private final byte code;
+
+        static Operation of(byte code) {
+
+            return switch (code) {
+
+                case 1 -> SET;
+                case 2 -> DELETE;
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * Receives replayed records in the order they were appended
+     */
+    public interface Replay {
+
+        void set(String name, long value);
+
+        void delete(String name);
+    }
+
+    /**
+     * Record queued for the appender, awaited with {@linkplain #await(Entry)}
+     * Entry without operation marks the point at which the log moves to a new segment
+     */
+    public static final class Entry {
+
+        private final Operation operation;
+        private final String name;
+        private final long value;
+
+        private volatile Thread waiter;
+        private volatile boolean done;
+        private volatile boolean failed;
+
+        private Entry(Operation operation, String name, long value) {
+
+            this.operation = operation;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private WriteAheadLog(WalSettings settings) {
+
+        this.directory = settings.getDirectory();
+        this.durability = settings.getDurability();
+        this.maxBatch = settings.getMaxBatch();
+        this.queue = new LinkedBlockingQueue<>(settings.getQueueCapacity());
+        this.appender = new Thread(this::append, "wal-appender");
+        this.appender.setDaemon(true);
+    }
+
+    /**
+     * Replays whole existing log into specified receiver and starts appending after its last record
+     *
+     * @throws IOException           when log can not be read or opened for writing
+     * @throws IllegalStateException when a record other than the last one is corrupt
+     */
+    public static WriteAheadLog open(WalSettings settings, Replay replay) throws IOException {
+
+        return open(settings, 1, replay);
+    }
+
+    /**
+     * Replays existing log from specified segment on into specified receiver and starts appending after its
+     * last record, older segments are deleted unread
+     *
+     * @param from number of the first segment not covered by a snapshot
+     * @throws IOException           when log can not be read or opened for writing
+     * @throws IllegalStateException when a record other than the last one is corrupt
+     */
+    public static WriteAheadLog open(WalSettings settings, long from, Replay replay) throws IOException {
+
+        val log = new WriteAheadLog(settings);
+        Files.createDirectories(log.directory);
+        log.truncate(from);
+
+        val segments = log.segments();
+        for (int i = 0; i < segments.size(); i++) {
+
+            log.replay(segments.get(i), replay, i == segments.size() - 1);
+        }
+
+        log.segment = segments.isEmpty() ? from : number(segments.get(segments.size() - 1));
+        log.channel = FileChannel.open(log.segment(log.segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.channel.position(log.channel.size());
+        log.appender.start();
+
+        return log;
+    }
+
+    /**
+     * Queues record of specified modification, blocking while the queue is full
+     * Records are appended in the order they are queued
+     *
+     * @return queued record
+     * @throws IllegalStateException when log is closed or has failed
+     */
+    public Entry append(Operation operation, String name, long value) {
+
+        checkWritable();
+
+        val entry = new Entry(operation, name, value);
+        put(entry);
+
+        return entry;
+    }
+
+    private void put(Entry entry) {
+
+        try {
+
+            // a stopped appender never makes room, so waiting gives up once log is no longer writable
+            while (!queue.offer(entry, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+
+                checkWritable();
+            }
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing log record", e);
+        }
+
+        // appender may have stopped between the check and the offer, after its last look at the queue
+        if (failure != null) {
+
+            val rest = new ArrayList<Entry>();
+            queue.drainTo(rest);
+            complete(rest, true);
+        } else if (closed && queue.remove(entry)) {
+
+            complete(List.of(entry), true);
+        }
+
+        if (entry.failed) {
+
+            checkWritable();
+        }
+    }
+
+    /**
+     * Waits until specified record is forced to disk if log is {@linkplain Durability#SYNC}, returns at once otherwise
+     * Records are written in order - once a record is done, so are all queued before it
+     *
+     * @throws IllegalStateException when record could not be written
+     */
+    public void await(@Nullable Entry entry) {
+
+        if (entry != null && durability == Durability.SYNC) {
+
+            waitFor(entry);
+        }
+    }
+
+    /**
+     * Moves the log to a new segment - records queued before this call go to older segments, records queued after it
+     * go to the new one or later ones
+     *
+     * @return number of the new segment
+     * @throws IllegalStateException when log is closed or has failed
+     */
+    public synchronized long rotate() {
+
+        checkWritable();
+
+        val marker = new Entry(null, null, 0);
+        put(marker);
+        waitFor(marker);
+
+        return segment;
+    }
+
+    /**
+     * Deletes segments preceding specified one
+     */
+    public void truncate(long before) throws IOException {
+
+        for (val file : segments()) {
+
+            if (number(file) < before) {
+
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * @return number of the segment records are appended to
+     */
+    public long getSegment() {
+
+        return segment;
+    }
+
+    private void waitFor(Entry entry) {
+
+        entry.waiter = Thread.currentThread();
+        while (!entry.done && failure == null) {
+
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS));
+        }
+
+        // record still pending once appender failed is never written
+        if (!entry.done || entry.failed) {
+
+            throw new IllegalStateException("Log record could not be written", failure);
+        }
+    }
+
+    /**
+     * @return batches written so far
+     */
+    public long getBatches() {
+
+        return batches;
+    }
+
+    /**
+     * @return records written so far
+     */
+    public long getRecords() {
+
+        return records;
+    }
+
+    /**
+     * Writes records queued so far and stops the appender
+     */
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+
+        try {
+
+            appender.join();
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+        }
+
+        // records which slipped in while appender was stopping are never written
+        val rest = new ArrayList<Entry>();
+        queue.drainTo(rest);
+        complete(rest, true);
+
+        channel.close();
+    }
+
+    private void checkWritable() {
+
+        if (closed) {
+
+            throw new IllegalStateException("Log is closed");
+        }
+
+        if (failure != null) {
+
+            throw new IllegalStateException("Log has failed", failure);
+        }
+    }
+
+    /**
+     * Appender loop - drains the queue in batches until log is closed and nothing is left
+     */
+    private void append() {
+
+        val batch = new ArrayList<Entry>(maxBatch);
+
+        try {
+
+            while (!closed || !queue.isEmpty()) {
+
+                val first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+
+                write(batch);
+                complete(batch, false);
+                batch.clear();
+            }
+
+            force();
+        } catch (Throwable e) {
+
+            failure = e;
+            complete(batch, true);
+
+            // records queued after failure are never written
+            val rest = new ArrayList<Entry>();
+            queue.drainTo(rest);
+            complete(rest, true);
+        }
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+
+        buffer.clear();
+        int written = 0;
+
+        for (val entry : batch) {
+
+            if (entry.operation == null) {
+
+                flush();
+                force();
+                nextSegment();
+                continue;
+            }
+
+            val name = entry.name.getBytes(StandardCharsets.UTF_8);
+            val size = HEADER_BYTES + FIXED_PAYLOAD_BYTES + name.length;
+
+            if (buffer.remaining() < size) {
+
+                flush();
+
+                if (buffer.capacity() < size) {
+
+                    buffer = ByteBuffer.allocateDirect(size);
+                }
+            }
+
+            val start = buffer.position();
+            buffer.putInt(FIXED_PAYLOAD_BYTES + name.length).putInt(0)
+                    .put(entry.operation.getCode()).putLong(entry.value).put(name);
+            buffer.putInt(start + 4, checksum(buffer, start + HEADER_BYTES, buffer.position()));
+            written++;
+        }
+
+        flush();
+        force();
+
+        batches++;
+        records += written;
+    }
+
+    private void force() throws IOException {
+
+        if (durability != Durability.NONE) {
+
+            channel.force(false);
+        }
+    }
+
+    private void nextSegment() throws IOException {
+
+        val next = FileChannel.open(segment(segment + 1), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channel.close();
+
+        channel = next;
+        segment++;
+    }
+
+    private void flush() throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void complete(List<Entry> batch, boolean failed) {
+
+        for (val entry : batch) {
+
+            entry.failed = failed;
+            entry.done = true;
+
+            val waiter = entry.waiter;
+            if (waiter != null) {
+
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    private void replay(Path segment, Replay replay, boolean last) throws IOException {
+
+        try (val in = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            val valid = read(in, replay);
+
+            if (valid < in.size()) {
+
+                if (!last) {
+
+                    throw new IllegalStateException("Corrupt record in " + segment + " at " + valid);
+                }
+
+                // torn tail of an interrupted write
+                in.truncate(valid);
+            }
+        }
+    }
+
+    /**
+     * Hands over records of specified segment to the receiver
+     *
+     * @return position past the last intact record
+     */
+    static long read(FileChannel in, Replay replay) throws IOException {
+
+        val size = in.size();
+        var chunk = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        long position = 0;
+        var bytes = new byte[256];
+
+        while (true) {
+
+            chunk.clear();
+            in.read(chunk, position);
+            chunk.flip();
+
+            int consumed = 0;
+
+            while (chunk.remaining() - consumed >= HEADER_BYTES) {
+
+                val start = consumed;
+                val length = chunk.getInt(start);
+
+                if (length < FIXED_PAYLOAD_BYTES || position + start + HEADER_BYTES + length > size) {
+
+                    return position + start;
+                }
+
+                if (chunk.remaining() - start < HEADER_BYTES + length) {
+
+                    if (start == 0) {
+
+                        // record larger than the chunk - read it whole
+                        chunk = ByteBuffer.allocateDirect(HEADER_BYTES + length);
+                    }
+                    break;
+                }
+
+                val payload = start + HEADER_BYTES;
+                if (checksum(chunk, payload, payload + length) != chunk.getInt(start + 4)) {
+
+                    return position + start;
+                }
+
+                val operation = Operation.of(chunk.get(payload));
+                if (operation == null) {
+
+                    return position + start;
+                }
+
+                val value = chunk.getLong(payload + 1);
+                val nameLength = length - FIXED_PAYLOAD_BYTES;
+                if (bytes.length < nameLength) {
+
+                    bytes = new byte[nameLength];
+                }
+                chunk.get(payload + FIXED_PAYLOAD_BYTES, bytes, 0, nameLength);
+                val name = new String(bytes, 0, nameLength, StandardCharsets.UTF_8);
+
+                switch (operation) {
+
+                    case SET -> replay.set(name, value);
+                    case DELETE -> replay.delete(name);
+                }
+
+                consumed = payload + length;
+            }
+
+            if (consumed == 0 && chunk.limit() < HEADER_BYTES) {
+
+                // nothing but a torn header is left
+                return position;
+            }
+
+            position += consumed;
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+
+        val crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(to).position(from));
+
+        return (int) crc.getValue();
+    }
+
+    private List<Path> segments() throws IOException {
+
+        try (val files = Files.list(directory)) {
+
+            return files.filter(file -> {
+
+                        val name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long number(Path segment) {
+
+        val name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Path segment(long number) {
+
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
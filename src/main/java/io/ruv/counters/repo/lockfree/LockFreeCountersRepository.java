@@ -0,0 +1,281 @@
+package io.ruv.counters.repo.lockfree;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.index.LazyNameIndex;
+import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.snapshot.SnapshotTracker;
+import io.ruv.counters.util.sum.StripedSum;
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link CountersRepository} backed by {@link LockFreeTable} - parallel String[] and long[] arrays
+ * without any per-counter container objects
+ * Increments and removals latch a single table slot with CAS, lookups do not lock at all
+ * Table is resized cooperatively by threads modifying it, {@link GlobalLock} only blocks creations and removals
+ * while names index is built
+ * {@link SnapshotTracker} is used to create a copy in {@linkplain #findAll()} without blocking modifications,
+ * traversal waits for resize in progress and starts over if another one starts before it is done
+ */
+public class LockFreeCountersRepository implements CountersRepository {
+
+    private final AtomicReference<LockFreeTable> root = new AtomicReference<>(
+            new LockFreeTable(LockFreeTable.MIN_CAPACITY));
+    private final SnapshotTracker snapshots = new SnapshotTracker();
+    private final StripedSum sum = new StripedSum();
+    private final GlobalLock global = new GlobalLock();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing,
+            consumer -> traverse((name, value) -> consumer.accept(name)));
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val hash = LockFreeTable.hash(name);
+        var table = root.get();
+
+        while (true) {
+
+            val slot = table.find(name, hash);
+
+            if (slot >= 0) {
+
+                return result.ok(table.value(slot));
+            } else if (slot == LockFreeTable.ABSENT) {
+
+                return result.notFound();
+            }
+
+            table = table.next();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Returned counters hold values they had at the start of this operation,
+     * modifications in flight at that moment may or may not be seen
+     */
+    @NonNull
+    @Override
+    public Stream<Counter> findAll() {
+
+        val copy = snapshots.capture(this::traverse);
+
+        return copy.stream();
+    }
+
+    private void traverse(ObjLongConsumer<String> consumer) {
+
+        while (true) {
+
+            val table = root.get();
+
+            if (table.next() != null) {
+
+                forward(table);
+                Thread.yield();
+                continue;
+            }
+
+            // entries visited before an interrupted traversal are visited again with values at least as recent
+            if (table.forEach(consumer)) {
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        val hash = LockFreeTable.hash(name);
+
+        return global.reading(() -> {
+
+            var table = root.get();
+
+            while (true) {
+
+                val inserted = table.insert(name, hash, value, () -> {
+
+                    snapshots.beforeCreate(name);
+                    index.add(name);
+                });
+
+                if (inserted == LockFreeTable.CREATED) {
+
+                    sum.add(value);
+
+                    return result.ok(value);
+                } else if (inserted == LockFreeTable.DUPLICATE) {
+
+                    return result.duplicate();
+                }
+
+                table = forward(table);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        return add(name, delta, result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * There is no global lock to share - counters are latched one at a time
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        val result = new CounterResult();
+        val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+        deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
+
+        return results;
+    }
+
+    /**
+     * Adds specified delta to counter with specified name
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
+
+        val hash = LockFreeTable.hash(name);
+        var table = root.get();
+
+        while (true) {
+
+            val slot = table.latch(name, hash);
+
+            if (slot == LockFreeTable.ABSENT) {
+
+                return result.notFound();
+            } else if (slot == LockFreeTable.FORWARD) {
+
+                table = forward(table);
+                continue;
+            }
+
+            try {
+
+                val current = table.value(slot);
+
+                if (result.adding(current, delta).isOk()) {
+
+                    snapshots.beforeUpdate(name, current);
+                    table.value(slot, result.getValue());
+                    sum.add(delta);
+                }
+
+                return result;
+            } finally {
+
+                table.unlatch(slot);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val hash = LockFreeTable.hash(name);
+
+        return global.reading(() -> {
+
+            var table = root.get();
+
+            while (true) {
+
+                val slot = table.latch(name, hash);
+
+                if (slot == LockFreeTable.ABSENT) {
+
+                    return result.notFound();
+                } else if (slot == LockFreeTable.FORWARD) {
+
+                    table = forward(table);
+                    continue;
+                }
+
+                val value = table.value(slot);
+                snapshots.beforeDelete(name, value);
+                index.remove(name);
+                table.remove(slot);
+                sum.subtract(value);
+
+                return result.ok(value);
+            }
+        });
+    }
+
+    /**
+     * Helps moving entries of specified table and returns table following it
+     */
+    private LockFreeTable forward(LockFreeTable table) {
+
+        val next = table.next();
+
+        if (table.helpTransfer()) {
+
+            // tables are swapped in order - a table might have been finished before the one preceding it
+            var current = root.get();
+            while (current.next() != null && current.isTransferred()) {
+
+                root.compareAndSet(current, current.next());
+                current = root.get();
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+}
@@ -0,0 +1,432 @@
+package io.ruv.counters.repo.lockfree;
+
+import lombok.val;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing hash table built on parallel key, value and state arrays
+ * <p>
+ * Slot state only moves forward ({@code EMPTY -> INSERTING -> LIVE <-> LATCHED -> DELETED|MOVED}),
+ * tombstones are never reused and are dropped when table is resized
+ * Resize allocates next table and moves entries there in chunks - every thread noticing resize in progress
+ * helps with moving, operations on moved slots are forwarded to next table
+ * Slots are latched with CAS while their value is updated, removed or moved
+ */
+final class LockFreeTable {
+
+    static final int MIN_CAPACITY = 1024;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Returned by lookups when name is absent from this and following tables
+     */
+    static final int ABSENT = -1;
+
+    /**
+     * Returned by lookups when name has to be looked up in next table
+     */
+    static final int FORWARD = -2;
+
+    static final int CREATED = 0;
+    static final int DUPLICATE = 1;
+
+    private static final int CHUNK = 1024;
+
+    private static final Runnable NOTHING = () -> {
+    };
+
+    private static final int EMPTY = 0;
+    private static final int INSERTING = 1;
+    private static final int LIVE = 2;
+    private static final int LATCHED = 3;
+    private static final int DELETED = 4;
+    private static final int MOVED = 5;
+    private static final int MOVED_EMPTY = 6;
+
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle NEXT;
+
+    static {
+
+        try {
+
+            NEXT = MethodHandles.lookup().findVarHandle(LockFreeTable.class, "next", LockFreeTable.class);
+        } catch (ReflectiveOperationException e) {
+
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String[] keys;
+    private final long[] values;
+    private final int[] states;
+    private final int mask;
+    private final int maxUsed;
+
+    private final AtomicInteger used = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+    private final AtomicInteger transferIndex = new AtomicInteger();
+    private final AtomicInteger transferred = new AtomicInteger();
+
+    @SuppressWarnings("unused") // accessed via NEXT
+    private volatile LockFreeTable next;
+
+    LockFreeTable(int capacity) {
+
+        this.keys = new String[capacity];
+        this.values = new long[capacity];
+        this.states = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxUsed = capacity / 4 * 3;
+    }
+
+    /**
+     * @return smallest power of two capacity keeping specified amount of entries under half load
+     */
+    static int capacityFor(int entries) {
+
+        val wanted = Math.max(MIN_CAPACITY, (long) entries * 2);
+        if (wanted > MAX_CAPACITY) {
+
+            throw new IllegalStateException("Table can not hold " + entries + " entries");
+        }
+
+        val capacity = Integer.highestOneBit((int) wanted);
+
+        return capacity == wanted ? capacity : capacity << 1;
+    }
+
+    static int hash(String name) {
+
+        val h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    int capacity() {
+
+        return mask + 1;
+    }
+
+    int size() {
+
+        return used.get() - deleted.get();
+    }
+
+    LockFreeTable next() {
+
+        return next;
+    }
+
+    boolean isTransferred() {
+
+        return transferred.get() == capacity();
+    }
+
+    /**
+     * Looks up slot holding specified name
+     *
+     * @return live or latched slot index, {@link #FORWARD} or {@link #ABSENT}
+     */
+    int find(String name, int hash) {
+
+        var slot = hash & mask;
+
+        for (int probes = 0; probes <= mask; probes++) {
+
+            val state = state(slot);
+
+            switch (state) {
+                case EMPTY:
+                    return ABSENT;
+                case MOVED_EMPTY:
+                    return FORWARD;
+                case INSERTING:
+                    Thread.onSpinWait();
+                    probes--;
+                    continue;
+                case LIVE:
+                case LATCHED:
+                    if (name.equals(keys[slot])) {
+
+                        return slot;
+                    }
+                    break;
+                case MOVED:
+                    if (name.equals(keys[slot])) {
+
+                        return FORWARD;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return next == null ? ABSENT : FORWARD;
+    }
+
+    /**
+     * Looks up slot holding specified name and latches it, preventing concurrent updates, removal or moving
+     * Latched slot must be released with {@linkplain #unlatch(int)} or {@linkplain #remove(int)}
+     *
+     * @return latched slot index, {@link #FORWARD} or {@link #ABSENT}
+     */
+    int latch(String name, int hash) {
+
+        while (true) {
+
+            val slot = find(name, hash);
+            if (slot < 0) {
+
+                return slot;
+            }
+
+            val state = state(slot);
+
+            if (state == LIVE) {
+
+                if (STATES.compareAndSet(states, slot, LIVE, LATCHED)) {
+
+                    return slot;
+                }
+            } else if (state == LATCHED) {
+
+                Thread.onSpinWait();
+            }
+            // removed or moved concurrently - look again
+        }
+    }
+
+    void unlatch(int slot) {
+
+        STATES.setRelease(states, slot, LIVE);
+    }
+
+    /**
+     * Turns latched slot into a tombstone
+     */
+    void remove(int slot) {
+
+        STATES.setRelease(states, slot, DELETED);
+        deleted.incrementAndGet();
+    }
+
+    long value(int slot) {
+
+        return (long) VALUES.getVolatile(values, slot);
+    }
+
+    /**
+     * Sets value of latched slot
+     */
+    void value(int slot, long value) {
+
+        VALUES.setVolatile(values, slot, value);
+    }
+
+    /**
+     * Inserts new entry unless live entry with the same name exists
+     *
+     * @param beforePublish called once slot is claimed, before new entry becomes visible to others
+     * @return {@link #CREATED}, {@link #DUPLICATE} or {@link #FORWARD} if insertion has to be done in next table
+     */
+    int insert(String name, int hash, long value, Runnable beforePublish) {
+
+        var slot = hash & mask;
+
+        for (int probes = 0; probes <= mask; probes++) {
+
+            val state = state(slot);
+
+            switch (state) {
+                case EMPTY:
+                    if (next != null) {
+
+                        // close the chain so nobody inserts the same name here
+                        if (STATES.compareAndSet(states, slot, EMPTY, MOVED_EMPTY)) {
+
+                            return FORWARD;
+                        }
+                    } else if (used.incrementAndGet() > maxUsed) {
+
+                        used.decrementAndGet();
+                        startResize();
+                    } else if (STATES.compareAndSet(states, slot, EMPTY, INSERTING)) {
+
+                        keys[slot] = name;
+                        VALUES.set(values, slot, value);
+                        beforePublish.run();
+                        STATES.setRelease(states, slot, LIVE);
+
+                        return CREATED;
+                    } else {
+
+                        used.decrementAndGet();
+                    }
+                    // look at the slot again
+                    probes--;
+                    continue;
+                case MOVED_EMPTY:
+                    return FORWARD;
+                case INSERTING:
+                    Thread.onSpinWait();
+                    probes--;
+                    continue;
+                case LIVE:
+                case LATCHED:
+                    if (name.equals(keys[slot])) {
+
+                        return DUPLICATE;
+                    }
+                    break;
+                case MOVED:
+                    if (name.equals(keys[slot])) {
+
+                        return FORWARD;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        startResize();
+        return FORWARD;
+    }
+
+    /**
+     * Feeds every live entry to specified consumer
+     *
+     * @return false if some entries were moved to next table before they could be visited
+     */
+    boolean forEach(ObjLongConsumer<String> consumer) {
+
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val state = state(slot);
+
+            if (state == LIVE || state == LATCHED) {
+
+                consumer.accept(keys[slot], value(slot));
+            } else if (state == MOVED || state == MOVED_EMPTY) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Allocates next table unless resize is already in progress
+     */
+    void startResize() {
+
+        if (next == null) {
+
+            NEXT.compareAndSet(this, null, new LockFreeTable(capacityFor(size() + 1)));
+        }
+    }
+
+    /**
+     * Moves chunks of entries to next table until there are no chunks left to claim
+     *
+     * @return true if this call moved the last chunk
+     */
+    boolean helpTransfer() {
+
+        val target = next;
+        val capacity = capacity();
+
+        while (true) {
+
+            val start = transferIndex.getAndAdd(CHUNK);
+            if (start >= capacity) {
+
+                return false;
+            }
+
+            val end = Math.min(capacity, start + CHUNK);
+            for (int slot = start; slot < end; slot++) {
+
+                transfer(slot, target);
+            }
+
+            if (transferred.addAndGet(end - start) == capacity) {
+
+                return true;
+            }
+        }
+    }
+
+    private void transfer(int slot, LockFreeTable target) {
+
+        while (true) {
+
+            switch (state(slot)) {
+                case EMPTY:
+                    if (STATES.compareAndSet(states, slot, EMPTY, MOVED_EMPTY)) {
+
+                        return;
+                    }
+                    break;
+                case LIVE:
+                    if (STATES.compareAndSet(states, slot, LIVE, LATCHED)) {
+
+                        val name = keys[slot];
+                        target.put(name, hash(name), value(slot));
+                        STATES.setRelease(states, slot, MOVED);
+
+                        return;
+                    }
+                    break;
+                case INSERTING:
+                case LATCHED:
+                    Thread.onSpinWait();
+                    break;
+                default:
+                    // tombstones and moved slots stay as they are
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Inserts moved entry into this table or tables following it
+     */
+    private void put(String name, int hash, long value) {
+
+        var table = this;
+
+        while (true) {
+
+            val result = table.insert(name, hash, value, NOTHING);
+
+            if (result == CREATED) {
+
+                return;
+            } else if (result == DUPLICATE) {
+
+                throw new IllegalStateException("Moved counter '" + name + "' is already present in next table");
+            } else {
+
+                table.helpTransfer();
+                table = table.next;
+            }
+        }
+    }
+
+    private int state(int slot) {
+
+        return (int) STATES.getAcquire(states, slot);
+    }
+}
@@ -0,0 +1,472 @@
+package io.ruv.counters.repo.mapped;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.index.LazyNameIndex;
+import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.snapshot.SnapshotTracker;
+import io.ruv.counters.util.sum.StripedSum;
+import io.ruv.counters.util.text.Utf8;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link CountersRepository} keeping names and values in a memory-mapped file
+ * using {@link MappedTable} - counters survive restarts without any replay, pages are read lazily as counters
+ * are touched and written back by the OS
+ * Modifications work the way {@code OffHeapCountersRepository} does: increments and removals latch a single slot
+ * with CAS on mapped memory, {@link GlobalLock} blocks them while table is rebuilt into a larger file
+ * <p>
+ * Opening a table does not read it: sum of values is kept in table header and names index is built
+ * on the first {@linkplain #findNames(String, int)} call
+ * Values reach the disk when the OS writes pages back or table is {@linkplain #close() closed} - a crash may lose
+ * recent modifications, but never leaves a counter with a torn name
+ */
+@Slf4j
+public class MappedCountersRepository implements CountersRepository, AutoCloseable {
+
+    private static final int MIN_NAME_BYTES = 64 * 1024;
+
+    private static final String TABLE_PREFIX = "counters-";
+    private static final String TABLE_SUFFIX = ".table";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final GlobalLock global = new GlobalLock();
+    private final SnapshotTracker snapshots = new SnapshotTracker(global);
+    private final Path directory;
+    private final boolean temporary;
+
+    // values sum is the sum stored in the table when it was opened plus updates made since
+    private final BigInteger openedSum;
+    private final StripedSum sum = new StripedSum();
+
+    private volatile MappedTable table;
+    private long generation;
+
+    private final LazyNameIndex index = new LazyNameIndex(global::writing,
+            consumer -> table.forEach((name, value) -> consumer.accept(name)));
+
+    private MappedCountersRepository(Path directory, MappedTable table, long generation, boolean temporary) {
+
+        this.directory = directory;
+        this.table = table;
+        this.generation = generation;
+        this.temporary = temporary;
+        this.openedSum = table.sum();
+    }
+
+    /**
+     * Maps latest table file of specified directory, creating new one if there is none
+     * Leftovers of interrupted rebuilds are deleted
+     *
+     * @throws IOException           when table file can not be created or mapped
+     * @throws IllegalStateException when table file is corrupt
+     */
+    public static MappedCountersRepository open(MappedSettings settings) throws IOException {
+
+        return open(settings, false);
+    }
+
+    /**
+     * Creates repository in a new temporary directory, deleted when virtual machine exits
+     */
+    public static MappedCountersRepository temporary() {
+
+        try {
+
+            val settings = new MappedSettings();
+            settings.setDirectory(Files.createTempDirectory("counters-mapped"));
+            settings.getDirectory().toFile().deleteOnExit();
+
+            return open(settings, true);
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MappedCountersRepository open(MappedSettings settings, boolean temporary) throws IOException {
+
+        val directory = settings.getDirectory();
+        Files.createDirectories(directory);
+
+        try (val files = Files.list(directory)) {
+
+            for (val file : files.filter(file -> file.toString().endsWith(TEMPORARY_SUFFIX)).toList()) {
+
+                Files.delete(file);
+            }
+        }
+
+        val tables = tables(directory);
+        if (tables.isEmpty()) {
+
+            val expected = settings.getExpectedCounters();
+            val capacity = MappedTable.capacityFor(expected);
+            val nameBytes = Math.max(MIN_NAME_BYTES,
+                    Math.min(Integer.MAX_VALUE, (long) expected * settings.getExpectedNameBytes()));
+            val file = directory.resolve(tableName(1));
+            val table = MappedTable.create(file, capacity, (int) nameBytes);
+
+            if (temporary) {
+
+                file.toFile().deleteOnExit();
+            }
+
+            return new MappedCountersRepository(directory, table, 1, temporary);
+        }
+
+        val latest = tables.get(tables.size() - 1);
+        for (val older : tables.subList(0, tables.size() - 1)) {
+
+            // rebuild finished, but the table it replaced was not deleted
+            Files.delete(older);
+        }
+
+        val started = System.nanoTime();
+        val table = MappedTable.open(latest);
+
+        if (table.dropped() > 0) {
+
+            log.warn("Dropped {} torn counters of {} not closed properly", table.dropped(), latest);
+        }
+        log.info("Opened {} counters of {} in {} ms", table.size(), latest,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        return new MappedCountersRepository(directory, table, generation(latest), temporary);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
+
+        // table replaced concurrently keeps last values it had - reading them is fine
+        val current = table;
+        val slot = current.find(name, MappedTable.hash(name));
+
+        return slot < 0 ? result.notFound() : result.ok(current.value(slot));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Returned counters hold values they had at the start of this operation
+     */
+    @NonNull
+    @Override
+    public Stream<Counter> findAll() {
+
+        // table replaced concurrently is no longer modified - changes made to its successor are recorded by tracker
+        val copy = snapshots.capture(consumer -> table.forEach(consumer));
+
+        return copy.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        val bytes = MappedTable.encode(name);
+        val hash = MappedTable.hash(name);
+
+        while (true) {
+
+            int inserted = global.reading(() -> table.insert(bytes, hash, value, () -> {
+
+                snapshots.beforeCreate(name);
+                index.add(name);
+            }));
+
+            if (inserted == MappedTable.CREATED) {
+
+                sum.add(value);
+
+                return result.ok(value);
+            } else if (inserted == MappedTable.DUPLICATE) {
+
+                return result.duplicate();
+            } else {
+
+                global.writing(() -> rebuild(1, bytes.length));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Table is grown once to fit the whole batch before it is inserted
+     */
+    @Override
+    public int createAll(@NonNull String[] names, @NonNull long[] values, int count) {
+
+        long nameBytes = 0;
+        for (int i = 0; i < count; i++) {
+
+            nameBytes += Utf8.encodedLength(names[i]);
+        }
+
+        val pendingNameBytes = nameBytes;
+        if (!table.hasRoomFor(count, pendingNameBytes)) {
+
+            global.writing(() -> rebuild(count, pendingNameBytes));
+        }
+
+        return CountersRepository.super.createAll(names, values, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        val ticket = global.enterReading();
+        try {
+
+            return add(table, name, delta, result);
+        } finally {
+
+            global.exitReading(ticket);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        return global.reading(() -> {
+
+            // table is not replaced until global lock is released
+            val current = table;
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(current, name, delta, result))));
+
+            return results;
+        });
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called inside read lock of {@link GlobalLock}
+     */
+    private CounterResult add(MappedTable current, String name, long delta, CounterResult result) {
+
+        val slot = current.latch(name, MappedTable.hash(name));
+
+        if (slot < 0) {
+
+            return result.notFound();
+        }
+
+        try {
+
+            val previous = current.value(slot);
+
+            if (result.adding(previous, delta).isOk()) {
+
+                snapshots.beforeUpdate(name, previous);
+                current.value(slot, result.getValue());
+                sum.add(delta);
+            }
+
+            return result;
+        } finally {
+
+            current.unlatch(slot);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Compacts the table once tombstones take up too much of it
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val hash = MappedTable.hash(name);
+
+        global.reading(() -> {
+
+            val current = table;
+            val slot = current.latch(name, hash);
+
+            if (slot < 0) {
+
+                return result.notFound();
+            }
+
+            val value = current.value(slot);
+            snapshots.beforeDelete(name, value);
+            index.remove(name);
+            current.remove(slot);
+            sum.subtract(value);
+
+            return result.ok(value);
+        });
+
+        if (result.isOk() && !table.hasRoomFor(1, 0)) {
+
+            global.writing(() -> rebuild(0, 0));
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
+
+        return openedSum.add(sum.sum());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Names index is built on the first call, modifications are blocked meanwhile
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+
+    /**
+     * Writes every modified page back to disk and marks table as closed properly
+     * Repository must not be used once it is closed
+     */
+    @Override
+    public void close() {
+
+        global.writing(() -> {
+
+            table.close(valuesSum());
+            return null;
+        });
+    }
+
+    /**
+     * Replaces current table with a new file holding only live entries, the new file replaces the old one
+     * only once it is complete and written to disk
+     * Must be called inside {@linkplain GlobalLock#writing}
+     *
+     * @param pendingEntries   amount of entries waiting for insertion
+     * @param pendingNameBytes name bytes of entries waiting for insertion
+     */
+    private Void rebuild(int pendingEntries, long pendingNameBytes) {
+
+        val current = table;
+
+        if (current.hasRoomFor(Math.max(1, pendingEntries), pendingNameBytes)) {
+
+            // someone else has rebuilt the table already
+            return null;
+        }
+
+        val liveNameBytes = current.liveNameBytes();
+        val capacity = MappedTable.capacityFor((long) current.size() + Math.max(1, pendingEntries));
+        val nameBytes = Math.max(MIN_NAME_BYTES, (liveNameBytes + pendingNameBytes) * 2);
+
+        if (nameBytes > Integer.MAX_VALUE) {
+
+            throw new IllegalStateException("Mapped names storage can not hold " + nameBytes + " bytes");
+        }
+
+        val file = directory.resolve(tableName(generation + 1));
+        val temporaryFile = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+
+        try {
+
+            val rebuilt = MappedTable.create(temporaryFile, capacity, (int) nameBytes);
+            current.copyTo(rebuilt);
+            rebuilt.force();
+
+            rebuilt.moveTo(file);
+            if (temporary) {
+
+                file.toFile().deleteOnExit();
+            }
+            syncDirectory();
+
+            // mapping of the old file stays valid until it is collected
+            Files.delete(current.file());
+
+            table = rebuilt;
+            generation++;
+        } catch (IOException e) {
+
+            throw new UncheckedIOException("Mapped table could not be rebuilt", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Makes renames within the directory durable
+     */
+    private void syncDirectory() {
+
+        try (val channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+
+            channel.force(true);
+        } catch (IOException ignored) {
+
+            // not every platform allows forcing a directory
+        }
+    }
+
+    private static List<Path> tables(Path directory) throws IOException {
+
+        try (val files = Files.list(directory)) {
+
+            return files.filter(file -> {
+
+                        val name = file.getFileName().toString();
+                        return name.startsWith(TABLE_PREFIX) && name.endsWith(TABLE_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String tableName(long generation) {
+
+        return String.format("%s%020d%s", TABLE_PREFIX, generation, TABLE_SUFFIX);
+    }
+
+    private static long generation(Path table) {
+
+        val name = table.getFileName().toString();
+        return Long.parseLong(name.substring(TABLE_PREFIX.length(), name.length() - TABLE_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,27 @@
+package io.ruv.counters.repo.mapped;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * {@link MappedCountersRepository} settings, bound from {@code counters.mapped.*} properties
+ */
+@Data
+public class MappedSettings {
+
+    /**
+     * Directory holding table file
+     */
+    private Path directory = Path.of("data", "mapped");
+
+    /**
+     * Counters new table file is sized for, table is rebuilt into a larger file once they are exceeded
+     */
+    private int expectedCounters = 1 << 16;
+
+    /**
+     * Name bytes per counter new table file is sized for
+     */
+    private int expectedNameBytes = 32;
+}
@@ -0,0 +1,374 @@
+package io.ruv.counters.repo.mapped;
+
+import io.ruv.counters.util.sum.StripedSum;
+import io.ruv.counters.util.table.SlotTable;
+import lombok.val;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link SlotTable} kept in a memory-mapped file
+ * <p>
+ * File layout: header page, slots, then name bytes appended as counters are created
+ * Every slot takes {@value #SLOT_BYTES} bytes: control word (hash and state), name reference, value
+ * and CRC32C of name bytes - slots never cross a disk sector, so each of them is written back whole
+ * <p>
+ * Header holds table geometry, fill counters, sum of values and a clean flag, guarded by CRC32C
+ * The flag is cleared once table is opened and set again when it is {@linkplain #close(BigInteger) closed};
+ * a table found not clean was not closed properly, so its slots are checked one by one - entries whose name
+ * bytes did not reach the disk are dropped, entries cut off their probe sequence by a lost page are moved
+ * back into it, and fill counters and sum are recounted
+ */
+final class MappedTable extends SlotTable {
+
+    static final int SLOT_BYTES = BASE_SLOT_BYTES + Long.BYTES;
+    static final int HEADER_BYTES = 4096;
+
+    static final int MAX_CAPACITY = maxCapacity(SLOT_BYTES);
+
+    private static final int MAGIC = 0x434E544D;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_NAME_BYTES = 12;
+    private static final int HEADER_USED = 16;
+    private static final int HEADER_TOMBSTONES = 20;
+    private static final int HEADER_NAME_CURSOR = 24;
+    private static final int HEADER_CLEAN = 28;
+    private static final int HEADER_SUM_HIGH = 32;
+    private static final int HEADER_SUM_LOW = 40;
+    private static final int HEADER_CHECKSUM = 48;
+
+    private static final int CHECK = BASE_SLOT_BYTES;
+
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer slots;
+    private final MappedByteBuffer names;
+
+    private Path file;
+
+    // sum of values at the time table was opened, and entries dropped by recovery
+    private BigInteger sum = BigInteger.ZERO;
+    private int dropped;
+
+    private MappedTable(Path file, MappedByteBuffer header, MappedByteBuffer slots, MappedByteBuffer names,
+                        int capacity) {
+
+        super(slots, names, capacity, SLOT_BYTES);
+
+        this.file = file;
+        this.header = header;
+        this.slots = slots;
+        this.names = names;
+        this.header.order(ByteOrder.nativeOrder());
+    }
+
+    private static MappedTable map(Path file, FileChannel channel, int capacity, int nameBytes) throws IOException {
+
+        val slotsBytes = (long) capacity * SLOT_BYTES;
+
+        return new MappedTable(file,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES),
+                channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, slotsBytes),
+                channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + slotsBytes, nameBytes),
+                capacity);
+    }
+
+    /**
+     * Creates new empty table file, file is sparse - disk space is taken as slots and names are written
+     *
+     * @param capacity  amount of slots, power of two
+     * @param nameBytes size of name storage
+     * @throws IOException when file exists or can not be created
+     */
+    static MappedTable create(Path file, int capacity, int nameBytes) throws IOException {
+
+        if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+
+            throw new IllegalArgumentException("Capacity must be a power of two up to " + MAX_CAPACITY
+                    + ", got " + capacity);
+        }
+
+        try (val channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            val size = HEADER_BYTES + (long) capacity * SLOT_BYTES + nameBytes;
+            channel.write(ByteBuffer.allocate(1), size - 1);
+
+            val table = map(file, channel, capacity, nameBytes);
+            table.header.putInt(HEADER_MAGIC, MAGIC)
+                    .putInt(HEADER_VERSION, VERSION)
+                    .putInt(HEADER_CAPACITY, capacity)
+                    .putInt(HEADER_NAME_BYTES, nameBytes);
+            table.writeHeader(false);
+
+            return table;
+        }
+    }
+
+    /**
+     * Maps existing table file, checking it slot by slot if it was not closed properly
+     * Table is marked as open in use before it is returned
+     *
+     * @throws IOException           when file can not be mapped
+     * @throws IllegalStateException when file is not a table or its header is corrupt
+     */
+    static MappedTable open(Path file) throws IOException {
+
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            if (channel.size() < HEADER_BYTES) {
+
+                throw corrupt(file, "truncated header");
+            }
+
+            val head = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.nativeOrder());
+            if (head.getInt(HEADER_MAGIC) != MAGIC || head.getInt(HEADER_VERSION) != VERSION) {
+
+                throw corrupt(file, "not a table");
+            }
+
+            if (head.getInt(HEADER_CHECKSUM) != headerChecksum(head)) {
+
+                throw corrupt(file, "header checksum mismatch");
+            }
+
+            val capacity = head.getInt(HEADER_CAPACITY);
+            val nameBytes = head.getInt(HEADER_NAME_BYTES);
+            if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY || nameBytes < 0
+                    || channel.size() < HEADER_BYTES + (long) capacity * SLOT_BYTES + nameBytes) {
+
+                throw corrupt(file, "truncated table");
+            }
+
+            val table = map(file, channel, capacity, nameBytes);
+
+            if (head.getInt(HEADER_CLEAN) == 1) {
+
+                table.restore(head.getInt(HEADER_USED), head.getInt(HEADER_TOMBSTONES),
+                        head.getInt(HEADER_NAME_CURSOR));
+                table.sum = BigInteger.valueOf(head.getLong(HEADER_SUM_HIGH)).shiftLeft(64)
+                        .add(new BigInteger(Long.toUnsignedString(head.getLong(HEADER_SUM_LOW))));
+            } else {
+
+                table.recover();
+            }
+
+            table.writeHeader(false);
+
+            return table;
+        }
+    }
+
+    /**
+     * @return smallest power of two capacity keeping specified amount of entries under half load
+     */
+    static int capacityFor(long entries) {
+
+        return capacityFor(entries, MAX_CAPACITY);
+    }
+
+    Path file() {
+
+        return file;
+    }
+
+    /**
+     * Atomically renames table file, mapping stays valid
+     */
+    void moveTo(Path target) throws IOException {
+
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        file = target;
+    }
+
+    /**
+     * @return sum of values when table was opened
+     */
+    BigInteger sum() {
+
+        return sum;
+    }
+
+    /**
+     * @return entries dropped when table was opened because they were torn
+     */
+    int dropped() {
+
+        return dropped;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Checksum of name bytes is kept along with them
+     */
+    @Override
+    protected void initialize(int slot, byte[] name) {
+
+        val crc = new CRC32C();
+        crc.update(name);
+
+        set(slot, CHECK, crc.getValue());
+    }
+
+    /**
+     * Writes every modified page back to disk, table stays open
+     */
+    void force() {
+
+        slots.force();
+        names.force();
+        header.force();
+    }
+
+    /**
+     * Writes every modified page back to disk and marks table as closed properly with specified sum of values
+     * Table must not be modified any more
+     */
+    void close(BigInteger sum) {
+
+        slots.force();
+        names.force();
+
+        header.putLong(HEADER_SUM_HIGH, sum.shiftRight(64).longValue())
+                .putLong(HEADER_SUM_LOW, sum.longValue());
+        writeHeader(true);
+    }
+
+    /**
+     * Brings table not closed properly back to consistent state, see class description
+     */
+    private void recover() {
+
+        val mask = capacity() - 1;
+        val total = new StripedSum(1);
+        int usedSlots = 0;
+        int deletedSlots = 0;
+        long cursor = 0;
+
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val control = control(slot);
+            if (control == EMPTY) {
+
+                continue;
+            }
+
+            usedSlots++;
+            val state = control & STATE_MASK;
+
+            if ((state == LIVE || state == LATCHED) && intact(slot)) {
+
+                // latch of an update cut short is released, value word is written as a whole
+                set(slot, CONTROL, control - state + LIVE);
+                total.add(value(slot));
+                cursor = Math.max(cursor, (long) nameOffset(slot) + nameLength(slot));
+            } else {
+
+                if (state != DELETED) {
+
+                    // torn or interrupted insert
+                    set(slot, CONTROL, (control & ~STATE_MASK) | DELETED);
+                    dropped++;
+                }
+                deletedSlots++;
+            }
+        }
+
+        // page lost before it reached the disk reads as empty slots, breaking probe sequences running through it
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val control = control(slot);
+
+            if ((control & STATE_MASK) == LIVE) {
+
+                val free = firstEmptyBefore((int) (control >>> 32) & mask, slot);
+
+                if (free >= 0) {
+
+                    set(free, NAME_REF, get(slot, NAME_REF));
+                    set(free, VALUE, get(slot, VALUE));
+                    set(free, CHECK, get(slot, CHECK));
+                    set(free, CONTROL, control);
+                    set(slot, CONTROL, control - LIVE + DELETED);
+                    usedSlots++;
+                    deletedSlots++;
+                }
+            }
+        }
+
+        restore(usedSlots, deletedSlots, (int) cursor);
+        sum = total.sum();
+    }
+
+    /**
+     * @return first empty slot of probe sequence starting at specified slot and ending before another one, or -1
+     */
+    private int firstEmptyBefore(int from, int to) {
+
+        val mask = capacity() - 1;
+        for (int slot = from; slot != to; slot = (slot + 1) & mask) {
+
+            if (control(slot) == EMPTY) {
+
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return true if name reference of specified slot is within name storage and name bytes match their checksum
+     */
+    private boolean intact(int slot) {
+
+        val offset = nameOffset(slot);
+        val length = nameLength(slot);
+
+        if (offset < 0 || length < 0 || (long) offset + length > names.capacity()) {
+
+            return false;
+        }
+
+        val crc = new CRC32C();
+        crc.update(names.slice(offset, length));
+
+        return crc.getValue() == get(slot, CHECK);
+    }
+
+    private void writeHeader(boolean clean) {
+
+        header.putInt(HEADER_USED, used())
+                .putInt(HEADER_TOMBSTONES, tombstones())
+                .putInt(HEADER_NAME_CURSOR, nameCursor())
+                .putInt(HEADER_CLEAN, clean ? 1 : 0);
+        header.putInt(HEADER_CHECKSUM, headerChecksum(header));
+        header.force();
+    }
+
+    private static int headerChecksum(ByteBuffer header) {
+
+        val crc = new CRC32C();
+        crc.update(header.slice(0, HEADER_CHECKSUM));
+
+        return (int) crc.getValue();
+    }
+
+    private static IllegalStateException corrupt(Path file, String reason) {
+
+        return new IllegalStateException("Corrupt table " + file + ": " + reason);
+    }
+}
@@ -0,0 +1,278 @@
+package io.ruv.counters.repo.offheap;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.util.index.LazyNameIndex;
+import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.snapshot.SnapshotTracker;
+import io.ruv.counters.util.sum.StripedSum;
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link CountersRepository} keeping names and values in direct memory
+ * using {@link OffHeapTable} - counters do not create any java heap objects while stored
+ * Increments and removals latch a single table slot with CAS, lookups do not lock at all
+ * {@link GlobalLock} is used to block modifications while table is rebuilt
+ * (grown or compacted after deletions left too many tombstones)
+ * {@link SnapshotTracker} is used to create a point-in-time copy in {@linkplain #findAll()} without blocking modifications
+ */
+public class OffHeapCountersRepository implements CountersRepository {
+
+    private static final int MIN_NAME_BYTES = 64 * 1024;
+
+    private final GlobalLock global = new GlobalLock();
+    private final SnapshotTracker snapshots = new SnapshotTracker(global);
+    private final StripedSum sum = new StripedSum();
+    private volatile OffHeapTable table = new OffHeapTable(OffHeapTable.MIN_CAPACITY, MIN_NAME_BYTES);
+    private final LazyNameIndex index = new LazyNameIndex(global::writing,
+            consumer -> table.forEach((name, value) -> consumer.accept(name)));
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
+
+        // table replaced concurrently keeps last values it had - reading them is fine
+        val current = table;
+        val slot = current.find(name, OffHeapTable.hash(name));
+
+        return slot < 0 ? result.notFound() : result.ok(current.value(slot));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Returned counters hold values they had at the start of this operation
+     */
+    @NonNull
+    @Override
+    public Stream<Counter> findAll() {
+
+        // table replaced concurrently is no longer modified - changes made to its successor are recorded by tracker
+        val copy = snapshots.capture(consumer -> table.forEach(consumer));
+
+        return copy.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        val bytes = OffHeapTable.encode(name);
+        val hash = OffHeapTable.hash(name);
+
+        while (true) {
+
+            int inserted = global.reading(() -> table.insert(bytes, hash, value, () -> {
+
+                snapshots.beforeCreate(name);
+                index.add(name);
+            }));
+
+            if (inserted == OffHeapTable.CREATED) {
+
+                sum.add(value);
+
+                return result.ok(value);
+            } else if (inserted == OffHeapTable.DUPLICATE) {
+
+                return result.duplicate();
+            } else {
+
+                global.writing(() -> rebuild(1, bytes.length));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Table is grown once to fit the whole batch before it is inserted
+     */
+    @Override
+    public int createAll(@NonNull String[] names, @NonNull long[] values, int count) {
+
+        long nameBytes = 0;
+        for (int i = 0; i < count; i++) {
+
+            nameBytes += OffHeapTable.encodedLength(names[i]);
+        }
+
+        val pendingNameBytes = nameBytes;
+        if (!table.hasRoomFor(count, pendingNameBytes)) {
+
+            global.writing(() -> rebuild(count, pendingNameBytes));
+        }
+
+        return CountersRepository.super.createAll(names, values, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        val ticket = global.enterReading();
+        try {
+
+            return add(table, name, delta, result);
+        } finally {
+
+            global.exitReading(ticket);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        return global.reading(() -> {
+
+            // table is not replaced until global lock is released
+            val current = table;
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(current, name, delta, result))));
+
+            return results;
+        });
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called inside read lock of {@link GlobalLock}
+     */
+    private CounterResult add(OffHeapTable current, String name, long delta, CounterResult result) {
+
+        val slot = current.latch(name, OffHeapTable.hash(name));
+
+        if (slot < 0) {
+
+            return result.notFound();
+        }
+
+        try {
+
+            val previous = current.value(slot);
+
+            if (result.adding(previous, delta).isOk()) {
+
+                snapshots.beforeUpdate(name, previous);
+                current.value(slot, result.getValue());
+                sum.add(delta);
+            }
+
+            return result;
+        } finally {
+
+            current.unlatch(slot);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Compacts the table once tombstones take up too much of it
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val hash = OffHeapTable.hash(name);
+
+        global.reading(() -> {
+
+            val current = table;
+            val slot = current.latch(name, hash);
+
+            if (slot < 0) {
+
+                return result.notFound();
+            }
+
+            val value = current.value(slot);
+            snapshots.beforeDelete(name, value);
+            index.remove(name);
+            current.remove(slot);
+            sum.subtract(value);
+
+            return result.ok(value);
+        });
+
+        if (result.isOk() && !table.hasRoomFor(0)) {
+
+            global.writing(() -> rebuild(0, 0));
+        }
+
+        return result;
+    }
+
+    /**
+     * Replaces current table with a new one holding only live entries
+     * Must be called inside {@linkplain GlobalLock#writing}
+     *
+     * @param pendingEntries   amount of entries waiting for insertion
+     * @param pendingNameBytes name bytes of entries waiting for insertion
+     */
+    private Void rebuild(int pendingEntries, long pendingNameBytes) {
+
+        val current = table;
+
+        if (current.hasRoomFor(Math.max(1, pendingEntries), pendingNameBytes)) {
+
+            // someone else has rebuilt the table already
+            return null;
+        }
+
+        val liveNameBytes = current.liveNameBytes();
+        val capacity = OffHeapTable.capacityFor(current.size() + Math.max(1, pendingEntries));
+        val nameBytes = Math.max(MIN_NAME_BYTES, (liveNameBytes + pendingNameBytes) * 2);
+
+        if (nameBytes > Integer.MAX_VALUE) {
+
+            throw new IllegalStateException("Off-heap names storage can not hold " + nameBytes + " bytes");
+        }
+
+        val rebuilt = new OffHeapTable(capacity, (int) nameBytes);
+        current.copyTo(rebuilt);
+        table = rebuilt;
+
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+}
@@ -0,0 +1,42 @@
+package io.ruv.counters.repo.offheap;
+
+import io.ruv.counters.util.table.SlotTable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link SlotTable} in direct byte buffers, every slot takes {@value #SLOT_BYTES} bytes:
+ * control word (hash and state), name reference and value
+ */
+final class OffHeapTable extends SlotTable {
+
+    static final int SLOT_BYTES = BASE_SLOT_BYTES;
+    static final int MAX_CAPACITY = maxCapacity(SLOT_BYTES);
+
+    OffHeapTable(int capacity, int nameBytes) {
+
+        this(ByteBuffer.allocateDirect(capacity * SLOT_BYTES), ByteBuffer.allocateDirect(nameBytes), capacity);
+    }
+
+    OffHeapTable(ByteBuffer slots, ByteBuffer names, int capacity) {
+
+        super(slots, names, capacity, SLOT_BYTES);
+    }
+
+    /**
+     * @return smallest power of two capacity keeping specified amount of entries under half load
+     */
+    static int capacityFor(int entries) {
+
+        return capacityFor(entries, MAX_CAPACITY);
+    }
+
+    /**
+     * @return true if table can take one more entry with specified name length
+     * and tombstones take up no more than an eighth of it
+     */
+    boolean hasRoomFor(int nameBytes) {
+
+        return hasRoomFor(1, nameBytes);
+    }
+}
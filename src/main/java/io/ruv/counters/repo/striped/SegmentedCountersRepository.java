@@ -0,0 +1,329 @@
+package io.ruv.counters.repo.striped;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.util.index.LazyNameIndex;
+import io.ruv.counters.util.sum.StripedSum;
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link CountersRepository} split into segments, each one a {@link HashMap} with long[] values
+ * guarded by its own {@link ReentrantReadWriteLock}
+ * <p>
+ * Segments share nothing but the sum and the name index - every segment table is sized independently
+ * and rehashes under its own write lock, so modifications of different segments never touch the same table
+ * {@linkplain #findAll()} read-locks every segment for a point-in-time copy, then releases each one
+ * as soon as it is copied - writers of copied segments go on while the rest are still being copied
+ */
+public class SegmentedCountersRepository implements CountersRepository {
+
+    private static final int DEFAULT_SEGMENTS = 64;
+
+    // Fibonacci hashing picks segment by the top bits, HashMap inside a segment uses the bottom ones
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final Segment[] segments;
+    private final int shift;
+    private final int mask;
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index;
+
+    public SegmentedCountersRepository() {
+
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param segments amount of segments, rounded up to power of two
+     */
+    public SegmentedCountersRepository(int segments) {
+
+        if (segments < 1 || segments > 1 << 16) {
+
+            throw new IllegalArgumentException("Illegal amount of segments: " + segments);
+        }
+
+        val bits = 32 - Integer.numberOfLeadingZeros(segments - 1);
+
+        this.segments = new Segment[1 << bits];
+        this.shift = 32 - bits;
+        this.mask = (1 << bits) - 1;
+
+        for (int i = 0; i < this.segments.length; i++) {
+
+            this.segments[i] = new Segment();
+        }
+
+        this.index = new LazyNameIndex(this::readingAll, consumer -> {
+
+            for (val segment : this.segments) {
+
+                segment.storage.keySet().forEach(consumer);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val segment = segmentFor(name);
+
+        segment.lock.readLock().lock();
+        try {
+
+            val container = segment.storage.get(name);
+
+            return container == null ? result.notFound() : result.ok(container[0]);
+        } finally {
+
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public Stream<Counter> findAll() {
+
+        val copy = new ArrayList<Counter>();
+
+        for (val segment : segments) {
+
+            segment.lock.readLock().lock();
+        }
+
+        int copied = 0;
+        try {
+
+            for (; copied < segments.length; copied++) {
+
+                val segment = segments[copied];
+
+                segment.storage.forEach((name, container) -> copy.add(new SimpleCounter(name, container[0])));
+                segment.lock.readLock().unlock();
+            }
+        } finally {
+
+            // segments still locked if copying failed
+            for (int i = copied; i < segments.length; i++) {
+
+                segments[i].lock.readLock().unlock();
+            }
+        }
+
+        return copy.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        val segment = segmentFor(name);
+
+        segment.lock.writeLock().lock();
+        try {
+
+            if (segment.storage.containsKey(name)) {
+
+                return result.duplicate();
+            }
+
+            segment.storage.put(name, new long[]{value});
+            sum.add(value);
+            index.add(name);
+            return result.ok(value);
+        } finally {
+
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        val segment = segmentFor(name);
+
+        segment.lock.writeLock().lock();
+        try {
+
+            return add(segment, name, delta, result);
+        } finally {
+
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Segments of the whole batch are locked up front, in segment order
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        val involved = new boolean[segments.length];
+        deltas.keySet().forEach(name -> involved[segmentIndex(name)] = true);
+
+        for (int i = 0; i < segments.length; i++) {
+
+            if (involved[i]) {
+
+                segments[i].lock.writeLock().lock();
+            }
+        }
+
+        try {
+
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) ->
+                    results.put(name, IncrementResult.from(add(segmentFor(name), name, delta, result))));
+
+            return results;
+        } finally {
+
+            for (int i = segments.length - 1; i >= 0; i--) {
+
+                if (involved[i]) {
+
+                    segments[i].lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val segment = segmentFor(name);
+
+        segment.lock.writeLock().lock();
+        try {
+
+            val container = segment.storage.remove(name);
+
+            if (container == null) {
+
+                return result.notFound();
+            }
+
+            sum.subtract(container[0]);
+            index.remove(name);
+            return result.ok(container[0]);
+        } finally {
+
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called holding write lock of its segment
+     */
+    private CounterResult add(Segment segment, String name, long delta, CounterResult result) {
+
+        val container = segment.storage.get(name);
+
+        if (container == null) {
+
+            return result.notFound();
+        }
+
+        if (result.adding(container[0], delta).isOk()) {
+
+            container[0] = result.getValue();
+            sum.add(delta);
+        }
+
+        return result;
+    }
+
+    private Segment segmentFor(String name) {
+
+        return segments[segmentIndex(name)];
+    }
+
+    private int segmentIndex(String name) {
+
+        return ((name.hashCode() * GOLDEN_RATIO) >>> shift) & mask;
+    }
+
+    /**
+     * Executes action holding read locks of every segment
+     */
+    private <T> T readingAll(Supplier<T> action) {
+
+        int locked = 0;
+        try {
+
+            for (; locked < segments.length; locked++) {
+
+                segments[locked].lock.readLock().lock();
+            }
+
+            return action.get();
+        } finally {
+
+            while (locked > 0) {
+
+                segments[--locked].lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final HashMap<String, long[]> storage = new HashMap<>();
+    }
+}
@@ -0,0 +1,247 @@
+package io.ruv.counters.repo.striped;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
+import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.util.index.LazyNameIndex;
+import io.ruv.counters.util.striped.StampedStriped;
+import io.ruv.counters.util.sum.StripedSum;
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link CountersRepository} for read-mostly traffic, using {@link StampedStriped}
+ * as a local locking mechanism
+ * <p>
+ * Every stripe owns its {@link StripeTable}, so {@linkplain #findByName(String, CounterResult)} can look a counter up
+ * optimistically, without writing to any shared state - a shared map could not be read that way,
+ * since a lookup racing with rehash of another stripe is not detected by validating own stripe
+ * {@linkplain #findAll()} read-locks every stripe for a point-in-time copy, releasing each one once copied
+ */
+public class StampedCountersRepository implements CountersRepository {
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final StampedStriped locks;
+
+    // elements replaced by writer of their stripe only
+    private final StripeTable[] tables;
+
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index;
+
+    // kept in a field, so that lookups do not capture their arguments anew
+    private final BiFunction<String, CounterResult, CounterResult> lookup = this::lookup;
+
+    public StampedCountersRepository() {
+
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes amount of stripes, rounded up to power of two
+     */
+    public StampedCountersRepository(int stripes) {
+
+        this.locks = new StampedStriped(stripes);
+        this.tables = new StripeTable[locks.size()];
+
+        for (int i = 0; i < tables.length; i++) {
+
+            tables[i] = new StripeTable();
+        }
+
+        this.index = new LazyNameIndex(locks::readingAll, consumer -> {
+
+            for (val table : tables) {
+
+                table.forEach((name, value) -> consumer.accept(name));
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
+
+        return locks.optimisticReading(name, name, result, lookup);
+    }
+
+    /**
+     * Looks counter up, may observe torn state - result of an invalidated attempt is overwritten by the next one
+     */
+    private CounterResult lookup(String name, CounterResult result) {
+
+        val table = tables[locks.indexFor(name)];
+        val slot = table.find(name);
+
+        return slot == StripeTable.ABSENT ? result.notFound() : result.ok(table.value(slot));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public Stream<Counter> findAll() {
+
+        val copy = new ArrayList<Counter>();
+
+        locks.readingEach(stripe -> tables[stripe].forEach((name, value) -> copy.add(new SimpleCounter(name, value))));
+
+        return copy.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        val lock = locks.lockFor(name);
+        val stamp = lock.writeLock();
+        try {
+
+            val stripe = locks.indexFor(name);
+
+            if (tables[stripe].find(name) != StripeTable.ABSENT) {
+
+                return result.duplicate();
+            }
+
+            val table = tables[stripe].withRoomForOne();
+            table.insert(name, value);
+            tables[stripe] = table;
+
+            sum.add(value);
+            index.add(name);
+            return result.ok(value);
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
+
+        val lock = locks.lockFor(name);
+        val stamp = lock.writeLock();
+        try {
+
+            return add(name, delta, result);
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Stripes of the whole batch are locked up front, in stripe order
+     */
+    @NonNull
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
+
+        return locks.writingAll(deltas.keySet(), () -> {
+
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
+
+            return results;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NonNull
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val lock = locks.lockFor(name);
+        val stamp = lock.writeLock();
+        try {
+
+            val table = tables[locks.indexFor(name)];
+            val slot = table.find(name);
+
+            if (slot == StripeTable.ABSENT) {
+
+                return result.notFound();
+            }
+
+            val value = table.remove(slot);
+
+            sum.subtract(value);
+            index.remove(name);
+            return result.ok(value);
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public BigInteger valuesSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called holding write lock of its stripe
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
+
+        val table = tables[locks.indexFor(name)];
+        val slot = table.find(name);
+
+        if (slot == StripeTable.ABSENT) {
+
+            return result.notFound();
+        }
+
+        if (result.adding(table.value(slot), delta).isOk()) {
+
+            table.setValue(slot, result.getValue());
+            sum.add(delta);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package io.ruv.counters.repo.striped;
+
+import lombok.val;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing hash table of a single stripe built on parallel key and value arrays
+ * <p>
+ * Modified only by the writer holding the stripe, read by optimistic readers racing with it -
+ * lookups probe at most every slot once, so a torn table can only produce a wrong answer
+ * which the reader then discards, never a loop
+ * Capacity is fixed, {@linkplain #withRoomForOne()} replaces a full table with a rehashed copy
+ * dropping tombstones
+ */
+final class StripeTable {
+
+    static final int MIN_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Returned by lookups when name is absent
+     */
+    static final int ABSENT = -1;
+
+    // compared by identity only
+    @SuppressWarnings("StringOperationCanBeSimplified")
+    private static final String DELETED = new String("deleted");
+
+    private final String[] keys;
+    private final long[] values;
+    private final int mask;
+
+    // live entries
+    private int size;
+
+    // live entries and tombstones
+    private int used;
+
+    StripeTable() {
+
+        this(MIN_CAPACITY);
+    }
+
+    private StripeTable(int capacity) {
+
+        this.keys = new String[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+
+        return mask + 1;
+    }
+
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * @return slot holding specified name or {@link #ABSENT}
+     */
+    int find(String name) {
+
+        var slot = hash(name) & mask;
+
+        for (int probes = 0; probes <= mask; probes++) {
+
+            val key = keys[slot];
+
+            if (key == null) {
+
+                return ABSENT;
+            }
+
+            if (key != DELETED && key.equals(name)) {
+
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return ABSENT;
+    }
+
+    long value(int slot) {
+
+        return values[slot];
+    }
+
+    void setValue(int slot, long value) {
+
+        values[slot] = value;
+    }
+
+    /**
+     * @return this table if it can take one more entry, otherwise a bigger copy
+     */
+    StripeTable withRoomForOne() {
+
+        // load under 3/4 keeps probe sequences short and one slot always empty
+        if ((used + 1) * 4L <= capacity() * 3L) {
+
+            return this;
+        }
+
+        val copy = new StripeTable(capacityFor(size + 1));
+
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val key = keys[slot];
+
+            if (key != null && key != DELETED) {
+
+                copy.insert(key, values[slot]);
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Inserts name absent from the table, which must have room for it
+     */
+    void insert(String name, long value) {
+
+        var slot = hash(name) & mask;
+
+        while (keys[slot] != null) {
+
+            slot = (slot + 1) & mask;
+        }
+
+        // value goes first, so a reader finding the key is likely to see its value
+        values[slot] = value;
+        keys[slot] = name;
+        size++;
+        used++;
+    }
+
+    /**
+     * @return value of the removed entry
+     */
+    long remove(int slot) {
+
+        keys[slot] = DELETED;
+        size--;
+        return values[slot];
+    }
+
+    void forEach(ObjLongConsumer<String> action) {
+
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val key = keys[slot];
+
+            if (key != null && key != DELETED) {
+
+                action.accept(key, values[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return smallest power of two capacity keeping specified amount of entries under half load
+     */
+    private static int capacityFor(int entries) {
+
+        val wanted = Math.max(MIN_CAPACITY, (long) entries * 2);
+        if (wanted > MAX_CAPACITY) {
+
+            throw new IllegalStateException("Table can not hold " + entries + " entries");
+        }
+
+        val capacity = Integer.highestOneBit((int) wanted);
+
+        return capacity == wanted ? capacity : capacity << 1;
+    }
+
+    private static int hash(String name) {
+
+        val h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,52 +1,67 @@
 package io.ruv.counters.repo.striped;
 
-import com.google.common.util.concurrent.Striped;
 import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
 import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.util.index.LazyNameIndex;
 import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.striped.ResizeSettings;
 import io.ruv.counters.util.striped.ResizingStriped;
+import io.ruv.counters.util.sum.StripedSum;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link CountersRepository} backed by {@link HashMap} with {@link AtomicLong} values
- * using {@link Striped} as a local locking mechanism
- * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()}
+ * using {@link ResizingStriped} as a local locking mechanism
+ * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()} -
+ * {@link HashMap} can not be traversed while modified, so copy can not be made alongside modifications
  */
-@SuppressWarnings("UnstableApiUsage")
 public class StripedAtomicCountersRepository implements CountersRepository {
 
 
     private final GlobalLock global = new GlobalLock();
     private final HashMap<String, AtomicLong> storage = new HashMap<>();
-    private final ResizingStriped locks = new ResizingStriped(global, storage::size);
+    private final ResizingStriped locks;
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing, storage.keySet()::forEach);
+
+    public StripedAtomicCountersRepository() {
+
+        this(new ResizeSettings());
+    }
+
+    /**
+     * @param resize settings of {@link ResizingStriped} stripes
+     */
+    public StripedAtomicCountersRepository(ResizeSettings resize) {
+
+        this.locks = new ResizingStriped(storage::size, resize);
+    }
 
     /**
      * {@inheritDoc}
      */
     @NonNull
     @Override
-    public Optional<Counter> findByName(@NonNull String name) {
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
 
-        val lock = locks.get(name).readLock();
-        lock.lock();
+        val lock = locks.readLock(name);
         try {
 
             val container = storage.get(name);
-            if (container == null) {
-
-                return Optional.empty();
-            } else {
 
-                return Optional.of(new SimpleCounter(name, container.get()));
-            }
+            return container == null ? result.notFound() : result.ok(container.get());
         } finally {
 
             lock.unlock();
@@ -75,63 +90,92 @@ public class StripedAtomicCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> create(@NonNull String name, @NonNull long value) {
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
+
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
+
+            if (storage.containsKey(name)) {
+
+                return result.duplicate();
+            }
 
-        return global.reading(() -> {
+            storage.put(name, new AtomicLong(value));
+            sum.add(value);
+            index.add(name);
+            return result.ok(value);
+        } finally {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+            lock.unlock();
+            global.exitReading(ticket);
+        }
+    }
 
-                val container = storage.get(name);
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
 
-                    storage.put(name, new AtomicLong(value));
-                    return Optional.of(new SimpleCounter(name, value));
-                } else {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-                    return Optional.empty();
-                }
-            } finally {
+            return add(name, delta, result);
+        } finally {
 
-                lock.unlock();
-            }
-        });
+            lock.unlock();
+            global.exitReading(ticket);
+        }
     }
 
     /**
      * {@inheritDoc}
+     * Stripes of the whole batch are locked up front, in stripe order
      */
     @NonNull
     @Override
-    public Optional<Counter> incrementByName(@NonNull String name) {
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
 
-        return global.reading(() -> {
+        return global.reading(() -> locks.writingAll(deltas.keySet(), () -> {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
 
-                val container = storage.get(name);
-                if (container == null) {
+            return results;
+        }));
+    }
 
-                    return Optional.empty();
-                } else {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
 
-                    val currentValue = container.get();
-                    if (currentValue == Long.MAX_VALUE) {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-                        throw new ArithmeticException("long overflow");
-                    } else {
+            val container = storage.remove(name);
 
-                        return Optional.of(new SimpleCounter(name, container.incrementAndGet()));
-                    }
-                }
-            } finally {
+            if (container == null) {
 
-                lock.unlock();
+                return result.notFound();
             }
-        });
+
+            val value = container.get();
+            sum.subtract(value);
+            index.remove(name);
+            return result.ok(value);
+        } finally {
+
+            lock.unlock();
+            global.exitReading(ticket);
+        }
     }
 
     /**
@@ -139,27 +183,39 @@ public class StripedAtomicCountersRepository implements CountersRepository {
      */
     @NonNull
     @Override
-    public Optional<Counter> deleteByName(@NonNull String name) {
+    public BigInteger valuesSum() {
 
-        return global.reading(() -> {
+        return sum.sum();
+    }
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called holding write lock of its stripe
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
 
-                val container = storage.get(name);
-                if (container == null) {
+        val container = storage.get(name);
 
-                    return Optional.empty();
-                } else {
+        if (container == null) {
 
-                    storage.remove(name);
-                    return Optional.of(new SimpleCounter(name, container.get()));
-                }
-            } finally {
+            return result.notFound();
+        }
 
-                lock.unlock();
-            }
-        });
+        if (result.adding(container.get(), delta).isOk()) {
+
+            container.set(result.getValue());
+            sum.add(delta);
+        }
+
+        return result;
     }
 }
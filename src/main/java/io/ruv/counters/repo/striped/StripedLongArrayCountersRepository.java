@@ -1,54 +1,66 @@
 package io.ruv.counters.repo.striped;
 
-import com.google.common.util.concurrent.Striped;
 import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
 import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.util.index.LazyNameIndex;
 import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.striped.ResizeSettings;
 import io.ruv.counters.util.striped.ResizingStriped;
+import io.ruv.counters.util.sum.StripedSum;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link CountersRepository} backed by {@link HashMap} with long[] values
- * using {@link Striped} as a local locking mechanism
- * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()}
+ * using {@link ResizingStriped} as a local locking mechanism
+ * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()} -
+ * {@link HashMap} can not be traversed while modified, so copy can not be made alongside modifications
  */
-@SuppressWarnings("UnstableApiUsage")
 public class StripedLongArrayCountersRepository implements CountersRepository {
 
 
     private final GlobalLock global = new GlobalLock();
     private final Map<String, long[]> storage = new HashMap<>();
-    private final ResizingStriped locks = new ResizingStriped(global, storage::size);
+    private final ResizingStriped locks;
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing, storage.keySet()::forEach);
+
+    public StripedLongArrayCountersRepository() {
+
+        this(new ResizeSettings());
+    }
+
+    /**
+     * @param resize settings of {@link ResizingStriped} stripes
+     */
+    public StripedLongArrayCountersRepository(ResizeSettings resize) {
+
+        this.locks = new ResizingStriped(storage::size, resize);
+    }
 
     /**
      * {@inheritDoc}
      */
-    @Override
     @NonNull
-    public Optional<Counter> findByName(@NonNull String name) {
+    @Override
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
 
-        val lock = locks.get(name).readLock();
-        lock.lock();
+        val lock = locks.readLock(name);
         try {
 
             val container = storage.get(name);
 
-            if (container == null) {
-
-                return Optional.empty();
-            } else {
-
-                val value = container[0];
-
-                return Optional.of(new SimpleCounter(name, value));
-            }
+            return container == null ? result.notFound() : result.ok(container[0]);
         } finally {
 
             lock.unlock();
@@ -75,89 +87,134 @@ public class StripedLongArrayCountersRepository implements CountersRepository {
     /**
      * {@inheritDoc}
      */
-    @Override
     @NonNull
-    public Optional<Counter> create(@NonNull String name, @NonNull long value) {
+    @Override
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
 
-        return global.reading(() -> {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
+
+            if (storage.containsKey(name)) {
+
+                return result.duplicate();
+            }
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+            storage.put(name, new long[]{value});
+            sum.add(value);
+            index.add(name);
+            return result.ok(value);
+        } finally {
 
-                val container = storage.get(name);
+            lock.unlock();
+            global.exitReading(ticket);
+        }
+    }
 
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
 
-                    storage.put(name, new long[]{value});
-                    return Optional.of(new SimpleCounter(name, value));
-                } else {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-                    return Optional.empty();
-                }
-            } finally {
+            return add(name, delta, result);
+        } finally {
 
-                lock.unlock();
-            }
-        });
+            lock.unlock();
+            global.exitReading(ticket);
+        }
     }
 
     /**
      * {@inheritDoc}
+     * Stripes of the whole batch are locked up front, in stripe order
      */
-    @Override
     @NonNull
-    public Optional<Counter> incrementByName(@NonNull String name) {
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
 
-        return global.reading(() -> {
+        return global.reading(() -> locks.writingAll(deltas.keySet(), () -> {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
 
-                val container = storage.get(name);
+            return results;
+        }));
+    }
 
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
+
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-                    return Optional.empty();
-                } else {
+            val container = storage.remove(name);
 
-                    container[0] = Math.incrementExact(container[0]);
-                    return Optional.of(new SimpleCounter(name, container[0]));
-                }
-            } finally {
+            if (container == null) {
 
-                lock.unlock();
+                return result.notFound();
             }
-        });
+
+            val value = container[0];
+            sum.subtract(value);
+            index.remove(name);
+            return result.ok(value);
+        } finally {
+
+            lock.unlock();
+            global.exitReading(ticket);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
+    @NonNull
     @Override
+    public BigInteger valuesSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
     @NonNull
-    public Optional<Counter> deleteByName(@NonNull String name) {
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
+
+        return index.page(after, limit);
+    }
 
-        return global.reading(() -> {
+    /**
+     * Adds specified delta to counter with specified name, must be called holding write lock of its stripe
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+        val container = storage.get(name);
 
-                val container = storage.remove(name);
+        if (container == null) {
 
-                if (container == null) {
+            return result.notFound();
+        }
 
-                    return Optional.empty();
-                } else {
+        if (result.adding(container[0], delta).isOk()) {
 
-                    return Optional.of(new SimpleCounter(name, container[0]));
-                }
-            } finally {
+            container[0] = result.getValue();
+            sum.add(delta);
+        }
 
-                lock.unlock();
-            }
-        });
+        return result;
     }
 }
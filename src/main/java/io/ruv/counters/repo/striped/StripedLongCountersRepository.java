@@ -1,51 +1,65 @@
 package io.ruv.counters.repo.striped;
 
-import com.google.common.util.concurrent.Striped;
 import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
 import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.util.index.LazyNameIndex;
 import io.ruv.counters.util.lock.GlobalLock;
+import io.ruv.counters.util.striped.ResizeSettings;
 import io.ruv.counters.util.striped.ResizingStriped;
+import io.ruv.counters.util.sum.StripedSum;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link CountersRepository} backed by {@link HashMap} with Long values
- * using {@link Striped} as a local locking mechanism
- * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()}
+ * using {@link ResizingStriped} as a local locking mechanism
+ * {@link GlobalLock} is used to block modifications while creating a copy in {@linkplain #findAll()} -
+ * {@link HashMap} can not be traversed while modified, so copy can not be made alongside modifications
  */
-@SuppressWarnings("UnstableApiUsage")
 public class StripedLongCountersRepository implements CountersRepository {
 
     private final GlobalLock global = new GlobalLock();
     private final Map<String, Long> storage = new HashMap<>();
-    private final ResizingStriped locks = new ResizingStriped(global, storage::size);
+    private final ResizingStriped locks;
+    private final StripedSum sum = new StripedSum();
+    private final LazyNameIndex index = new LazyNameIndex(global::writing, storage.keySet()::forEach);
+
+    public StripedLongCountersRepository() {
+
+        this(new ResizeSettings());
+    }
+
+    /**
+     * @param resize settings of {@link ResizingStriped} stripes
+     */
+    public StripedLongCountersRepository(ResizeSettings resize) {
+
+        this.locks = new ResizingStriped(storage::size, resize);
+    }
 
     /**
      * {@inheritDoc}
      */
-    @Override
     @NonNull
-    public Optional<Counter> findByName(@NonNull String name) {
+    @Override
+    public CounterResult findByName(@NonNull String name, @NonNull CounterResult result) {
 
-        val lock = locks.get(name).readLock();
-        lock.lock();
+        val lock = locks.readLock(name);
         try {
 
             val container = storage.get(name);
 
-            if (container == null) {
-
-                return Optional.empty();
-            } else {
-
-                return Optional.of(new SimpleCounter(name, container));
-            }
+            return container == null ? result.notFound() : result.ok(container);
         } finally {
 
             lock.unlock();
@@ -72,91 +86,135 @@ public class StripedLongCountersRepository implements CountersRepository {
     /**
      * {@inheritDoc}
      */
-    @Override
     @NonNull
-    public Optional<Counter> create(@NonNull String name, long value) {
+    @Override
+    public CounterResult create(@NonNull String name, long value, @NonNull CounterResult result) {
 
-        return global.reading(() -> {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+            if (storage.containsKey(name)) {
 
-                val container = storage.get(name);
+                return result.duplicate();
+            }
+
+            storage.put(name, value);
+            sum.add(value);
+            index.add(name);
+            return result.ok(value);
+        } finally {
+
+            lock.unlock();
+            global.exitReading(ticket);
+        }
+    }
 
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult addByName(@NonNull String name, long delta, @NonNull CounterResult result) {
 
-                    storage.put(name, value);
-                    return Optional.of(new SimpleCounter(name, value));
-                } else {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-                    return Optional.empty();
-                }
-            } finally {
+            return add(name, delta, result);
+        } finally {
 
-                lock.unlock();
-            }
-        });
+            lock.unlock();
+            global.exitReading(ticket);
+        }
     }
 
     /**
      * {@inheritDoc}
+     * Stripes of the whole batch are locked up front, in stripe order
      */
-    @Override
     @NonNull
-    public Optional<Counter> incrementByName(@NonNull String name) {
+    @Override
+    public Map<String, IncrementResult> incrementAll(@NonNull Map<String, Long> deltas) {
 
-        return global.reading(() -> {
+        return global.reading(() -> locks.writingAll(deltas.keySet(), () -> {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+            val result = new CounterResult();
+            val results = new HashMap<String, IncrementResult>(deltas.size() * 2);
+            deltas.forEach((name, delta) -> results.put(name, IncrementResult.from(add(name, delta, result))));
 
-                val container = storage.get(name);
+            return results;
+        }));
+    }
 
-                if (container == null) {
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterResult deleteByName(@NonNull String name, @NonNull CounterResult result) {
 
-                    return Optional.empty();
-                } else {
+        val ticket = global.enterReading();
+        val lock = locks.writeLock(name);
+        try {
 
-                    val value = Math.incrementExact(container);
+            val container = storage.remove(name);
 
-                    // container is immutable - reintroduce value
-                    storage.put(name, value);
-                    return Optional.of(new SimpleCounter(name, value));
-                }
-            } finally {
+            if (container == null) {
 
-                lock.unlock();
+                return result.notFound();
             }
-        });
+
+            val value = container;
+            sum.subtract(value);
+            index.remove(name);
+            return result.ok(value);
+        } finally {
+
+            lock.unlock();
+            global.exitReading(ticket);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
+    @NonNull
     @Override
+    public BigInteger valuesSum() {
+
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
     @NonNull
-    public Optional<Counter> deleteByName(@NonNull String name) {
-        return global.reading(() -> {
+    @Override
+    public List<String> findNames(@Nullable String after, int limit) {
 
-            val lock = locks.get(name).writeLock();
-            lock.lock();
-            try {
+        return index.page(after, limit);
+    }
+
+    /**
+     * Adds specified delta to counter with specified name, must be called holding write lock of its stripe
+     */
+    private CounterResult add(String name, long delta, CounterResult result) {
 
-                val container = storage.remove(name);
+        val container = storage.get(name);
 
-                if (container == null) {
+        if (container == null) {
 
-                    return Optional.empty();
-                } else {
+            return result.notFound();
+        }
 
-                    return Optional.of(new SimpleCounter(name, container));
-                }
-            } finally {
+        if (result.adding(container, delta).isOk()) {
 
-                lock.unlock();
-            }
-        });
+            // container is immutable - reintroduce value
+            storage.put(name, result.getValue());
+            sum.add(delta);
+        }
+
+        return result;
     }
 }
@@ -1,9 +1,16 @@
 package io.ruv.counters.service;
 
+import io.ruv.counters.web.dto.BatchIncrementDto;
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
 import io.ruv.counters.web.dto.CounterDto;
 import io.ruv.counters.web.dto.CounterNamesDto;
 import io.ruv.counters.web.dto.CounterSumDto;
+import io.ruv.counters.web.dto.ImportResultDto;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * Interface detailing counter operation contracts
@@ -32,6 +39,41 @@ public interface CountersService {
     @NonNull
     CounterDto incrementByName(@NonNull String name) throws NotFoundException, OverflowException;
 
+    /**
+     * Increments value for counter with specified name without reporting new value
+     * Suits heavily contended counters - increments in flight may or may not be seen by
+     * {@linkplain #getCounterSum()} and {@linkplain #getByName(String)} until they complete
+     *
+     * @param name target counter name
+     * @throws NotFoundException when counter with specified name does not exist
+     * @throws OverflowException when incrementing specified counter will result in long value overflow
+     */
+    void incrementByNameRelaxed(@NonNull String name) throws NotFoundException, OverflowException;
+
+    /**
+     * Adds specified delta to value of counter with specified name
+     *
+     * @param name  target counter name
+     * @param delta amount to add, may be negative
+     * @return updated counter
+     * @throws NotFoundException when counter with specified name does not exist
+     * @throws OverflowException when adding delta to specified counter will result in long value overflow
+     */
+    @NonNull
+    CounterDto addByName(@NonNull String name, long delta) throws NotFoundException, OverflowException;
+
+    /**
+     * Adds deltas specified in parameter to values of counters with specified names
+     * Every counter is updated on its own - missing and overflowing counters do not fail the batch,
+     * they are left untouched and reported in results
+     *
+     * @param batch deltas keyed by counter name
+     * @return container with update result of every counter in the batch, in batch order
+     * @throws IllegalBatchException when deltas or any delta is null, or batch exceeds max size
+     */
+    @NonNull
+    BatchIncrementResultDto incrementAll(@NonNull BatchIncrementDto batch) throws IllegalBatchException;
+
     /**
      * Retrieves counter with specified name
      *
@@ -54,6 +96,7 @@ public interface CountersService {
 
     /**
      * Retrieves sum of every counter present at the start of operation
+     * Sum is maintained by repository - modifications in progress may be only partially reflected
      * When no counters exist at the start of operation - returns 0 (product of empty counter list)
      *
      * @return container with sum of counter values
@@ -62,11 +105,47 @@ public interface CountersService {
     CounterSumDto getCounterSum();
 
     /**
-     * Returns names of every counter present at the start of operation
-     * When no counters exist at the start of operation - returns empty list
+     * Returns a page of counter names in natural order, starting right after specified name
+     * When there are no more names - returns empty list
+     * Page is not a snapshot - names created or deleted while it is read may or may not be present
+     *
+     * @param after name preceding requested page, first page is returned when null
+     * @param limit max amount of names in the page, default limit is used when null
+     * @return container with counter names and cursor of the next page, if there may be one
+     * @throws IllegalLimitException when specified limit is not positive or exceeds max limit
+     */
+    @NonNull
+    CounterNamesDto getCounterNames(@Nullable String after, @Nullable Integer limit) throws IllegalLimitException;
+
+    /**
+     * Streams all counter names in natural order, starting right after specified name
+     * Names are read from repository lazily as stream is consumed - nothing is collected up front
+     * Stream is not a snapshot - names created or deleted while it is consumed may or may not be present
+     *
+     * @param after name preceding streamed names, all names are streamed when null
+     * @return sequential stream of counter names
+     */
+    @NonNull
+    Stream<String> streamCounterNames(@Nullable String after);
+
+    /**
+     * Streams all counters in natural order of their names, starting right after specified name
+     * Every value is read when its counter is reached, counters deleted by then are skipped
+     *
+     * @param after name preceding streamed counters, all counters are streamed when null
+     * @return sequential stream of counters
+     */
+    @NonNull
+    Stream<CounterDto> streamCounters(@Nullable String after);
+
+    /**
+     * Creates counters read from specified source in batches, skipping those that can not be created
+     * Counters are validated with the same rules as in {@linkplain #create(CounterDto)},
+     * source may hand out the same instance every time - counters are not kept past the call to next
      *
-     * @return container with counter names
+     * @param counters counters to create, a malformed record is expected to come with null name
+     * @return amounts of counters created and skipped
      */
     @NonNull
-    CounterNamesDto getCounterNames();
+    ImportResultDto importCounters(@NonNull Iterator<CounterDto> counters);
 }
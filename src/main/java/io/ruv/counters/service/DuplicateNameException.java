@@ -13,7 +13,7 @@ public class DuplicateNameException extends ApiException {
 
     public static DuplicateNameException of(String name) {
 
-        return new DuplicateNameException(String.format("Counter with name '%s' already exists.", name));
+        return new DuplicateNameException("Counter with name '" + name + "' already exists.");
     }
 
     @NonNull
@@ -0,0 +1,42 @@
+package io.ruv.counters.service;
+
+import io.ruv.counters.util.exception.ApiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+
+public class IllegalBatchException extends ApiException {
+
+    public IllegalBatchException(String message) {
+
+        super(message);
+    }
+
+    public static IllegalBatchException nullDeltas() {
+
+        return new IllegalBatchException("Batch deltas were not specified.");
+    }
+
+    public static IllegalBatchException nullDelta(String name) {
+
+        return new IllegalBatchException(String.format("Delta of counter '%s' was not specified.", name));
+    }
+
+    public static IllegalBatchException tooLarge(int size, int maxSize) {
+
+        return new IllegalBatchException(String.format("Illegal batch size '%d' - exceeds max size '%d'.",
+                size, maxSize));
+    }
+
+    @NonNull
+    @Override
+    public String getMessage() {
+        return super.getMessage();
+    }
+
+    @Override
+    @NonNull
+    public HttpStatus getHttpStatus() {
+
+        return HttpStatus.BAD_REQUEST;
+    }
+}
@@ -0,0 +1,32 @@
+package io.ruv.counters.service;
+
+import io.ruv.counters.util.exception.ApiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+
+public class IllegalLimitException extends ApiException {
+
+    public IllegalLimitException(String message) {
+
+        super(message);
+    }
+
+    public static IllegalLimitException outOfRange(int limit, int maxLimit) {
+
+        return new IllegalLimitException(String.format("Illegal page limit '%d' - must be between 1 and '%d'.",
+                limit, maxLimit));
+    }
+
+    @NonNull
+    @Override
+    public String getMessage() {
+        return super.getMessage();
+    }
+
+    @Override
+    @NonNull
+    public HttpStatus getHttpStatus() {
+
+        return HttpStatus.BAD_REQUEST;
+    }
+}
@@ -21,6 +21,11 @@ public class IllegalNameException extends ApiException {
         return new IllegalNameException("Illegal counter name '' - empty.");
     }
 
+    public static IllegalNameException unpairedSurrogate() {
+
+        return new IllegalNameException("Illegal counter name - contains unpaired UTF-16 surrogate.");
+    }
+
     public static IllegalNameException tooLongName(String name, int maxLength) {
 
         return new IllegalNameException(String.format("Illegal counter name '%s' - exceeds max length '%d'.",
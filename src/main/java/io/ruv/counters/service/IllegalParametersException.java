@@ -0,0 +1,32 @@
+package io.ruv.counters.service;
+
+import io.ruv.counters.util.exception.ApiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+
+public class IllegalParametersException extends ApiException {
+
+    public IllegalParametersException(String message) {
+
+        super(message);
+    }
+
+    public static IllegalParametersException conflicting(String one, String another) {
+
+        return new IllegalParametersException(String.format("Parameters '%s' and '%s' can not be used together.",
+                one, another));
+    }
+
+    @NonNull
+    @Override
+    public String getMessage() {
+        return super.getMessage();
+    }
+
+    @Override
+    @NonNull
+    public HttpStatus getHttpStatus() {
+
+        return HttpStatus.BAD_REQUEST;
+    }
+}
@@ -0,0 +1,31 @@
+package io.ruv.counters.service;
+
+import io.ruv.counters.util.exception.ApiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+
+public class IllegalSnapshotException extends ApiException {
+
+    public IllegalSnapshotException(String message, Throwable cause) {
+
+        super(message, cause);
+    }
+
+    public static IllegalSnapshotException unreadable(Throwable cause) {
+
+        return new IllegalSnapshotException(String.format("Snapshot can not be read - %s.", cause.getMessage()), cause);
+    }
+
+    @NonNull
+    @Override
+    public String getMessage() {
+        return super.getMessage();
+    }
+
+    @Override
+    @NonNull
+    public HttpStatus getHttpStatus() {
+
+        return HttpStatus.BAD_REQUEST;
+    }
+}
@@ -13,7 +13,7 @@ public class NotFoundException extends ApiException {
 
     public static NotFoundException of(String name) {
 
-        return new NotFoundException(String.format("Counter with name '%s' does not exist.", name));
+        return new NotFoundException("Counter with name '" + name + "' does not exist.");
     }
 
     @NonNull
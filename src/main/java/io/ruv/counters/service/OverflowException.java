@@ -11,6 +11,22 @@ public class OverflowException extends ApiException {
         super(message, cause);
     }
 
+    public OverflowException(String message) {
+
+        super(message);
+    }
+
+    public static OverflowException of(String name) {
+
+        return new OverflowException(String.format("Counter '%s' can not be updated without overflowing.", name));
+    }
+
+    public static OverflowException of(String name, long delta) {
+
+        return new OverflowException(String.format("Counter '%s' can not be updated by %d without overflowing.",
+                name, delta));
+    }
+
     public static OverflowException of(String name, Throwable cause) {
 
         return new OverflowException(String.format("Counter '%s' can not be incremented without overflowing."
@@ -1,23 +1,36 @@
 package io.ruv.counters.service.impl;
 
-import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
 import io.ruv.counters.service.*;
+import io.ruv.counters.util.text.Utf8;
+import io.ruv.counters.web.dto.BatchIncrementDto;
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
 import io.ruv.counters.web.dto.CounterDto;
 import io.ruv.counters.web.dto.CounterNamesDto;
 import io.ruv.counters.web.dto.CounterSumDto;
+import io.ruv.counters.web.dto.ImportResultDto;
+import io.ruv.counters.web.dto.IncrementResultDto;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.stream.Stream;
 
-import java.math.BigInteger;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class CountersServiceImpl implements CountersService {
 
     private final CountersRepository repository;
     public static final int MAX_NAME_LENGTH = 1024; //todo externalize
+    public static final int DEFAULT_NAMES_LIMIT = 1000;
+    public static final int MAX_NAMES_LIMIT = 10_000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int IMPORT_BATCH_SIZE = 10_000;
 
     /**
      * {@inheritDoc}
@@ -28,9 +41,8 @@ public class CountersServiceImpl implements CountersService {
 
         creationPreconditions(counter);
 
-        val result = repository.create(counter.getName(), counter.getValue());
-        return result.map(this::toDto)
-                .orElseThrow(() -> DuplicateNameException.of(counter.getName()));
+        val result = repository.create(counter.getName(), counter.getValue(), new CounterResult());
+        return toDto(counter.getName(), result);
     }
 
     /**
@@ -40,15 +52,28 @@ public class CountersServiceImpl implements CountersService {
     @Override
     public CounterDto incrementByName(@NonNull String name) throws NotFoundException, OverflowException {
 
-        try {
+        return addByName(name, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementByNameRelaxed(@NonNull String name) throws NotFoundException, OverflowException {
 
-            val result = repository.incrementByName(name);
+        boolean found;
+        try {
 
-            return result.map(this::toDto).orElseThrow(() -> NotFoundException.of(name));
+            found = repository.incrementByNameRelaxed(name);
         } catch (ArithmeticException e) {
 
             throw OverflowException.of(name, e);
         }
+
+        if (!found) {
+
+            throw NotFoundException.of(name);
+        }
     }
 
     /**
@@ -56,11 +81,15 @@ public class CountersServiceImpl implements CountersService {
      */
     @NonNull
     @Override
-    public CounterDto getByName(@NonNull String name) throws NotFoundException {
+    public CounterDto addByName(@NonNull String name, long delta) throws NotFoundException, OverflowException {
+
+        val result = repository.addByName(name, delta, new CounterResult());
+        if (result.getStatus() == CounterResult.Status.OVERFLOW) {
 
-        val result = repository.findByName(name);
+            throw OverflowException.of(name, delta);
+        }
 
-        return result.map(this::toDto).orElseThrow(() -> NotFoundException.of(name));
+        return toDto(name, result);
     }
 
     /**
@@ -68,11 +97,54 @@ public class CountersServiceImpl implements CountersService {
      */
     @NonNull
     @Override
-    public CounterDto deleteByName(@NonNull String name) throws NotFoundException {
+    public BatchIncrementResultDto incrementAll(@NonNull BatchIncrementDto batch) throws IllegalBatchException {
+
+        val deltas = batch.getDeltas();
+
+        if (deltas == null) {
+
+            throw IllegalBatchException.nullDeltas();
+        }
+
+        if (deltas.size() > MAX_BATCH_SIZE) {
+
+            throw IllegalBatchException.tooLarge(deltas.size(), MAX_BATCH_SIZE);
+        }
+
+        deltas.forEach((name, delta) -> {
+
+            if (delta == null) {
+
+                throw IllegalBatchException.nullDelta(name);
+            }
+        });
+
+        val results = repository.incrementAll(deltas);
+
+        val dtos = new LinkedHashMap<String, IncrementResultDto>(deltas.size() * 2);
+        deltas.keySet().forEach(name -> dtos.put(name, toDto(results.get(name))));
 
-        val result = repository.deleteByName(name);
+        return new BatchIncrementResultDto(dtos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterDto getByName(@NonNull String name) throws NotFoundException {
+
+        return toDto(name, repository.findByName(name, new CounterResult()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterDto deleteByName(@NonNull String name) throws NotFoundException {
 
-        return result.map(this::toDto).orElseThrow(() -> NotFoundException.of(name));
+        return toDto(name, repository.deleteByName(name, new CounterResult()));
     }
 
     /**
@@ -82,12 +154,40 @@ public class CountersServiceImpl implements CountersService {
     @Override
     public CounterSumDto getCounterSum() {
 
-        var sum = BigInteger.ZERO;
+        return new CounterSumDto(repository.valuesSum());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CounterNamesDto getCounterNames(@Nullable String after, @Nullable Integer limit)
+            throws IllegalLimitException {
+
+        val pageLimit = limit == null ? DEFAULT_NAMES_LIMIT : limit;
+
+        if (pageLimit < 1 || pageLimit > MAX_NAMES_LIMIT) {
+
+            throw IllegalLimitException.outOfRange(pageLimit, MAX_NAMES_LIMIT);
+        }
 
-        return new CounterSumDto(repository.findAll()
-                .map(Counter::getValue)
-                .map(BigInteger::valueOf)
-                .reduce(sum, BigInteger::add));
+        val names = repository.findNames(after, pageLimit);
+
+        // full page means there may be more names after it
+        val next = names.size() == pageLimit ? names.get(names.size() - 1) : null;
+
+        return new CounterNamesDto(names, next);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Stream<String> streamCounterNames(@Nullable String after) {
+
+        return repository.streamNames(after);
     }
 
     /**
@@ -95,38 +195,147 @@ public class CountersServiceImpl implements CountersService {
      */
     @NonNull
     @Override
-    public CounterNamesDto getCounterNames() {
+    public Stream<CounterDto> streamCounters(@Nullable String after) {
+
+        // stream is sequential, so one result serves every lookup
+        val result = new CounterResult();
 
-        return new CounterNamesDto(repository.findAll()
-                .map(Counter::getName)
-                .collect(Collectors.toList()));
+        return repository.streamNames(after).<CounterDto>mapMulti((name, sink) -> {
+
+            if (repository.findByName(name, result).isOk()) {
+
+                sink.accept(toDto(name, result.getValue()));
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public ImportResultDto importCounters(@NonNull Iterator<CounterDto> counters) {
+
+        val names = new String[IMPORT_BATCH_SIZE];
+        val values = new long[IMPORT_BATCH_SIZE];
+        int batched = 0;
+        long accepted = 0;
+        long created = 0;
+        long invalid = 0;
+
+        while (counters.hasNext()) {
+
+            val counter = counters.next();
+
+            if (brokenNameRule(counter.getName()) != null) {
+
+                invalid++;
+                continue;
+            }
+
+            names[batched] = counter.getName();
+            values[batched++] = counter.getValue();
+
+            if (batched == IMPORT_BATCH_SIZE) {
+
+                created += repository.createAll(names, values, batched);
+                accepted += batched;
+                batched = 0;
+            }
+        }
+
+        created += repository.createAll(names, values, batched);
+        accepted += batched;
+
+        return new ImportResultDto(created, accepted - created, invalid);
     }
 
     private void creationPreconditions(CounterDto dto) {
 
-        if (dto.getName() == null) {
+        val rule = brokenNameRule(dto.getName());
+        if (rule != null) {
+
+            throw switch (rule) {
+
+                case SPECIFIED -> IllegalNameException.nullName();
+                case NOT_EMPTY -> IllegalNameException.emptyName();
+                case MAX_LENGTH -> IllegalNameException.tooLongName(dto.getName(), MAX_NAME_LENGTH);
+                case WELL_FORMED -> IllegalNameException.unpairedSurrogate();
+            };
+        }
+    }
+
+    /**
+     * Checks specified name without building the exception reporting it, import counts illegal names only
+     *
+     * @return rule specified name breaks, or null if name is legal
+     */
+    @Nullable
+    private static NameRule brokenNameRule(@Nullable String name) {
+
+        if (name == null) {
 
-            throw IllegalNameException.nullName();
+            return NameRule.SPECIFIED;
         }
 
-        if (dto.getName().isEmpty()) {
+        if (name.isEmpty()) {
 
-            throw IllegalNameException.emptyName();
+            return NameRule.NOT_EMPTY;
         }
 
-        if (dto.getName().length() > MAX_NAME_LENGTH) {
+        if (name.length() > MAX_NAME_LENGTH) {
 
+            return NameRule.MAX_LENGTH;
+        }
+
+        // off-heap repositories keep names as UTF-8, where unpaired surrogate would turn into '?'
+        if (Utf8.hasUnpairedSurrogate(name)) {
 
-            throw IllegalNameException.tooLongName(dto.getName(), MAX_NAME_LENGTH);
+            return NameRule.WELL_FORMED;
         }
+
+        return null;
     }
 
-    private CounterDto toDto(Counter counter) {
+    private CounterDto toDto(String name, long value) {
 
         val dto = new CounterDto();
-        dto.setName(counter.getName());
-        dto.setValue(counter.getValue());
+        dto.setName(name);
+        dto.setValue(value);
 
         return dto;
     }
+
+    /**
+     * Maps repository outcome to counter or to the exception reporting it
+     * Outcomes are statuses down to this point - nothing is thrown inside repository for a missing name
+     */
+    private CounterDto toDto(String name, CounterResult result) {
+
+        return switch (result.getStatus()) {
+
+            case OK -> toDto(name, result.getValue());
+            case NOT_FOUND -> throw NotFoundException.of(name);
+            case DUPLICATE -> throw DuplicateNameException.of(name);
+            case OVERFLOW -> throw OverflowException.of(name);
+        };
+    }
+
+    private IncrementResultDto toDto(IncrementResult result) {
+
+        return switch (result.getStatus()) {
+
+            case UPDATED -> new IncrementResultDto(IncrementResultDto.Status.UPDATED, result.getValue());
+            case NOT_FOUND -> new IncrementResultDto(IncrementResultDto.Status.NOT_FOUND, null);
+            case OVERFLOW -> new IncrementResultDto(IncrementResultDto.Status.OVERFLOW, null);
+        };
+    }
+
+    private enum NameRule {
+
+        SPECIFIED,
+        NOT_EMPTY,
+        MAX_LENGTH,
+        WELL_FORMED
+    }
 }
@@ -3,16 +3,21 @@ package io.ruv.counters.util.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 
+/**
+ * Expected outcome reported to api clients
+ * Does not capture stack trace - these are thrown routinely, for every request on a missing name,
+ * and are never logged with their stack
+ */
 public abstract class ApiException extends RuntimeException {
 
     public ApiException(String message) {
 
-        super(message);
+        super(message, null, false, false);
     }
 
     public ApiException(String message, Throwable cause) {
 
-        super(message, cause);
+        super(message, cause, false, false);
     }
 
     @NonNull
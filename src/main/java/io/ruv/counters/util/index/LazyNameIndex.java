@@ -0,0 +1,83 @@
+package io.ruv.counters.util.index;
+
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link NameIndex} built on the first page read - repositories never asked for names keep no heap objects
+ * for them, adding or removing a name costs a volatile read until then
+ * <p>
+ * Index is built from a traversal of the storage while modifications adding or removing names are blocked,
+ * then it is kept up to date by those modifications - they must call {@linkplain #add(String)}
+ * and {@linkplain #remove(String)} inside the section build excludes
+ */
+public final class LazyNameIndex {
+
+    private final Function<Supplier<NameIndex>, NameIndex> exclusive;
+    private final Consumer<Consumer<String>> traversal;
+
+    @Nullable
+    private volatile NameIndex index;
+
+    /**
+     * @param exclusive executes action while modifications adding or removing names are blocked
+     * @param traversal passes every stored name to provided consumer, may pass the same name more than once
+     */
+    public LazyNameIndex(Function<Supplier<NameIndex>, NameIndex> exclusive, Consumer<Consumer<String>> traversal) {
+
+        this.exclusive = exclusive;
+        this.traversal = traversal;
+    }
+
+    public void add(String name) {
+
+        val current = index;
+        if (current != null) {
+
+            current.add(name);
+        }
+    }
+
+    public void remove(String name) {
+
+        val current = index;
+        if (current != null) {
+
+            current.remove(name);
+        }
+    }
+
+    /**
+     * Reads a page of names as {@linkplain NameIndex#page(String, int)} does
+     * Index is built on the first call, modifications adding or removing names are blocked meanwhile
+     */
+    @NonNull
+    public List<String> page(@Nullable String after, int limit) {
+
+        var current = index;
+        if (current == null) {
+
+            current = exclusive.apply(this::build);
+        }
+
+        return current.page(after, limit);
+    }
+
+    private NameIndex build() {
+
+        if (index == null) {
+
+            val built = new NameIndex();
+            traversal.accept(built::add);
+            index = built;
+        }
+
+        return index;
+    }
+}
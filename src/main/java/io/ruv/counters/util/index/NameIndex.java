@@ -0,0 +1,56 @@
+package io.ruv.counters.util.index;
+
+import lombok.val;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted set of counter names backed by {@link ConcurrentSkipListSet}
+ * Repositories add and remove names while they hold exclusive access to the counter,
+ * so index never disagrees with storage about a name once modification is done
+ * Pages are read without blocking anyone - names added or removed while page is read may or may not be seen
+ */
+public final class NameIndex {
+
+    private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+
+    public void add(String name) {
+
+        names.add(name);
+    }
+
+    public void remove(String name) {
+
+        names.remove(name);
+    }
+
+    /**
+     * Reads a page of names in natural {@link String} order, taking O(log n + limit) time
+     *
+     * @param after name preceding the page, first page is read when null
+     * @param limit max amount of names in the page
+     * @return names following specified one
+     */
+    @NonNull
+    public List<String> page(@Nullable String after, int limit) {
+
+        val tail = after == null ? names : names.tailSet(after, false);
+        val page = new ArrayList<String>(Math.min(limit, 1024));
+
+        for (val name : tail) {
+
+            if (page.size() == limit) {
+
+                break;
+            }
+
+            page.add(name);
+        }
+
+        return page;
+    }
+}
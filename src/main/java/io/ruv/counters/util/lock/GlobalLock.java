@@ -1,15 +1,60 @@
 package io.ruv.counters.util.lock;
 
-import java.util.concurrent.locks.ReadWriteLock;
+import lombok.val;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 /**
- * Simple class executing actions inside {@link ReentrantReadWriteLock}
+ * Read-biased lock executing actions inside shared (reading) or exclusive (writing) section
+ * <p>
+ * While reads are biased, readers only announce themselves in one of per-core padded slots picked by current thread,
+ * so concurrent readers do not contend on a single reader count
+ * Writer revokes the bias and waits for announced readers to leave, then proceeds under {@link ReentrantReadWriteLock}
+ * write lock - readers coming in meanwhile fall back to its read lock
+ * Bias is restored by a reader once enough time has passed since revocation, proportional to how long revocation took,
+ * so write-heavy periods do not pay for revocation on every write
+ * <p>
+ * Reading is reentrant - a thread already inside the lock enters nested reads directly, so it never waits
+ * for a writer which in turn waits for that thread to leave; reading inside writing is allowed as well
+ * Writing can not be entered from reading - actions running inside reading must not start writing
  */
 public final class GlobalLock {
 
-    private final ReadWriteLock globalLock = new ReentrantReadWriteLock();
+    // bias stays revoked for this many revocation durations
+    private static final long INHIBIT_MULTIPLIER = 9;
+
+    // one slot per 128 bytes keeps slots off each other's cache lines
+    private static final int STRIDE = 32;
+
+    private static final int SPINS_BEFORE_YIELD = 1024;
+
+    // ticket of readers holding fallback read lock
+    private static final int FALLBACK = -1;
+
+    // ticket of reads nested in a section the thread is already inside
+    private static final int NESTED = -2;
+
+    private final ReentrantReadWriteLock fallback = new ReentrantReadWriteLock();
+    private final AtomicIntegerArray readers;
+    private final int mask;
+
+    // sections the thread is inside of, reading or writing
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    private volatile boolean readBias = true;
+
+    // guarded by fallback lock
+    private long inhibitUntil;
+
+    public GlobalLock() {
+
+        val slots = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+
+        this.readers = new AtomicIntegerArray(slots * STRIDE);
+        this.mask = slots - 1;
+    }
 
     /**
      * Executes action inside write lock
@@ -20,13 +65,21 @@ public final class GlobalLock {
      */
     public <T> T writing(Supplier<T> action) {
 
-        globalLock.writeLock().lock();
+        fallback.writeLock().lock();
+        val depth = this.depth.get();
+        depth[0]++;
         try {
 
+            if (readBias) {
+
+                revokeBias();
+            }
+
             return action.get();
         } finally {
 
-            globalLock.writeLock().unlock();
+            depth[0]--;
+            fallback.writeLock().unlock();
         }
     }
 
@@ -39,13 +92,113 @@ public final class GlobalLock {
      */
     public <T> T reading(Supplier<T> action) {
 
-        globalLock.readLock().lock();
+        val ticket = enterReading();
         try {
 
             return action.get();
         } finally {
 
-            globalLock.readLock().unlock();
+            exitReading(ticket);
+        }
+    }
+
+    /**
+     * Enters read lock without allocating an action, for callers on allocation-free paths
+     * Must be paired with {@linkplain #exitReading(int)} in finally block
+     *
+     * @return ticket to pass to {@linkplain #exitReading(int)}
+     */
+    public int enterReading() {
+
+        val depth = this.depth.get();
+        if (depth[0]++ > 0) {
+
+            return NESTED;
+        }
+
+        if (readBias) {
+
+            val slot = slot();
+            readers.incrementAndGet(slot);
+
+            // announcement above and the check below pair with revocation in reverse order
+            if (readBias) {
+
+                return slot;
+            }
+
+            readers.decrementAndGet(slot);
+        }
+
+        fallback.readLock().lock();
+
+        if (!readBias && System.nanoTime() - inhibitUntil >= 0) {
+
+            // no writer can be inside while read lock is held
+            readBias = true;
         }
+
+        return FALLBACK;
+    }
+
+    /**
+     * Leaves read lock entered with {@linkplain #enterReading()}
+     *
+     * @param ticket ticket returned by {@linkplain #enterReading()}
+     */
+    public void exitReading(int ticket) {
+
+        depth.get()[0]--;
+
+        if (ticket == NESTED) {
+
+            return;
+        }
+
+        if (ticket == FALLBACK) {
+
+            fallback.readLock().unlock();
+        } else {
+
+            readers.decrementAndGet(ticket);
+        }
+    }
+
+    /**
+     * Turns bias off and waits for announced readers to leave, must be called holding fallback write lock
+     */
+    private void revokeBias() {
+
+        readBias = false;
+
+        val start = System.nanoTime();
+
+        for (int i = 0; i <= mask; i++) {
+
+            val slot = i * STRIDE;
+            int spins = 0;
+
+            while (readers.get(slot) != 0) {
+
+                if (++spins < SPINS_BEFORE_YIELD) {
+
+                    Thread.onSpinWait();
+                } else {
+
+                    Thread.yield();
+                }
+            }
+        }
+
+        val now = System.nanoTime();
+        inhibitUntil = now + (now - start) * INHIBIT_MULTIPLIER;
+    }
+
+    private int slot() {
+
+        val id = Thread.currentThread().threadId();
+        val h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+        return ((h ^ (h >>> 16)) & mask) * STRIDE;
     }
 }
@@ -0,0 +1,63 @@
+package io.ruv.counters.util.snapshot;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Binary layout of counters snapshot, written by {@link SnapshotWriter} and read by {@link SnapshotReader}
+ * <p>
+ * Header: magic (int), version (byte), {@link Compression} ordinal (byte), followed by blocks
+ * <p>
+ * Block: amount of records (int), payload length (int), stored length (int) and CRC32C of these three
+ * and the stored bytes (int), then payload - deflated when compression is on. Payload holds records,
+ * each one is length of prefix shared with the previous name of the block (varint), length of the rest
+ * of the name (varint), the rest of UTF-8 encoded name and zig-zag encoded value (varint)
+ * Names written in order share long prefixes, every block starts over so it can be decoded on its own
+ * <p>
+ * Block without records closes the snapshot, its payload is the amount of records written (long)
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SnapshotFormat {
+
+    public static final int MAGIC = 0x434E5453;
+    public static final byte VERSION = 2;
+
+    static final int HEADER_BYTES = Integer.BYTES + 2;
+    static final int BLOCK_HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Payload length at which block is written out
+     */
+    static final int BLOCK_BYTES = 64 * 1024;
+
+    /**
+     * Largest block accepted, bounds memory taken by a corrupt or hostile length
+     */
+    static final int MAX_BLOCK_BYTES = 64 << 20;
+
+    /**
+     * Block payload encoding
+     */
+    public enum Compression {
+
+        /**
+         * Payload is stored as it is
+         */
+        NONE,
+
+        /**
+         * Payload is deflated
+         */
+        DEFLATE
+    }
+
+    static long zigZag(long value) {
+
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,304 @@
+package io.ruv.counters.util.snapshot;
+
+import lombok.val;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads counters written in {@link SnapshotFormat} one by one, a block at a time
+ * <p>
+ * Every block is checked against its checksum before any of its records is handed out,
+ * a snapshot is complete only once {@linkplain #next()} reported its end
+ */
+public final class SnapshotReader implements AutoCloseable {
+
+    private final InputStream in;
+    private final SnapshotFormat.Compression compression;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] blockHeader = new byte[SnapshotFormat.BLOCK_HEADER_BYTES];
+
+    @Nullable
+    private final Inflater inflater;
+
+    private byte[] stored = new byte[0];
+    private byte[] payload = new byte[SnapshotFormat.BLOCK_BYTES];
+    private int position;
+    private int length;
+    private int records;
+
+    // name of the current record, the next one shares its prefix
+    private byte[] name = new byte[256];
+    private int nameLength;
+    private String current;
+    private long value;
+
+    private long count;
+    private boolean ended;
+
+    /**
+     * Reads snapshot header
+     *
+     * @param in stream to read from, snapshot is read with large reads and needs no buffering
+     * @throws IllegalStateException when stream does not hold a snapshot
+     */
+    public SnapshotReader(InputStream in) throws IOException {
+
+        this.in = in;
+
+        val header = ByteBuffer.wrap(readFully(new byte[SnapshotFormat.HEADER_BYTES], SnapshotFormat.HEADER_BYTES));
+        if (header.getInt() != SnapshotFormat.MAGIC) {
+
+            throw corrupt("not a snapshot");
+        }
+
+        val version = header.get();
+        if (version != SnapshotFormat.VERSION) {
+
+            throw corrupt("unsupported version " + version);
+        }
+
+        val compressions = SnapshotFormat.Compression.values();
+        val compression = header.get();
+        if (compression < 0 || compression >= compressions.length) {
+
+            throw corrupt("unsupported compression " + compression);
+        }
+
+        this.compression = compressions[compression];
+        this.inflater = this.compression == SnapshotFormat.Compression.DEFLATE ? new Inflater() : null;
+    }
+
+    /**
+     * Moves to the next record
+     *
+     * @return false once every record was read and snapshot is verified complete
+     * @throws IOException           when stream can not be read
+     * @throws IllegalStateException when snapshot is truncated or does not match its checksums
+     */
+    public boolean next() throws IOException {
+
+        while (records == 0) {
+
+            if (position != length) {
+
+                throw corrupt("malformed block");
+            }
+
+            if (ended || !readBlock()) {
+
+                return false;
+            }
+        }
+
+        val prefix = varint();
+        val suffix = varint();
+
+        if (prefix < 0 || prefix > nameLength || suffix < 0 || suffix > length - position) {
+
+            throw corrupt("malformed record");
+        }
+
+        if (name.length < prefix + suffix) {
+
+            name = Arrays.copyOf(name, Math.max(name.length * 2, prefix + suffix));
+        }
+
+        System.arraycopy(payload, position, name, prefix, suffix);
+        position += suffix;
+        nameLength = prefix + suffix;
+
+        current = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+        value = SnapshotFormat.unZigZag(varlong());
+
+        records--;
+        count++;
+
+        return true;
+    }
+
+    /**
+     * @return name of the current record
+     */
+    public String getName() {
+
+        return current;
+    }
+
+    /**
+     * @return value of the current record
+     */
+    public long getValue() {
+
+        return value;
+    }
+
+    /**
+     * @return records read so far
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+    /**
+     * @return encoding of block payloads
+     */
+    public SnapshotFormat.Compression getCompression() {
+
+        return compression;
+    }
+
+    /**
+     * Closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+
+        try (in) {
+
+            if (inflater != null) {
+
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads and verifies next block
+     *
+     * @return false if it is the closing block
+     */
+    private boolean readBlock() throws IOException {
+
+        val header = ByteBuffer.wrap(readFully(blockHeader, blockHeader.length));
+        val blockRecords = header.getInt();
+        val payloadLength = header.getInt();
+        val storedLength = header.getInt();
+        val checksum = header.getInt();
+
+        if (blockRecords < 0 || !fits(payloadLength) || !fits(storedLength)
+                || inflater == null && storedLength != payloadLength) {
+
+            throw corrupt("malformed block");
+        }
+
+        if (payload.length < payloadLength) {
+
+            payload = new byte[payloadLength];
+        }
+
+        if (stored.length < storedLength) {
+
+            stored = new byte[storedLength];
+        }
+
+        // payload stored as it is is read in place
+        val buffer = inflater == null ? payload : stored;
+        readFully(buffer, storedLength);
+
+        crc.reset();
+        crc.update(blockHeader, 0, blockHeader.length - Integer.BYTES);
+        crc.update(buffer, 0, storedLength);
+
+        if ((int) crc.getValue() != checksum) {
+
+            throw corrupt("checksum mismatch");
+        }
+
+        if (blockRecords == 0) {
+
+            if (storedLength != Long.BYTES || ByteBuffer.wrap(buffer).getLong() != count) {
+
+                throw corrupt("record count mismatch");
+            }
+
+            ended = true;
+            position = 0;
+            length = 0;
+
+            return false;
+        }
+
+        if (inflater != null) {
+
+            inflate(storedLength, payloadLength);
+        }
+
+        records = blockRecords;
+        position = 0;
+        length = payloadLength;
+        nameLength = 0;
+
+        return true;
+    }
+
+    private void inflate(int storedLength, int payloadLength) {
+
+        inflater.reset();
+        inflater.setInput(stored, 0, storedLength);
+
+        try {
+
+            if (inflater.inflate(payload, 0, payloadLength) != payloadLength || !inflater.finished()) {
+
+                throw corrupt("malformed block");
+            }
+        } catch (DataFormatException e) {
+
+            throw corrupt("malformed block");
+        }
+    }
+
+    private int varint() {
+
+        val value = varlong();
+
+        return value >= 0 && value <= Integer.MAX_VALUE ? (int) value : -1;
+    }
+
+    private long varlong() {
+
+        long value = 0;
+
+        for (int shift = 0; shift < Long.SIZE && position < length; shift += 7) {
+
+            val b = payload[position++];
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0) {
+
+                return value;
+            }
+        }
+
+        throw corrupt("malformed record");
+    }
+
+    private byte[] readFully(byte[] buffer, int length) throws IOException {
+
+        if (in.readNBytes(buffer, 0, length) < length) {
+
+            throw corrupt("truncated");
+        }
+
+        return buffer;
+    }
+
+    private static boolean fits(int length) {
+
+        return length >= 0 && length <= SnapshotFormat.MAX_BLOCK_BYTES;
+    }
+
+    private static IllegalStateException corrupt(String reason) {
+
+        return new IllegalStateException("Corrupt snapshot: " + reason);
+    }
+}
@@ -0,0 +1,165 @@
+package io.ruv.counters.util.snapshot;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.util.lock.GlobalLock;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Builds point-in-time copies of storage while it is being modified
+ * <p>
+ * While a copy is being made, modifications record value each counter had before it was first modified
+ * (or the fact that counter did not exist); storage is then traversed without blocking anyone
+ * and recorded values replace whatever traversal has seen
+ * Modifications must call {@linkplain #beforeUpdate(String, long)}, {@linkplain #beforeCreate(String)}
+ * or {@linkplain #beforeDelete(String, long)} while they hold exclusive access to the counter,
+ * before change becomes visible to others
+ */
+public final class SnapshotTracker {
+
+    private final Lock capturing = new ReentrantLock();
+    private final GlobalLock global;
+
+    private volatile Snapshot active;
+
+    /**
+     * Creates tracker for storage without global lock - modifications in flight while recording
+     * is switched on may or may not be seen in the copy
+     */
+    public SnapshotTracker() {
+
+        this(null);
+    }
+
+    /**
+     * Creates tracker for storage modified inside {@linkplain GlobalLock#reading} -
+     * write lock is taken for a moment to switch recording on, giving exact point-in-time copy
+     */
+    public SnapshotTracker(GlobalLock global) {
+
+        this.global = global;
+    }
+
+    /**
+     * Records value of existing counter about to be modified
+     */
+    public void beforeUpdate(String name, long value) {
+
+        val snapshot = active;
+        if (snapshot != null) {
+
+            snapshot.record(name, true, value);
+        }
+    }
+
+    /**
+     * Records value of existing counter about to be removed
+     */
+    public void beforeDelete(String name, long value) {
+
+        beforeUpdate(name, value);
+    }
+
+    /**
+     * Records absence of counter about to be created
+     */
+    public void beforeCreate(String name) {
+
+        val snapshot = active;
+        if (snapshot != null) {
+
+            snapshot.record(name, false, 0);
+        }
+    }
+
+    /**
+     * Makes a copy of counters present at the moment recording was switched on
+     * Concurrent captures are done one after another
+     *
+     * @param traversal traverses storage passing every counter met to provided consumer,
+     *                  may pass the same counter more than once
+     * @return counters present at the moment recording was switched on
+     */
+    public List<Counter> capture(Consumer<ObjLongConsumer<String>> traversal) {
+
+        capturing.lock();
+        try {
+
+            val snapshot = new Snapshot();
+            val seen = new HashMap<String, Long>();
+
+            if (global == null) {
+
+                active = snapshot;
+            } else {
+
+                // modifications are only blocked while recording is switched on
+                global.writing(() -> active = snapshot);
+            }
+            try {
+
+                traversal.accept(seen::put);
+            } finally {
+
+                active = null;
+            }
+
+            for (val entry : snapshot.preImages.entrySet()) {
+
+                if (entry.getValue().existed) {
+
+                    seen.put(entry.getKey(), entry.getValue().value);
+                } else {
+
+                    seen.remove(entry.getKey());
+                }
+            }
+
+            val counters = new ArrayList<Counter>(seen.size());
+            seen.forEach((name, value) -> counters.add(new SimpleCounter(name, value)));
+
+            return counters;
+        } finally {
+
+            capturing.unlock();
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, PreImage> preImages = new ConcurrentHashMap<>();
+
+        private void record(String name, boolean existed, long value) {
+
+            // only the first modification matters
+            if (!preImages.containsKey(name)) {
+
+                preImages.putIfAbsent(name, existed ? new PreImage(true, value) : PreImage.ABSENT);
+            }
+        }
+    }
+
+    private static final class PreImage {
+
+        private static final PreImage ABSENT = new PreImage(false, 0);
+
+        private final boolean existed;
+        private final long value;
+
+        private PreImage(boolean existed, long value) {
+
+            this.existed = existed;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package io.ruv.counters.util.snapshot;
+
+import lombok.val;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Writes counters in {@link SnapshotFormat}, a block at a time - memory taken does not depend on amount of counters
+ * <p>
+ * Names are expected in order, which is what makes front coding pay off; any order is read back as it was written
+ */
+public final class SnapshotWriter implements AutoCloseable {
+
+    private static final int MAX_RECORD_OVERHEAD = 2 * 5 + 10;
+
+    private final OutputStream out;
+    private final SnapshotFormat.Compression compression;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(SnapshotFormat.BLOCK_HEADER_BYTES);
+
+    @Nullable
+    private final Deflater deflater;
+
+    private byte[] payload = new byte[SnapshotFormat.BLOCK_BYTES + 1024];
+    private int length;
+    private int records;
+
+    private byte[] previous = new byte[256];
+    private int previousLength;
+
+    private byte[] deflated = new byte[0];
+
+    private long count;
+    private boolean finished;
+
+    /**
+     * Writes snapshot header
+     *
+     * @param out         stream to write into, snapshot is written with large writes and needs no buffering
+     * @param compression encoding of block payloads
+     */
+    public SnapshotWriter(OutputStream out, SnapshotFormat.Compression compression) throws IOException {
+
+        this.out = out;
+        this.compression = compression;
+        this.deflater = compression == SnapshotFormat.Compression.DEFLATE ? new Deflater(Deflater.BEST_SPEED) : null;
+
+        out.write(ByteBuffer.allocate(SnapshotFormat.HEADER_BYTES)
+                .putInt(SnapshotFormat.MAGIC)
+                .put(SnapshotFormat.VERSION)
+                .put((byte) compression.ordinal())
+                .array());
+    }
+
+    /**
+     * Appends record of specified counter
+     *
+     * @throws IllegalArgumentException when name does not fit into a block
+     */
+    public void add(String name, long value) throws IOException {
+
+        val bytes = name.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > SnapshotFormat.MAX_BLOCK_BYTES - MAX_RECORD_OVERHEAD) {
+
+            throw new IllegalArgumentException("Name of " + bytes.length + " bytes does not fit into a block");
+        }
+
+        if (length + bytes.length + MAX_RECORD_OVERHEAD > payload.length) {
+
+            payload = Arrays.copyOf(payload, Math.max(payload.length * 2, length + bytes.length + MAX_RECORD_OVERHEAD));
+        }
+
+        val shared = Arrays.mismatch(previous, 0, previousLength, bytes, 0, bytes.length);
+        val prefix = shared < 0 ? bytes.length : shared;
+
+        putVarint(prefix);
+        putVarint(bytes.length - prefix);
+        System.arraycopy(bytes, prefix, payload, length, bytes.length - prefix);
+        length += bytes.length - prefix;
+        putVarint(SnapshotFormat.zigZag(value));
+
+        if (previous.length < bytes.length) {
+
+            previous = Arrays.copyOf(previous, Math.max(previous.length * 2, bytes.length));
+        }
+        System.arraycopy(bytes, prefix, previous, prefix, bytes.length - prefix);
+        previousLength = bytes.length;
+
+        records++;
+        count++;
+
+        if (length >= SnapshotFormat.BLOCK_BYTES) {
+
+            writeBlock();
+        }
+    }
+
+    /**
+     * @return records appended so far
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+    /**
+     * Writes the last block and closing block, stream is left open
+     */
+    public void finish() throws IOException {
+
+        if (finished) {
+
+            return;
+        }
+
+        writeBlock();
+
+        length = 0;
+        putLong(count);
+        writeBlock(0, payload, length, length);
+        out.flush();
+
+        if (deflater != null) {
+
+            deflater.end();
+        }
+        finished = true;
+    }
+
+    /**
+     * Finishes snapshot and closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+
+        try (out) {
+
+            finish();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+
+        if (records == 0) {
+
+            return;
+        }
+
+        if (compression == SnapshotFormat.Compression.DEFLATE) {
+
+            val deflatedLength = deflate();
+            writeBlock(records, deflated, deflatedLength, length);
+        } else {
+
+            writeBlock(records, payload, length, length);
+        }
+
+        records = 0;
+        length = 0;
+        previousLength = 0;
+    }
+
+    private void writeBlock(int records, byte[] stored, int storedLength, int payloadLength) throws IOException {
+
+        blockHeader.clear()
+                .putInt(records)
+                .putInt(payloadLength)
+                .putInt(storedLength);
+
+        crc.reset();
+        crc.update(blockHeader.array(), 0, blockHeader.position());
+        crc.update(stored, 0, storedLength);
+        blockHeader.putInt((int) crc.getValue());
+
+        out.write(blockHeader.array());
+        out.write(stored, 0, storedLength);
+    }
+
+    /**
+     * @return length of deflated payload
+     */
+    private int deflate() {
+
+        deflater.reset();
+        deflater.setInput(payload, 0, length);
+        deflater.finish();
+
+        if (deflated.length < length + 64) {
+
+            deflated = new byte[payload.length + 64];
+        }
+
+        int deflatedLength = 0;
+        while (!deflater.finished()) {
+
+            if (deflatedLength == deflated.length) {
+
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            deflatedLength += deflater.deflate(deflated, deflatedLength, deflated.length - deflatedLength);
+        }
+
+        return deflatedLength;
+    }
+
+    private void putVarint(long value) {
+
+        while ((value & ~0x7FL) != 0) {
+
+            payload[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        payload[length++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+
+        for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+
+            payload[length++] = (byte) (value >>> shift);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.ruv.counters.util.striped;
+
+import lombok.val;
+import org.springframework.lang.NonNull;
+
+/**
+ * Follows waits for stripes: doubles them as soon as a sample shows contention spread over stripes,
+ * halves them only after a long run of idle samples
+ * Contention concentrated on a single stripe comes from a hot entry, which more stripes do not relieve -
+ * stripes are kept as they are then
+ * <p>
+ * Hysteresis keeps the amount of stripes from oscillating under bursty traffic:
+ * grow and shrink thresholds are far apart, a sample in between resets the idle run,
+ * and samples right after a resize are ignored while waits settle
+ */
+public class ContentionResizePolicy implements ResizePolicy {
+
+    private final ResizeSettings settings;
+
+    private int idleSamples;
+    private int cooldown;
+
+    public ContentionResizePolicy(@NonNull ResizeSettings settings) {
+
+        this.settings = settings;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int targetSize(@NonNull StripeSample sample) {
+
+        val stripes = sample.getStripes();
+
+        if (cooldown > 0) {
+
+            cooldown--;
+            return stripes;
+        }
+
+        val waitRatio = sample.waitRatio();
+
+        if (waitRatio >= settings.getGrowWaitRatio() || sample.getMaxQueueLength() >= settings.getGrowQueueLength()) {
+
+            idleSamples = 0;
+            return concentrated(sample) ? stripes : resized(stripes, Math.min(stripes * 2, settings.getMaxSize()));
+        }
+
+        if (waitRatio > settings.getShrinkWaitRatio() || sample.getMaxQueueLength() > 0) {
+
+            idleSamples = 0;
+            return stripes;
+        }
+
+        if (++idleSamples < settings.getShrinkAfterSamples()) {
+
+            return stripes;
+        }
+
+        idleSamples = 0;
+        return resized(stripes, Math.max(stripes / 2, settings.getMinSize()));
+    }
+
+    /**
+     * @return true if most of the waits fell on a single stripe
+     */
+    private boolean concentrated(StripeSample sample) {
+
+        return sample.getWaitNanos() > 0
+                && sample.getMaxStripeWaitNanos() >= sample.getWaitNanos() * settings.getGrowMaxStripeShare();
+    }
+
+    private int resized(int stripes, int target) {
+
+        if (target != stripes) {
+
+            cooldown = settings.getCooldownSamples();
+        }
+
+        return target;
+    }
+}
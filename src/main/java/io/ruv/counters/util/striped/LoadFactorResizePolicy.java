@@ -0,0 +1,37 @@
+package io.ruv.counters.util.striped;
+
+import lombok.val;
+import org.springframework.lang.NonNull;
+
+/**
+ * Keeps amount of entries per stripe between configured load factors, regardless of contention
+ */
+public class LoadFactorResizePolicy implements ResizePolicy {
+
+    private final ResizeSettings settings;
+
+    public LoadFactorResizePolicy(@NonNull ResizeSettings settings) {
+
+        this.settings = settings;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int targetSize(@NonNull StripeSample sample) {
+
+        val stripes = sample.getStripes();
+        val loadFactor = (double) sample.getLoad() / stripes;
+
+        if (loadFactor > settings.getGrowLoadFactor()) {
+
+            return Math.min(stripes * 2, settings.getMaxSize());
+        } else if (loadFactor < settings.getShrinkLoadFactor()) {
+
+            return Math.max(stripes / 2, settings.getMinSize());
+        }
+
+        return stripes;
+    }
+}
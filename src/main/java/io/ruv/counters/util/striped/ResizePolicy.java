@@ -0,0 +1,17 @@
+package io.ruv.counters.util.striped;
+
+import org.springframework.lang.NonNull;
+
+/**
+ * Decides the amount of {@link ResizingStriped} stripes from periodically taken samples
+ * <p>
+ * Called by a single resizer thread only, so implementations may keep state between samples
+ */
+public interface ResizePolicy {
+
+    /**
+     * @param sample stripe usage since previous sample
+     * @return desired amount of stripes, current amount to keep it
+     */
+    int targetSize(@NonNull StripeSample sample);
+}
@@ -0,0 +1,97 @@
+package io.ruv.counters.util.striped;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * {@link ResizingStriped} settings, bound from {@code counters.resize.<repository>.*} properties
+ */
+@Data
+public class ResizeSettings {
+
+    /**
+     * Policy deciding the amount of stripes
+     */
+    private Policy policy = Policy.CONTENTION;
+
+    /**
+     * Time between samples
+     */
+    private Duration interval = Duration.ofSeconds(1);
+
+    /**
+     * Amount of stripes never merged away, rounded up to power of two
+     */
+    private int minSize = 128;
+
+    /**
+     * Amount of stripes never exceeded by growth
+     */
+    private int maxSize = 1 << 16;
+
+    /**
+     * Share of the interval spent waiting for stripes above which they are doubled
+     */
+    private double growWaitRatio = 0.02;
+
+    /**
+     * Threads queued for a single stripe at which stripes are doubled
+     */
+    private int growQueueLength = 2;
+
+    /**
+     * Share of waits spent on the single most contended stripe at which stripes are not doubled -
+     * waits for one hot entry are not spread by splitting stripes
+     */
+    private double growMaxStripeShare = 0.5;
+
+    /**
+     * Share of the interval spent waiting for stripes below which sample counts as idle
+     */
+    private double shrinkWaitRatio = 0.002;
+
+    /**
+     * Consecutive idle samples after which stripes are halved
+     */
+    private int shrinkAfterSamples = 30;
+
+    /**
+     * Samples ignored after a resize, while waits settle
+     */
+    private int cooldownSamples = 3;
+
+    /**
+     * Entries per stripe above which {@link Policy#LOAD_FACTOR} doubles stripes
+     */
+    private double growLoadFactor = 0.75;
+
+    /**
+     * Entries per stripe below which {@link Policy#LOAD_FACTOR} halves stripes
+     */
+    private double shrinkLoadFactor = 0.25;
+
+    /**
+     * @return new policy instance of configured type
+     */
+    public ResizePolicy createPolicy() {
+
+        return switch (policy) {
+            case CONTENTION -> new ContentionResizePolicy(this);
+            case LOAD_FACTOR -> new LoadFactorResizePolicy(this);
+        };
+    }
+
+    public enum Policy {
+
+        /**
+         * Follows waits for stripes, see {@link ContentionResizePolicy}
+         */
+        CONTENTION,
+
+        /**
+         * Follows amount of entries, see {@link LoadFactorResizePolicy}
+         */
+        LOAD_FACTOR
+    }
+}
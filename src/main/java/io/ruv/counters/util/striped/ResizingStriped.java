@@ -1,38 +1,76 @@
 package io.ruv.counters.util.striped;
 
-import com.google.common.util.concurrent.Striped;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import io.ruv.counters.util.lock.GlobalLock;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.springframework.lang.NonNull;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 /**
- * Wraps {@link Striped} to add resize functionality
- * Background thread analyzes current load factor and grows/shrinks delegate {@link Striped}
- * Uses provided {@link GlobalLock} to protect resizing
+ * Striped read-write locks resized in place, one stripe at a time, while they are in use
+ * Background thread periodically samples time spent waiting for stripes and their queue lengths,
+ * {@link ResizePolicy} decides whether to grow/shrink the amount of stripes
+ * <p>
+ * Every one of minimal amount of root stripes is a binary tree: growing splits a leaf stripe in two children
+ * picked by the next hash bit, shrinking merges two leaf children back into their parent
+ * Split locks only the stripe being split, merge locks only the two stripes being merged -
+ * operations on every other stripe go on meanwhile
+ * A stripe which has been split or merged away forwards its lockers: they find it changed once they hold its lock,
+ * let it go and look the key up again
  */
 @Slf4j
-@SuppressWarnings("UnstableApiUsage")
 public class ResizingStriped {
 
-    private static final int MIN_SIZE = 128;
-    private static final int DELAY_SECONDS = 60;
+    private static final int MAX_ROOTS = 1 << 30;
 
-    private final GlobalLock globalLock;
     private final Supplier<Integer> loadEstimator;
+    private final ResizePolicy policy;
+    private final Stripe[] roots;
+    private final int rootBits;
+    private final int maxDepth;
+    private final AtomicLong stripeIds = new AtomicLong();
+    private final AtomicInteger size;
 
-    private Striped<ReadWriteLock> delegate = Striped.lazyWeakReadWriteLock(MIN_SIZE);
+    // accessed by resizer thread only
+    private long sampledAt = System.nanoTime();
 
-    public ResizingStriped(GlobalLock globalLock, Supplier<Integer> loadEstimator) {
+    public ResizingStriped(Supplier<Integer> loadEstimator) {
+
+        this(loadEstimator, new ResizeSettings());
+    }
+
+    public ResizingStriped(Supplier<Integer> loadEstimator, ResizeSettings settings) {
+
+        if (settings.getMinSize() < 1 || settings.getMinSize() > MAX_ROOTS || settings.getMaxSize() < settings.getMinSize()) {
+
+            throw new IllegalArgumentException(String.format("Illegal stripe size bounds [%d, %d]",
+                    settings.getMinSize(), settings.getMaxSize()));
+        }
 
-        this.globalLock = globalLock;
         this.loadEstimator = loadEstimator;
+        this.policy = settings.createPolicy();
+
+        val rootCount = 1 << (32 - Integer.numberOfLeadingZeros(settings.getMinSize() - 1));
+        this.roots = new Stripe[rootCount];
+        this.rootBits = Integer.numberOfTrailingZeros(rootCount);
+        this.maxDepth = 32 - rootBits;
+        this.size = new AtomicInteger(rootCount);
+
+        for (int i = 0; i < rootCount; i++) {
+
+            roots[i] = new Stripe(stripeIds.incrementAndGet(), 0);
+        }
 
         val threadFactory = new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -42,34 +80,414 @@ public class ResizingStriped {
         @SuppressWarnings("resource") // only runs daemon thread
         val executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
 
-        executor.scheduleWithFixedDelay(this::resizeAsNeeded, DELAY_SECONDS, DELAY_SECONDS, TimeUnit.SECONDS);
+        val interval = settings.getInterval().toNanos();
+        executor.scheduleWithFixedDelay(this::resizeAsNeeded, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Executes action holding read lock of the stripe of specified key
+     *
+     * @param key    key to lock
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T reading(@NonNull Object key, @NonNull Supplier<T> action) {
+
+        val lock = readLock(key);
+        try {
+
+            return action.get();
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes action holding write lock of the stripe of specified key
+     *
+     * @param key    key to lock
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T writing(@NonNull Object key, @NonNull Supplier<T> action) {
+
+        val lock = writeLock(key);
+        try {
+
+            return action.get();
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Locks read lock of the stripe of specified key without allocating an action,
+     * for callers on allocation-free paths
+     *
+     * @param key key to lock
+     * @return held lock, must be unlocked in finally block
+     */
+    public Lock readLock(@NonNull Object key) {
+
+        return lock(hash(key), false);
     }
 
-    @NonNull
-    public ReadWriteLock get(@NonNull Object o) {
+    /**
+     * Locks write lock of the stripe of specified key without allocating an action,
+     * for callers on allocation-free paths
+     *
+     * @param key key to lock
+     * @return held lock, must be unlocked in finally block
+     */
+    public Lock writeLock(@NonNull Object key) {
 
-        return delegate.get(o);
+        return lock(hash(key), true);
+    }
+
+    /**
+     * Executes action holding write locks of stripes of every specified key
+     * Stripes are locked in the order of their creation, so concurrent calls can not deadlock each other
+     * or the resize
+     *
+     * @param keys   keys to lock
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T writingAll(@NonNull Iterable<?> keys, @NonNull Supplier<T> action) {
+
+        val hashes = new ArrayList<Integer>();
+        keys.forEach(key -> hashes.add(hash(key)));
+
+        while (true) {
+
+            val stripes = new ArrayList<Stripe>(hashes.size());
+            hashes.forEach(hash -> stripes.add(leaf(hash)));
+            stripes.sort(Comparator.comparingLong(stripe -> stripe.id));
+
+            val acquired = new ArrayDeque<Lock>();
+            try {
+
+                boolean valid = true;
+                Stripe previous = null;
+
+                for (val stripe : stripes) {
+
+                    // keys sharing a stripe come one after another
+                    if (stripe != previous) {
+
+                        val lock = stripe.lock.writeLock();
+                        acquire(stripe, lock);
+                        acquired.push(lock);
+                        previous = stripe;
+
+                        valid &= stripe.isLeaf();
+                    }
+                }
+
+                if (valid) {
+
+                    return action.get();
+                }
+            } finally {
+
+                while (!acquired.isEmpty()) {
+
+                    acquired.pop().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return current amount of stripes
+     */
+    int size() {
+
+        return size.get();
+    }
+
+    /**
+     * Splits or merges stripes one at a time until there are specified amount of them or no more can be changed
+     * Must not be called concurrently with itself
+     */
+    void resizeTo(int target) {
+
+        int before;
+
+        // every pass changes each stripe once, shallowest (or deepest for merge) first
+        do {
+
+            before = size.get();
+
+            if (target > before) {
+
+                for (val stripe : leaves(Comparator.comparingInt(stripe -> stripe.depth))) {
+
+                    if (size.get() >= target) {
+
+                        break;
+                    }
+
+                    split(stripe);
+                }
+            } else {
+
+                for (val stripe : parentsOfLeaves()) {
+
+                    if (size.get() <= Math.max(target, roots.length)) {
+
+                        break;
+                    }
+
+                    merge(stripe);
+                }
+            }
+        } while (size.get() != before && size.get() != target && size.get() > roots.length);
+    }
+
+    /**
+     * Collects stripe usage since previous sample and resets it
+     * Must not be called concurrently with itself
+     */
+    StripeSample sample() {
+
+        long contended = 0;
+        long waitNanos = 0;
+        long maxStripeWaitNanos = 0;
+        int maxQueueLength = 0;
+
+        for (val stripe : leaves()) {
+
+            val stripeWaitNanos = stripe.waitNanos.getAndSet(0);
+
+            contended += stripe.contended.getAndSet(0);
+            waitNanos += stripeWaitNanos;
+            maxStripeWaitNanos = Math.max(maxStripeWaitNanos, stripeWaitNanos);
+            maxQueueLength = Math.max(maxQueueLength, stripe.lock.getQueueLength());
+        }
+
+        val now = System.nanoTime();
+        val intervalNanos = now - sampledAt;
+        sampledAt = now;
+
+        return new StripeSample(size.get(), loadEstimator.get(), intervalNanos,
+                contended, waitNanos, maxStripeWaitNanos, maxQueueLength);
     }
 
     private void resizeAsNeeded() {
 
-        val stripedSize = delegate.size();
-        val mapSize = loadEstimator.get();
-        if (mapSize == 0) {
+        try {
+
+            val sample = sample();
+            val target = policy.targetSize(sample);
+
+            if (target != sample.getStripes()) {
+
+                log.debug("Resizing {} stripes to {}, wait ratio {}, max queue length {}",
+                        sample.getStripes(), target, sample.waitRatio(), sample.getMaxQueueLength());
+                resizeTo(target);
+            }
+        } catch (RuntimeException e) {
+
+            // thrown out of scheduled task it would cancel further resizes
+            log.error("Stripe resize failed", e);
+        }
+    }
+
+    private Lock lock(int hash, boolean exclusive) {
+
+        while (true) {
+
+            val stripe = leaf(hash);
+            val lock = exclusive ? stripe.lock.writeLock() : stripe.lock.readLock();
+
+            acquire(stripe, lock);
+
+            if (stripe.isLeaf()) {
+
+                return lock;
+            }
+
+            // split or merged away while we were waiting
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Locks specified lock of the stripe, recording the wait if it could not be taken right away
+     */
+    private static void acquire(Stripe stripe, Lock lock) {
+
+        // barging is only allowed while nobody is queued, so readers do not starve queued writers
+        if (!stripe.lock.hasQueuedThreads() && lock.tryLock()) {
+
             return;
         }
 
-        val loadFactor = (double) stripedSize / mapSize;
+        val start = System.nanoTime();
+        lock.lock();
+
+        stripe.contended.incrementAndGet();
+        stripe.waitNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private Stripe leaf(int hash) {
+
+        var stripe = roots[hash & (roots.length - 1)];
+
+        Stripe[] children;
+        while ((children = stripe.children) != null) {
+
+            stripe = children[(hash >>> (rootBits + stripe.depth)) & 1];
+        }
+
+        return stripe;
+    }
+
+    private void split(Stripe stripe) {
+
+        if (stripe.depth >= maxDepth) {
+
+            return;
+        }
+
+        stripe.lock.writeLock().lock();
+        try {
+
+            stripe.children = new Stripe[]{
+                    new Stripe(stripeIds.incrementAndGet(), stripe.depth + 1),
+                    new Stripe(stripeIds.incrementAndGet(), stripe.depth + 1)};
+            size.incrementAndGet();
+        } finally {
+
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    private void merge(Stripe parent) {
+
+        val children = parent.children;
+
+        // lower id first, same order as writingAll
+        children[0].lock.writeLock().lock();
+        children[1].lock.writeLock().lock();
+        try {
+
+            children[0].retired = true;
+            children[1].retired = true;
+            parent.children = null;
+            size.decrementAndGet();
+        } finally {
+
+            children[1].lock.writeLock().unlock();
+            children[0].lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return current leaf stripes in specified order
+     */
+    private List<Stripe> leaves(Comparator<Stripe> order) {
+
+        val result = leaves();
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * @return current leaf stripes
+     */
+    private List<Stripe> leaves() {
+
+        val result = new ArrayList<Stripe>();
+        val pending = new ArrayDeque<Stripe>(List.of(roots));
 
-        if (loadFactor > .75) {
+        while (!pending.isEmpty()) {
 
-            globalLock.writing(() -> this.delegate = Striped.lazyWeakReadWriteLock(stripedSize * 2));
-        } else if (loadFactor < .25) {
+            val stripe = pending.pop();
+            val children = stripe.children;
 
-            if (stripedSize > MIN_SIZE) {
+            if (children == null) {
 
-                globalLock.writing(() -> this.delegate = Striped.lazyWeakReadWriteLock(stripedSize / 2));
+                result.add(stripe);
+            } else {
+
+                pending.push(children[0]);
+                pending.push(children[1]);
             }
         }
+
+        return result;
+    }
+
+    /**
+     * @return stripes whose both children are leaves, deepest first
+     */
+    private List<Stripe> parentsOfLeaves() {
+
+        val result = new ArrayList<Stripe>();
+        val pending = new ArrayDeque<Stripe>(List.of(roots));
+
+        while (!pending.isEmpty()) {
+
+            val stripe = pending.pop();
+            val children = stripe.children;
+
+            if (children != null) {
+
+                if (children[0].isLeaf() && children[1].isLeaf()) {
+
+                    result.add(stripe);
+                } else {
+
+                    pending.push(children[0]);
+                    pending.push(children[1]);
+                }
+            }
+        }
+
+        result.sort(Comparator.comparingInt((Stripe stripe) -> stripe.depth).reversed());
+        return result;
+    }
+
+    static int hash(Object key) {
+
+        // spreads poorly distributed hash codes over every bit, same as Guava Striped
+        var h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private static final class Stripe {
+
+        private final long id;
+        private final int depth;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // acquisitions which had to wait and time they waited, since previous sample
+        private final AtomicLong contended = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+
+        // non-null once split
+        private volatile Stripe[] children;
+
+        // set once merged into parent
+        private volatile boolean retired;
+
+        private Stripe(long id, int depth) {
+
+            this.id = id;
+            this.depth = depth;
+        }
+
+        private boolean isLeaf() {
+
+            return children == null && !retired;
+        }
     }
 }
@@ -0,0 +1,280 @@
+package io.ruv.counters.util.striped;
+
+import lombok.val;
+import org.springframework.lang.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Fixed table of {@link StampedLock} stripes, allocated up front and padded off each other's cache lines
+ * <p>
+ * Reads go optimistic first: action runs without locking and its result is kept only if no writer
+ * got into the stripe meanwhile, otherwise the action is run again under read lock
+ * Optimistic reads write nothing to shared state, so readers of the same stripe do not contend at all
+ * <p>
+ * Not reentrant - actions must not lock the same stripe again
+ */
+public class StampedStriped {
+
+    // Fibonacci hashing picks stripe by the top bits, leaving bottom ones to tables guarded by the stripe
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final PaddedLock[] locks;
+    private final int shift;
+    private final int mask;
+
+    /**
+     * @param stripes amount of stripes, rounded up to power of two
+     */
+    public StampedStriped(int stripes) {
+
+        if (stripes < 1 || stripes > 1 << 16) {
+
+            throw new IllegalArgumentException("Illegal amount of stripes: " + stripes);
+        }
+
+        val bits = 32 - Integer.numberOfLeadingZeros(stripes - 1);
+
+        this.locks = new PaddedLock[1 << bits];
+        this.shift = 32 - bits;
+        this.mask = (1 << bits) - 1;
+
+        for (int i = 0; i < locks.length; i++) {
+
+            locks[i] = new PaddedLock();
+        }
+    }
+
+    /**
+     * @return amount of stripes
+     */
+    public int size() {
+
+        return locks.length;
+    }
+
+    /**
+     * @return index of the stripe of specified key
+     */
+    public int indexFor(@NonNull Object key) {
+
+        return ((key.hashCode() * GOLDEN_RATIO) >>> shift) & mask;
+    }
+
+    /**
+     * Executes action optimistically, then under read lock of the stripe of specified key if a writer interfered
+     * Action may observe state torn by a writer - it must not loop on what it reads or have side effects,
+     * runtime exceptions thrown by optimistic attempt are discarded
+     *
+     * @param key    key to lock
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T optimisticReading(@NonNull Object key, @NonNull Supplier<T> action) {
+
+        return optimisticReading(key, action, null, (supplier, unused) -> supplier.get());
+    }
+
+    /**
+     * Same as {@linkplain #optimisticReading(Object, Supplier)} for actions taking their arguments explicitly -
+     * callers on allocation-free paths keep such actions in fields instead of capturing arguments anew
+     *
+     * @param key    key to lock
+     * @param first  first action argument
+     * @param second second action argument
+     * @param action action to execute
+     * @param <A>    first argument type
+     * @param <B>    second argument type
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <A, B, T> T optimisticReading(@NonNull Object key, A first, B second, @NonNull BiFunction<A, B, T> action) {
+
+        val lock = locks[indexFor(key)];
+        val optimistic = lock.tryOptimisticRead();
+
+        if (optimistic != 0) {
+
+            try {
+
+                val result = action.apply(first, second);
+
+                if (lock.validate(optimistic)) {
+
+                    return result;
+                }
+            } catch (RuntimeException e) {
+
+                if (lock.validate(optimistic)) {
+
+                    throw e;
+                }
+
+                // torn state seen while a writer was inside
+            }
+        }
+
+        val stamp = lock.readLock();
+        try {
+
+            return action.apply(first, second);
+        } finally {
+
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Executes action holding write lock of the stripe of specified key
+     *
+     * @param key    key to lock
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T writing(@NonNull Object key, @NonNull Supplier<T> action) {
+
+        val lock = locks[indexFor(key)];
+        val stamp = lock.writeLock();
+        try {
+
+            return action.get();
+        } finally {
+
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return lock of the stripe of specified key, for callers on allocation-free paths
+     */
+    public StampedLock lockFor(@NonNull Object key) {
+
+        return locks[indexFor(key)];
+    }
+
+    /**
+     * Executes action holding write locks of stripes of every specified key
+     * Stripes are locked in index order, so concurrent calls can not deadlock each other
+     *
+     * @param keys   keys to lock
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T writingAll(@NonNull Iterable<?> keys, @NonNull Supplier<T> action) {
+
+        var indices = new int[16];
+        int count = 0;
+
+        for (val key : keys) {
+
+            if (count == indices.length) {
+
+                indices = Arrays.copyOf(indices, count * 2);
+            }
+
+            indices[count++] = indexFor(key);
+        }
+
+        Arrays.sort(indices, 0, count);
+
+        // keys sharing a stripe come one after another
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+
+            if (distinct == 0 || indices[i] != indices[distinct - 1]) {
+
+                indices[distinct++] = indices[i];
+            }
+        }
+
+        int locked = 0;
+        try {
+
+            for (; locked < distinct; locked++) {
+
+                locks[indices[locked]].writeLock();
+            }
+
+            return action.get();
+        } finally {
+
+            while (locked > 0) {
+
+                locks[indices[--locked]].tryUnlockWrite();
+            }
+        }
+    }
+
+    /**
+     * Executes action holding read locks of every stripe, writers of every stripe wait until it is done
+     *
+     * @param action action to execute
+     * @param <T>    action result type
+     * @return action result
+     */
+    public <T> T readingAll(@NonNull Supplier<T> action) {
+
+        int locked = 0;
+        try {
+
+            for (; locked < locks.length; locked++) {
+
+                locks[locked].readLock();
+            }
+
+            return action.get();
+        } finally {
+
+            while (locked > 0) {
+
+                locks[--locked].tryUnlockRead();
+            }
+        }
+    }
+
+    /**
+     * Read-locks every stripe at once, then passes stripe indices to action in order,
+     * releasing each stripe as soon as action is done with it
+     * Action sees a point-in-time state of every stripe, while writers of stripes already passed go on
+     *
+     * @param action action to execute for every stripe index
+     */
+    public void readingEach(@NonNull IntConsumer action) {
+
+        for (val lock : locks) {
+
+            lock.readLock();
+        }
+
+        int done = 0;
+        try {
+
+            for (; done < locks.length; done++) {
+
+                action.accept(done);
+                locks[done].tryUnlockRead();
+            }
+        } finally {
+
+            // stripes still locked if action failed
+            for (int i = done; i < locks.length; i++) {
+
+                locks[i].tryUnlockRead();
+            }
+        }
+    }
+
+    @SuppressWarnings("unused") // keeps next lock's state off this lock's cache lines
+    private static final class PaddedLock extends StampedLock {
+
+        private long p01, p02, p03, p04, p05, p06, p07, p08;
+        private long p09, p10, p11, p12, p13, p14, p15;
+    }
+}
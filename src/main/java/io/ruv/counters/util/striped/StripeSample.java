@@ -0,0 +1,55 @@
+package io.ruv.counters.util.striped;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stripe usage collected by {@link ResizingStriped} since previous sample
+ */
+@Getter
+@RequiredArgsConstructor
+public class StripeSample {
+
+    /**
+     * Current amount of stripes
+     */
+    private final int stripes;
+
+    /**
+     * Amount of entries guarded by stripes, as reported by load estimator
+     */
+    private final int load;
+
+    /**
+     * Time passed since previous sample
+     */
+    private final long intervalNanos;
+
+    /**
+     * Acquisitions which had to wait for a stripe
+     */
+    private final long contended;
+
+    /**
+     * Time spent waiting for stripes by every thread
+     */
+    private final long waitNanos;
+
+    /**
+     * Time spent waiting for the most contended stripe
+     */
+    private final long maxStripeWaitNanos;
+
+    /**
+     * Threads queued for the stripe with the longest queue at the moment of sampling
+     */
+    private final int maxQueueLength;
+
+    /**
+     * @return share of the interval spent waiting for stripes, summed over every thread
+     */
+    public double waitRatio() {
+
+        return intervalNanos > 0 ? (double) waitNanos / intervalNanos : 0;
+    }
+}
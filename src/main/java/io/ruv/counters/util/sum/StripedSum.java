@@ -0,0 +1,104 @@
+package io.ruv.counters.util.sum;
+
+import lombok.val;
+
+import java.math.BigInteger;
+
+/**
+ * Sum of long values kept in 128 bits, spread over several cells to keep concurrent updates apart
+ * <p>
+ * Every update goes to a single cell picked by current thread, cell keeps its part of the sum
+ * as a pair of longs (high and low half) updated together under cell monitor
+ * Sum of up to 2^64 long values can not overflow
+ * {@linkplain #sum()} adds cells up one by one - while updates are in progress it returns sum of some
+ * of them, once they stop it returns exact sum of all of them
+ */
+public final class StripedSum {
+
+    private static final BigInteger LOW_MASK = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private final Cell[] cells;
+    private final int mask;
+
+    public StripedSum() {
+
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedSum(int stripes) {
+
+        // round up to a power of two
+        val size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+
+        this.cells = new Cell[size];
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+
+            cells[i] = new Cell();
+        }
+    }
+
+    /**
+     * Adds specified value to the sum
+     */
+    public void add(long value) {
+
+        cell().add(value >> 63, value);
+    }
+
+    /**
+     * Subtracts specified value from the sum
+     */
+    public void subtract(long value) {
+
+        // two's complement negation of sign-extended value, fine for Long.MIN_VALUE as well
+        cell().add(~(value >> 63) + (value == 0 ? 1 : 0), -value);
+    }
+
+    private Cell cell() {
+
+        val id = Thread.currentThread().threadId();
+        val h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+        return cells[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * @return sum of every value added so far
+     */
+    public BigInteger sum() {
+
+        long high = 0;
+        long low = 0;
+
+        for (val cell : cells) {
+
+            synchronized (cell) {
+
+                val sum = low + cell.low;
+                high += cell.high + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+                low = sum;
+            }
+        }
+
+        return BigInteger.valueOf(high).shiftLeft(64).add(BigInteger.valueOf(low).and(LOW_MASK));
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Cell {
+
+        // keeps neighbouring cells off the same cache line
+        private long p0, p1, p2, p3, p4, p5, p6;
+        private long high;
+        private long low;
+        private long q0, q1, q2, q3, q4, q5, q6;
+
+        private synchronized void add(long valueHigh, long valueLow) {
+
+            val sum = low + valueLow;
+            high += valueHigh + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+            low = sum;
+        }
+    }
+}
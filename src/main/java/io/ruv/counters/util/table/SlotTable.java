@@ -0,0 +1,537 @@
+package io.ruv.counters.util.table;
+
+import io.ruv.counters.util.text.Utf8;
+import lombok.val;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing hash table keeping counter names and values in byte buffers, outside of java heap
+ * Slots live in one {@link ByteBuffer}, name bytes are appended to another one
+ * <p>
+ * Every slot starts with control word (hash and state), name reference and value, subclasses may keep more
+ * fields after them - slot size is given on construction and extra fields are written by
+ * {@linkplain #initialize(int, byte[])}
+ * Slot state only moves forward ({@code EMPTY -> INSERTING -> LIVE <-> LATCHED -> DELETED}),
+ * deleted slots (tombstones) are never reused and are dropped when table is rebuilt
+ * Table is never rebuilt in place - rebuild creates a new table, callers are responsible for blocking
+ * modifications while doing so
+ */
+public abstract class SlotTable {
+
+    public static final int MIN_CAPACITY = 1024;
+
+    public static final int CREATED = 0;
+    public static final int DUPLICATE = 1;
+    public static final int FULL = 2;
+
+    protected static final int CONTROL = 0;
+    protected static final int NAME_REF = 8;
+    protected static final int VALUE = 16;
+
+    /**
+     * Size of fields every slot has
+     */
+    protected static final int BASE_SLOT_BYTES = 24;
+
+    protected static final long EMPTY = 0;
+    protected static final long INSERTING = 1;
+    protected static final long LIVE = 2;
+    protected static final long LATCHED = 3;
+    protected static final long DELETED = 4;
+    protected static final long STATE_MASK = 7;
+
+    private static final Runnable NOTHING = () -> {
+    };
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    private final ByteBuffer slots;
+    private final ByteBuffer names;
+    private final int slotBytes;
+    private final int mask;
+    private final int maxUsed;
+
+    private final AtomicInteger used = new AtomicInteger();
+    private final AtomicInteger tombstones = new AtomicInteger();
+    private final AtomicInteger nameCursor = new AtomicInteger();
+
+    /**
+     * @param slots     slot storage of {@code capacity * slotBytes} bytes
+     * @param names     name storage
+     * @param capacity  amount of slots, power of two
+     * @param slotBytes size of slot, multiple of 8 no less than {@value #BASE_SLOT_BYTES}
+     */
+    protected SlotTable(ByteBuffer slots, ByteBuffer names, int capacity, int slotBytes) {
+
+        if (Integer.bitCount(capacity) != 1) {
+
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+
+        if (slotBytes < BASE_SLOT_BYTES || slotBytes % Long.BYTES != 0) {
+
+            throw new IllegalArgumentException("Slot must be a multiple of 8 bytes no less than "
+                    + BASE_SLOT_BYTES + ", got " + slotBytes);
+        }
+
+        this.slots = slots.order(ByteOrder.nativeOrder());
+        this.names = names;
+        this.slotBytes = slotBytes;
+        this.mask = capacity - 1;
+        this.maxUsed = capacity / 4 * 3;
+    }
+
+    /**
+     * @return largest power of two capacity whose slots of specified size fit into a byte buffer
+     */
+    protected static int maxCapacity(int slotBytes) {
+
+        return Integer.highestOneBit(Integer.MAX_VALUE / slotBytes);
+    }
+
+    /**
+     * @return smallest power of two capacity keeping specified amount of entries under half load
+     * @throws IllegalStateException when it exceeds specified maximum
+     */
+    protected static int capacityFor(long entries, int maxCapacity) {
+
+        val wanted = Math.max(MIN_CAPACITY, entries * 2);
+        if (wanted > maxCapacity) {
+
+            throw new IllegalStateException("Table can not hold " + entries + " entries");
+        }
+
+        val capacity = Integer.highestOneBit((int) wanted);
+
+        return capacity == wanted ? capacity : capacity << 1;
+    }
+
+    public static int hash(String name) {
+
+        val h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    public static byte[] encode(String name) {
+
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return length of specified name encoded with {@linkplain #encode(String)}, computed without encoding it
+     */
+    public static int encodedLength(String name) {
+
+        return Utf8.encodedLength(name);
+    }
+
+    public int capacity() {
+
+        return mask + 1;
+    }
+
+    public int size() {
+
+        return used.get() - tombstones.get();
+    }
+
+    /**
+     * @return true if table can take specified amount of entries with specified total name length
+     * and tombstones take up no more than an eighth of it
+     */
+    public boolean hasRoomFor(int entries, long nameBytes) {
+
+        return used.get() <= maxUsed - entries
+                && tombstones.get() <= capacity() / 8
+                && nameCursor.get() >= 0
+                && nameCursor.get() <= names.capacity() - nameBytes;
+    }
+
+    /**
+     * Looks up live slot holding specified name
+     *
+     * @return slot index or -1 if name is not present
+     */
+    public int find(byte[] name, int hash) {
+
+        return find(name, name.length, hash);
+    }
+
+    /**
+     * Looks up live slot holding specified name, comparing stored bytes with the name encoded on the fly
+     *
+     * @return slot index or -1 if name is not present
+     */
+    public int find(String name, int hash) {
+
+        return find(name, encodedLength(name), hash);
+    }
+
+    /**
+     * @param name   name as byte[] or String
+     * @param length encoded name length
+     */
+    private int find(Object name, int length, int hash) {
+
+        var slot = hash & mask;
+
+        for (int probes = 0; probes <= mask; probes++) {
+
+            val control = control(slot);
+            val state = control & STATE_MASK;
+
+            if (control == EMPTY) {
+
+                return -1;
+            }
+
+            if ((int) (control >>> 32) == hash) {
+
+                if (state == INSERTING) {
+
+                    Thread.onSpinWait();
+                    probes--;
+                    continue;
+                }
+
+                if ((state == LIVE || state == LATCHED) && nameEquals(slot, name, length)) {
+
+                    return slot;
+                }
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Looks up live slot holding specified name and latches it, preventing concurrent updates and removal
+     * Latched slot must be released with {@linkplain #unlatch(int)} or {@linkplain #remove(int)}
+     *
+     * @return latched slot index or -1 if name is not present
+     */
+    public int latch(byte[] name, int hash) {
+
+        return latch(name, name.length, hash);
+    }
+
+    /**
+     * Same as {@linkplain #latch(byte[], int)}, comparing stored bytes with the name encoded on the fly
+     */
+    public int latch(String name, int hash) {
+
+        return latch(name, encodedLength(name), hash);
+    }
+
+    private int latch(Object name, int length, int hash) {
+
+        while (true) {
+
+            val slot = find(name, length, hash);
+            if (slot < 0) {
+
+                return -1;
+            }
+
+            val control = control(slot);
+            val state = control & STATE_MASK;
+
+            if (state == LIVE) {
+
+                if (LONGS.compareAndSet(slots, offset(slot, CONTROL), control, control - LIVE + LATCHED)) {
+
+                    return slot;
+                }
+            } else if (state == LATCHED) {
+
+                Thread.onSpinWait();
+            }
+            // deleted concurrently - look further, counter might have been created again
+        }
+    }
+
+    public void unlatch(int slot) {
+
+        val control = control(slot);
+        LONGS.setRelease(slots, offset(slot, CONTROL), control - LATCHED + LIVE);
+    }
+
+    /**
+     * Turns latched slot into a tombstone
+     */
+    public void remove(int slot) {
+
+        val control = control(slot);
+        LONGS.setRelease(slots, offset(slot, CONTROL), control - LATCHED + DELETED);
+        tombstones.incrementAndGet();
+    }
+
+    public long value(int slot) {
+
+        return (long) LONGS.getVolatile(slots, offset(slot, VALUE));
+    }
+
+    /**
+     * Sets value of latched slot
+     */
+    public void value(int slot, long value) {
+
+        LONGS.setVolatile(slots, offset(slot, VALUE), value);
+    }
+
+    /**
+     * Inserts new entry unless live entry with the same name exists
+     *
+     * @return {@link #CREATED}, {@link #DUPLICATE} or {@link #FULL} when table has to be rebuilt
+     */
+    public int insert(byte[] name, int hash, long value) {
+
+        return insert(name, hash, value, NOTHING);
+    }
+
+    /**
+     * Inserts new entry unless live entry with the same name exists
+     *
+     * @param beforePublish called once slot is claimed, before new entry becomes visible to others
+     * @return {@link #CREATED}, {@link #DUPLICATE} or {@link #FULL} when table has to be rebuilt
+     */
+    public int insert(byte[] name, int hash, long value, Runnable beforePublish) {
+
+        var slot = hash & mask;
+
+        for (int probes = 0; probes <= mask; probes++) {
+
+            val control = control(slot);
+            val state = control & STATE_MASK;
+
+            if (control == EMPTY) {
+
+                if (used.incrementAndGet() > maxUsed) {
+
+                    used.decrementAndGet();
+                    return FULL;
+                }
+
+                val inserting = ((long) hash << 32) | INSERTING;
+                if (!LONGS.compareAndSet(slots, offset(slot, CONTROL), EMPTY, inserting)) {
+
+                    // lost the slot - look at it again
+                    used.decrementAndGet();
+                    probes--;
+                    continue;
+                }
+
+                val nameOffset = nameCursor.getAndAdd(name.length);
+                if (nameOffset < 0 || nameOffset > names.capacity() - name.length) {
+
+                    // claimed slot can not be given back - bury it
+                    LONGS.setRelease(slots, offset(slot, CONTROL), ((long) hash << 32) | DELETED);
+                    tombstones.incrementAndGet();
+                    return FULL;
+                }
+
+                names.put(nameOffset, name);
+                LONGS.set(slots, offset(slot, NAME_REF), ((long) nameOffset << 32) | name.length);
+                LONGS.set(slots, offset(slot, VALUE), value);
+                initialize(slot, name);
+                beforePublish.run();
+                LONGS.setRelease(slots, offset(slot, CONTROL), ((long) hash << 32) | LIVE);
+
+                return CREATED;
+            }
+
+            if ((int) (control >>> 32) == hash) {
+
+                if (state == INSERTING) {
+
+                    Thread.onSpinWait();
+                    probes--;
+                    continue;
+                }
+
+                if ((state == LIVE || state == LATCHED) && nameEquals(slot, name, name.length)) {
+
+                    return DUPLICATE;
+                }
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return FULL;
+    }
+
+    /**
+     * Feeds every live entry to specified consumer
+     * Entries modified concurrently may be reported with either old or new value
+     */
+    public void forEach(ObjLongConsumer<String> consumer) {
+
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val state = control(slot) & STATE_MASK;
+
+            if (state == LIVE || state == LATCHED) {
+
+                consumer.accept(name(slot), value(slot));
+            }
+        }
+    }
+
+    /**
+     * Copies every live entry into specified table, dropping tombstones and unused name bytes
+     * Must not be called while table is modified
+     */
+    public void copyTo(SlotTable target) {
+
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val control = control(slot);
+            val state = control & STATE_MASK;
+
+            if (state == LIVE || state == LATCHED) {
+
+                val name = new byte[nameLength(slot)];
+                names.get(nameOffset(slot), name);
+
+                if (target.insert(name, (int) (control >>> 32), value(slot)) != CREATED) {
+
+                    throw new IllegalStateException("Target table can not hold all entries");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return amount of name bytes held by live entries
+     */
+    public long liveNameBytes() {
+
+        long total = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+
+            val state = control(slot) & STATE_MASK;
+
+            if (state == LIVE || state == LATCHED) {
+
+                total += nameLength(slot);
+            }
+        }
+
+        return total;
+    }
+
+    public String name(int slot) {
+
+        val name = new byte[nameLength(slot)];
+        names.get(nameOffset(slot), name);
+
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes fields of a new slot following the base ones, called before the slot becomes visible to others
+     */
+    protected void initialize(int slot, byte[] name) {
+
+    }
+
+    /**
+     * @return slots in use, tombstones included
+     */
+    protected int used() {
+
+        return used.get();
+    }
+
+    protected int tombstones() {
+
+        return tombstones.get();
+    }
+
+    protected int nameCursor() {
+
+        return nameCursor.get();
+    }
+
+    /**
+     * Sets fill counters of a table whose slots were filled outside of {@linkplain #insert(byte[], int, long)}
+     */
+    protected void restore(int used, int tombstones, int nameCursor) {
+
+        this.used.set(used);
+        this.tombstones.set(tombstones);
+        this.nameCursor.set(nameCursor);
+    }
+
+    protected long control(int slot) {
+
+        return (long) LONGS.getAcquire(slots, offset(slot, CONTROL));
+    }
+
+    /**
+     * Plain read of specified slot field
+     */
+    protected long get(int slot, int field) {
+
+        return (long) LONGS.get(slots, offset(slot, field));
+    }
+
+    /**
+     * Plain write of specified slot field, for slots no one else can see
+     */
+    protected void set(int slot, int field, long value) {
+
+        LONGS.set(slots, offset(slot, field), value);
+    }
+
+    protected int nameOffset(int slot) {
+
+        return (int) (get(slot, NAME_REF) >>> 32);
+    }
+
+    protected int nameLength(int slot) {
+
+        return (int) get(slot, NAME_REF);
+    }
+
+    private boolean nameEquals(int slot, Object name, int length) {
+
+        if (nameLength(slot) != length) {
+
+            return false;
+        }
+
+        return name instanceof byte[] bytes
+                ? bytesEqual(nameOffset(slot), bytes)
+                : Utf8.equals(names, nameOffset(slot), (String) name);
+    }
+
+    private boolean bytesEqual(int nameOffset, byte[] name) {
+
+        for (int i = 0; i < name.length; i++) {
+
+            if (names.get(nameOffset + i) != name[i]) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int offset(int slot, int field) {
+
+        return slot * slotBytes + field;
+    }
+}
@@ -0,0 +1,130 @@
+package io.ruv.counters.util.text;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+
+/**
+ * UTF-8 helpers letting names stored as bytes be measured and compared without encoding them
+ * Unpaired surrogates are treated as {@code '?'}, the way {@link String#getBytes} encodes them - such names
+ * do not survive encoding and are to be rejected before they are stored, see {@linkplain #hasUnpairedSurrogate}
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Utf8 {
+
+    /**
+     * @return length of UTF-8 encoding of specified name produced by {@link String#getBytes},
+     * computed without encoding it
+     */
+    public static int encodedLength(String name) {
+
+        int length = 0;
+        for (int i = 0; i < name.length(); i++) {
+
+            val c = name.charAt(i);
+
+            if (c < 0x80) {
+
+                length++;
+            } else if (c < 0x800) {
+
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < name.length()
+                    && Character.isLowSurrogate(name.charAt(i + 1))) {
+
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+
+                // unpaired surrogate is encoded as replacement '?'
+                length++;
+            } else {
+
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * @return true if specified name holds a surrogate which is not a part of a pair, its UTF-8 encoding is lossy then
+     */
+    public static boolean hasUnpairedSurrogate(String name) {
+
+        for (int i = 0; i < name.length(); i++) {
+
+            val c = name.charAt(i);
+
+            if (Character.isHighSurrogate(c) && i + 1 < name.length()
+                    && Character.isLowSurrogate(name.charAt(i + 1))) {
+
+                i++;
+            } else if (Character.isSurrogate(c)) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Compares bytes stored at specified offset with UTF-8 encoding of specified name, without encoding it
+     * Stored length must be equal to {@linkplain #encodedLength(String)} of the name
+     */
+    public static boolean equals(ByteBuffer names, int offset, String name) {
+
+        var position = offset;
+
+        for (int i = 0; i < name.length(); i++) {
+
+            val c = name.charAt(i);
+
+            if (c < 0x80) {
+
+                if (names.get(position++) != (byte) c) {
+
+                    return false;
+                }
+            } else if (c < 0x800) {
+
+                if (names.get(position++) != (byte) (0xC0 | c >> 6)
+                        || names.get(position++) != (byte) (0x80 | c & 0x3F)) {
+
+                    return false;
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < name.length()
+                    && Character.isLowSurrogate(name.charAt(i + 1))) {
+
+                val codePoint = Character.toCodePoint(c, name.charAt(++i));
+
+                if (names.get(position++) != (byte) (0xF0 | codePoint >> 18)
+                        || names.get(position++) != (byte) (0x80 | codePoint >> 12 & 0x3F)
+                        || names.get(position++) != (byte) (0x80 | codePoint >> 6 & 0x3F)
+                        || names.get(position++) != (byte) (0x80 | codePoint & 0x3F)) {
+
+                    return false;
+                }
+            } else if (Character.isSurrogate(c)) {
+
+                if (names.get(position++) != '?') {
+
+                    return false;
+                }
+            } else {
+
+                if (names.get(position++) != (byte) (0xE0 | c >> 12)
+                        || names.get(position++) != (byte) (0x80 | c >> 6 & 0x3F)
+                        || names.get(position++) != (byte) (0x80 | c & 0x3F)) {
+
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -1,14 +1,31 @@
 package io.ruv.counters.web.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.ruv.counters.service.CountersService;
+import io.ruv.counters.service.IllegalParametersException;
+import io.ruv.counters.util.snapshot.SnapshotFormat;
+import io.ruv.counters.web.converter.CounterLines;
+import io.ruv.counters.web.converter.CounterSnapshots;
+import io.ruv.counters.web.converter.JsonStreams;
+import io.ruv.counters.web.dto.BatchIncrementDto;
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
 import io.ruv.counters.web.dto.CounterDto;
 import io.ruv.counters.web.dto.CounterNamesDto;
 import io.ruv.counters.web.dto.CounterSumDto;
+import io.ruv.counters.web.dto.ImportResultDto;
 import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 @RequiredArgsConstructor
 @RestController
@@ -16,6 +33,7 @@ import java.util.UUID;
 public class CountersController {
 
     private final CountersService service;
+    private final ObjectMapper mapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -44,6 +62,28 @@ public class CountersController {
         return service.incrementByName(name);
     }
 
+    @PostMapping(value = "/{name}", params = {"delta", "relaxed!=true"})
+    public CounterDto add(@PathVariable String name, @RequestParam long delta) {
+
+        return service.addByName(name, delta);
+    }
+
+    @PostMapping(value = "/{name}", params = {"relaxed=true", "!delta"})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void incrementRelaxed(@PathVariable String name) {
+
+        service.incrementByNameRelaxed(name);
+    }
+
+    /**
+     * Relaxed increment is by one only, delta given along with it would be silently dropped
+     */
+    @PostMapping(value = "/{name}", params = {"delta", "relaxed=true"})
+    public void addRelaxed(@PathVariable String name) {
+
+        throw IllegalParametersException.conflicting("delta", "relaxed");
+    }
+
     @GetMapping("{name}")
     public CounterDto get(@PathVariable String name) {
 
@@ -56,6 +96,28 @@ public class CountersController {
         return service.deleteByName(name);
     }
 
+    @PostMapping("/extension/batch-increment")
+    public BatchIncrementResultDto batchIncrement(@RequestBody BatchIncrementDto dto) {
+
+        return service.incrementAll(dto);
+    }
+
+    @PostMapping(value = "/extension/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv", "application/vnd.counters.snapshot"})
+    public ImportResultDto importCounters(@RequestHeader HttpHeaders headers, InputStream body) throws IOException {
+
+        val gzip = "gzip".equalsIgnoreCase(headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        val in = gzip ? new GZIPInputStream(body, 64 * 1024) : body;
+        val contentType = headers.getContentType();
+
+        if (contentType != null && CounterSnapshots.MEDIA_TYPE.includes(contentType)) {
+
+            return service.importCounters(CounterSnapshots.read(in));
+        }
+
+        return service.importCounters(new CounterLines(in, CounterLines.Format.of(contentType), mapper));
+    }
+
     @GetMapping("/extension/values-sum")
     public CounterSumDto valuesSum() {
 
@@ -63,8 +125,56 @@ public class CountersController {
     }
 
     @GetMapping("/extension/names-list")
-    public CounterNamesDto counterNames() {
+    public CounterNamesDto counterNames(@RequestParam(required = false) String after,
+                                        @RequestParam(required = false) Integer limit) {
+
+        return service.getCounterNames(after, limit);
+    }
+
+    @GetMapping(value = "/extension/names-list", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamCounterNames(@RequestParam(required = false) String after,
+                                                                    @RequestHeader HttpHeaders headers) {
+
+        val format = JsonStreams.Format.negotiate(headers.getAccept());
+        val gzip = JsonStreams.acceptsGzip(headers.get(HttpHeaders.ACCEPT_ENCODING));
+
+        return streamed(format, gzip, JsonStreams.names(service.streamCounterNames(after), format, gzip));
+    }
+
+    @GetMapping("/extension/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String after,
+                                                        @RequestHeader HttpHeaders headers) {
+
+        val gzip = JsonStreams.acceptsGzip(headers.get(HttpHeaders.ACCEPT_ENCODING));
+
+        if (CounterSnapshots.isAccepted(headers.getAccept())) {
+
+            // snapshot compresses its own blocks, body stays a snapshot as it is stored
+            val compression = gzip ? SnapshotFormat.Compression.DEFLATE : SnapshotFormat.Compression.NONE;
+
+            return ResponseEntity.ok()
+                    .contentType(CounterSnapshots.MEDIA_TYPE)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                    .body(CounterSnapshots.counters(service.streamCounters(after), compression));
+        }
+
+        val format = JsonStreams.Format.negotiate(headers.getAccept());
+
+        return streamed(format, gzip, JsonStreams.counters(service.streamCounters(after), format, gzip));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> streamed(JsonStreams.Format format, boolean gzip,
+                                                                  StreamingResponseBody body) {
+
+        val response = ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
 
-        return service.getCounterNames();
+        return response.body(body);
     }
 }
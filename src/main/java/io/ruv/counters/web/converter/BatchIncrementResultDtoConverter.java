@@ -0,0 +1,69 @@
+package io.ruv.counters.web.converter;
+
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
+import io.ruv.counters.web.dto.IncrementResultDto;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Writes {@link BatchIncrementResultDto}
+ */
+@Component
+public class BatchIncrementResultDtoConverter extends JsonDtoConverter<BatchIncrementResultDto> {
+
+    private static final byte[] RESULTS_FIELD = "{\"results\":{".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "}}".getBytes(StandardCharsets.US_ASCII);
+
+    // result object up to its value, per status
+    private static final Map<IncrementResultDto.Status, byte[]> RESULT_PREFIXES =
+            new EnumMap<>(IncrementResultDto.Status.class);
+
+    static {
+
+        for (val status : IncrementResultDto.Status.values()) {
+
+            RESULT_PREFIXES.put(status, (":{\"status\":\"" + status.name() + "\",\"value\":")
+                    .getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    public BatchIncrementResultDtoConverter() {
+
+        super(BatchIncrementResultDto.class, null, false);
+    }
+
+    @Override
+    protected void write(BatchIncrementResultDto dto, JsonWriter writer) {
+
+        writer.raw(RESULTS_FIELD);
+
+        boolean first = true;
+        for (val entry : dto.getResults().entrySet()) {
+
+            if (!first) {
+
+                writer.raw(',');
+            }
+            first = false;
+
+            val result = entry.getValue();
+            writer.string(entry.getKey()).raw(RESULT_PREFIXES.get(result.getStatus()));
+
+            if (result.getValue() == null) {
+
+                writer.raw(NULL);
+            } else {
+
+                writer.number(result.getValue());
+            }
+            writer.raw('}');
+        }
+
+        writer.raw(END);
+    }
+}
@@ -0,0 +1,87 @@
+package io.ruv.counters.web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.web.dto.CounterDto;
+import lombok.val;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes {@link CounterDto} - the body of every single-counter request and response
+ */
+@Component
+public class CounterDtoConverter extends JsonDtoConverter<CounterDto> {
+
+    private static final byte[] NAME = "name".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUE = "value".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NAME_FIELD = "{\"name\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUE_FIELD = ",\"value\":".getBytes(StandardCharsets.US_ASCII);
+
+    public CounterDtoConverter(ObjectMapper mapper) {
+
+        super(CounterDto.class, mapper, true);
+    }
+
+    @Override
+    protected void write(CounterDto dto, JsonWriter writer) {
+
+        encode(dto, writer);
+    }
+
+    static void encode(CounterDto dto, JsonWriter writer) {
+
+        writer.raw(NAME_FIELD).string(dto.getName())
+                .raw(VALUE_FIELD).number(dto.getValue())
+                .raw('}');
+    }
+
+    @Nullable
+    @Override
+    protected CounterDto parse(byte[] body) {
+
+        try {
+
+            val dto = new CounterDto();
+            read(new JsonReader(body), dto);
+
+            return dto;
+        } catch (JsonReader.Unsupported e) {
+
+            return null;
+        }
+    }
+
+    /**
+     * Reads whole document into specified dto, fields absent from the document are left as they are
+     *
+     * @throws JsonReader.Unsupported when document has to be read by {@link ObjectMapper}
+     */
+    static void read(JsonReader reader, CounterDto dto) {
+
+        reader.expect('{');
+        if (!reader.consume('}')) {
+
+            do {
+
+                reader.key();
+
+                if (reader.keyIs(NAME)) {
+
+                    dto.setName(reader.stringOrNull());
+                } else if (reader.keyIs(VALUE)) {
+
+                    dto.setValue(reader.longValue());
+                } else {
+
+                    reader.skipValue();
+                }
+            } while (reader.consume(','));
+
+            reader.expect('}');
+        }
+        reader.end();
+    }
+}
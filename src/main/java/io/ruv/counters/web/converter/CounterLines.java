@@ -0,0 +1,370 @@
+package io.ruv.counters.web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.web.dto.CounterDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads counters from a body holding one record per line, parsing records as the body arrives
+ * Only a fixed-size window of the body is held, so memory taken does not depend on body size
+ * <p>
+ * The same dto is handed out for every record - it is only valid until the next one is read
+ * Record which can not be read (malformed, or longer than {@value #MAX_LINE_LENGTH} bytes)
+ * is handed out as a counter without name, blank lines are skipped
+ */
+public final class CounterLines implements Iterator<CounterDto> {
+
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final String[] CSV_HEADERS = {"name", "name,value"};
+
+    /**
+     * Record layout
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+
+        /**
+         * {@link CounterDto} JSON document per line, as written by export
+         */
+        NDJSON(MediaType.APPLICATION_NDJSON),
+
+        /**
+         * {@code name,value} per line, value defaults to 0 when omitted and name may be quoted,
+         * header line is skipped if present
+         */
+        CSV(TEXT_CSV);
+
+        private final MediaType mediaType;
+
+        /**
+         * @return format of body with specified content type, NDJSON unless it is CSV
+         */
+        public static Format of(@Nullable MediaType contentType) {
+
+            return contentType != null && TEXT_CSV.includes(contentType) ? CSV : NDJSON;
+        }
+    }
+
+    private final InputStream in;
+    private final Format format;
+    private final ObjectMapper mapper;
+    private final CounterDto counter = new CounterDto();
+    private final byte[] buffer = new byte[MAX_LINE_LENGTH];
+
+    // window of the body read but not consumed yet, and position up to which it has no line break
+    private int start;
+    private int end;
+    private int scanned;
+
+    private int lineStart;
+    private int lineEnd;
+
+    private boolean eof;
+    private boolean overlong;
+    private boolean ready;
+    private boolean first = true;
+
+    /**
+     * @param in     body to read, it is not closed
+     * @param format record layout
+     * @param mapper mapper to fall back to for JSON documents not handled by hand-written parser
+     */
+    public CounterLines(InputStream in, Format format, ObjectMapper mapper) {
+
+        this.in = in;
+        this.format = format;
+        this.mapper = mapper;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException when body can not be read
+     */
+    @Override
+    public boolean hasNext() {
+
+        while (!ready) {
+
+            if (!nextLine()) {
+
+                return false;
+            }
+
+            if (overlong) {
+
+                overlong = false;
+                malformed();
+            } else if (isBlank()) {
+
+                continue;
+            } else if (format == Format.CSV) {
+
+                if (first && isCsvHeader()) {
+
+                    first = false;
+                    continue;
+                }
+                parseCsv();
+            } else {
+
+                parseJson();
+            }
+
+            first = false;
+            ready = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CounterDto next() {
+
+        if (!hasNext()) {
+
+            throw new NoSuchElementException();
+        }
+
+        ready = false;
+        return counter;
+    }
+
+    /**
+     * Finds next line, reading more of the body when needed
+     *
+     * @return false if body is over
+     */
+    private boolean nextLine() {
+
+        while (true) {
+
+            for (int i = scanned; i < end; i++) {
+
+                if (buffer[i] == '\n') {
+
+                    lineStart = start;
+                    lineEnd = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+                    start = i + 1;
+                    scanned = start;
+
+                    return true;
+                }
+            }
+            scanned = end;
+
+            if (eof) {
+
+                if (start == end && !overlong) {
+
+                    return false;
+                }
+
+                lineStart = start;
+                lineEnd = end;
+                start = end;
+
+                return true;
+            }
+
+            fill();
+        }
+    }
+
+    /**
+     * Reads more of the body into the window, dropping the window of an overlong line when it is full
+     */
+    private void fill() {
+
+        if (start > 0) {
+
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanned -= start;
+            start = 0;
+        }
+
+        if (end == buffer.length) {
+
+            // line does not fit - it is dropped up to its end and reported as malformed
+            overlong = true;
+            end = 0;
+            scanned = 0;
+        }
+
+        try {
+
+            val read = in.read(buffer, end, buffer.length - end);
+
+            if (read < 0) {
+
+                eof = true;
+            } else {
+
+                end += read;
+            }
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isBlank() {
+
+        for (int i = lineStart; i < lineEnd; i++) {
+
+            if (buffer[i] != ' ' && buffer[i] != '\t') {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void parseJson() {
+
+        val length = lineEnd - lineStart;
+        counter.setName(null);
+        counter.setValue(0);
+
+        try {
+
+            CounterDtoConverter.read(new JsonReader(buffer, lineStart, length), counter);
+        } catch (JsonReader.Unsupported e) {
+
+            try {
+
+                val parsed = mapper.readValue(buffer, lineStart, length, CounterDto.class);
+
+                if (parsed == null) {
+
+                    malformed();
+                } else {
+
+                    counter.setName(parsed.getName());
+                    counter.setValue(parsed.getValue());
+                }
+            } catch (IOException ignored) {
+
+                malformed();
+            }
+        }
+    }
+
+    private void parseCsv() {
+
+        counter.setValue(0);
+
+        var position = lineStart;
+        String name;
+
+        if (buffer[position] == '"') {
+
+            val closing = closingQuote(position + 1);
+
+            if (closing < 0) {
+
+                malformed();
+                return;
+            }
+
+            name = new String(buffer, position + 1, closing - position - 1, StandardCharsets.UTF_8);
+            if (name.indexOf('"') >= 0) {
+
+                name = name.replace("\"\"", "\"");
+            }
+            position = closing + 1;
+        } else {
+
+            while (position < lineEnd && buffer[position] != ',') {
+
+                position++;
+            }
+            name = new String(buffer, lineStart, position - lineStart, StandardCharsets.UTF_8);
+        }
+
+        if (position < lineEnd) {
+
+            if (buffer[position] != ',') {
+
+                malformed();
+                return;
+            }
+
+            try {
+
+                val reader = new JsonReader(buffer, position + 1, lineEnd - position - 1);
+                counter.setValue(reader.longValue());
+                reader.end();
+            } catch (JsonReader.Unsupported e) {
+
+                malformed();
+                return;
+            }
+        }
+
+        counter.setName(name);
+    }
+
+    /**
+     * @return position of quote closing quoted field whose content starts at specified position, -1 if there is none
+     */
+    private int closingQuote(int from) {
+
+        for (int i = from; i < lineEnd; i++) {
+
+            if (buffer[i] == '"') {
+
+                if (i + 1 < lineEnd && buffer[i + 1] == '"') {
+
+                    i++;
+                } else {
+
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isCsvHeader() {
+
+        val line = new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).trim();
+
+        for (val header : CSV_HEADERS) {
+
+            if (header.equalsIgnoreCase(line)) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void malformed() {
+
+        counter.setName(null);
+        counter.setValue(0);
+    }
+}
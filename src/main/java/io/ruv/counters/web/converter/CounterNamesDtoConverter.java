@@ -0,0 +1,41 @@
+package io.ruv.counters.web.converter;
+
+import io.ruv.counters.web.dto.CounterNamesDto;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@link CounterNamesDto}
+ */
+@Component
+public class CounterNamesDtoConverter extends JsonDtoConverter<CounterNamesDto> {
+
+    private static final byte[] NAMES_FIELD = "{\"names\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_FIELD = "],\"next\":".getBytes(StandardCharsets.US_ASCII);
+
+    public CounterNamesDtoConverter() {
+
+        super(CounterNamesDto.class, null, false);
+    }
+
+    @Override
+    protected void write(CounterNamesDto dto, JsonWriter writer) {
+
+        writer.raw(NAMES_FIELD);
+
+        // names are a List.copyOf copy - indexed access is cheap
+        val names = dto.getNames();
+        for (int i = 0; i < names.size(); i++) {
+
+            if (i > 0) {
+
+                writer.raw(',');
+            }
+            writer.string(names.get(i));
+        }
+
+        writer.raw(NEXT_FIELD).string(dto.getNext()).raw('}');
+    }
+}
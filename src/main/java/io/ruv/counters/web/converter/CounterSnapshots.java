@@ -0,0 +1,137 @@
+package io.ruv.counters.web.converter;
+
+import io.ruv.counters.service.IllegalSnapshotException;
+import io.ruv.counters.util.snapshot.SnapshotFormat;
+import io.ruv.counters.util.snapshot.SnapshotReader;
+import io.ruv.counters.util.snapshot.SnapshotWriter;
+import io.ruv.counters.web.dto.CounterDto;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Counters exported and imported in binary {@link SnapshotFormat}, the same layout checkpoints are written in
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CounterSnapshots {
+
+    public static final MediaType MEDIA_TYPE = new MediaType("application", "vnd.counters.snapshot");
+
+    /**
+     * @return true if snapshot is explicitly accepted
+     */
+    public static boolean isAccepted(List<MediaType> accepted) {
+
+        return accepted.stream().anyMatch(MEDIA_TYPE::equalsTypeAndSubtype);
+    }
+
+    /**
+     * @return body writing specified counters as a snapshot, a block at a time
+     */
+    public static StreamingResponseBody counters(Stream<CounterDto> counters, SnapshotFormat.Compression compression) {
+
+        return out -> {
+
+            try (counters) {
+
+                val writer = new SnapshotWriter(out, compression);
+                val iterator = counters.iterator();
+
+                while (iterator.hasNext()) {
+
+                    val counter = iterator.next();
+                    writer.add(counter.getName(), counter.getValue());
+                }
+
+                writer.finish();
+            }
+        };
+    }
+
+    /**
+     * Reads counters from specified snapshot as it arrives
+     * The same dto is handed out for every record - it is only valid until the next one is read
+     *
+     * @throws IllegalSnapshotException when body is not a snapshot, is truncated or does not match its checksums
+     */
+    public static Iterator<CounterDto> read(InputStream in) {
+
+        try {
+
+            return new Records(new SnapshotReader(in));
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException e) {
+
+            throw IllegalSnapshotException.unreadable(e);
+        }
+    }
+
+    private static final class Records implements Iterator<CounterDto> {
+
+        private final SnapshotReader reader;
+        private final CounterDto counter = new CounterDto();
+
+        private boolean ready;
+
+        private Records(SnapshotReader reader) {
+
+            this.reader = reader;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws UncheckedIOException     when body can not be read
+         * @throws IllegalSnapshotException when body is truncated or does not match its checksums
+         */
+        @Override
+        public boolean hasNext() {
+
+            if (!ready) {
+
+                try {
+
+                    ready = reader.next();
+                } catch (IOException e) {
+
+                    throw new UncheckedIOException(e);
+                } catch (IllegalStateException e) {
+
+                    throw IllegalSnapshotException.unreadable(e);
+                }
+            }
+
+            return ready;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CounterDto next() {
+
+            if (!hasNext()) {
+
+                throw new NoSuchElementException();
+            }
+
+            ready = false;
+            counter.setName(reader.getName());
+            counter.setValue(reader.getValue());
+
+            return counter;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.ruv.counters.web.converter;
+
+import io.ruv.counters.web.dto.CounterSumDto;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@link CounterSumDto}
+ */
+@Component
+public class CounterSumDtoConverter extends JsonDtoConverter<CounterSumDto> {
+
+    private static final byte[] SUM_FIELD = "{\"sum\":".getBytes(StandardCharsets.US_ASCII);
+
+    public CounterSumDtoConverter() {
+
+        super(CounterSumDto.class, null, false);
+    }
+
+    @Override
+    protected void write(CounterSumDto dto, JsonWriter writer) {
+
+        writer.raw(SUM_FIELD).number(dto.getSum()).raw('}');
+    }
+}
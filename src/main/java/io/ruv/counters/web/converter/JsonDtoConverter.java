@@ -0,0 +1,130 @@
+package io.ruv.counters.web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.val;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Base of hand-written JSON converters for a single dto type
+ * Documents are encoded into a per-thread {@link JsonWriter} and written to response stream with one call,
+ * output is the same document Jackson would produce for the dto
+ * <p>
+ * Reading is opt-in - converters able to read parse the body directly and fall back to {@link ObjectMapper}
+ * for anything their parser does not handle, so accepted input and error reporting stay those of Jackson
+ *
+ * @param <T> dto type
+ */
+abstract class JsonDtoConverter<T> extends AbstractHttpMessageConverter<T> {
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    // larger buffers are not kept around after a big document
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<JsonWriter> WRITERS =
+            ThreadLocal.withInitial(() -> new JsonWriter(INITIAL_CAPACITY));
+
+    private final Class<T> type;
+    private final ObjectMapper mapper;
+    private final boolean readable;
+
+    /**
+     * @param type     dto type
+     * @param mapper   mapper to fall back to while reading
+     * @param readable whether converter reads dto from request body
+     */
+    protected JsonDtoConverter(Class<T> type, ObjectMapper mapper, boolean readable) {
+
+        super(MediaType.APPLICATION_JSON);
+
+        this.type = type;
+        this.mapper = mapper;
+        this.readable = readable;
+    }
+
+    /**
+     * Encodes dto into specified writer
+     */
+    protected abstract void write(T dto, JsonWriter writer);
+
+    /**
+     * Parses dto from specified body
+     *
+     * @return parsed dto or null if body has to be read by {@link ObjectMapper}
+     */
+    @Nullable
+    protected T parse(byte[] body) {
+
+        return null;
+    }
+
+    /**
+     * Encodes dto into a standalone document
+     */
+    public byte[] toJson(T dto) {
+
+        val writer = new JsonWriter(INITIAL_CAPACITY);
+        write(dto, writer);
+
+        return writer.toByteArray();
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+
+        return type == clazz;
+    }
+
+    @Override
+    public boolean canRead(@NonNull Class<?> clazz, @Nullable MediaType mediaType) {
+
+        return readable && super.canRead(clazz, mediaType);
+    }
+
+    @NonNull
+    @Override
+    protected T readInternal(@NonNull Class<? extends T> clazz, @NonNull HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+
+        val body = inputMessage.getBody().readAllBytes();
+        val parsed = parse(body);
+
+        if (parsed != null) {
+
+            return parsed;
+        }
+
+        try {
+
+            return mapper.readValue(body, type);
+        } catch (IOException e) {
+
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(@NonNull T dto, @NonNull HttpOutputMessage outputMessage) throws IOException {
+
+        val writer = WRITERS.get().reset();
+        try {
+
+            write(dto, writer);
+            writer.writeTo(outputMessage.getBody());
+        } finally {
+
+            if (writer.capacity() > MAX_RETAINED_CAPACITY) {
+
+                WRITERS.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package io.ruv.counters.web.converter;
+
+import lombok.val;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal pull parser over a complete UTF-8 JSON document, reading values straight from its bytes
+ * Handles the plain subset of JSON - anything else (escapes in read strings, fractions, malformed input)
+ * is reported with {@link Unsupported}, so caller can hand the document over to a full parser
+ */
+final class JsonReader {
+
+    // containers nested deeper are left to the full parser rather than skipped recursively
+    private static final int MAX_SKIPPED_DEPTH = 64;
+
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+
+    // key read last, as a range of document bytes
+    private int keyStart;
+    private int keyEnd;
+
+    JsonReader(byte[] bytes) {
+
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes  buffer holding the document
+     * @param offset document start
+     * @param length document length
+     */
+    JsonReader(byte[] bytes, int offset, int length) {
+
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Requires specified structural character to come next
+     */
+    void expect(char c) {
+
+        if (!consume(c)) {
+
+            throw Unsupported.INSTANCE;
+        }
+    }
+
+    /**
+     * @return true if specified structural character comes next, consuming it
+     */
+    boolean consume(char c) {
+
+        skipWhitespace();
+
+        if (position < limit && bytes[position] == c) {
+
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads object key along with the colon following it, key is then matched with {@linkplain #keyIs(byte[])}
+     */
+    void key() {
+
+        skipWhitespace();
+        keyStart = position + 1;
+        keyEnd = plainStringEnd();
+        position = keyEnd + 1;
+        expect(':');
+    }
+
+    /**
+     * @return true if key read last consists of specified bytes
+     */
+    boolean keyIs(byte[] key) {
+
+        if (keyEnd - keyStart != key.length) {
+
+            return false;
+        }
+
+        for (int i = 0; i < key.length; i++) {
+
+            if (bytes[keyStart + i] != key[i]) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return string value without escapes or null literal
+     */
+    String stringOrNull() {
+
+        skipWhitespace();
+
+        if (position < limit && bytes[position] == 'n') {
+
+            literal("null");
+            return null;
+        }
+
+        val start = position + 1;
+        val end = plainStringEnd();
+        position = end + 1;
+
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return integer value fitting into long
+     */
+    long longValue() {
+
+        skipWhitespace();
+
+        val negative = position < limit && bytes[position] == '-';
+        if (negative) {
+
+            position++;
+        }
+
+        val start = position;
+        long value = 0;
+
+        while (position < limit && bytes[position] >= '0' && bytes[position] <= '9') {
+
+            // accumulated negatively, so that Long.MIN_VALUE fits
+            val digit = bytes[position++] - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+
+                throw Unsupported.INSTANCE;
+            }
+            value = value * 10 - digit;
+        }
+
+        val digits = position - start;
+        if (digits == 0 || (digits > 1 && bytes[start] == '0') || (!negative && value == Long.MIN_VALUE)) {
+
+            throw Unsupported.INSTANCE;
+        }
+
+        if (position < limit && (bytes[position] == '.' || bytes[position] == 'e' || bytes[position] == 'E')) {
+
+            throw Unsupported.INSTANCE;
+        }
+
+        return negative ? value : -value;
+    }
+
+    /**
+     * Skips value of any type
+     */
+    void skipValue() {
+
+        skipValue(0);
+    }
+
+    private void skipValue(int depth) {
+
+        skipWhitespace();
+
+        if (position >= limit) {
+
+            throw Unsupported.INSTANCE;
+        }
+
+        switch (bytes[position]) {
+
+            case '"' -> skipString();
+            case '{' -> skipContainer('{', '}', depth);
+            case '[' -> skipContainer('[', ']', depth);
+            case 't' -> literal("true");
+            case 'f' -> literal("false");
+            case 'n' -> literal("null");
+            default -> skipNumber();
+        }
+    }
+
+    /**
+     * Requires nothing but whitespace to be left
+     */
+    void end() {
+
+        skipWhitespace();
+
+        if (position != limit) {
+
+            throw Unsupported.INSTANCE;
+        }
+    }
+
+    /**
+     * @return index of closing quote of string starting at current position, which has no escapes
+     */
+    private int plainStringEnd() {
+
+        if (position >= limit || bytes[position] != '"') {
+
+            throw Unsupported.INSTANCE;
+        }
+
+        for (int i = position + 1; i < limit; i++) {
+
+            val b = bytes[i];
+
+            if (b == '"') {
+
+                return i;
+            } else if (b == '\\' || (b >= 0 && b < 0x20)) {
+
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+        throw Unsupported.INSTANCE;
+    }
+
+    private void skipString() {
+
+        for (int i = position + 1; i < limit; i++) {
+
+            val b = bytes[i];
+
+            if (b == '"') {
+
+                position = i + 1;
+                return;
+            } else if (b == '\\') {
+
+                i++;
+            } else if (b >= 0 && b < 0x20) {
+
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+        throw Unsupported.INSTANCE;
+    }
+
+    private void skipContainer(char open, char close, int depth) {
+
+        if (depth == MAX_SKIPPED_DEPTH) {
+
+            throw Unsupported.INSTANCE;
+        }
+
+        position++;
+
+        if (consume(close)) {
+
+            return;
+        }
+
+        do {
+
+            if (open == '{') {
+
+                key();
+            }
+            skipValue(depth + 1);
+        } while (consume(','));
+
+        expect(close);
+    }
+
+    private void skipNumber() {
+
+        val start = position;
+
+        while (position < limit) {
+
+            val b = bytes[position];
+
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+
+                position++;
+            } else {
+
+                break;
+            }
+        }
+
+        if (position == start) {
+
+            throw Unsupported.INSTANCE;
+        }
+    }
+
+    private void literal(String literal) {
+
+        if (position + literal.length() > limit) {
+
+            throw Unsupported.INSTANCE;
+        }
+
+        for (int i = 0; i < literal.length(); i++) {
+
+            if (bytes[position + i] != literal.charAt(i)) {
+
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+        position += literal.length();
+    }
+
+    private void skipWhitespace() {
+
+        while (position < limit) {
+
+            val b = bytes[position];
+
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Document uses constructs this reader does not handle, or is malformed
+     */
+    static final class Unsupported extends RuntimeException {
+
+        static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+
+            super(null, null, false, false);
+        }
+    }
+}
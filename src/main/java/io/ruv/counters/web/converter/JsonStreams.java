@@ -0,0 +1,195 @@
+package io.ruv.counters.web.converter;
+
+import io.ruv.counters.web.dto.CounterDto;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response bodies writing a stream of elements to the socket as it is consumed
+ * <p>
+ * Elements are encoded into a fixed-size chunk which is handed over to response stream whenever it fills up,
+ * so memory taken does not depend on amount of elements - response goes out with chunked transfer encoding
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class JsonStreams {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * Layout of streamed elements
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+
+        /**
+         * Single JSON array
+         */
+        ARRAY(MediaType.APPLICATION_JSON),
+
+        /**
+         * Newline-delimited JSON - one document per line
+         */
+        NDJSON(MediaType.APPLICATION_NDJSON);
+
+        private final MediaType mediaType;
+
+        /**
+         * @return {@linkplain #NDJSON} if it is explicitly accepted, {@linkplain #ARRAY} otherwise
+         */
+        public static Format negotiate(List<MediaType> accepted) {
+
+            for (val mediaType : accepted) {
+
+                if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType)) {
+
+                    return NDJSON;
+                }
+            }
+
+            return ARRAY;
+        }
+    }
+
+    /**
+     * @return body writing specified names as JSON strings
+     */
+    public static StreamingResponseBody names(Stream<String> names, Format format, boolean gzip) {
+
+        return body(names, (name, writer) -> writer.string(name), format, gzip);
+    }
+
+    /**
+     * @return body writing specified counters as {@link CounterDto} documents
+     */
+    public static StreamingResponseBody counters(Stream<CounterDto> counters, Format format, boolean gzip) {
+
+        return body(counters, CounterDtoConverter::encode, format, gzip);
+    }
+
+    /**
+     * @param acceptEncoding values of Accept-Encoding request header
+     * @return true if gzip content coding is acceptable
+     */
+    public static boolean acceptsGzip(@Nullable List<String> acceptEncoding) {
+
+        if (acceptEncoding == null) {
+
+            return false;
+        }
+
+        for (val header : acceptEncoding) {
+
+            for (val coding : header.split(",")) {
+
+                val parameters = coding.split(";");
+                val name = parameters[0].trim();
+
+                if ((name.equalsIgnoreCase("gzip") || name.equals("*")) && !rejected(parameters)) {
+
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if coding parameters carry zero quality value
+     */
+    private static boolean rejected(String[] parameters) {
+
+        for (int i = 1; i < parameters.length; i++) {
+
+            val parameter = parameters[i].trim();
+
+            if (parameter.startsWith("q=")) {
+
+                try {
+
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static <T> StreamingResponseBody body(Stream<T> elements, BiConsumer<T, JsonWriter> encoder,
+                                                  Format format, boolean gzip) {
+
+        return out -> {
+
+            try (elements) {
+
+                val target = gzip ? new GZIPOutputStream(out, CHUNK_SIZE) : out;
+                write(elements, encoder, format, target);
+
+                if (target instanceof GZIPOutputStream compressed) {
+
+                    compressed.finish();
+                }
+                target.flush();
+            }
+        };
+    }
+
+    private static <T> void write(Stream<T> elements, BiConsumer<T, JsonWriter> encoder, Format format,
+                                  OutputStream out) throws IOException {
+
+        // encoding stops at an element boundary past chunk size, so chunk is rarely grown
+        val writer = new JsonWriter(CHUNK_SIZE * 2);
+        val iterator = elements.iterator();
+        var first = true;
+
+        while (iterator.hasNext()) {
+
+            if (format == Format.ARRAY) {
+
+                writer.raw(first ? '[' : ',');
+            }
+            first = false;
+
+            encoder.accept(iterator.next(), writer);
+
+            if (format == Format.NDJSON) {
+
+                writer.raw('\n');
+            }
+
+            if (writer.size() >= CHUNK_SIZE) {
+
+                writer.writeTo(out);
+                writer.reset();
+            }
+        }
+
+        if (format == Format.ARRAY) {
+
+            if (first) {
+
+                writer.raw('[');
+            }
+            writer.raw(']');
+        }
+
+        writer.writeTo(out);
+    }
+}
@@ -0,0 +1,220 @@
+package io.ruv.counters.web.converter;
+
+import lombok.val;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal JSON writer appending UTF-8 bytes to a growing buffer, reused between documents
+ * Callers are responsible for structure - writer only encodes literals
+ */
+final class JsonWriter {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+    private int size;
+
+    JsonWriter(int capacity) {
+
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * @return current buffer capacity
+     */
+    int capacity() {
+
+        return buffer.length;
+    }
+
+    /**
+     * @return amount of bytes appended since last reset
+     */
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * Discards written bytes, keeping the buffer
+     */
+    JsonWriter reset() {
+
+        size = 0;
+        return this;
+    }
+
+    /**
+     * Appends pre-encoded bytes as they are
+     */
+    JsonWriter raw(byte[] bytes) {
+
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    /**
+     * Appends single ASCII character as it is
+     */
+    JsonWriter raw(char c) {
+
+        ensure(1);
+        buffer[size++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends quoted and escaped string, or null literal
+     */
+    JsonWriter string(@Nullable String value) {
+
+        if (value == null) {
+
+            return raw(NULL);
+        }
+
+        // worst case is a control character escaped into six bytes
+        ensure(value.length() * 6 + 2);
+        buffer[size++] = '"';
+
+        for (int i = 0; i < value.length(); i++) {
+
+            val c = value.charAt(i);
+
+            if (c >= 0x20 && c < 0x80) {
+
+                if (c == '"' || c == '\\') {
+
+                    buffer[size++] = '\\';
+                }
+                buffer[size++] = (byte) c;
+            } else if (c < 0x20) {
+
+                escapeControl(c);
+            } else if (c < 0x800) {
+
+                buffer[size++] = (byte) (0xC0 | c >> 6);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+
+                val codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[size++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+
+                // unpaired surrogate has no UTF-8 form
+                buffer[size++] = '?';
+            } else {
+
+                buffer[size++] = (byte) (0xE0 | c >> 12);
+                buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        buffer[size++] = '"';
+        return this;
+    }
+
+    /**
+     * Appends number literal without creating its string form
+     */
+    JsonWriter number(long value) {
+
+        if (value == Long.MIN_VALUE) {
+
+            return raw(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        ensure(20);
+
+        if (value < 0) {
+
+            buffer[size++] = '-';
+            value = -value;
+        }
+
+        val end = size + digits(value);
+        var position = end;
+        do {
+
+            buffer[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        size = end;
+        return this;
+    }
+
+    JsonWriter number(BigInteger value) {
+
+        return raw(value.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes everything appended so far
+     */
+    void writeTo(OutputStream out) throws IOException {
+
+        out.write(buffer, 0, size);
+    }
+
+    byte[] toByteArray() {
+
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void escapeControl(char c) {
+
+        buffer[size++] = '\\';
+
+        switch (c) {
+
+            case '\n' -> buffer[size++] = 'n';
+            case '\r' -> buffer[size++] = 'r';
+            case '\t' -> buffer[size++] = 't';
+            case '\b' -> buffer[size++] = 'b';
+            case '\f' -> buffer[size++] = 'f';
+            default -> {
+
+                buffer[size++] = 'u';
+                buffer[size++] = '0';
+                buffer[size++] = '0';
+                buffer[size++] = HEX[c >> 4];
+                buffer[size++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private static int digits(long value) {
+
+        int digits = 1;
+        while (value >= 10) {
+
+            value /= 10;
+            digits++;
+        }
+
+        return digits;
+    }
+
+    private void ensure(int extra) {
+
+        if (size + extra > buffer.length) {
+
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
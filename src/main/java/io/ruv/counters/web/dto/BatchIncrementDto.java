@@ -0,0 +1,14 @@
+package io.ruv.counters.web.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class BatchIncrementDto {
+
+    /**
+     * Amounts to add keyed by counter name
+     */
+    private Map<String, Long> deltas;
+}
@@ -0,0 +1,23 @@
+package io.ruv.counters.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.lang.NonNull;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+public class BatchIncrementResultDto {
+
+    /**
+     * Update results keyed by counter name, in request order
+     */
+    @NonNull
+    private Map<String, IncrementResultDto> results;
+
+    public BatchIncrementResultDto(@NonNull Map<String, IncrementResultDto> results) {
+
+        this.results = results;
+    }
+}
@@ -3,6 +3,7 @@ package io.ruv.counters.web.dto;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
 
@@ -16,10 +17,22 @@ public class CounterNamesDto {
     @NonNull
     private List<String> names;
 
+    /**
+     * Cursor of the next page - last name of this page, null when there are no more names
+     */
+    @Nullable
+    private String next;
+
 
     public CounterNamesDto(List<String> names) {
 
+        this(names, null);
+    }
+
+    public CounterNamesDto(List<String> names, String next) {
+
         _setNames(names);
+        this.next = next;
     }
 
     public void setNames(List<String> names) {
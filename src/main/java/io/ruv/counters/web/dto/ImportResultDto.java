@@ -0,0 +1,31 @@
+package io.ruv.counters.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ImportResultDto {
+
+    /**
+     * Amount of counters created
+     */
+    private long created;
+
+    /**
+     * Amount of counters skipped because their name was already taken
+     */
+    private long duplicate;
+
+    /**
+     * Amount of records skipped because they were malformed or had an illegal name
+     */
+    private long invalid;
+
+    public ImportResultDto(long created, long duplicate, long invalid) {
+
+        this.created = created;
+        this.duplicate = duplicate;
+        this.invalid = invalid;
+    }
+}
@@ -0,0 +1,36 @@
+package io.ruv.counters.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+@Data
+@NoArgsConstructor
+public class IncrementResultDto {
+
+    /**
+     * Outcome of counter update
+     */
+    @NonNull
+    private Status status;
+
+    /**
+     * New counter value, null unless counter was updated
+     */
+    @Nullable
+    private Long value;
+
+    public IncrementResultDto(@NonNull Status status, @Nullable Long value) {
+
+        this.status = status;
+        this.value = value;
+    }
+
+    public enum Status {
+
+        UPDATED,
+        NOT_FOUND,
+        OVERFLOW
+    }
+}
@@ -67,6 +67,14 @@ public class ResponseWrapper<T> {
                 .setErrors(List.of(new ErrorDto(exception.getMessage())));
     }
 
+    public static ResponseWrapper<?> error(HttpStatus httpStatus, ZonedDateTime timestamp, List<ErrorDto> errors) {
+
+        return new ResponseWrapper<Object>()
+                .setTimestamp(timestamp)
+                .setHttpStatus(httpStatus)
+                .setErrors(errors);
+    }
+
     public static ResponseWrapper<?> unhandled(Exception exception) {
 
         return new ResponseWrapper<Object>()
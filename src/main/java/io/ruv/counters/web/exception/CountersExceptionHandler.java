@@ -1,16 +1,38 @@
 package io.ruv.counters.web.exception;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.ruv.counters.util.exception.ApiException;
 import io.ruv.counters.web.dto.ResponseWrapper;
+import lombok.val;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
+import java.time.Clock;
+
 @RestControllerAdvice
 public class CountersExceptionHandler {
 
+    private static final HttpHeaders JSON_HEADERS;
+
+    static {
+
+        val headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private final ErrorBodies errorBodies;
+
+    public CountersExceptionHandler(ObjectMapper mapper) {
+
+        this.errorBodies = new ErrorBodies(mapper, Clock.systemUTC());
+    }
+
     @ExceptionHandler
     public ResponseEntity<ResponseWrapper<?>> handleNotFound(NoHandlerFoundException e) {
 
@@ -18,11 +40,14 @@ public class CountersExceptionHandler {
                 .body(ResponseWrapper.of(e));
     }
 
+    /**
+     * Api exceptions are routine outcomes - their bodies are rendered from pre-encoded templates
+     */
     @ExceptionHandler
-    public ResponseEntity<ResponseWrapper<?>> handleApiException(ApiException e) {
+    public ResponseEntity<byte[]> handleApiException(ApiException e) {
 
-        return ResponseEntity.status(e.getHttpStatus())
-                .body(ResponseWrapper.of(e));
+        return new ResponseEntity<>(errorBodies.render(e.getHttpStatus(), e.getMessage()), JSON_HEADERS,
+                e.getHttpStatus());
     }
 
     @ExceptionHandler
@@ -0,0 +1,146 @@
+package io.ruv.counters.web.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.web.dto.ErrorDto;
+import io.ruv.counters.web.dto.ResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders {@link ResponseWrapper} error bodies without going through {@link ObjectMapper} per response
+ * <p>
+ * Body of every status is encoded once up front with placeholders for timestamp and message,
+ * which are then spliced in - encoded timestamp is cached and reused within the same millisecond
+ */
+final class ErrorBodies {
+
+    private static final String MESSAGE_PLACEHOLDER = "@@message@@";
+    private static final ZonedDateTime TIMESTAMP_PLACEHOLDER =
+            ZonedDateTime.ofInstant(Instant.ofEpochSecond(946684800), ZoneOffset.UTC);
+
+    private final Map<HttpStatus, Template> templates = new EnumMap<>(HttpStatus.class);
+    private final ObjectMapper mapper;
+    private final Clock clock;
+
+    private volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, new byte[0]);
+
+    ErrorBodies(ObjectMapper mapper, Clock clock) {
+
+        this.mapper = mapper;
+        this.clock = clock;
+
+        val timestampPlaceholder = encode(TIMESTAMP_PLACEHOLDER);
+
+        for (val status : HttpStatus.values()) {
+
+            val sample = new String(encode(ResponseWrapper.error(status, TIMESTAMP_PLACEHOLDER,
+                    List.of(new ErrorDto(MESSAGE_PLACEHOLDER)))), StandardCharsets.UTF_8);
+
+            templates.put(status, Template.split(sample, new String(timestampPlaceholder, StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * @return encoded error body with specified status and message, timestamped now
+     */
+    byte[] render(HttpStatus status, String message) {
+
+        val template = templates.get(status);
+        val encodedTimestamp = now();
+        val encodedMessage = JsonStringEncoder.getInstance().quoteAsUTF8(message);
+
+        val body = new byte[template.beforeTimestamp.length + encodedTimestamp.length
+                + template.beforeMessage.length + encodedMessage.length + template.afterMessage.length];
+
+        int position = 0;
+        position = append(body, position, template.beforeTimestamp);
+        position = append(body, position, encodedTimestamp);
+        position = append(body, position, template.beforeMessage);
+        position = append(body, position, encodedMessage);
+        append(body, position, template.afterMessage);
+
+        return body;
+    }
+
+    /**
+     * @return encoded current timestamp, re-encoded once per millisecond at most
+     */
+    private byte[] now() {
+
+        val millis = clock.millis();
+        val cached = timestamp;
+
+        if (cached.millis == millis) {
+
+            return cached.encoded;
+        }
+
+        val encoded = encode(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+        timestamp = new Timestamp(millis, encoded);
+
+        return encoded;
+    }
+
+    private byte[] encode(Object value) {
+
+        try {
+
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+
+            throw new IllegalStateException("Error body can not be encoded", e);
+        }
+    }
+
+    private static int append(byte[] target, int position, byte[] source) {
+
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    /**
+     * Encoded body split around timestamp and message
+     */
+    @RequiredArgsConstructor
+    private static final class Template {
+
+        private final byte[] beforeTimestamp;
+        private final byte[] beforeMessage;
+        private final byte[] afterMessage;
+
+        static Template split(String sample, String timestamp) {
+
+            val timestampAt = sample.indexOf(timestamp);
+            val messageAt = sample.indexOf(MESSAGE_PLACEHOLDER);
+
+            if (timestampAt < 0 || messageAt < timestampAt + timestamp.length()) {
+
+                throw new IllegalStateException("Unexpected error body layout: " + sample);
+            }
+
+            return new Template(
+                    sample.substring(0, timestampAt).getBytes(StandardCharsets.UTF_8),
+                    sample.substring(timestampAt + timestamp.length(), messageAt).getBytes(StandardCharsets.UTF_8),
+                    sample.substring(messageAt + MESSAGE_PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Timestamp {
+
+        private final long millis;
+        private final byte[] encoded;
+    }
+}
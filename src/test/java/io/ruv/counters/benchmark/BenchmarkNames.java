@@ -0,0 +1,33 @@
+package io.ruv.counters.benchmark;
+
+import lombok.val;
+
+import java.util.LinkedHashSet;
+import java.util.SplittableRandom;
+
+/**
+ * Counter names used by benchmarks - random, but the same in every run
+ */
+final class BenchmarkNames {
+
+    private static final long SEED = 42;
+
+    private BenchmarkNames() {
+    }
+
+    /**
+     * @return specified amount of distinct names
+     */
+    static String[] of(int count) {
+
+        val random = new SplittableRandom(SEED);
+        val result = new LinkedHashSet<String>(count * 2);
+
+        while (result.size() < count) {
+
+            result.add(String.valueOf(random.nextInt()));
+        }
+
+        return result.toArray(String[]::new);
+    }
+}
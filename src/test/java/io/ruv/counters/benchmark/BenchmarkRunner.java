@@ -0,0 +1,68 @@
+package io.ruv.counters.benchmark;
+
+import lombok.val;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs benchmarks once per thread count - powers of two from 1 up to all available cores
+ * with GC profiler attached, writing JSON results to {@code target/jmh/threads-<count>.json}
+ * Accepts regular JMH command line options, thread count specified there replaces the sweep
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="RepositoryBenchmark -p repository=OFF_HEAP"}
+ */
+public final class BenchmarkRunner {
+
+    private static final Path RESULTS = Path.of("target", "jmh");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+
+        val commandLine = new CommandLineOptions(args);
+
+        val threadCounts = commandLine.getThreads().hasValue()
+                ? List.of(commandLine.getThreads().get())
+                : threadCounts(Runtime.getRuntime().availableProcessors());
+
+        Files.createDirectories(RESULTS);
+
+        for (val threads : threadCounts) {
+
+            val options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(RESULTS.resolve(String.format("threads-%d.json", threads)).toString())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+
+    private static List<Integer> threadCounts(int cores) {
+
+        val result = new ArrayList<Integer>();
+
+        for (int threads = 1; threads < cores; threads *= 2) {
+
+            result.add(threads);
+        }
+
+        result.add(cores);
+        return result;
+    }
+}
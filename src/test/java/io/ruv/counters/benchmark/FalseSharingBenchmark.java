@@ -0,0 +1,66 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CountersRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Every thread increments its own counter, counters created one after another so their cells are adjacent in memory
+ * Throughput scaling with thread count shows how much unrelated counters slow each other down
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="FalseSharingBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class FalseSharingBenchmark {
+
+    private static final int MAX_THREADS = 1024;
+
+    @Param({"CONCURRENT_ATOMIC", "CONCURRENT_ATOMIC_PADDED", "CONCURRENT_LONG_ARRAY", "CONCURRENT_LONG_ARRAY_PADDED"})
+    public RepositoryType repository;
+
+    private CountersRepository repo;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        repo = CountersConfig.createRepository(repository);
+
+        for (int i = 0; i < MAX_THREADS; i++) {
+
+            repo.create(name(i), 0);
+        }
+    }
+
+    @Benchmark
+    public Object ownCounter(OwnName own) {
+
+        return repo.incrementByName(own.name);
+    }
+
+    private static String name(int thread) {
+
+        return "thread-" + thread;
+    }
+
+    @State(Scope.Thread)
+    public static class OwnName {
+
+        private String name;
+
+        @Setup(Level.Trial)
+        public void setUp(FalseSharingBenchmark benchmark) {
+
+            name = name(benchmark.threads.getAndIncrement() % MAX_THREADS);
+        }
+    }
+}
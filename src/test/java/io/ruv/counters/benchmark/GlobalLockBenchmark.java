@@ -0,0 +1,120 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.util.lock.GlobalLock;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Read-biased {@link GlobalLock} against plain {@link ReentrantReadWriteLock} it replaced,
+ * with a share of writes per thousand operations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class GlobalLockBenchmark {
+
+    @Param
+    public Implementation implementation;
+
+    @Param({"0", "1", "10"})
+    public int writesPerMille;
+
+    private Lock lock;
+    private long value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        lock = implementation.create();
+    }
+
+    @Benchmark
+    public long access() {
+
+        if (writesPerMille > 0 && ThreadLocalRandom.current().nextInt(1000) < writesPerMille) {
+
+            return lock.writing(() -> ++value);
+        } else {
+
+            return lock.reading(() -> value);
+        }
+    }
+
+    public enum Implementation {
+
+        BIASED {
+            @Override
+            Lock create() {
+
+                val lock = new GlobalLock();
+
+                return new Lock() {
+                    @Override
+                    public <T> T reading(Supplier<T> action) {
+
+                        return lock.reading(action);
+                    }
+
+                    @Override
+                    public <T> T writing(Supplier<T> action) {
+
+                        return lock.writing(action);
+                    }
+                };
+            }
+        },
+
+        READ_WRITE {
+            @Override
+            Lock create() {
+
+                val lock = new ReentrantReadWriteLock();
+
+                return new Lock() {
+                    @Override
+                    public <T> T reading(Supplier<T> action) {
+
+                        lock.readLock().lock();
+                        try {
+
+                            return action.get();
+                        } finally {
+
+                            lock.readLock().unlock();
+                        }
+                    }
+
+                    @Override
+                    public <T> T writing(Supplier<T> action) {
+
+                        lock.writeLock().lock();
+                        try {
+
+                            return action.get();
+                        } finally {
+
+                            lock.writeLock().unlock();
+                        }
+                    }
+                };
+            }
+        };
+
+        abstract Lock create();
+    }
+
+    interface Lock {
+
+        <T> T reading(Supplier<T> action);
+
+        <T> T writing(Supplier<T> action);
+    }
+}
@@ -0,0 +1,46 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CountersRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact and relaxed increments of a single name incremented by every thread
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class HotNameBenchmark {
+
+    private static final String HOT_NAME = "hot-name";
+
+    @Param
+    public RepositoryType repository;
+
+    private CountersRepository repo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        repo = CountersConfig.createRepository(repository);
+        repo.create(HOT_NAME, 0);
+    }
+
+    @Benchmark
+    public Object exact() {
+
+        return repo.incrementByName(HOT_NAME);
+    }
+
+    @Benchmark
+    public boolean relaxed() {
+
+        return repo.incrementByNameRelaxed(HOT_NAME);
+    }
+}
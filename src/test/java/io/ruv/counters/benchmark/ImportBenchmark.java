@@ -0,0 +1,87 @@
+package io.ruv.counters.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.service.impl.CountersServiceImpl;
+import io.ruv.counters.web.converter.CounterLines;
+import io.ruv.counters.web.dto.ImportResultDto;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of a million new counters, from parsing the body to counters created - scores are counters per second
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="ImportBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ImportBenchmark.COUNTERS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ImportBenchmark {
+
+    static final int COUNTERS = 1_000_000;
+
+    @Param({"CONCURRENT_LONG", "OFF_HEAP", "LOCK_FREE"})
+    public RepositoryType repository;
+
+    @Param
+    public CounterLines.Format format;
+
+    private byte[] body;
+    private CountersRepository repo;
+    private CountersServiceImpl service;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        val out = new ByteArrayOutputStream(COUNTERS * 32);
+        val names = BenchmarkNames.of(COUNTERS);
+
+        for (int i = 0; i < COUNTERS; i++) {
+
+            val line = switch (format) {
+
+                case NDJSON -> "{\"name\":\"" + names[i] + "\",\"value\":" + i + "}\n";
+                case CSV -> names[i] + "," + i + "\n";
+            };
+            out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        }
+
+        body = out.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyRepository() {
+
+        repo = CountersConfig.createRepository(repository);
+        service = new CountersServiceImpl(repo);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeRepository() throws Exception {
+
+        if (repo instanceof AutoCloseable closeable) {
+
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    public ImportResultDto importCounters() {
+
+        return service.importCounters(new CounterLines(new ByteArrayInputStream(body), format, mapper));
+    }
+}
@@ -0,0 +1,238 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.web.converter.BatchIncrementResultDtoConverter;
+import io.ruv.counters.web.converter.CounterDtoConverter;
+import io.ruv.counters.web.converter.CounterNamesDtoConverter;
+import io.ruv.counters.web.converter.CounterSumDtoConverter;
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
+import io.ruv.counters.web.dto.CounterDto;
+import io.ruv.counters.web.dto.CounterNamesDto;
+import io.ruv.counters.web.dto.CounterSumDto;
+import io.ruv.counters.web.dto.IncrementResultDto;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hand-written dto converters against Spring's Jackson converter, writing response documents
+ * and reading {@link CounterDto} request body - run with GC profiler for bytes per operation
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="JsonCodecBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JsonCodecBenchmark {
+
+    @Param
+    public Codec codec;
+
+    @Param
+    public Document document;
+
+    private HttpMessageConverter<Object> converter;
+    private Object dto;
+    private byte[] counterBody;
+
+    private final Output output = new Output();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        converter = codec.converter(document);
+        dto = document.dto();
+
+        counterBody = new CounterDtoConverter(mapper()).toJson((CounterDto) Document.COUNTER.dto());
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+
+        converter.write(dto, MediaType.APPLICATION_JSON, output.reset());
+        return output.body.size();
+    }
+
+    @Benchmark
+    public Object readCounter() throws IOException {
+
+        return codec.counterReader().read(CounterDto.class, new Input(counterBody));
+    }
+
+    private static com.fasterxml.jackson.databind.ObjectMapper mapper() {
+
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    public enum Codec {
+
+        HAND_TUNED {
+            @Override
+            HttpMessageConverter<?> create(Document document) {
+
+                return switch (document) {
+
+                    case COUNTER -> COUNTERS;
+                    case SUM -> new CounterSumDtoConverter();
+                    case NAMES_PAGE -> new CounterNamesDtoConverter();
+                    case BATCH_RESULT -> new BatchIncrementResultDtoConverter();
+                };
+            }
+
+            @Override
+            HttpMessageConverter<CounterDto> counterReader() {
+
+                return COUNTERS;
+            }
+        },
+
+        JACKSON {
+            @Override
+            HttpMessageConverter<?> create(Document document) {
+
+                return JACKSON_CONVERTER;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            HttpMessageConverter<CounterDto> counterReader() {
+
+                return (HttpMessageConverter<CounterDto>) (HttpMessageConverter<?>) JACKSON_CONVERTER;
+            }
+        };
+
+        private static final CounterDtoConverter COUNTERS = new CounterDtoConverter(mapper());
+        private static final MappingJackson2HttpMessageConverter JACKSON_CONVERTER =
+                new MappingJackson2HttpMessageConverter(mapper());
+
+        abstract HttpMessageConverter<?> create(Document document);
+
+        abstract HttpMessageConverter<CounterDto> counterReader();
+
+        @SuppressWarnings("unchecked")
+        HttpMessageConverter<Object> converter(Document document) {
+
+            return (HttpMessageConverter<Object>) create(document);
+        }
+    }
+
+    public enum Document {
+
+        COUNTER {
+            @Override
+            Object dto() {
+
+                val dto = new CounterDto();
+                dto.setName("counter-name-1234");
+                dto.setValue(1_234_567_890L);
+                return dto;
+            }
+        },
+
+        SUM {
+            @Override
+            Object dto() {
+
+                return new CounterSumDto(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(1000)));
+            }
+        },
+
+        NAMES_PAGE {
+            @Override
+            Object dto() {
+
+                val names = Arrays.asList(BenchmarkNames.of(1000));
+                return new CounterNamesDto(names, names.get(names.size() - 1));
+            }
+        },
+
+        BATCH_RESULT {
+            @Override
+            Object dto() {
+
+                val results = new LinkedHashMap<String, IncrementResultDto>();
+                for (val name : BenchmarkNames.of(100)) {
+
+                    results.put(name, new IncrementResultDto(IncrementResultDto.Status.UPDATED, 1000L));
+                }
+                return new BatchIncrementResultDto(results);
+            }
+        };
+
+        abstract Object dto();
+    }
+
+    /**
+     * Output message reused between operations
+     */
+    private static final class Output implements HttpOutputMessage {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+        private final HttpHeaders headers = new HttpHeaders();
+
+        Output reset() {
+
+            body.reset();
+            headers.clear();
+            return this;
+        }
+
+        @Override
+        public ByteArrayOutputStream getBody() {
+
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+
+            return headers;
+        }
+    }
+
+    private static final class Input implements HttpInputMessage {
+
+        private static final HttpHeaders HEADERS = new HttpHeaders();
+
+        static {
+
+            HEADERS.setContentType(MediaType.APPLICATION_JSON);
+        }
+
+        private final byte[] body;
+
+        Input(byte[] body) {
+
+            this.body = body;
+        }
+
+        @Override
+        public InputStream getBody() {
+
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+
+            return HEADERS;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.repo.mapped.MappedCountersRepository;
+import io.ruv.counters.repo.mapped.MappedSettings;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup of a memory-mapped repository holding ten million counters, either closed cleanly
+ * or left open as if the process was killed, so that the table has to be rescanned
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="MappedStartupBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MappedStartupBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param("10000000")
+    public int counters;
+
+    @Param({"CLEAN", "UNCLEAN"})
+    public String shutdown;
+
+    private MappedSettings settings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        settings = new MappedSettings();
+        settings.setDirectory(Files.createTempDirectory("mapped-benchmark"));
+        settings.setExpectedCounters(counters);
+
+        val repo = MappedCountersRepository.open(settings);
+
+        val names = new String[BATCH_SIZE];
+        val values = new long[BATCH_SIZE];
+
+        for (int i = 0; i < counters; i += BATCH_SIZE) {
+
+            val count = Math.min(BATCH_SIZE, counters - i);
+            for (int j = 0; j < count; j++) {
+
+                names[j] = "counter-" + (i + j);
+                values[j] = i + j;
+            }
+            repo.createAll(names, values, count);
+        }
+
+        repo.close();
+
+        if (shutdown.equals("UNCLEAN")) {
+
+            // opened table stays marked as in use until closed
+            MappedCountersRepository.open(settings);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+
+        try (val files = Files.walk(settings.getDirectory())) {
+
+            for (val file : files.sorted(Comparator.reverseOrder()).toList()) {
+
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public BigInteger open() throws IOException {
+
+        val repo = MappedCountersRepository.open(settings);
+        val sum = repo.valuesSum();
+
+        if (shutdown.equals("CLEAN")) {
+
+            repo.close();
+        }
+
+        return sum;
+    }
+}
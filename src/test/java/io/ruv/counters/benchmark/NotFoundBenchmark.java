@@ -0,0 +1,98 @@
+package io.ruv.counters.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.service.CountersService;
+import io.ruv.counters.service.impl.CountersServiceImpl;
+import io.ruv.counters.util.exception.ApiException;
+import io.ruv.counters.web.dto.ResponseWrapper;
+import io.ruv.counters.web.exception.CountersExceptionHandler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probing client hitting missing names - service lookup plus rendering of the error body,
+ * as done by {@link CountersExceptionHandler} against serializing {@link ResponseWrapper} per response
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="NotFoundBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class NotFoundBenchmark {
+
+    private static final int NAMES = 1024;
+
+    private CountersService service;
+    private CountersExceptionHandler handler;
+    private ObjectMapper mapper;
+    private String[] missing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        service = new CountersServiceImpl(CountersConfig.createRepository(RepositoryType.CONCURRENT_LONG));
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        handler = new CountersExceptionHandler(mapper);
+        missing = BenchmarkNames.of(NAMES);
+    }
+
+    @Benchmark
+    public Object preEncoded(Cursor cursor) {
+
+        try {
+
+            return service.getByName(cursor.next(missing));
+        } catch (ApiException e) {
+
+            return handler.handleApiException(e);
+        }
+    }
+
+    @Benchmark
+    public Object objectMapper(Cursor cursor) throws JsonProcessingException {
+
+        try {
+
+            return service.getByName(cursor.next(missing));
+        } catch (ApiException e) {
+
+            return mapper.writeValueAsBytes(ResponseWrapper.of(e));
+        }
+    }
+
+    /**
+     * Same as {@linkplain #objectMapper(Cursor)} with stack trace captured, as it was before exceptions became stackless
+     */
+    @Benchmark
+    public Object objectMapperWithStackTrace(Cursor cursor) throws JsonProcessingException {
+
+        try {
+
+            return service.getByName(cursor.next(missing));
+        } catch (ApiException e) {
+
+            new RuntimeException(e.getMessage()).fillInStackTrace();
+            return mapper.writeValueAsBytes(ResponseWrapper.of(e));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        String next(String[] names) {
+
+            next = (next + 1) & (names.length - 1);
+            return names[next];
+        }
+    }
+}
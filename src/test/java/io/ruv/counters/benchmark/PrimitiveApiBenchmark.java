@@ -0,0 +1,88 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primitive result api of {@link CountersRepository} against {@link java.util.Optional} returning one
+ * on existing counters - run with GC profiler, {@code gc.alloc.rate.norm} shows bytes allocated per operation
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PrimitiveApiBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PrimitiveApiBenchmark {
+
+    private static final int NAMES = 1024;
+
+    // outside of small values cached by Long.valueOf
+    private static final long INITIAL_VALUE = 1000;
+
+    @Param
+    public RepositoryType repository;
+
+    private CountersRepository repo;
+    private String[] nameSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        repo = CountersConfig.createRepository(repository);
+        nameSet = BenchmarkNames.of(NAMES);
+
+        for (val name : nameSet) {
+
+            repo.create(name, INITIAL_VALUE);
+        }
+    }
+
+    @Benchmark
+    public long findPrimitive(Cursor cursor) {
+
+        return repo.findByName(cursor.next(nameSet), cursor.result).getValue();
+    }
+
+    @Benchmark
+    public long addPrimitive(Cursor cursor) {
+
+        return repo.addByName(cursor.next(nameSet), 1, cursor.result).getValue();
+    }
+
+    @Benchmark
+    public Object findOptional(Cursor cursor) {
+
+        return repo.findByName(cursor.next(nameSet));
+    }
+
+    @Benchmark
+    public Object addOptional(Cursor cursor) {
+
+        return repo.addByName(cursor.next(nameSet), 1);
+    }
+
+    /**
+     * Per-thread walk over names with a result reused by every operation
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final CounterResult result = new CounterResult();
+        private int next;
+
+        String next(String[] names) {
+
+            next = (next + 1) & (names.length - 1);
+            return names[next];
+        }
+    }
+}
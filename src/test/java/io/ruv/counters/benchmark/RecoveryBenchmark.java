@@ -0,0 +1,110 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.durable.Durability;
+import io.ruv.counters.repo.durable.DurableCountersRepository;
+import io.ruv.counters.repo.durable.WalSettings;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup of a durable repository holding ten million counters, each updated a few times after creation,
+ * loaded either from a checkpoint or by replaying the whole log
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="RecoveryBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecoveryBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param("10000000")
+    public int counters;
+
+    @Param({"CONCURRENT_LONG", "OFF_HEAP"})
+    public RepositoryType repository;
+
+    @Param({"CHECKPOINT", "LOG"})
+    public String source;
+
+    @Param("3")
+    public int updates;
+
+    private WalSettings settings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        settings = new WalSettings();
+        settings.setDirectory(Files.createTempDirectory("recovery-benchmark"));
+        settings.setDurability(Durability.NONE);
+        settings.setCheckpointInterval(Duration.ZERO);
+
+        try (val repo = DurableCountersRepository.open(CountersConfig.createRepository(repository), settings)) {
+
+            val names = new String[BATCH_SIZE];
+            val values = new long[BATCH_SIZE];
+
+            for (int i = 0; i < counters; i += BATCH_SIZE) {
+
+                val count = Math.min(BATCH_SIZE, counters - i);
+                for (int j = 0; j < count; j++) {
+
+                    names[j] = "counter-" + (i + j);
+                    values[j] = i + j;
+                }
+                repo.createAll(names, values, count);
+            }
+
+            val result = new CounterResult();
+            for (int update = 0; update < updates; update++) {
+
+                for (int i = 0; i < counters; i++) {
+
+                    repo.addByName("counter-" + i, 1, result);
+                }
+            }
+
+            if (source.equals("CHECKPOINT")) {
+
+                repo.checkpoint();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+
+        try (val files = Files.walk(settings.getDirectory())) {
+
+            for (val file : files.sorted(Comparator.reverseOrder()).toList()) {
+
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public CountersRepository recover() throws IOException {
+
+        val repo = CountersConfig.createRepository(repository);
+        DurableCountersRepository.open(repo, settings).close();
+
+        return repo;
+    }
+}
@@ -0,0 +1,129 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CountersRepository;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of every {@link CountersRepository} implementation under a mixture of operations
+ * on randomly picked names out of a fixed name set
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class RepositoryBenchmark {
+
+    @Param
+    public RepositoryType repository;
+
+    @Param({"64", "512", "2048"})
+    public int names;
+
+    @Param
+    public Mixture mixture;
+
+    private CountersRepository repo;
+    private String[] nameSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        repo = CountersConfig.createRepository(repository);
+        nameSet = BenchmarkNames.of(names);
+    }
+
+    @Benchmark
+    public Object mixed(Operations operations) {
+
+        val random = ThreadLocalRandom.current();
+        val name = nameSet[random.nextInt(nameSet.length)];
+
+        return switch (operations.next()) {
+
+            case FIND -> repo.findByName(name);
+            case CREATE -> repo.create(name, random.nextLong(Integer.MAX_VALUE));
+            case INCREMENT -> repo.incrementByName(name);
+            case DELETE -> repo.deleteByName(name);
+            case FIND_ALL -> repo.findAll().count();
+        };
+    }
+
+    /**
+     * Endless per-thread sequence of operations following the mixture
+     */
+    @State(Scope.Thread)
+    public static class Operations {
+
+        private Operation[] sequence;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(RepositoryBenchmark benchmark) {
+
+            sequence = benchmark.mixture.sequence();
+            next = ThreadLocalRandom.current().nextInt(sequence.length);
+        }
+
+        Operation next() {
+
+            val operation = sequence[next];
+            next = next + 1 == sequence.length ? 0 : next + 1;
+
+            return operation;
+        }
+    }
+
+    public enum Operation {
+
+        FIND,
+        CREATE,
+        INCREMENT,
+        DELETE,
+        FIND_ALL
+    }
+
+    /**
+     * Share of every operation, in tens out of total
+     */
+    public enum Mixture {
+
+        mostlyReads(8, 1, 1, 1, 1),
+        readsAndWrites(7, 2, 2, 2, 1),
+        mostlyWrites(4, 3, 3, 3, 1),
+        moreGlobalLocking(6, 1, 1, 1, 5);
+
+        private final int[] tens;
+
+        Mixture(int... tens) {
+
+            this.tens = tens;
+        }
+
+        Operation[] sequence() {
+
+            val operations = Operation.values();
+            val result = new Operation[Arrays.stream(tens).sum() * 10];
+
+            int position = 0;
+            for (int i = 0; i < operations.length; i++) {
+
+                Arrays.fill(result, position, position + tens[i] * 10, operations[i]);
+                position += tens[i] * 10;
+            }
+
+            Collections.shuffle(Arrays.asList(result), new Random(ordinal()));
+            return result;
+        }
+    }
+}
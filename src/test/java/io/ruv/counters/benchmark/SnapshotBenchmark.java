@@ -0,0 +1,173 @@
+package io.ruv.counters.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.util.snapshot.SnapshotFormat;
+import io.ruv.counters.util.snapshot.SnapshotReader;
+import io.ruv.counters.util.snapshot.SnapshotWriter;
+import io.ruv.counters.web.converter.CounterLines;
+import io.ruv.counters.web.converter.JsonStreams;
+import io.ruv.counters.web.dto.CounterDto;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a million counters, sorted by name, as NDJSON export and as binary snapshot -
+ * scores are counters per second, secondary {@code bytes} result is encoded bytes produced or consumed per second,
+ * so encoded size of a counter is {@code bytes} divided by the score
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="SnapshotBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(SnapshotBenchmark.COUNTERS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class SnapshotBenchmark {
+
+    static final int COUNTERS = 1_000_000;
+
+    @Param
+    public Encoding encoding;
+
+    @Param
+    public Names names;
+
+    private List<CounterDto> counters;
+    private byte[] encoded;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 << 20);
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    public enum Encoding {
+
+        NDJSON, SNAPSHOT, DEFLATED_SNAPSHOT
+    }
+
+    public enum Names {
+
+        /**
+         * Random numbers, sharing little but their first digits
+         */
+        RANDOM,
+
+        /**
+         * Dotted paths of service, host, metric and status, as metrics are usually named
+         */
+        HIERARCHICAL
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        val random = new SplittableRandom(42);
+        val sorted = names == Names.RANDOM ? BenchmarkNames.of(COUNTERS) : hierarchicalNames(random);
+        Arrays.sort(sorted);
+
+        // mostly small values, with a few large and negative ones
+        counters = Arrays.stream(sorted)
+                .map(name -> {
+
+                    val dto = new CounterDto();
+                    dto.setName(name);
+                    dto.setValue(random.nextInt(100) == 0 ? random.nextLong() : random.nextInt(10_000));
+                    return dto;
+                })
+                .toList();
+
+        encode(new Size());
+        encoded = out.toByteArray();
+    }
+
+    /**
+     * Encoded bytes, reported along with the score
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Size {
+
+        public long bytes;
+    }
+
+    @Benchmark
+    public int encode(Size size) throws IOException {
+
+        out.reset();
+
+        if (encoding == Encoding.NDJSON) {
+
+            JsonStreams.counters(counters.stream(), JsonStreams.Format.NDJSON, false).writeTo(out);
+        } else {
+
+            val compression = encoding == Encoding.SNAPSHOT
+                    ? SnapshotFormat.Compression.NONE
+                    : SnapshotFormat.Compression.DEFLATE;
+
+            val writer = new SnapshotWriter(out, compression);
+            for (val counter : counters) {
+
+                writer.add(counter.getName(), counter.getValue());
+            }
+            writer.finish();
+        }
+
+        size.bytes += out.size();
+        return out.size();
+    }
+
+    @Benchmark
+    public long decode(Size size) throws IOException {
+
+        long sum = 0;
+
+        if (encoding == Encoding.NDJSON) {
+
+            val lines = new CounterLines(new ByteArrayInputStream(encoded), CounterLines.Format.NDJSON, mapper);
+            while (lines.hasNext()) {
+
+                sum += lines.next().getValue();
+            }
+        } else {
+
+            try (val reader = new SnapshotReader(new ByteArrayInputStream(encoded))) {
+
+                while (reader.next()) {
+
+                    sum += reader.getValue() + reader.getName().length();
+                }
+            }
+        }
+
+        size.bytes += encoded.length;
+        return sum;
+    }
+
+    private static String[] hierarchicalNames(SplittableRandom random) {
+
+        val services = new String[]{"api-gateway", "billing", "catalog", "checkout", "search", "users"};
+        val metrics = new String[]{"http.requests", "http.errors", "db.queries", "cache.hits", "cache.misses"};
+        val result = new String[COUNTERS];
+
+        for (int i = 0; i < COUNTERS; i++) {
+
+            result[i] = String.format("%s.host-%04d.%s.%s.%d",
+                    services[random.nextInt(services.length)],
+                    random.nextInt(2000),
+                    metrics[random.nextInt(metrics.length)],
+                    i % 3 == 0 ? "2xx" : "5xx",
+                    i);
+        }
+
+        return result;
+    }
+}
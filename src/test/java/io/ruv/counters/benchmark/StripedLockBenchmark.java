@@ -0,0 +1,113 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.util.striped.ResizingStriped;
+import io.ruv.counters.util.striped.StampedStriped;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link StampedStriped} optimistic reads against {@link ResizingStriped} read locks,
+ * with a share of writes per thousand operations over a set of keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class StripedLockBenchmark {
+
+    @Param
+    public Implementation implementation;
+
+    @Param({"0", "50"})
+    public int writesPerMille;
+
+    private Striped striped;
+    private String[] names;
+    private long[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        striped = implementation.create();
+        names = BenchmarkNames.of(1024);
+        values = new long[names.length];
+    }
+
+    @Benchmark
+    public long access() {
+
+        val random = ThreadLocalRandom.current();
+        val i = random.nextInt(names.length);
+        val name = names[i];
+
+        if (writesPerMille > 0 && random.nextInt(1000) < writesPerMille) {
+
+            return striped.writing(name, () -> ++values[i]);
+        } else {
+
+            return striped.reading(name, () -> values[i]);
+        }
+    }
+
+    public enum Implementation {
+
+        RESIZING {
+            @Override
+            Striped create() {
+
+                val striped = new ResizingStriped(() -> 0);
+
+                return new Striped() {
+                    @Override
+                    public <T> T reading(Object key, Supplier<T> action) {
+
+                        return striped.reading(key, action);
+                    }
+
+                    @Override
+                    public <T> T writing(Object key, Supplier<T> action) {
+
+                        return striped.writing(key, action);
+                    }
+                };
+            }
+        },
+
+        STAMPED {
+            @Override
+            Striped create() {
+
+                val striped = new StampedStriped(128);
+
+                return new Striped() {
+                    @Override
+                    public <T> T reading(Object key, Supplier<T> action) {
+
+                        return striped.optimisticReading(key, action);
+                    }
+
+                    @Override
+                    public <T> T writing(Object key, Supplier<T> action) {
+
+                        return striped.writing(key, action);
+                    }
+                };
+            }
+        };
+
+        abstract Striped create();
+    }
+
+    interface Striped {
+
+        <T> T reading(Object key, Supplier<T> action);
+
+        <T> T writing(Object key, Supplier<T> action);
+    }
+}
@@ -0,0 +1,111 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.concurrentmap.ConcurrentLongCountersRepository;
+import io.ruv.counters.repo.durable.Durability;
+import io.ruv.counters.repo.durable.DurableCountersRepository;
+import io.ruv.counters.repo.durable.WalSettings;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Increments of random names by concurrent threads, in memory only and through write-ahead log
+ * with every {@link Durability} - {@code MEMORY} is the undecorated repository, {@code FLUSH} logs dirty counters
+ * once a second with {@link Durability#SYNC}
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="WalBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(2)
+public class WalBenchmark {
+
+    private static final int NAMES = 10_000;
+
+    @Param({"MEMORY", "NONE", "ASYNC", "SYNC", "FLUSH"})
+    public String durability;
+
+    private String[] names;
+    private Path directory;
+    private CountersRepository repo;
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        private static final AtomicInteger SEEDS = new AtomicInteger();
+
+        private final CounterResult result = new CounterResult();
+        private int next = SEEDS.getAndIncrement() * 7919;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        names = BenchmarkNames.of(NAMES);
+        directory = Files.createTempDirectory("wal-benchmark");
+
+        val delegate = new ConcurrentLongCountersRepository();
+
+        if (durability.equals("MEMORY")) {
+
+            repo = delegate;
+        } else {
+
+            val settings = new WalSettings();
+            settings.setDirectory(directory);
+
+            if (durability.equals("FLUSH")) {
+
+                settings.setDurability(Durability.SYNC);
+                settings.setFlushInterval(Duration.ofSeconds(1));
+            } else {
+
+                settings.setDurability(Durability.valueOf(durability));
+            }
+
+            repo = DurableCountersRepository.open(delegate, settings);
+        }
+
+        for (val name : names) {
+
+            repo.create(name, 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+
+        if (repo instanceof AutoCloseable closeable) {
+
+            closeable.close();
+        }
+
+        try (val files = Files.walk(directory)) {
+
+            for (val file : files.sorted(Comparator.reverseOrder()).toList()) {
+
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public CounterResult add(Caller caller) {
+
+        caller.next = (caller.next + 1) % NAMES;
+        return repo.addByName(names[caller.next], 1, caller.result);
+    }
+}
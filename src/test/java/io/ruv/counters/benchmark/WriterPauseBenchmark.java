@@ -0,0 +1,59 @@
+package io.ruv.counters.benchmark;
+
+import io.ruv.counters.config.CountersConfig;
+import io.ruv.counters.config.RepositoryType;
+import io.ruv.counters.repo.CountersRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Increment latency distribution while {@linkplain CountersRepository#findAll()} copies run back to back
+ * Percentiles of {@code copying:increment} show how long writers are stalled by copies
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriterPauseBenchmark {
+
+    @Param
+    public RepositoryType repository;
+
+    @Param({"1000000"})
+    public int counters;
+
+    private CountersRepository repo;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        repo = CountersConfig.createRepository(repository);
+        names = BenchmarkNames.of(counters);
+
+        for (String name : names) {
+
+            repo.create(name, 0);
+        }
+    }
+
+    @Benchmark
+    @Group("copying")
+    @GroupThreads(1)
+    public long findAll() {
+
+        return repo.findAll().count();
+    }
+
+    @Benchmark
+    @Group("copying")
+    @GroupThreads(4)
+    public Object increment() {
+
+        return repo.incrementByName(names[ThreadLocalRandom.current().nextInt(names.length)]);
+    }
+}
@@ -0,0 +1,31 @@
+package io.ruv.counters.config;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+public class CountersConfigTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void mappedRepositoryWithWalIsRejected() {
+
+        val properties = new CountersProperties();
+        properties.setRepository(RepositoryType.MAPPED);
+        properties.getMapped().setDirectory(directory.resolve("mapped"));
+        properties.getWal().setEnabled(true);
+        properties.getWal().setDirectory(directory.resolve("wal"));
+
+        //act
+        Assertions.assertThatThrownBy(() -> new CountersConfig(properties).countersRepository())
+                .isInstanceOf(IllegalStateException.class);
+
+        Assertions.assertThat(directory.resolve("mapped")).doesNotExist();
+        Assertions.assertThat(directory.resolve("wal")).doesNotExist();
+    }
+}
@@ -0,0 +1,72 @@
+package io.ruv.counters.config;
+
+import io.ruv.counters.repo.durable.Durability;
+import io.ruv.counters.util.striped.ResizeSettings;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+public class CountersPropertiesTest {
+
+    @Test
+    public void resizeSettingsBindPerRepository() {
+
+        val source = new MapConfigurationPropertySource(Map.of(
+                "counters.repository", "striped-long",
+                "counters.resize.striped-long.policy", "load-factor",
+                "counters.resize.striped-long.interval", "500ms",
+                "counters.resize.striped-atomic.min-size", "256"));
+
+        //act
+        val properties = new Binder(source).bind("counters", CountersProperties.class).get();
+
+        val stripedLong = properties.getResize().get(RepositoryType.STRIPED_LONG);
+        Assertions.assertThat(stripedLong.getPolicy()).isEqualTo(ResizeSettings.Policy.LOAD_FACTOR);
+        Assertions.assertThat(stripedLong.getInterval()).isEqualTo(Duration.ofMillis(500));
+        Assertions.assertThat(stripedLong.getMinSize()).isEqualTo(128);
+        Assertions.assertThat(properties.getResize().get(RepositoryType.STRIPED_ATOMIC).getMinSize()).isEqualTo(256);
+        Assertions.assertThat(properties.getResize()).doesNotContainKey(RepositoryType.STRIPED_LONG_ARRAY);
+    }
+
+    @Test
+    public void walSettingsBind() {
+
+        val source = new MapConfigurationPropertySource(Map.of(
+                "counters.wal.enabled", "true",
+                "counters.wal.directory", "/var/lib/counters/wal",
+                "counters.wal.durability", "async",
+                "counters.wal.flush-interval", "1s"));
+
+        //act
+        val properties = new Binder(source).bind("counters", CountersProperties.class).get();
+
+        Assertions.assertThat(properties.getWal().isEnabled()).isTrue();
+        Assertions.assertThat(properties.getWal().getDirectory()).isEqualTo(Path.of("/var/lib/counters/wal"));
+        Assertions.assertThat(properties.getWal().getDurability()).isEqualTo(Durability.ASYNC);
+        Assertions.assertThat(properties.getWal().getMaxBatch()).isEqualTo(4096);
+        Assertions.assertThat(properties.getWal().getFlushInterval()).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void mappedSettingsBind() {
+
+        val source = new MapConfigurationPropertySource(Map.of(
+                "counters.repository", "mapped",
+                "counters.mapped.directory", "/var/lib/counters/mapped",
+                "counters.mapped.expected-counters", "10000000"));
+
+        //act
+        val properties = new Binder(source).bind("counters", CountersProperties.class).get();
+
+        Assertions.assertThat(properties.getRepository()).isEqualTo(RepositoryType.MAPPED);
+        Assertions.assertThat(properties.getMapped().getDirectory()).isEqualTo(Path.of("/var/lib/counters/mapped"));
+        Assertions.assertThat(properties.getMapped().getExpectedCounters()).isEqualTo(10_000_000);
+        Assertions.assertThat(properties.getMapped().getExpectedNameBytes()).isEqualTo(32);
+    }
+}
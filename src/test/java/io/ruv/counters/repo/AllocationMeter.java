@@ -0,0 +1,26 @@
+package io.ruv.counters.repo;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures heap bytes allocated by current thread
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * @return bytes allocated by specified action run on current thread
+     */
+    public static long allocatedBy(Runnable action) {
+
+        final long before = THREADS.getCurrentThreadAllocatedBytes();
+        action.run();
+
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+}
@@ -0,0 +1,537 @@
+package io.ruv.counters.repo;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Checks {@link CountersRepository} contracts through public api only
+ */
+public interface CountersRepositoryContractTest {
+
+    CountersRepository repository();
+
+    default String oneName() {
+
+        return "one-name";
+    }
+
+    default long oneValue() {
+
+        return 0;
+    }
+
+    default long anotherValue() {
+
+        return 10;
+    }
+
+    @Test
+    default void findByNameExistingReturnsCounter() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+
+        // act
+        val maybeCounter = repo.findByName(oneName());
+
+
+        Assertions.assertThat(maybeCounter).isNotEmpty();
+        val counter = maybeCounter.get();
+
+        Assertions.assertThat(counter.getName()).isEqualTo(oneName());
+        Assertions.assertThat(counter.getValue()).isEqualTo(oneValue());
+    }
+
+    @Test
+    default void findByNameNonExistingReturnsEmpty() {
+
+        val repo = repository();
+
+        // act
+        val maybeCounter = repo.findByName(oneName());
+
+
+        Assertions.assertThat(maybeCounter).isEmpty();
+    }
+
+    @Test
+    default void findAllNonEmptyReturnsCountersStream() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+
+        //act
+        val stream = repo.findAll();
+
+
+        Assertions.assertThat(stream).singleElement()
+                .extracting(Counter::getName, Counter::getValue)
+                .isEqualTo(List.of(oneName(), oneValue()));
+    }
+
+    @Test
+    default void findAllEmptyReturnsEmptyStream() {
+
+        val repo = repository();
+
+        //act
+        val stream = repo.findAll();
+
+
+        Assertions.assertThat(stream).isEmpty();
+    }
+
+    @Test
+    default void createNonExistingStoresRecordAndReturnsCounter() {
+
+        val repo = repository();
+
+        //act
+        val maybeCounter = repo.create(oneName(), oneValue());
+
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(oneValue());
+
+        Assertions.assertThat(maybeCounter).isNotEmpty();
+        val counter = maybeCounter.get();
+
+        Assertions.assertThat(counter.getName()).isEqualTo(oneName());
+        Assertions.assertThat(counter.getValue()).isEqualTo(oneValue());
+    }
+
+    @Test
+    default void createExistingDoesNotOverwriteAndReturnsEmpty() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+
+        //act
+        val maybeCounter = repo.create(oneName(), anotherValue());
+
+        Assertions.assertThat(repo.findAll()).hasSize(1);
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(oneValue());
+
+        Assertions.assertThat(maybeCounter).isEmpty();
+    }
+
+    @Test
+    default void incrementExistingModifiesRecordAndReturnsCounter() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+
+        //act
+        val maybeCounter = repo.incrementByName(oneName());
+
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(oneValue() + 1);
+
+        Assertions.assertThat(maybeCounter).isNotEmpty();
+        val counter = maybeCounter.get();
+
+        Assertions.assertThat(counter.getName()).isEqualTo(oneName());
+        Assertions.assertThat(counter.getValue()).isEqualTo(oneValue() + 1);
+    }
+
+    @Test
+    default void incrementNonExistingReturnsEmpty() {
+
+        val repo = repository();
+
+        //act
+        val maybeCounter = repo.incrementByName(oneName());
+
+        Assertions.assertThat(maybeCounter).isEmpty();
+    }
+
+    @Test
+    default void incrementOverflowingThrowsException() {
+
+        val repo = repository();
+        repo.create(oneName(), Long.MAX_VALUE);
+
+        //act
+        Assertions.assertThatThrownBy(() -> repo.incrementByName(oneName()))
+                .isInstanceOf(ArithmeticException.class);
+
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(Long.MAX_VALUE);
+    }
+
+    @Test
+    default void deleteExistingRemovesRecordReturnsCounter() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+
+        //act
+        val maybeCounter = repo.deleteByName(oneName());
+
+        Assertions.assertThat(repo.findByName(oneName())).isEmpty();
+
+        Assertions.assertThat(maybeCounter).isNotEmpty();
+        val counter = maybeCounter.get();
+
+        Assertions.assertThat(counter.getName()).isEqualTo(oneName());
+        Assertions.assertThat(counter.getValue()).isEqualTo(oneValue());
+    }
+
+    @Test
+    default void deleteNonExistingReturnsEmpty() {
+
+        val repo = repository();
+
+        //act
+        val maybeCounter = repo.deleteByName(oneName());
+
+        Assertions.assertThat(maybeCounter).isEmpty();
+    }
+
+    @Test
+    default void deleteAndCreateAgainStoresNewRecord() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+        repo.deleteByName(oneName());
+
+        //act
+        val maybeCounter = repo.create(oneName(), anotherValue());
+
+        Assertions.assertThat(maybeCounter).map(Counter::getValue).contains(anotherValue());
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(anotherValue());
+    }
+
+    @Test
+    default void findAllDuringModificationsReturnsConsistentCopy() throws InterruptedException {
+
+        val repo = repository();
+        val leading = oneName() + "-leading";
+        val trailing = oneName() + "-trailing";
+        repo.create(leading, 0);
+        repo.create(trailing, 0);
+
+        // leading counter is always incremented first - a consistent copy never shows trailing one ahead
+        val writer = new Thread(() -> {
+
+            for (int i = 0; i < 100_000; i++) {
+
+                repo.incrementByName(leading);
+                repo.incrementByName(trailing);
+            }
+        });
+        writer.start();
+
+        //act
+        while (writer.isAlive()) {
+
+            val copy = repo.findAll().collect(Collectors.toMap(Counter::getName, Counter::getValue));
+
+            Assertions.assertThat(copy.get(leading) - copy.get(trailing)).isBetween(0L, 1L);
+        }
+
+        writer.join();
+    }
+
+    @Test
+    default void valuesSumFollowsModifications() {
+
+        val repo = repository();
+        repo.create(oneName(), Long.MAX_VALUE - 1);
+        repo.create(oneName() + "-another", Long.MAX_VALUE);
+        repo.create(oneName() + "-negative", Long.MIN_VALUE);
+        repo.incrementByName(oneName());
+        repo.deleteByName(oneName() + "-negative");
+
+        //act
+        val sum = repo.valuesSum();
+
+        Assertions.assertThat(sum).isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TWO));
+    }
+
+    @Test
+    default void addExistingModifiesRecordAndReturnsCounter() {
+
+        val repo = repository();
+        repo.create(oneName(), 10);
+
+        //act
+        val added = repo.addByName(oneName(), 500);
+        val subtracted = repo.addByName(oneName(), -20);
+
+        Assertions.assertThat(added).map(Counter::getValue).contains(510L);
+        Assertions.assertThat(subtracted).map(Counter::getName).contains(oneName());
+        Assertions.assertThat(subtracted).map(Counter::getValue).contains(490L);
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(490L);
+        Assertions.assertThat(repo.valuesSum()).isEqualTo(BigInteger.valueOf(490));
+    }
+
+    @Test
+    default void addNonExistingReturnsEmpty() {
+
+        val repo = repository();
+
+        //act
+        val maybeCounter = repo.addByName(oneName(), 500);
+
+        Assertions.assertThat(maybeCounter).isEmpty();
+        Assertions.assertThat(repo.findByName(oneName())).isEmpty();
+    }
+
+    @Test
+    default void addOverflowingThrowsException() {
+
+        val repo = repository();
+        repo.create(oneName(), Long.MAX_VALUE - 1);
+        repo.create(oneName() + "-min", Long.MIN_VALUE + 1);
+
+        //act
+        Assertions.assertThatThrownBy(() -> repo.addByName(oneName(), 2))
+                .isInstanceOf(ArithmeticException.class);
+        Assertions.assertThatThrownBy(() -> repo.addByName(oneName() + "-min", -2))
+                .isInstanceOf(ArithmeticException.class);
+
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(Long.MAX_VALUE - 1);
+        Assertions.assertThat(repo.findByName(oneName() + "-min")).map(Counter::getValue).contains(Long.MIN_VALUE + 1);
+        Assertions.assertThat(repo.valuesSum()).isEqualTo(BigInteger.valueOf((Long.MAX_VALUE - 1) + (Long.MIN_VALUE + 1)));
+    }
+
+    @Test
+    default void incrementAllReportsEveryCounter() {
+
+        val repo = repository();
+        repo.create(oneName(), 10);
+        repo.create(oneName() + "-max", Long.MAX_VALUE);
+
+        //act
+        val results = repo.incrementAll(Map.of(
+                oneName(), 5L,
+                oneName() + "-max", 1L,
+                oneName() + "-missing", 1L));
+
+        Assertions.assertThat(results).hasSize(3);
+        Assertions.assertThat(results.get(oneName()))
+                .extracting(IncrementResult::getStatus, IncrementResult::getValue)
+                .containsExactly(IncrementResult.Status.UPDATED, 15L);
+        Assertions.assertThat(results.get(oneName() + "-max"))
+                .extracting(IncrementResult::getStatus).isEqualTo(IncrementResult.Status.OVERFLOW);
+        Assertions.assertThat(results.get(oneName() + "-missing"))
+                .extracting(IncrementResult::getStatus).isEqualTo(IncrementResult.Status.NOT_FOUND);
+
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains(15L);
+        Assertions.assertThat(repo.findByName(oneName() + "-max")).map(Counter::getValue).contains(Long.MAX_VALUE);
+        Assertions.assertThat(repo.findByName(oneName() + "-missing")).isEmpty();
+        Assertions.assertThat(repo.valuesSum()).isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.valueOf(15)));
+    }
+
+    @Test
+    default void concurrentIncrementAllInDifferentOrderIsNotLost() throws InterruptedException {
+
+        val repo = repository();
+        val forward = new LinkedHashMap<String, Long>();
+        val backward = new LinkedHashMap<String, Long>();
+
+        for (int i = 0; i < 64; i++) {
+
+            repo.create(oneName() + "-" + i, 0);
+            forward.put(oneName() + "-" + i, 1L);
+            backward.put(oneName() + "-" + (63 - i), 1L);
+        }
+
+        val threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+
+            val batch = t % 2 == 0 ? forward : backward;
+            threads.add(new Thread(() -> {
+
+                for (int i = 0; i < 1000; i++) {
+
+                    repo.incrementAll(batch);
+                }
+            }));
+        }
+
+        //act
+        threads.forEach(Thread::start);
+        for (val thread : threads) {
+
+            thread.join();
+        }
+
+        Assertions.assertThat(repo.findAll()).hasSize(64).allSatisfy(counter ->
+                Assertions.assertThat(counter.getValue()).isEqualTo(4000L));
+    }
+
+    @Test
+    default void findNamesReturnsSortedPagesAfterCursor() {
+
+        val repo = repository();
+        repo.create(oneName() + "-c", oneValue());
+        repo.create(oneName() + "-a", oneValue());
+        repo.create(oneName() + "-d", oneValue());
+        repo.create(oneName() + "-b", oneValue());
+        repo.deleteByName(oneName() + "-d");
+
+        //act
+        val first = repo.findNames(null, 2);
+        val second = repo.findNames(first.get(1), 2);
+
+        Assertions.assertThat(first).containsExactly(oneName() + "-a", oneName() + "-b");
+        Assertions.assertThat(second).containsExactly(oneName() + "-c");
+    }
+
+    @Test
+    default void findNamesFollowsModificationsAfterFirstCall() {
+
+        val repo = repository();
+        repo.create(oneName() + "-a", oneValue());
+        repo.findNames(null, 10);
+
+        //act
+        repo.create(oneName() + "-b", oneValue());
+        repo.deleteByName(oneName() + "-a");
+
+        Assertions.assertThat(repo.findNames(null, 10)).containsExactly(oneName() + "-b");
+    }
+
+    @Test
+    default void findNamesDuringCreationsMissesNoName() throws InterruptedException {
+
+        val repo = repository();
+        val count = 20_000;
+
+        val writer = new Thread(() -> {
+
+            for (int i = 0; i < count; i++) {
+
+                repo.create(oneName() + "-" + i, oneValue());
+            }
+        });
+        writer.start();
+
+        //act
+        repo.findNames(null, 1);
+        writer.join();
+
+        Assertions.assertThat(repo.findNames(null, count + 1)).hasSize(count);
+    }
+
+    @Test
+    default void createAllCreatesMissingAndSkipsTakenNames() {
+
+        val repo = repository();
+        repo.create(oneName(), oneValue());
+
+        val count = 5000;
+        val names = new String[count + 2];
+        val values = new long[count + 2];
+        for (int i = 0; i < count; i++) {
+
+            names[i] = oneName() + "-" + i;
+            values[i] = i;
+        }
+        names[count] = oneName();
+        names[count + 1] = oneName() + "-0";
+
+        //act
+        val created = repo.createAll(names, values, count + 2);
+
+        Assertions.assertThat(created).isEqualTo(count);
+        Assertions.assertThat(repo.findByName(oneName())).map(Counter::getValue).contains((long) oneValue());
+        Assertions.assertThat(repo.findByName(oneName() + "-4999")).map(Counter::getValue).contains(4999L);
+        Assertions.assertThat(repo.findNames(null, count + 10)).hasSize(count + 1);
+        Assertions.assertThat(repo.valuesSum())
+                .isEqualTo(BigInteger.valueOf((long) count * (count - 1) / 2 + oneValue()));
+    }
+
+    @Test
+    default void streamNamesWalksEveryPageAfterCursor() {
+
+        val repo = repository();
+        val count = NamePages.PAGE_SIZE * 2 + 1;
+        for (int i = count - 1; i >= 0; i--) {
+
+            repo.create(oneName() + String.format("-%05d", i), oneValue());
+        }
+
+        //act
+        val all = repo.streamNames(null).toList();
+        val tail = repo.streamNames(oneName() + String.format("-%05d", count - 3)).toList();
+
+        Assertions.assertThat(all).hasSize(count).isSorted().doesNotHaveDuplicates();
+        Assertions.assertThat(tail).containsExactly(oneName() + String.format("-%05d", count - 2),
+                oneName() + String.format("-%05d", count - 1));
+    }
+
+    /**
+     * Bytes a single primitive update may allocate, for implementations storing boxed values
+     */
+    default long allowedBytesPerAdd() {
+
+        return 0;
+    }
+
+    @Test
+    default void primitiveApiReportsStatusesIntoGivenResult() {
+
+        val repo = repository();
+        val result = new CounterResult();
+
+        //act
+        Assertions.assertThat(repo.create(oneName(), 1000, result)).isSameAs(result);
+        Assertions.assertThat(result).extracting(CounterResult::getStatus, CounterResult::getValue)
+                .containsExactly(CounterResult.Status.OK, 1000L);
+
+        repo.create(oneName(), 1, result);
+        Assertions.assertThat(result.getStatus()).isEqualTo(CounterResult.Status.DUPLICATE);
+
+        repo.addByName(oneName(), 5, result);
+        Assertions.assertThat(result).extracting(CounterResult::getStatus, CounterResult::getValue)
+                .containsExactly(CounterResult.Status.OK, 1005L);
+
+        repo.addByName(oneName(), Long.MAX_VALUE, result);
+        Assertions.assertThat(result.getStatus()).isEqualTo(CounterResult.Status.OVERFLOW);
+
+        repo.findByName(oneName() + "-missing", result);
+        Assertions.assertThat(result.getStatus()).isEqualTo(CounterResult.Status.NOT_FOUND);
+
+        repo.deleteByName(oneName(), result);
+        Assertions.assertThat(result).extracting(CounterResult::getStatus, CounterResult::getValue)
+                .containsExactly(CounterResult.Status.OK, 1005L);
+        Assertions.assertThat(repo.findByName(oneName())).isEmpty();
+    }
+
+    @Test
+    default void primitiveFindAndAddDoNotAllocate() {
+
+        val repo = repository();
+        val result = new CounterResult();
+        val name = oneName();
+        val operations = 100_000;
+
+        // start outside of small values cached by Long.valueOf
+        repo.create(name, 1000, result);
+
+        Runnable workload = () -> {
+
+            for (int i = 0; i < operations; i++) {
+
+                repo.findByName(name, result);
+                repo.addByName(name, 1, result);
+            }
+        };
+
+        workload.run();
+
+        //act
+        val allocated = AllocationMeter.allocatedBy(workload);
+
+        // slack covers allocations of measurement itself and occasional runtime bookkeeping
+        Assertions.assertThat(allocated).isLessThan(allowedBytesPerAdd() * operations + 64 * 1024);
+        Assertions.assertThat(repo.findByName(name)).map(Counter::getValue).contains(1000L + 2 * operations);
+    }
+}
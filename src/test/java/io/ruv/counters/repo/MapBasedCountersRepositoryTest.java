@@ -8,10 +8,11 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 import java.util.Map;
 
-
-public interface MapBasedCountersRepositoryTest<T> {
-
-    CountersRepository repository();
+/**
+ * Checks {@link CountersRepository} contracts of implementations exposing their storage as a {@link Map} -
+ * tests touching a single counter put it into the storage and inspect the storage directly
+ */
+public interface MapBasedCountersRepositoryTest<T> extends CountersRepositoryContractTest {
 
     Map<String, T> internalStorage();
 
@@ -23,16 +24,11 @@ public interface MapBasedCountersRepositoryTest<T> {
 
     long valueExtractor(T container);
 
-    default String oneName() {
-
-        return "one-name";
-    }
+    T oneContainer();
 
-    T oneValue();
+    T anotherContainer();
 
-    T anotherValue();
-
-    T overflowingValue();
+    T overflowingContainer();
 
     @Test
     default void findByNameExistingReturnsCounter() {
@@ -41,7 +37,7 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = oneValue();
+        val value = oneContainer();
 
         storage.put(name, value);
 
@@ -56,18 +52,6 @@ public interface MapBasedCountersRepositoryTest<T> {
         Assertions.assertThat(counter.getValue()).isEqualTo(valueExtractor(value));
     }
 
-    @Test
-    default void findByNameNonExistingReturnsEmpty() {
-
-        val repo = repository();
-
-        // act
-        val maybeCounter = repo.findByName(oneName());
-
-
-        Assertions.assertThat(maybeCounter).isEmpty();
-    }
-
     @Test
     default void findAllNonEmptyReturnsCountersStream() {
 
@@ -75,7 +59,7 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = oneValue();
+        val value = oneContainer();
 
         storage.put(name, value);
 
@@ -88,18 +72,6 @@ public interface MapBasedCountersRepositoryTest<T> {
                 .isEqualTo(List.of(name, valueExtractor(value)));
     }
 
-    @Test
-    default void findAllEmptyReturnsEmptyStream() {
-
-        val repo = repository();
-
-        //act
-        val stream = repo.findAll();
-
-
-        Assertions.assertThat(stream).isEmpty();
-    }
-
     @Test
     default void createNonExistingStoresRecordAndReturnsCounter() {
 
@@ -107,7 +79,7 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = oneValue();
+        val value = oneContainer();
 
         //act
         val maybeCounter = repo.create(name, valueExtractor(value));
@@ -129,8 +101,8 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = oneValue();
-        val anotherValue = anotherValue();
+        val value = oneContainer();
+        val anotherValue = anotherContainer();
 
         storage.put(name, value);
 
@@ -150,7 +122,7 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = oneValue();
+        val value = oneContainer();
         val expectedValue = valueExtractor(value) + 1;
 
         storage.put(name, value);
@@ -168,19 +140,6 @@ public interface MapBasedCountersRepositoryTest<T> {
         Assertions.assertThat(counter.getValue()).isEqualTo(expectedValue);
     }
 
-    @Test
-    default void incrementNonExistingReturnsEmpty() {
-
-        val repo = repository();
-
-        val name = oneName();
-
-        //act
-        val maybeCounter = repo.incrementByName(name);
-
-        Assertions.assertThat(maybeCounter).isEmpty();
-    }
-
     @Test
     default void incrementOverflowingThrowsException() {
 
@@ -188,7 +147,7 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = overflowingValue();
+        val value = overflowingContainer();
 
         storage.put(name, value);
 
@@ -204,7 +163,7 @@ public interface MapBasedCountersRepositoryTest<T> {
         val storage = internalStorage();
 
         val name = oneName();
-        val value = oneValue();
+        val value = oneContainer();
 
         storage.put(name, value);
 
@@ -219,17 +178,4 @@ public interface MapBasedCountersRepositoryTest<T> {
         Assertions.assertThat(counter.getName()).isEqualTo(name);
         Assertions.assertThat(counter.getValue()).isEqualTo(valueExtractor(value));
     }
-
-    @Test
-    default void deleteNonExistingReturnsEmpty() {
-
-        val repo = repository();
-
-        val name = oneName();
-
-        //act
-        val maybeCounter = repo.deleteByName(name);
-
-        Assertions.assertThat(maybeCounter).isEmpty();
-    }
 }
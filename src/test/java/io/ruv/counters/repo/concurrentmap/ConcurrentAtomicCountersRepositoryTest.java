@@ -32,19 +32,19 @@ public class ConcurrentAtomicCountersRepositoryTest implements MapBasedCountersR
     }
 
     @Override
-    public AtomicLong oneValue() {
+    public AtomicLong oneContainer() {
 
         return new AtomicLong(0);
     }
 
     @Override
-    public AtomicLong anotherValue() {
+    public AtomicLong anotherContainer() {
 
         return new AtomicLong(10);
     }
 
     @Override
-    public AtomicLong overflowingValue() {
+    public AtomicLong overflowingContainer() {
 
         return new AtomicLong(Long.MAX_VALUE);
     }
@@ -0,0 +1,62 @@
+package io.ruv.counters.repo.concurrentmap;
+
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.MapBasedCountersRepositoryTest;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentAtomicPaddedCountersRepositoryTest implements MapBasedCountersRepositoryTest<AtomicLong> {
+
+    private final ConcurrentAtomicCountersRepository repository = new ConcurrentAtomicCountersRepository(CellLayout.PADDED);
+
+
+    @Override
+    public CountersRepository repository() {
+
+        return repository;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, AtomicLong> internalStorage() {
+
+        return (Map<String, AtomicLong>) ReflectionTestUtils.getField(repository, "storage");
+    }
+
+    @Override
+    public long valueExtractor(AtomicLong container) {
+
+        return container.get();
+    }
+
+    @Override
+    public AtomicLong oneContainer() {
+
+        return CellLayout.PADDED.newAtomicCell(0);
+    }
+
+    @Override
+    public AtomicLong anotherContainer() {
+
+        return CellLayout.PADDED.newAtomicCell(10);
+    }
+
+    @Override
+    public AtomicLong overflowingContainer() {
+
+        return CellLayout.PADDED.newAtomicCell(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void createAllocatesPaddedCell() {
+
+        //act
+        repository.create(oneName(), 7);
+
+        Assertions.assertThat(internalStorage().get(oneName())).isInstanceOf(PaddedAtomicLong.class).hasValue(7);
+    }
+}
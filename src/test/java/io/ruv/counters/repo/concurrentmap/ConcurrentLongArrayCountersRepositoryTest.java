@@ -30,19 +30,19 @@ public class ConcurrentLongArrayCountersRepositoryTest implements MapBasedCounte
     }
 
     @Override
-    public long[] oneValue() {
+    public long[] oneContainer() {
 
         return new long[]{0};
     }
 
     @Override
-    public long[] anotherValue() {
+    public long[] anotherContainer() {
 
         return new long[]{10};
     }
 
     @Override
-    public long[] overflowingValue() {
+    public long[] overflowingContainer() {
 
         return new long[]{Long.MAX_VALUE};
     }
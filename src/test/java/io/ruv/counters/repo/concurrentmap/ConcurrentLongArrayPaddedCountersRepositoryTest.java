@@ -0,0 +1,63 @@
+package io.ruv.counters.repo.concurrentmap;
+
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.MapBasedCountersRepositoryTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+public class ConcurrentLongArrayPaddedCountersRepositoryTest implements MapBasedCountersRepositoryTest<long[]> {
+
+    private final ConcurrentLongArrayCountersRepository repository = new ConcurrentLongArrayCountersRepository(CellLayout.PADDED);
+
+    @Override
+    public CountersRepository repository() {
+
+        return repository;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, long[]> internalStorage() {
+
+        return (Map<String, long[]>) ReflectionTestUtils.getField(repository, "storage");
+    }
+
+    @Override
+    public long valueExtractor(long[] container) {
+
+        return container[0];
+    }
+
+    @Override
+    public long[] oneContainer() {
+
+        return CellLayout.PADDED.newArrayCell(0);
+    }
+
+    @Override
+    public long[] anotherContainer() {
+
+        return CellLayout.PADDED.newArrayCell(10);
+    }
+
+    @Override
+    public long[] overflowingContainer() {
+
+        return CellLayout.PADDED.newArrayCell(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void createAllocatesPaddedCell() {
+
+        //act
+        repository.create(oneName(), 7);
+
+        val cell = internalStorage().get(oneName());
+        Assertions.assertThat(cell[0]).isEqualTo(7);
+        Assertions.assertThat((long) cell.length * Long.BYTES).isGreaterThan(128);
+    }
+}
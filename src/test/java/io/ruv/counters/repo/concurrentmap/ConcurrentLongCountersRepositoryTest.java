@@ -1,15 +1,31 @@
 package io.ruv.counters.repo.concurrentmap;
 
+import io.ruv.counters.repo.Counter;
 import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.IncrementResult;
 import io.ruv.counters.repo.MapBasedCountersRepositoryTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigInteger;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 public class ConcurrentLongCountersRepositoryTest implements MapBasedCountersRepositoryTest<Long> {
 
     private final ConcurrentLongCountersRepository repository = new ConcurrentLongCountersRepository();
 
+    @AfterEach
+    public void closeRepository() {
+
+        repository.close();
+    }
+
     @Override
     public CountersRepository repository() {
 
@@ -30,20 +46,156 @@ public class ConcurrentLongCountersRepositoryTest implements MapBasedCountersRep
     }
 
     @Override
-    public Long oneValue() {
+    public Long oneContainer() {
 
         return 0L;
     }
 
     @Override
-    public Long anotherValue() {
+    public Long anotherContainer() {
 
         return 10L;
     }
 
     @Override
-    public Long overflowingValue() {
+    public Long overflowingContainer() {
 
         return Long.MAX_VALUE;
     }
+
+    /**
+     * {@inheritDoc}
+     * Updated value is stored boxed
+     */
+    @Override
+    public long allowedBytesPerAdd() {
+
+        return 24;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, HotCounter> hotCounters() {
+
+        return (Map<String, HotCounter>) ReflectionTestUtils.getField(repository, "hot");
+    }
+
+    private void promote(String name) {
+
+        hotCounters().put(name, new HotCounter());
+    }
+
+    @Test
+    public void relaxedIncrementsOfPromotedCounterAreNotLost() {
+
+        repository.create(oneName(), 0);
+        promote(oneName());
+
+        //act
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+
+            if (i % 10 == 0) {
+
+                repository.incrementByName(oneName());
+            } else {
+
+                repository.incrementByNameRelaxed(oneName());
+            }
+        });
+
+        Assertions.assertThat(repository.findByName(oneName())).map(Counter::getValue).contains(100_000L);
+        Assertions.assertThat(repository.findAll()).singleElement().extracting(Counter::getValue).isEqualTo(100_000L);
+        Assertions.assertThat(repository.valuesSum()).isEqualTo(BigInteger.valueOf(100_000));
+    }
+
+    @Test
+    public void exactIncrementsOfPromotedCounterReturnDistinctValues() {
+
+        repository.create(oneName(), 0);
+        promote(oneName());
+
+        //act
+        val values = IntStream.range(0, 10_000).parallel()
+                .mapToObj(i -> {
+
+                    repository.incrementByNameRelaxed(oneName());
+                    return repository.incrementByName(oneName()).orElseThrow().getValue();
+                })
+                .distinct()
+                .count();
+
+        Assertions.assertThat(values).isEqualTo(10_000);
+        Assertions.assertThat(repository.findByName(oneName())).map(Counter::getValue).contains(20_000L);
+    }
+
+    @Test
+    public void deletePromotedCounterRemovesCells() {
+
+        repository.create(oneName(), 10);
+        promote(oneName());
+        repository.incrementByNameRelaxed(oneName());
+
+        //act
+        val deleted = repository.deleteByName(oneName());
+
+        Assertions.assertThat(deleted).map(Counter::getValue).contains(11L);
+        Assertions.assertThat(hotCounters()).isEmpty();
+        Assertions.assertThat(repository.incrementByNameRelaxed(oneName())).isFalse();
+        Assertions.assertThat(repository.findByName(oneName())).isEmpty();
+        Assertions.assertThat(repository.valuesSum()).isEqualTo(BigInteger.ZERO);
+    }
+
+    @Test
+    public void coolDownDemotesIdleCounter() {
+
+        repository.create(oneName(), 10);
+        promote(oneName());
+        repository.incrementByNameRelaxed(oneName());
+
+        //act
+        repository.coolDown();
+
+        Assertions.assertThat(hotCounters()).isEmpty();
+        Assertions.assertThat(internalStorage()).containsEntry(oneName(), 11L);
+    }
+
+    @Test
+    public void closeStopsDemotionDaemon() throws InterruptedException {
+
+        val daemon = (ExecutorService) ReflectionTestUtils.getField(repository, "daemon");
+
+        //act
+        repository.close();
+
+        Assertions.assertThat(daemon.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(repository.create(oneName(), 1)).isPresent();
+    }
+
+    @Test
+    public void incrementAllDrainsPromotedCounter() {
+
+        repository.create(oneName(), 10);
+        promote(oneName());
+        repository.incrementByNameRelaxed(oneName());
+
+        //act
+        val results = repository.incrementAll(Map.of(oneName(), 100L));
+
+        Assertions.assertThat(results.get(oneName()))
+                .extracting(IncrementResult::getStatus, IncrementResult::getValue)
+                .containsExactly(IncrementResult.Status.UPDATED, 111L);
+        Assertions.assertThat(repository.findByName(oneName())).map(Counter::getValue).contains(111L);
+        Assertions.assertThat(repository.valuesSum()).isEqualTo(BigInteger.valueOf(111));
+    }
+
+    @Test
+    public void relaxedIncrementOverflowingThrowsException() {
+
+        repository.create(oneName(), Long.MAX_VALUE);
+
+        //act
+        Assertions.assertThatThrownBy(() -> repository.incrementByNameRelaxed(oneName()))
+                .isInstanceOf(ArithmeticException.class);
+
+        Assertions.assertThat(repository.findByName(oneName())).map(Counter::getValue).contains(Long.MAX_VALUE);
+    }
 }
@@ -0,0 +1,256 @@
+package io.ruv.counters.repo.durable;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import io.ruv.counters.repo.concurrentmap.ConcurrentLongCountersRepository;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class DurableCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<DurableCountersRepository> opened = new ArrayList<>();
+
+    private DurableCountersRepository repository;
+
+    private DurableCountersRepository open(Durability durability) throws IOException {
+
+        val settings = new WalSettings();
+        settings.setDirectory(directory);
+        settings.setDurability(durability);
+        settings.setCheckpointInterval(Duration.ZERO);
+
+        val opened = DurableCountersRepository.open(new ConcurrentLongCountersRepository(), settings);
+        this.opened.add(opened);
+
+        return opened;
+    }
+
+    @Override
+    public CountersRepository repository() {
+
+        if (repository == null) {
+
+            try {
+
+                // records are not forced, contract does not depend on it
+                repository = open(Durability.NONE);
+            } catch (IOException e) {
+
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return repository;
+    }
+
+    /**
+     * Log record queued per update, on top of boxed value of decorated repository
+     */
+    @Override
+    public long allowedBytesPerAdd() {
+
+        return 128;
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+
+        for (val repository : opened) {
+
+            repository.close();
+        }
+    }
+
+    @Test
+    public void reopenedRepositoryReplaysModifications() throws IOException {
+
+        val repository = open(Durability.SYNC);
+        repository.create(oneName(), 1);
+        repository.create(oneName() + "-max", Long.MAX_VALUE);
+        repository.create(oneName() + "-deleted", 5);
+        repository.addByName(oneName(), 41);
+        repository.incrementByNameRelaxed(oneName());
+        repository.incrementAll(Map.of(oneName(), 100L, oneName() + "-max", 1L));
+        repository.deleteByName(oneName() + "-deleted");
+        repository.close();
+
+        //act
+        val reopened = open(Durability.SYNC);
+
+        Assertions.assertThat(reopened.findByName(oneName())).map(Counter::getValue).contains(143L);
+        Assertions.assertThat(reopened.findByName(oneName() + "-max")).map(Counter::getValue).contains(Long.MAX_VALUE);
+        Assertions.assertThat(reopened.findByName(oneName() + "-deleted")).isEmpty();
+        Assertions.assertThat(reopened.valuesSum())
+                .isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.valueOf(143)));
+    }
+
+    @Test
+    public void replayKeepsAppending() throws IOException {
+
+        val first = open(Durability.ASYNC);
+        first.create(oneName(), 1);
+        first.close();
+
+        val second = open(Durability.ASYNC);
+        second.addByName(oneName(), 1);
+        second.create(oneName() + "-2", Long.MIN_VALUE);
+        second.close();
+
+        //act
+        val third = open(Durability.ASYNC);
+
+        Assertions.assertThat(third.findByName(oneName())).map(Counter::getValue).contains(2L);
+        Assertions.assertThat(third.findByName(oneName() + "-2")).map(Counter::getValue).contains(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void recoveryLoadsCheckpointAndReplaysTail() throws IOException {
+
+        val repository = open(Durability.SYNC);
+        repository.create(oneName(), 1);
+        repository.create(oneName() + "-deleted", 2);
+
+        //act
+        val written = repository.checkpoint();
+
+        repository.addByName(oneName(), 10);
+        repository.deleteByName(oneName() + "-deleted");
+        repository.create(oneName() + "-new", 3);
+        repository.close();
+
+        val reopened = open(Durability.SYNC);
+
+        Assertions.assertThat(written).isEqualTo(2);
+        Assertions.assertThat(reopened.findByName(oneName())).map(Counter::getValue).contains(11L);
+        Assertions.assertThat(reopened.findByName(oneName() + "-deleted")).isEmpty();
+        Assertions.assertThat(reopened.findByName(oneName() + "-new")).map(Counter::getValue).contains(3L);
+    }
+
+    @Test
+    public void checkpointTruncatesLog() throws IOException {
+
+        val repository = open(Durability.SYNC);
+        repository.create(oneName(), 1);
+        repository.checkpoint();
+        repository.addByName(oneName(), 1);
+
+        //act
+        repository.checkpoint();
+
+        try (val files = Files.list(directory)) {
+
+            Assertions.assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder(
+                            "snapshot-00000000000000000003.snap",
+                            "wal-00000000000000000003.log");
+        }
+        Assertions.assertThat(repository.checkpoint()).isEqualTo(-1);
+    }
+
+    @Test
+    public void segmentsCoveredBySnapshotAreNotReplayed() throws IOException {
+
+        val repository = open(Durability.SYNC);
+        repository.create(oneName(), 1);
+        val stale = directory.resolve("stale.log");
+        Files.copy(directory.resolve("wal-00000000000000000001.log"), stale);
+
+        repository.addByName(oneName(), 1);
+        repository.checkpoint();
+        repository.close();
+
+        // interrupted checkpoint - segment left behind, snapshot not renamed yet
+        Files.move(stale, directory.resolve("wal-00000000000000000001.log"));
+        Files.writeString(directory.resolve("snapshot-00000000000000000005.snap.tmp"), "partial");
+
+        //act
+        val reopened = open(Durability.SYNC);
+
+        Assertions.assertThat(reopened.findByName(oneName())).map(Counter::getValue).contains(2L);
+        try (val files = Files.list(directory)) {
+
+            Assertions.assertThat(files).hasSize(2);
+        }
+    }
+
+    @Test
+    public void concurrentSyncUpdatesShareForces() throws Exception {
+
+        val repository = open(Durability.SYNC);
+        repository.create(oneName(), 0);
+
+        val threads = 8;
+        val updates = 200;
+        val start = new CountDownLatch(1);
+        val workers = new ArrayList<Thread>();
+
+        for (int t = 0; t < threads; t++) {
+
+            val worker = new Thread(() -> {
+
+                try {
+
+                    start.await();
+                } catch (InterruptedException e) {
+
+                    return;
+                }
+
+                for (int i = 0; i < updates; i++) {
+
+                    repository.addByName(oneName(), 1);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        //act
+        start.countDown();
+        for (val worker : workers) {
+
+            worker.join();
+        }
+
+        val log = repository.getWal();
+        Assertions.assertThat(log.getRecords()).isEqualTo(threads * updates + 1);
+        Assertions.assertThat(log.getBatches()).isLessThan(log.getRecords());
+
+        repository.close();
+        Assertions.assertThat(open(Durability.SYNC).findByName(oneName()))
+                .map(Counter::getValue).contains((long) threads * updates);
+    }
+
+    @Test
+    public void closeClosesDecoratedRepository() throws IOException, InterruptedException {
+
+        val repository = open(Durability.SYNC);
+        val delegate = ReflectionTestUtils.getField(repository, "delegate");
+        val daemon = (ExecutorService) ReflectionTestUtils.getField(delegate, "daemon");
+
+        //act
+        repository.close();
+
+        Assertions.assertThat(daemon.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,184 @@
+package io.ruv.counters.repo.durable;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import io.ruv.counters.repo.concurrentmap.ConcurrentLongCountersRepository;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class FlushingDurableCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<DurableCountersRepository> opened = new ArrayList<>();
+
+    private DurableCountersRepository repository;
+
+    private DurableCountersRepository open(Duration flushInterval) throws IOException {
+
+        val settings = new WalSettings();
+        settings.setDirectory(directory);
+        settings.setDurability(Durability.SYNC);
+        settings.setCheckpointInterval(Duration.ZERO);
+        settings.setFlushInterval(flushInterval);
+
+        val opened = DurableCountersRepository.open(new ConcurrentLongCountersRepository(), settings);
+        this.opened.add(opened);
+
+        return opened;
+    }
+
+    /**
+     * Repository flushed only when asked to
+     */
+    private DurableCountersRepository open() throws IOException {
+
+        return open(Duration.ofDays(1));
+    }
+
+    @Override
+    public CountersRepository repository() {
+
+        if (repository == null) {
+
+            try {
+
+                repository = open();
+            } catch (IOException e) {
+
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return repository;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Boxed value of decorated repository only, marking a counter dirty again allocates nothing
+     */
+    @Override
+    public long allowedBytesPerAdd() {
+
+        return 24;
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+
+        for (val repository : opened) {
+
+            repository.close();
+        }
+    }
+
+    @Test
+    public void flushLogsSingleRecordPerModifiedCounter() throws IOException {
+
+        val repository = open();
+        repository.create(oneName(), 0);
+        repository.create(oneName() + "-deleted", 5);
+
+        for (int i = 0; i < 1000; i++) {
+
+            repository.incrementByNameRelaxed(oneName());
+        }
+        repository.addByName(oneName(), 10);
+        repository.incrementAll(Map.of(oneName(), 100L, oneName() + "-missing", 1L));
+        repository.deleteByName(oneName() + "-deleted");
+
+        //act
+        val flushed = repository.flush();
+
+        Assertions.assertThat(flushed).isEqualTo(2);
+        Assertions.assertThat(repository.getWal().getRecords()).isEqualTo(2);
+        Assertions.assertThat(repository.getFlushes()).isEqualTo(1);
+        Assertions.assertThat(repository.getFlushedCounters()).isEqualTo(2);
+        Assertions.assertThat(repository.flush()).isZero();
+
+        repository.close();
+        val reopened = open();
+
+        Assertions.assertThat(reopened.findByName(oneName())).map(Counter::getValue).contains(1110L);
+        Assertions.assertThat(reopened.findByName(oneName() + "-deleted")).isEmpty();
+        Assertions.assertThat(reopened.findByName(oneName() + "-missing")).isEmpty();
+    }
+
+    @Test
+    public void counterModifiedAfterFlushIsFlushedAgain() throws IOException {
+
+        val repository = open();
+        repository.create(oneName(), 1);
+        repository.flush();
+        repository.addByName(oneName(), 1);
+
+        //act
+        val flushed = repository.flush();
+
+        Assertions.assertThat(flushed).isEqualTo(1);
+        Assertions.assertThat(repository.getWal().getRecords()).isEqualTo(2);
+    }
+
+    @Test
+    public void closeFlushesDirtyCounters() throws IOException {
+
+        val repository = open();
+        repository.createAll(new String[]{oneName(), oneName() + "-2"}, new long[]{1, 2}, 2);
+        repository.addByName(oneName(), 1);
+
+        //act
+        repository.close();
+
+        val reopened = open();
+        Assertions.assertThat(reopened.findByName(oneName())).map(Counter::getValue).contains(2L);
+        Assertions.assertThat(reopened.findByName(oneName() + "-2")).map(Counter::getValue).contains(2L);
+    }
+
+    @Test
+    public void checkpointCoversCountersNotFlushedYet() throws IOException {
+
+        val repository = open();
+        repository.create(oneName(), 1);
+        repository.flush();
+        repository.addByName(oneName(), 1);
+
+        //act
+        repository.checkpoint();
+
+        repository.addByName(oneName(), 1);
+        repository.close();
+
+        val reopened = open();
+        Assertions.assertThat(reopened.findByName(oneName())).map(Counter::getValue).contains(3L);
+    }
+
+    @Test
+    public void dirtyCountersAreFlushedPeriodically() throws Exception {
+
+        val repository = open(Duration.ofMillis(10));
+
+        //act
+        repository.create(oneName(), 1);
+
+        val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (repository.getFlushedCounters() == 0 && System.nanoTime() < deadline) {
+
+            Thread.sleep(10);
+        }
+
+        Assertions.assertThat(repository.getFlushedCounters()).isEqualTo(1);
+        Assertions.assertThat(repository.getFlushTime()).isPositive();
+    }
+}
@@ -0,0 +1,123 @@
+package io.ruv.counters.repo.durable;
+
+import io.ruv.counters.util.snapshot.SnapshotFormat;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+public class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(Map<String, Long> counters) throws IOException {
+
+        val file = directory.resolve("snapshot");
+
+        try (val writer = SnapshotFile.writer(file)) {
+
+            for (val counter : counters.entrySet()) {
+
+                writer.add(counter.getKey(), counter.getValue());
+            }
+        }
+
+        return file;
+    }
+
+    private static Map<String, Long> read(Path file) throws IOException {
+
+        val counters = new LinkedHashMap<String, Long>();
+        SnapshotFile.read(file, counters::put);
+
+        return counters;
+    }
+
+    @Test
+    public void countersAreReadAsWritten() throws IOException {
+
+        val counters = new LinkedHashMap<String, Long>();
+        counters.put("", 0L);
+        counters.put("a", Long.MIN_VALUE);
+        counters.put("é😀", Long.MAX_VALUE);
+        counters.put("x".repeat(3 << 20), -1L);
+        for (int i = 0; i < 100_000; i++) {
+
+            counters.put("counter-" + i, (long) i);
+        }
+
+        //act
+        val read = read(write(counters));
+
+        Assertions.assertThat(read).containsExactlyEntriesOf(counters);
+    }
+
+    @Test
+    public void emptySnapshotIsRead() throws IOException {
+
+        //act
+        Assertions.assertThat(read(write(Map.of()))).isEmpty();
+    }
+
+    @Test
+    public void corruptSnapshotIsRejected() throws IOException {
+
+        val file = write(Map.of("a", 1L, "b", 2L));
+        try (val channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+
+            // first byte of the first name, following file header, block header and lengths of the name
+            channel.write(ByteBuffer.wrap(new byte[]{'z'}), 6 + 16 + 2);
+        }
+
+        //act
+        Assertions.assertThatThrownBy(() -> read(file))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    public void legacySnapshotIsRead() throws IOException {
+
+        val buffer = ByteBuffer.allocate(64)
+                .putInt(SnapshotFormat.MAGIC).put(SnapshotFile.LEGACY_VERSION)
+                .put((byte) 2).put((byte) 'a').putLong(-5)
+                .put((byte) 0).putLong(1);
+
+        val crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        val file = directory.resolve("legacy");
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+
+        //act
+        Assertions.assertThat(read(file)).containsExactlyEntriesOf(Map.of("a", -5L));
+    }
+
+    @Test
+    public void truncatedSnapshotIsRejected() throws IOException {
+
+        val file = write(Map.of("a", 1L, "b", 2L));
+        try (val channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+
+            channel.truncate(Files.size(file) - 1);
+        }
+
+        //act
+        Assertions.assertThatThrownBy(() -> read(file))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("truncated");
+    }
+}
@@ -0,0 +1,252 @@
+package io.ruv.counters.repo.durable;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WalSettings settings() {
+
+        val settings = new WalSettings();
+        settings.setDirectory(directory);
+        settings.setDurability(Durability.SYNC);
+
+        return settings;
+    }
+
+    /**
+     * Collects replayed records as text
+     */
+    private static final class Recorder implements WriteAheadLog.Replay {
+
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void set(String name, long value) {
+
+            records.add(name + "=" + value);
+        }
+
+        @Override
+        public void delete(String name) {
+
+            records.add("-" + name);
+        }
+    }
+
+    private Path segment() throws IOException {
+
+        try (val files = Files.list(directory)) {
+
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private void write(String... names) throws IOException {
+
+        try (val log = WriteAheadLog.open(settings(), new Recorder())) {
+
+            for (int i = 0; i < names.length; i++) {
+
+                log.await(log.append(WriteAheadLog.Operation.SET, names[i], i));
+            }
+        }
+    }
+
+    @Test
+    public void recordsAreReplayedInOrder() throws IOException {
+
+        val huge = "x".repeat(3 << 20);
+
+        try (val log = WriteAheadLog.open(settings(), new Recorder())) {
+
+            log.append(WriteAheadLog.Operation.SET, "a", 1);
+            log.append(WriteAheadLog.Operation.SET, "é😀", -1);
+            log.append(WriteAheadLog.Operation.DELETE, "a", 0);
+            log.await(log.append(WriteAheadLog.Operation.SET, huge, Long.MIN_VALUE));
+        }
+
+        val recorder = new Recorder();
+
+        //act
+        WriteAheadLog.open(settings(), recorder).close();
+
+        Assertions.assertThat(recorder.records).containsExactly("a=1", "é😀=-1", "-a", huge + "=" + Long.MIN_VALUE);
+    }
+
+    @Test
+    public void tornTailIsCutAndOverwritten() throws IOException {
+
+        write("a", "b");
+
+        val segment = segment();
+        val size = Files.size(segment);
+        try (val channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+
+            // interrupted write of the second record
+            channel.truncate(size - 3);
+        }
+
+        val recorder = new Recorder();
+
+        //act
+        try (val log = WriteAheadLog.open(settings(), recorder)) {
+
+            log.await(log.append(WriteAheadLog.Operation.SET, "c", 7));
+        }
+
+        val replayed = new Recorder();
+        WriteAheadLog.open(settings(), replayed).close();
+
+        Assertions.assertThat(recorder.records).containsExactly("a=0");
+        Assertions.assertThat(replayed.records).containsExactly("a=0", "c=7");
+    }
+
+    @Test
+    public void corruptRecordStopsReplayOfLastSegment() throws IOException {
+
+        write("a", "b", "c");
+
+        val segment = segment();
+        try (val channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+
+            // flip a byte of the second record name
+            val recordBytes = WriteAheadLog.HEADER_BYTES + WriteAheadLog.FIXED_PAYLOAD_BYTES + 1;
+            channel.write(ByteBuffer.wrap(new byte[]{'z'}), recordBytes * 2L - 1);
+        }
+
+        val recorder = new Recorder();
+
+        //act
+        WriteAheadLog.open(settings(), recorder).close();
+
+        Assertions.assertThat(recorder.records).containsExactly("a=0");
+        Assertions.assertThat(Files.size(segment)).isEqualTo(WriteAheadLog.HEADER_BYTES
+                + WriteAheadLog.FIXED_PAYLOAD_BYTES + 1);
+    }
+
+    @Test
+    public void rotationSplitsRecordsBetweenSegments() throws IOException {
+
+        long segment;
+        try (val log = WriteAheadLog.open(settings(), new Recorder())) {
+
+            log.append(WriteAheadLog.Operation.SET, "a", 1);
+
+            //act
+            segment = log.rotate();
+
+            log.await(log.append(WriteAheadLog.Operation.SET, "b", 2));
+            Assertions.assertThat(log.getSegment()).isEqualTo(segment);
+            Assertions.assertThat(log.getRecords()).isEqualTo(2);
+        }
+
+        val whole = new Recorder();
+        WriteAheadLog.open(settings(), whole).close();
+
+        val tail = new Recorder();
+        WriteAheadLog.open(settings(), segment, tail).close();
+
+        Assertions.assertThat(whole.records).containsExactly("a=1", "b=2");
+        Assertions.assertThat(tail.records).containsExactly("b=2");
+        try (val files = Files.list(directory)) {
+
+            Assertions.assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    public void appendAfterCloseIsRejected() throws IOException {
+
+        val log = WriteAheadLog.open(settings(), new Recorder());
+        log.close();
+
+        //act
+        Assertions.assertThatThrownBy(() -> log.append(WriteAheadLog.Operation.SET, "a", 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Starts threads appending and awaiting records until the log rejects them
+     */
+    private static List<CompletableFuture<Void>> appendUntilRejected(WriteAheadLog log) {
+
+        val appenders = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 8; i++) {
+
+            val name = "counter-" + i;
+            appenders.add(CompletableFuture.runAsync(() -> {
+
+                for (long value = 0; ; value++) {
+
+                    log.await(log.append(WriteAheadLog.Operation.SET, name, value));
+                }
+            }, runnable -> new Thread(runnable).start()));
+        }
+
+        return appenders;
+    }
+
+    private static void assertRejected(List<CompletableFuture<Void>> appenders) {
+
+        for (val appender : appenders) {
+
+            Assertions.assertThat(appender)
+                    .failsWithin(5, TimeUnit.SECONDS)
+                    .withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void syncAppendWhileClosingIsRejected() throws Exception {
+
+        val settings = settings();
+        settings.setQueueCapacity(2);
+        val log = WriteAheadLog.open(settings, new Recorder());
+        val appenders = appendUntilRejected(log);
+        Thread.sleep(50);
+
+        //act
+        log.close();
+
+        assertRejected(appenders);
+    }
+
+    @Test
+    public void syncAppendWhileAppenderFailsIsRejected() throws Exception {
+
+        val settings = settings();
+        settings.setQueueCapacity(2);
+        val log = WriteAheadLog.open(settings, new Recorder());
+        val appenders = appendUntilRejected(log);
+        Thread.sleep(50);
+
+        // the next segment can not be created without its directory
+        Files.delete(segment());
+        Files.delete(directory);
+
+        //act
+        Assertions.assertThatThrownBy(log::rotate).isInstanceOf(IllegalStateException.class);
+
+        assertRejected(appenders);
+        log.close();
+    }
+}
@@ -0,0 +1,97 @@
+package io.ruv.counters.repo.lockfree;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class LockFreeCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    private final LockFreeCountersRepository repository = new LockFreeCountersRepository();
+
+    @Override
+    public CountersRepository repository() {
+
+        return repository;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LockFreeTable table() {
+
+        return ((AtomicReference<LockFreeTable>) ReflectionTestUtils.getField(repository, "root")).get();
+    }
+
+    @Test
+    public void createBeyondCapacityGrowsTable() {
+
+        val count = LockFreeTable.MIN_CAPACITY * 4;
+
+        //act
+        for (int i = 0; i < count; i++) {
+
+            repository.create("name-" + i, i);
+        }
+
+        Assertions.assertThat(table().capacity()).isGreaterThan(LockFreeTable.MIN_CAPACITY);
+        Assertions.assertThat(repository.findAll()).hasSize(count);
+
+        for (int i = 0; i < count; i++) {
+
+            Assertions.assertThat(repository.findByName("name-" + i)).map(Counter::getValue).contains((long) i);
+        }
+    }
+
+    @Test
+    public void concurrentCreatesDuringResizeAreNotLostOrDuplicated() {
+
+        val count = LockFreeTable.MIN_CAPACITY * 64;
+
+        //act
+        val created = IntStream.range(0, count * 2).parallel()
+                .filter(i -> repository.create("name-" + (i % count), i % count).isPresent())
+                .count();
+
+        Assertions.assertThat(created).isEqualTo(count);
+        Assertions.assertThat(repository.findAll().map(Counter::getName).collect(Collectors.toSet())).hasSize(count);
+        Assertions.assertThat(repository.findAll()).hasSize(count);
+    }
+
+    @Test
+    public void concurrentIncrementsDuringResizeAreNotLost() {
+
+        repository.create(oneName(), 0);
+
+        //act
+        IntStream.range(0, LockFreeTable.MIN_CAPACITY * 16).parallel().forEach(i -> {
+
+            repository.create("name-" + i, i);
+            repository.incrementByName(oneName());
+        });
+
+        Assertions.assertThat(repository.findByName(oneName())).map(Counter::getValue)
+                .contains((long) LockFreeTable.MIN_CAPACITY * 16);
+    }
+
+    @Test
+    public void deleteManyDropsTombstonesOnResize() {
+
+        val count = LockFreeTable.MIN_CAPACITY * 4;
+
+        //act
+        for (int i = 0; i < count; i++) {
+
+            repository.create("name-" + i, i);
+            repository.deleteByName("name-" + i);
+        }
+
+        Assertions.assertThat(table().capacity()).isEqualTo(LockFreeTable.MIN_CAPACITY);
+        Assertions.assertThat(repository.findAll()).isEmpty();
+    }
+}
@@ -0,0 +1,225 @@
+package io.ruv.counters.repo.mapped;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    private static final int CAPACITY = MappedTable.capacityFor(MappedTable.MIN_CAPACITY);
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedCountersRepository> opened = new ArrayList<>();
+
+    private MappedCountersRepository repository;
+
+    /**
+     * Opens repository over the test directory, closed after the test
+     */
+    private MappedCountersRepository open() throws IOException {
+
+        val repository = openUnclosed();
+        opened.add(repository);
+
+        return repository;
+    }
+
+    /**
+     * Opens repository over the test directory and leaves it open, as a crashed process would
+     */
+    private MappedCountersRepository openUnclosed() throws IOException {
+
+        val settings = new MappedSettings();
+        settings.setDirectory(directory);
+        settings.setExpectedCounters(MappedTable.MIN_CAPACITY);
+
+        return MappedCountersRepository.open(settings);
+    }
+
+    @Override
+    public CountersRepository repository() {
+
+        if (repository == null) {
+
+            try {
+
+                repository = open();
+            } catch (IOException e) {
+
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return repository;
+    }
+
+    @AfterEach
+    public void close() {
+
+        opened.forEach(MappedCountersRepository::close);
+    }
+
+    private Path table() throws IOException {
+
+        try (val files = Files.list(directory)) {
+
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private void overwrite(long position, byte... bytes) throws IOException {
+
+        try (val channel = FileChannel.open(table(), StandardOpenOption.WRITE)) {
+
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    @Test
+    public void reopenedRepositoryKeepsCounters() throws IOException {
+
+        val repository = openUnclosed();
+        repository.create("b", 1);
+        repository.create("a", Long.MAX_VALUE - 10);
+        repository.create("c", 5);
+        repository.create("café", -7);
+        repository.addByName("b", 41);
+        repository.addByName("a", 10);
+        repository.deleteByName("c");
+        repository.close();
+
+        //act
+        val reopened = open();
+
+        Assertions.assertThat(reopened.findByName("a")).map(Counter::getValue).contains(Long.MAX_VALUE);
+        Assertions.assertThat(reopened.findByName("b")).map(Counter::getValue).contains(42L);
+        Assertions.assertThat(reopened.findByName("c")).isEmpty();
+        Assertions.assertThat(reopened.valuesSum())
+                .isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.valueOf(35)));
+        Assertions.assertThat(reopened.findNames(null, 10)).containsExactly("a", "b", "café");
+    }
+
+    @Test
+    public void grownTableReplacesOldFile() throws IOException {
+
+        val repository = openUnclosed();
+        val count = CAPACITY * 2;
+
+        for (int i = 0; i < count; i++) {
+
+            repository.create("name-" + i, i);
+        }
+        repository.close();
+
+        //act
+        val reopened = open();
+
+        for (int i = 0; i < count; i++) {
+
+            Assertions.assertThat(reopened.findByName("name-" + i)).map(Counter::getValue).contains((long) i);
+        }
+        try (val files = Files.list(directory)) {
+
+            // grown more than once, only the latest table is kept
+            Assertions.assertThat(files.map(file -> file.getFileName().toString()))
+                    .singleElement().asString().startsWith("counters-").isNotEqualTo("counters-00000000000000000001.table");
+        }
+    }
+
+    @Test
+    public void tableNotClosedIsRecounted() throws IOException {
+
+        val crashed = openUnclosed();
+        crashed.create(oneName(), 1);
+        crashed.create(oneName() + "-deleted", 1);
+        crashed.addByName(oneName(), 9);
+        crashed.deleteByName(oneName() + "-deleted");
+
+        //act
+        val recovered = open();
+
+        Assertions.assertThat(recovered.findByName(oneName())).map(Counter::getValue).contains(10L);
+        Assertions.assertThat(recovered.findByName(oneName() + "-deleted")).isEmpty();
+        Assertions.assertThat(recovered.valuesSum()).isEqualTo(BigInteger.TEN);
+
+        recovered.create(oneName() + "-new", 5);
+        Assertions.assertThat(recovered.findNames(null, 10)).containsExactly(oneName(), oneName() + "-new");
+    }
+
+    @Test
+    public void tornNameIsDropped() throws IOException {
+
+        val crashed = openUnclosed();
+        crashed.create("a", 1);
+        crashed.create("b", 2);
+
+        // name bytes of "b" never reached the disk
+        overwrite(MappedTable.HEADER_BYTES + (long) CAPACITY * MappedTable.SLOT_BYTES + 1, (byte) 0);
+
+        //act
+        val recovered = open();
+
+        Assertions.assertThat(recovered.findByName("a")).map(Counter::getValue).contains(1L);
+        Assertions.assertThat(recovered.findNames(null, 10)).containsExactly("a");
+        Assertions.assertThat(recovered.valuesSum()).isEqualTo(BigInteger.ONE);
+    }
+
+    @Test
+    public void lostSlotPageDoesNotHideFollowingSlots() throws IOException {
+
+        // two names probing from the same slot - the second one is stored right after the first one
+        val first = "name-0";
+        val home = MappedTable.hash(first) & (CAPACITY - 1);
+        var second = "name-1";
+        for (int i = 2; (MappedTable.hash(second) & (CAPACITY - 1)) != home; i++) {
+
+            second = "name-" + i;
+        }
+
+        val crashed = openUnclosed();
+        crashed.create(first, 1);
+        crashed.create(second, 2);
+
+        // slot of the first name reads as never written
+        overwrite(MappedTable.HEADER_BYTES + (long) home * MappedTable.SLOT_BYTES, new byte[MappedTable.SLOT_BYTES]);
+
+        //act
+        val recovered = open();
+
+        Assertions.assertThat(recovered.findByName(first)).isEmpty();
+        Assertions.assertThat(recovered.findByName(second)).map(Counter::getValue).contains(2L);
+    }
+
+    @Test
+    public void corruptHeaderIsRejected() throws IOException {
+
+        open().create(oneName(), 1);
+        close();
+        opened.clear();
+
+        // used slots count changed behind header checksum
+        overwrite(16, (byte) 0x7F);
+
+        //act
+        Assertions.assertThatThrownBy(this::open)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+    }
+}
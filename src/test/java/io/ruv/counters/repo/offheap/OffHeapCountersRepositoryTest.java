@@ -0,0 +1,100 @@
+package io.ruv.counters.repo.offheap;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CounterResult;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class OffHeapCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    private final OffHeapCountersRepository repository = new OffHeapCountersRepository();
+
+    @Override
+    public CountersRepository repository() {
+
+        return repository;
+    }
+
+    private OffHeapTable table() {
+
+        return (OffHeapTable) ReflectionTestUtils.getField(repository, "table");
+    }
+
+    @Test
+    public void createBeyondCapacityGrowsTable() {
+
+        val count = OffHeapTable.MIN_CAPACITY * 4;
+
+        //act
+        for (int i = 0; i < count; i++) {
+
+            repository.create("name-" + i, i);
+        }
+
+        Assertions.assertThat(table().capacity()).isGreaterThan(OffHeapTable.MIN_CAPACITY);
+        Assertions.assertThat(repository.findAll()).hasSize(count);
+
+        for (int i = 0; i < count; i++) {
+
+            Assertions.assertThat(repository.findByName("name-" + i)).map(Counter::getValue).contains((long) i);
+        }
+    }
+
+    @Test
+    public void deleteManyCompactsTombstones() {
+
+        val count = OffHeapTable.MIN_CAPACITY / 2;
+
+        for (int i = 0; i < count; i++) {
+
+            repository.create("name-" + i, i);
+        }
+
+        //act
+        for (int i = 0; i < count - 1; i++) {
+
+            repository.deleteByName("name-" + i);
+        }
+
+        Assertions.assertThat(table().hasRoomFor(0)).isTrue();
+        Assertions.assertThat(table().size()).isEqualTo(1);
+        Assertions.assertThat(repository.findAll().map(Counter::getName).collect(Collectors.toList()))
+                .containsExactly("name-" + (count - 1));
+    }
+
+    @Test
+    public void nonAsciiNamesAreComparedWithoutEncoding() {
+
+        val names = List.of("caf\u00e9", "\u20ac-sign", "smile-\uD83D\uDE00", "lone-\uD800", "lone-?");
+        names.forEach(name -> repository.create(name, 1000));
+
+        //act
+        names.forEach(name -> repository.addByName(name, 1, new CounterResult()));
+
+        for (val name : names) {
+
+            Assertions.assertThat(OffHeapTable.encodedLength(name)).isEqualTo(OffHeapTable.encode(name).length);
+            Assertions.assertThat(repository.findByName(name, new CounterResult()).getValue()).isEqualTo(1001L);
+        }
+        Assertions.assertThat(repository.findByName("caf\u00e8")).isEmpty();
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() {
+
+        repository.create(oneName(), 0);
+
+        //act
+        IntStream.range(0, 10_000).parallel().forEach(i -> repository.incrementByName(oneName()));
+
+        Assertions.assertThat(repository.findByName(oneName())).map(Counter::getValue).contains(10_000L);
+    }
+}
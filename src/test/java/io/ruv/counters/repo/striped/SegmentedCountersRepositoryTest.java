@@ -0,0 +1,82 @@
+package io.ruv.counters.repo.striped;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class SegmentedCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    private final SegmentedCountersRepository repository = new SegmentedCountersRepository();
+
+    @Override
+    public CountersRepository repository() {
+
+        return repository;
+    }
+
+    @Test
+    public void concurrentCreatesAndDeletesKeepEverySegmentIntact() {
+
+        val count = 100_000;
+
+        //act
+        IntStream.range(0, count).parallel().forEach(i -> {
+
+            repository.create("name-" + i, i);
+            if (i % 2 == 1) {
+
+                repository.deleteByName("name-" + i);
+            }
+        });
+
+        val names = repository.findAll().map(Counter::getName).collect(Collectors.toSet());
+        Assertions.assertThat(names).hasSize(count / 2);
+        Assertions.assertThat(names).allMatch(name -> Integer.parseInt(name.substring(5)) % 2 == 0);
+    }
+
+    @Test
+    public void concurrentIncrementAllInDifferentOrderIsNotLost() {
+
+        val names = IntStream.range(0, 100).mapToObj(i -> "name-" + i).toList();
+        names.forEach(name -> repository.create(name, 0));
+
+        //act
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+
+            val deltas = new HashMap<String, Long>();
+            for (int j = 0; j < 10; j++) {
+
+                deltas.put(names.get((i * 7 + j * 13) % names.size()), 1L);
+            }
+
+            repository.incrementAll(deltas);
+        });
+
+        Assertions.assertThat(repository.findAll().mapToLong(Counter::getValue).sum()).isEqualTo(10_000);
+        Assertions.assertThat(repository.valuesSum()).isEqualTo(BigInteger.valueOf(10_000));
+    }
+
+    @Test
+    public void singleSegmentBehavesAsPlainMap() {
+
+        val single = new SegmentedCountersRepository(1);
+        single.create("one", 1);
+        single.create("another", 2);
+
+        //act
+        val results = single.incrementAll(Map.of("one", 1L, "another", 1L, "missing", 1L));
+
+        Assertions.assertThat(results).hasSize(3);
+        Assertions.assertThat(single.findAll().collect(Collectors.toMap(Counter::getName, Counter::getValue)))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("one", 2L, "another", 3L));
+    }
+}
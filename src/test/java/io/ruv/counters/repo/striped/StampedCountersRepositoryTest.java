@@ -0,0 +1,87 @@
+package io.ruv.counters.repo.striped;
+
+import io.ruv.counters.repo.Counter;
+import io.ruv.counters.repo.CountersRepository;
+import io.ruv.counters.repo.CountersRepositoryContractTest;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class StampedCountersRepositoryTest implements CountersRepositoryContractTest {
+
+    // few stripes, so writers keep rehashing tables readers are looking into
+    private final StampedCountersRepository repository = new StampedCountersRepository(2);
+
+    @Override
+    public CountersRepository repository() {
+
+        return repository;
+    }
+
+    @Test
+    public void optimisticReadersNeverSeeTornTables() throws InterruptedException {
+
+        val stable = IntStream.range(0, 100).mapToObj(i -> "stable-" + i).toList();
+        stable.forEach(name -> repository.create(name, name.length()));
+
+        val stop = new AtomicBoolean();
+        val violations = new AtomicLong();
+
+        val reader = new Thread(() -> {
+
+            while (!stop.get()) {
+
+                for (val name : stable) {
+
+                    val found = repository.findByName(name);
+                    if (found.isEmpty() || found.get().getValue() != name.length()) {
+
+                        violations.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        //act
+        for (int i = 0; i < 20_000; i++) {
+
+            repository.create("churn-" + i, i);
+            if (i % 3 != 0) {
+
+                repository.deleteByName("churn-" + i);
+            }
+        }
+
+        stop.set(true);
+        reader.join();
+
+        Assertions.assertThat(violations).hasValue(0);
+        Assertions.assertThat(repository.findAll()).hasSize(stable.size() + 20_000 / 3 + 1);
+    }
+
+    @Test
+    public void concurrentCreatesAndDeletesKeepEveryStripeIntact() {
+
+        val count = 100_000;
+
+        //act
+        IntStream.range(0, count).parallel().forEach(i -> {
+
+            repository.create("name-" + i, i);
+            if (i % 2 == 1) {
+
+                repository.deleteByName("name-" + i);
+            }
+        });
+
+        val names = repository.findAll().map(Counter::getName).collect(Collectors.toSet());
+        Assertions.assertThat(names).hasSize(count / 2);
+        Assertions.assertThat(names).allMatch(name -> Integer.parseInt(name.substring(5)) % 2 == 0);
+    }
+}
@@ -30,18 +30,18 @@ public class StripedLongArrayCountersRepositoryTest implements MapBasedCountersR
     }
 
     @Override
-    public long[] oneValue() {
+    public long[] oneContainer() {
 
         return new long[]{0};
     }
 
     @Override
-    public long[] anotherValue() {
+    public long[] anotherContainer() {
         return new long[]{10};
     }
 
     @Override
-    public long[] overflowingValue() {
+    public long[] overflowingContainer() {
         return new long[]{Long.MAX_VALUE};
     }
 }
@@ -30,20 +30,30 @@ public class StripedLongCountersRepositoryTest implements MapBasedCountersReposi
     }
 
     @Override
-    public Long oneValue() {
+    public Long oneContainer() {
 
         return 0L;
     }
 
     @Override
-    public Long anotherValue() {
+    public Long anotherContainer() {
 
         return 10L;
     }
 
     @Override
-    public Long overflowingValue() {
+    public Long overflowingContainer() {
 
         return Long.MAX_VALUE;
     }
+
+    /**
+     * {@inheritDoc}
+     * Updated value is stored boxed
+     */
+    @Override
+    public long allowedBytesPerAdd() {
+
+        return 24;
+    }
 }
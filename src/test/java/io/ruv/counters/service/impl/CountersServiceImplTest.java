@@ -1,22 +1,32 @@
 package io.ruv.counters.service.impl;
 
+import io.ruv.counters.repo.CounterResult;
 import io.ruv.counters.repo.CountersRepository;
-import io.ruv.counters.repo.SimpleCounter;
+import io.ruv.counters.repo.IncrementResult;
 import io.ruv.counters.service.DuplicateNameException;
+import io.ruv.counters.service.IllegalBatchException;
+import io.ruv.counters.service.IllegalLimitException;
 import io.ruv.counters.service.IllegalNameException;
 import io.ruv.counters.service.NotFoundException;
 import io.ruv.counters.service.OverflowException;
+import io.ruv.counters.web.dto.BatchIncrementDto;
 import io.ruv.counters.web.dto.CounterDto;
+import io.ruv.counters.web.dto.IncrementResultDto;
 import lombok.val;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 public class CountersServiceImplTest {
@@ -43,11 +53,19 @@ public class CountersServiceImplTest {
         Mockito.reset(repo);
     }
 
+    /**
+     * Fills result passed to repository as the last argument with specified outcome
+     */
+    private static Answer<CounterResult> filling(UnaryOperator<CounterResult> outcome) {
+
+        return invocation -> outcome.apply(invocation.getArgument(invocation.getArguments().length - 1));
+    }
+
     @Test
     public void createNonExistingReturnsCounter() {
 
-        Mockito.when(repo.create(Mockito.any(), Mockito.anyLong()))
-                .thenReturn(Optional.of(new SimpleCounter(oneName, oneValue)));
+        Mockito.when(repo.create(Mockito.any(), Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(filling(result -> result.ok(oneValue)));
 
         //act
         val result = service.create(oneDto);
@@ -58,8 +76,8 @@ public class CountersServiceImplTest {
     @Test
     public void createExistingThrowsException() {
 
-        Mockito.when(repo.create(Mockito.any(), Mockito.anyLong()))
-                .thenReturn(Optional.empty());
+        Mockito.when(repo.create(Mockito.any(), Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(filling(CounterResult::duplicate));
 
         //act
         Assertions.assertThatThrownBy(() -> service.create(oneDto))
@@ -88,6 +106,19 @@ public class CountersServiceImplTest {
                 .isInstanceOf(IllegalNameException.class);
     }
 
+    @Test
+    public void createNameWithUnpairedSurrogateThrowsException() {
+
+        val dto = new CounterDto();
+        dto.setName("lone-\uD800");
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.create(dto))
+                .isInstanceOf(IllegalNameException.class)
+                .hasMessageContaining("surrogate");
+        Mockito.verifyNoInteractions(repo);
+    }
+
     @Test
     public void createTooLongNameThrowsException() {
 
@@ -112,9 +143,8 @@ public class CountersServiceImplTest {
         expected.setName(oneName);
         expected.setValue(oneValue + 1);
 
-        Mockito.when(repo.incrementByName(Mockito.any()))
-                .thenAnswer(invocationOnMock -> Optional.of(
-                        new SimpleCounter(invocationOnMock.getArgument(0), oneValue + 1)));
+        Mockito.when(repo.addByName(Mockito.any(), Mockito.eq(1L), Mockito.any()))
+                .thenAnswer(filling(result -> result.ok(oneValue + 1)));
 
         //act
         val result = service.incrementByName(oneName);
@@ -125,8 +155,8 @@ public class CountersServiceImplTest {
     @Test
     public void incrementNonExistingThrowsException() {
 
-        Mockito.when(repo.incrementByName(Mockito.any()))
-                .thenReturn(Optional.empty());
+        Mockito.when(repo.addByName(Mockito.any(), Mockito.eq(1L), Mockito.any()))
+                .thenAnswer(filling(CounterResult::notFound));
 
         //act
         Assertions.assertThatThrownBy(() -> service.incrementByName(oneName))
@@ -137,8 +167,8 @@ public class CountersServiceImplTest {
     @Test
     public void incrementOverflowingThrowsException() {
 
-        Mockito.when(repo.incrementByName(Mockito.any()))
-                .thenThrow(new ArithmeticException());
+        Mockito.when(repo.addByName(Mockito.any(), Mockito.eq(1L), Mockito.any()))
+                .thenAnswer(filling(CounterResult::overflow));
 
         //act
         Assertions.assertThatThrownBy(() -> service.incrementByName(oneName))
@@ -146,11 +176,47 @@ public class CountersServiceImplTest {
                 .hasMessageContaining(oneName);
     }
 
+    @Test
+    public void incrementRelaxedExistingIncrementsRecord() {
+
+        Mockito.when(repo.incrementByNameRelaxed(oneName))
+                .thenReturn(true);
+
+        //act
+        service.incrementByNameRelaxed(oneName);
+
+        Mockito.verify(repo).incrementByNameRelaxed(oneName);
+    }
+
+    @Test
+    public void incrementRelaxedNonExistingThrowsException() {
+
+        Mockito.when(repo.incrementByNameRelaxed(Mockito.any()))
+                .thenReturn(false);
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.incrementByNameRelaxed(oneName))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining(oneName);
+    }
+
+    @Test
+    public void incrementRelaxedOverflowingThrowsException() {
+
+        Mockito.when(repo.incrementByNameRelaxed(Mockito.any()))
+                .thenThrow(new ArithmeticException());
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.incrementByNameRelaxed(oneName))
+                .isInstanceOf(OverflowException.class)
+                .hasMessageContaining(oneName);
+    }
+
     @Test
     public void getExistingReturnsRecord() {
 
-        Mockito.when(repo.findByName(Mockito.any()))
-                .thenReturn(Optional.of(new SimpleCounter(oneName, oneValue)));
+        Mockito.when(repo.findByName(Mockito.any(), Mockito.any()))
+                .thenAnswer(filling(result -> result.ok(oneValue)));
 
         //act
         val result = service.getByName(oneName);
@@ -161,8 +227,8 @@ public class CountersServiceImplTest {
     @Test
     public void getNonExistingThrowsException() {
 
-        Mockito.when(repo.findByName(Mockito.any()))
-                .thenReturn(Optional.empty());
+        Mockito.when(repo.findByName(Mockito.any(), Mockito.any()))
+                .thenAnswer(filling(CounterResult::notFound));
 
         //act
         Assertions.assertThatThrownBy(() -> service.getByName(oneName))
@@ -170,11 +236,23 @@ public class CountersServiceImplTest {
                 .hasMessageContaining(oneName);
     }
 
+    @Test
+    public void expectedOutcomesDoNotCaptureStackTrace() {
+
+        Mockito.when(repo.findByName(Mockito.any(), Mockito.any()))
+                .thenAnswer(filling(CounterResult::notFound));
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.getByName(oneName))
+                .isInstanceOf(NotFoundException.class)
+                .satisfies(e -> Assertions.assertThat(e.getStackTrace()).isEmpty());
+    }
+
     @Test
     public void deleteExistingReturnsRecord() {
 
-        Mockito.when(repo.deleteByName(Mockito.any()))
-                .thenReturn(Optional.of(new SimpleCounter(oneName, oneValue)));
+        Mockito.when(repo.deleteByName(Mockito.any(), Mockito.any()))
+                .thenAnswer(filling(result -> result.ok(oneValue)));
 
         //act
         val result = service.deleteByName(oneName);
@@ -185,8 +263,8 @@ public class CountersServiceImplTest {
     @Test
     public void deleteNonExistingThrowsException() {
 
-        Mockito.when(repo.deleteByName(Mockito.any()))
-                .thenReturn(Optional.empty());
+        Mockito.when(repo.deleteByName(Mockito.any(), Mockito.any()))
+                .thenAnswer(filling(CounterResult::notFound));
 
         //act
         Assertions.assertThatThrownBy(() -> service.deleteByName(oneName))
@@ -197,8 +275,8 @@ public class CountersServiceImplTest {
     @Test
     public void getCountersSumEmptyReturnsZero() {
 
-        Mockito.when(repo.findAll())
-                .thenReturn(Stream.empty());
+        Mockito.when(repo.valuesSum())
+                .thenReturn(BigInteger.ZERO);
 
         //act
         val result = service.getCounterSum();
@@ -206,41 +284,208 @@ public class CountersServiceImplTest {
         Assertions.assertThat(result.getSum()).isEqualTo(BigInteger.ZERO);
     }
 
+    @Test
+    public void addExistingReturnsCounter() {
+
+        Mockito.when(repo.addByName(Mockito.eq(oneName), Mockito.eq(500L), Mockito.any()))
+                .thenAnswer(filling(result -> result.ok(oneValue + 500)));
+
+        //act
+        val result = service.addByName(oneName, 500);
+
+        Assertions.assertThat(result.getName()).isEqualTo(oneName);
+        Assertions.assertThat(result.getValue()).isEqualTo(oneValue + 500);
+    }
+
+    @Test
+    public void addNonExistingThrowsException() {
+
+        Mockito.when(repo.addByName(Mockito.eq(oneName), Mockito.eq(500L), Mockito.any()))
+                .thenAnswer(filling(CounterResult::notFound));
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.addByName(oneName, 500))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    public void addOverflowingThrowsException() {
+
+        Mockito.when(repo.addByName(Mockito.eq(oneName), Mockito.eq(500L), Mockito.any()))
+                .thenAnswer(filling(CounterResult::overflow));
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.addByName(oneName, 500))
+                .isInstanceOf(OverflowException.class)
+                .hasMessageContaining(oneName)
+                .hasMessageContaining("updated by 500");
+    }
+
+    @Test
+    public void incrementAllReturnsResultsInBatchOrder() {
+
+        val deltas = new LinkedHashMap<String, Long>();
+        deltas.put(oneName, 5L);
+        deltas.put(anotherName, 1L);
+        deltas.put("missing-name", 1L);
+
+        Mockito.when(repo.incrementAll(deltas))
+                .thenReturn(Map.of(
+                        oneName, IncrementResult.updated(oneValue + 5),
+                        anotherName, IncrementResult.overflow(),
+                        "missing-name", IncrementResult.notFound()));
+
+        val batch = new BatchIncrementDto();
+        batch.setDeltas(deltas);
+
+        //act
+        val result = service.incrementAll(batch);
+
+        Assertions.assertThat(result.getResults()).containsExactly(
+                Map.entry(oneName, new IncrementResultDto(IncrementResultDto.Status.UPDATED, oneValue + 5)),
+                Map.entry(anotherName, new IncrementResultDto(IncrementResultDto.Status.OVERFLOW, null)),
+                Map.entry("missing-name", new IncrementResultDto(IncrementResultDto.Status.NOT_FOUND, null)));
+    }
+
+    @Test
+    public void incrementAllIllegalBatchThrowsException() {
+
+        val tooLarge = new HashMap<String, Long>();
+        for (int i = 0; i <= CountersServiceImpl.MAX_BATCH_SIZE; i++) {
+
+            tooLarge.put(oneName + i, 1L);
+        }
+
+        val withNullDelta = new HashMap<String, Long>();
+        withNullDelta.put(oneName, null);
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.incrementAll(new BatchIncrementDto()))
+                .isInstanceOf(IllegalBatchException.class);
+        Assertions.assertThatThrownBy(() -> service.incrementAll(new BatchIncrementDto() {{ setDeltas(tooLarge); }}))
+                .isInstanceOf(IllegalBatchException.class);
+        Assertions.assertThatThrownBy(() -> service.incrementAll(new BatchIncrementDto() {{ setDeltas(withNullDelta); }}))
+                .isInstanceOf(IllegalBatchException.class);
+
+        Mockito.verifyNoInteractions(repo);
+    }
+
     @Test
     public void getCountersSumNonEmptyReturnsSum() {
 
-        Mockito.when(repo.findAll())
-                .thenReturn(Stream.of(new SimpleCounter(oneName, oneValue),
-                        new SimpleCounter(anotherName, anotherValue)));
+        Mockito.when(repo.valuesSum())
+                .thenReturn(BigInteger.valueOf(oneValue + anotherValue));
 
         //act
         val result = service.getCounterSum();
 
         Assertions.assertThat(result.getSum()).isEqualTo(BigInteger.valueOf(oneValue + anotherValue));
+        Mockito.verify(repo, Mockito.never()).findAll();
     }
 
     @Test
     public void getCounterNamesEmptyReturnsEmptyList() {
 
-        Mockito.when(repo.findAll())
-                .thenReturn(Stream.empty());
+        Mockito.when(repo.findNames(null, CountersServiceImpl.DEFAULT_NAMES_LIMIT))
+                .thenReturn(List.of());
 
         //act
-        val result = service.getCounterNames();
+        val result = service.getCounterNames(null, null);
 
         Assertions.assertThat(result.getNames()).isEmpty();
+        Assertions.assertThat(result.getNext()).isNull();
     }
 
     @Test
     public void getCounterNamesNonEmptyReturnsNamesList() {
 
-        Mockito.when(repo.findAll())
-                .thenReturn(Stream.of(new SimpleCounter(oneName, oneValue),
-                        new SimpleCounter(anotherName, anotherValue)));
+        Mockito.when(repo.findNames(null, CountersServiceImpl.DEFAULT_NAMES_LIMIT))
+                .thenReturn(List.of(oneName, anotherName));
 
         //act
-        val result = service.getCounterNames();
+        val result = service.getCounterNames(null, null);
 
         Assertions.assertThat(result.getNames()).isEqualTo(List.of(oneName, anotherName));
+        Assertions.assertThat(result.getNext()).isNull();
+        Mockito.verify(repo, Mockito.never()).findAll();
+    }
+
+    @Test
+    public void getCounterNamesFullPageReturnsNextCursor() {
+
+        Mockito.when(repo.findNames(oneName, 1))
+                .thenReturn(List.of(anotherName));
+
+        //act
+        val result = service.getCounterNames(oneName, 1);
+
+        Assertions.assertThat(result.getNames()).isEqualTo(List.of(anotherName));
+        Assertions.assertThat(result.getNext()).isEqualTo(anotherName);
+    }
+
+    @Test
+    public void getCounterNamesIllegalLimitThrowsException() {
+
+        //act
+        Assertions.assertThatThrownBy(() -> service.getCounterNames(null, 0))
+                .isInstanceOf(IllegalLimitException.class);
+        Assertions.assertThatThrownBy(() -> service.getCounterNames(null, CountersServiceImpl.MAX_NAMES_LIMIT + 1))
+                .isInstanceOf(IllegalLimitException.class);
+
+        Mockito.verifyNoInteractions(repo);
+    }
+
+    @Test
+    public void streamCountersReadsValuesLazilyAndSkipsDeleted() {
+
+        Mockito.when(repo.streamNames(null))
+                .thenReturn(Stream.of(oneName, anotherName));
+        Mockito.when(repo.findByName(Mockito.eq(oneName), Mockito.any()))
+                .thenAnswer(filling(CounterResult::notFound));
+        Mockito.when(repo.findByName(Mockito.eq(anotherName), Mockito.any()))
+                .thenAnswer(filling(result -> result.ok(anotherValue)));
+
+        //act
+        val stream = service.streamCounters(null);
+
+        Mockito.verify(repo, Mockito.never()).findByName(Mockito.any(), Mockito.any());
+        Assertions.assertThat(stream)
+                .extracting(CounterDto::getName, CounterDto::getValue)
+                .containsExactly(Assertions.tuple(anotherName, anotherValue));
+        Mockito.verify(repo, Mockito.never()).findAll();
+    }
+
+    @Test
+    public void importCountersCreatesValidInBatchesAndCountsSkipped() {
+
+        val total = CountersServiceImpl.IMPORT_BATCH_SIZE + 1;
+        val counters = new ArrayList<CounterDto>();
+        for (int i = 0; i < total; i++) {
+
+            val counter = new CounterDto();
+            counter.setName(oneName + "-" + i);
+            counters.add(counter);
+        }
+        counters.add(new CounterDto());
+        counters.add(new CounterDto() {{ setName(""); }});
+        counters.add(new CounterDto() {{ setName("x".repeat(CountersServiceImpl.MAX_NAME_LENGTH + 1)); }});
+        counters.add(new CounterDto() {{ setName("\uDE00-smile-\uD83D"); }});
+
+        // first batch has one duplicate
+        Mockito.when(repo.createAll(Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenAnswer(invocation -> {
+
+                    int count = invocation.getArgument(2);
+                    return count == CountersServiceImpl.IMPORT_BATCH_SIZE ? count - 1 : count;
+                });
+
+        //act
+        val result = service.importCounters(counters.iterator());
+
+        Assertions.assertThat(result.getCreated()).isEqualTo(total - 1);
+        Assertions.assertThat(result.getDuplicate()).isEqualTo(1);
+        Assertions.assertThat(result.getInvalid()).isEqualTo(4);
+        Mockito.verify(repo).createAll(Mockito.any(), Mockito.any(), Mockito.eq(CountersServiceImpl.IMPORT_BATCH_SIZE));
+        Mockito.verify(repo).createAll(Mockito.any(), Mockito.any(), Mockito.eq(1));
     }
 }
@@ -0,0 +1,206 @@
+package io.ruv.counters.util.lock;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GlobalLockTest {
+
+    private final GlobalLock lock = new GlobalLock();
+
+    // guarded by lock
+    private long first;
+    private long second;
+
+    @Test
+    public void readersDoNotExcludeEachOther() throws InterruptedException {
+
+        val inside = new CountDownLatch(2);
+
+        Runnable reader = () -> lock.reading(() -> {
+
+            inside.countDown();
+            try {
+
+                return inside.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+            }
+        });
+
+        val one = new Thread(reader);
+        val another = new Thread(reader);
+
+        //act
+        one.start();
+        another.start();
+
+        Assertions.assertThat(inside.await(10, TimeUnit.SECONDS)).isTrue();
+        one.join();
+        another.join();
+    }
+
+    @Test
+    public void writerWaitsForReaderInside() throws InterruptedException {
+
+        val readerInside = new CountDownLatch(1);
+        val readerMayLeave = new CountDownLatch(1);
+        val written = new AtomicBoolean();
+
+        val reader = new Thread(() -> lock.reading(() -> {
+
+            readerInside.countDown();
+            try {
+
+                return readerMayLeave.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+            }
+        }));
+        reader.start();
+        readerInside.await();
+
+        //act
+        val writer = new Thread(() -> lock.writing(() -> {
+
+            written.set(true);
+            return null;
+        }));
+        writer.start();
+        writer.join(200);
+
+        Assertions.assertThat(written).isFalse();
+
+        readerMayLeave.countDown();
+        writer.join();
+        reader.join();
+
+        Assertions.assertThat(written).isTrue();
+    }
+
+    @Test
+    public void readersNeverSeeWriteInProgress() throws InterruptedException {
+
+        val stop = new AtomicBoolean();
+        val violations = new AtomicLong();
+        val reads = new AtomicLong();
+
+        val threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+
+            threads.add(new Thread(() -> {
+
+                while (!stop.get()) {
+
+                    val consistent = lock.reading(() -> first == second);
+                    if (!consistent) {
+
+                        violations.incrementAndGet();
+                    }
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+
+        //act
+        threads.forEach(Thread::start);
+
+        for (int i = 0; i < 10_000; i++) {
+
+            lock.writing(() -> {
+
+                first++;
+                Thread.onSpinWait();
+                second++;
+                return null;
+            });
+        }
+
+        stop.set(true);
+        for (val thread : threads) {
+
+            thread.join();
+        }
+
+        Assertions.assertThat(violations).hasValue(0);
+        Assertions.assertThat(reads.get()).isPositive();
+        Assertions.assertThat(lock.reading(() -> first)).isEqualTo(10_000);
+    }
+
+    @Test
+    public void nestedReadEntersWhileWriterWaits() throws InterruptedException {
+
+        val readerInside = new CountDownLatch(1);
+        val nestedRead = new AtomicBoolean();
+        val written = new AtomicBoolean();
+
+        val reader = new Thread(() -> lock.reading(() -> {
+
+            readerInside.countDown();
+            try {
+
+                // writer has revoked the bias and waits for this reader by now
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+            }
+
+            nestedRead.set(lock.reading(() -> true));
+            return null;
+        }));
+        reader.start();
+        readerInside.await();
+
+        val writer = new Thread(() -> lock.writing(() -> {
+
+            written.set(true);
+            return null;
+        }));
+
+        //act
+        writer.start();
+        reader.join(10_000);
+        writer.join(10_000);
+
+        Assertions.assertThat(nestedRead).isTrue();
+        Assertions.assertThat(written).isTrue();
+    }
+
+    @Test
+    public void readInsideWriteKeepsOthersOut() throws InterruptedException {
+
+        val readerInside = new AtomicBoolean();
+
+        //act
+        lock.writing(() -> {
+
+            lock.reading(() -> first);
+
+            val reader = new Thread(() -> lock.reading(() -> {
+
+                readerInside.set(true);
+                return null;
+            }));
+            reader.start();
+            try {
+
+                reader.join(200);
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+            }
+
+            Assertions.assertThat(readerInside).isFalse();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,136 @@
+package io.ruv.counters.util.snapshot;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class SnapshotReaderTest {
+
+    private static byte[] write(Map<String, Long> counters, SnapshotFormat.Compression compression)
+            throws IOException {
+
+        val out = new ByteArrayOutputStream();
+
+        try (val writer = new SnapshotWriter(out, compression)) {
+
+            for (val counter : counters.entrySet()) {
+
+                writer.add(counter.getKey(), counter.getValue());
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    private static Map<String, Long> read(byte[] snapshot) throws IOException {
+
+        val counters = new LinkedHashMap<String, Long>();
+
+        try (val reader = new SnapshotReader(new ByteArrayInputStream(snapshot))) {
+
+            while (reader.next()) {
+
+                counters.put(reader.getName(), reader.getValue());
+            }
+
+            Assertions.assertThat(reader.getCount()).isEqualTo(counters.size());
+        }
+
+        return counters;
+    }
+
+    private static Map<String, Long> sortedCounters(int count) {
+
+        val counters = new TreeMap<String, Long>();
+        for (int i = 0; i < count; i++) {
+
+            counters.put(String.format("service-%03d.requests.%08d", i % 7, i), (long) i * (i % 2 == 0 ? 1 : -1));
+        }
+
+        return new LinkedHashMap<>(counters);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.Compression.class)
+    public void countersAreReadAsWritten(SnapshotFormat.Compression compression) throws IOException {
+
+        val counters = new LinkedHashMap<String, Long>();
+        counters.put("", 0L);
+        counters.put("a", Long.MIN_VALUE);
+        counters.put("ab", Long.MAX_VALUE);
+        counters.put("é😀", -1L);
+        counters.put("é😁", 1L);
+        counters.put("x".repeat(3 << 20), 42L);
+        counters.putAll(sortedCounters(100_000));
+
+        //act
+        val read = read(write(counters, compression));
+
+        Assertions.assertThat(read).containsExactlyEntriesOf(counters);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.Compression.class)
+    public void emptySnapshotIsRead(SnapshotFormat.Compression compression) throws IOException {
+
+        //act
+        Assertions.assertThat(read(write(Map.of(), compression))).isEmpty();
+    }
+
+    @Test
+    public void sortedNamesShareTheirPrefixes() throws IOException {
+
+        val counters = sortedCounters(100_000);
+        val plain = counters.keySet().stream().mapToLong(name -> name.length() + Long.BYTES).sum();
+
+        //act
+        val snapshot = write(counters, SnapshotFormat.Compression.NONE);
+
+        Assertions.assertThat((long) snapshot.length).isLessThan(plain / 3);
+        Assertions.assertThat(write(counters, SnapshotFormat.Compression.DEFLATE).length).isLessThan(snapshot.length);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.Compression.class)
+    public void corruptBlockIsRejected(SnapshotFormat.Compression compression) throws IOException {
+
+        val snapshot = write(sortedCounters(100_000), compression);
+        snapshot[snapshot.length / 2] ^= 1;
+
+        //act
+        Assertions.assertThatThrownBy(() -> read(snapshot))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    public void snapshotWithoutClosingBlockIsRejected() throws IOException {
+
+        val snapshot = write(sortedCounters(100_000), SnapshotFormat.Compression.NONE);
+        val closing = SnapshotFormat.BLOCK_HEADER_BYTES + Long.BYTES;
+
+        //act
+        Assertions.assertThatThrownBy(() -> read(Arrays.copyOf(snapshot, snapshot.length - closing)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("truncated");
+    }
+
+    @Test
+    public void otherContentIsRejected() {
+
+        //act
+        Assertions.assertThatThrownBy(() -> read("{\"name\":\"a\"}\n".getBytes()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not a snapshot");
+    }
+}
@@ -0,0 +1,86 @@
+package io.ruv.counters.util.snapshot;
+
+import io.ruv.counters.repo.Counter;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class SnapshotTrackerTest {
+
+    private final SnapshotTracker tracker = new SnapshotTracker();
+
+    private static Map<String, Long> toMap(List<Counter> counters) {
+
+        return counters.stream().collect(Collectors.toMap(Counter::getName, Counter::getValue));
+    }
+
+    @Test
+    public void captureWithoutModificationsReturnsTraversedCounters() {
+
+        //act
+        val copy = tracker.capture(consumer -> {
+
+            consumer.accept("one", 1);
+            consumer.accept("another", 2);
+        });
+
+        Assertions.assertThat(toMap(copy)).isEqualTo(Map.of("one", 1L, "another", 2L));
+    }
+
+    @Test
+    public void captureRestoresValuesUpdatedDuringTraversal() {
+
+        //act
+        val copy = tracker.capture(consumer -> {
+
+            tracker.beforeUpdate("one", 1);
+            tracker.beforeUpdate("one", 2);
+            consumer.accept("one", 3);
+        });
+
+        Assertions.assertThat(toMap(copy)).isEqualTo(Map.of("one", 1L));
+    }
+
+    @Test
+    public void captureDropsCountersCreatedDuringTraversal() {
+
+        //act
+        val copy = tracker.capture(consumer -> {
+
+            tracker.beforeCreate("one");
+            consumer.accept("one", 1);
+            tracker.beforeUpdate("one", 1);
+        });
+
+        Assertions.assertThat(copy).isEmpty();
+    }
+
+    @Test
+    public void captureRestoresCountersDeletedDuringTraversal() {
+
+        //act
+        val copy = tracker.capture(consumer -> {
+
+            tracker.beforeDelete("one", 1);
+            tracker.beforeCreate("one");
+            consumer.accept("another", 2);
+        });
+
+        Assertions.assertThat(toMap(copy)).isEqualTo(Map.of("one", 1L, "another", 2L));
+    }
+
+    @Test
+    public void modificationsOutsideOfCaptureAreNotRecorded() {
+
+        tracker.beforeUpdate("one", 1);
+
+        //act
+        val copy = tracker.capture(consumer -> consumer.accept("one", 2));
+
+        Assertions.assertThat(toMap(copy)).isEqualTo(Map.of("one", 2L));
+    }
+}
@@ -0,0 +1,110 @@
+package io.ruv.counters.util.striped;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ContentionResizePolicyTest {
+
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final ResizeSettings settings = new ResizeSettings();
+    private final ContentionResizePolicy policy = new ContentionResizePolicy(settings);
+
+    @Test
+    public void growsOnFirstContendedSample() {
+
+        //act
+        val target = policy.targetSize(sample(256, INTERVAL / 10, 0));
+
+        Assertions.assertThat(target).isEqualTo(512);
+    }
+
+    @Test
+    public void growsOnLongQueue() {
+
+        //act
+        val target = policy.targetSize(sample(256, 0, settings.getGrowQueueLength()));
+
+        Assertions.assertThat(target).isEqualTo(512);
+    }
+
+    @Test
+    public void ignoresSamplesDuringCooldown() {
+
+        policy.targetSize(sample(256, INTERVAL, 0));
+
+        //act
+        for (int i = 0; i < settings.getCooldownSamples(); i++) {
+
+            Assertions.assertThat(policy.targetSize(sample(512, INTERVAL, 0))).isEqualTo(512);
+        }
+
+        Assertions.assertThat(policy.targetSize(sample(512, INTERVAL, 0))).isEqualTo(1024);
+    }
+
+    @Test
+    public void shrinksOnlyAfterRunOfIdleSamples() {
+
+        //act
+        for (int i = 1; i < settings.getShrinkAfterSamples(); i++) {
+
+            Assertions.assertThat(policy.targetSize(sample(512, 0, 0))).isEqualTo(512);
+        }
+
+        Assertions.assertThat(policy.targetSize(sample(512, 0, 0))).isEqualTo(256);
+    }
+
+    @Test
+    public void moderateWaitResetsIdleRun() {
+
+        val moderate = (long) (INTERVAL * (settings.getGrowWaitRatio() + settings.getShrinkWaitRatio()) / 2);
+
+        //act
+        for (int i = 0; i < settings.getShrinkAfterSamples() * 3; i++) {
+
+            val waitNanos = i % 10 == 0 ? moderate : 0;
+            Assertions.assertThat(policy.targetSize(sample(512, waitNanos, 0))).isEqualTo(512);
+        }
+    }
+
+    @Test
+    public void staysWithinBounds() {
+
+        //act
+        val grown = policy.targetSize(sample(settings.getMaxSize(), INTERVAL, 0));
+
+        for (int i = 1; i < settings.getShrinkAfterSamples(); i++) {
+
+            policy.targetSize(sample(settings.getMinSize(), 0, 0));
+        }
+        val shrunk = policy.targetSize(sample(settings.getMinSize(), 0, 0));
+
+        Assertions.assertThat(grown).isEqualTo(settings.getMaxSize());
+        Assertions.assertThat(shrunk).isEqualTo(settings.getMinSize());
+    }
+
+    @Test
+    public void doesNotGrowOnSingleHotStripe() {
+
+        //act
+        for (int i = 0; i < settings.getCooldownSamples() * 10; i++) {
+
+            val hot = new StripeSample(256, 0, INTERVAL, 1000, INTERVAL, INTERVAL, settings.getGrowQueueLength());
+            Assertions.assertThat(policy.targetSize(hot)).isEqualTo(256);
+        }
+
+        Assertions.assertThat(policy.targetSize(sample(256, INTERVAL, 0))).isEqualTo(512);
+    }
+
+    /**
+     * Sample whose waits are spread evenly over eight stripes
+     */
+    private static StripeSample sample(int stripes, long waitNanos, int maxQueueLength) {
+
+        return new StripeSample(stripes, 0, INTERVAL, waitNanos > 0 ? 8 : 0, waitNanos, waitNanos / 8,
+                maxQueueLength);
+    }
+}
@@ -0,0 +1,209 @@
+package io.ruv.counters.util.striped;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+public class ResizingStripedTest {
+
+    private static final int MIN_SIZE = 128;
+
+    private final ResizingStriped striped = new ResizingStriped(() -> 0, manual(MIN_SIZE));
+
+    @Test
+    public void resizeChangesAmountOfStripes() {
+
+        //act
+        striped.resizeTo(MIN_SIZE * 4);
+        val grown = striped.size();
+        striped.resizeTo(MIN_SIZE * 2);
+        val shrunk = striped.size();
+        striped.resizeTo(1);
+
+        Assertions.assertThat(grown).isEqualTo(MIN_SIZE * 4);
+        Assertions.assertThat(shrunk).isEqualTo(MIN_SIZE * 2);
+        Assertions.assertThat(striped.size()).isEqualTo(MIN_SIZE);
+    }
+
+    @Test
+    public void writersStayExclusiveWhileResizing() throws InterruptedException {
+
+        val counts = new long[1000];
+        val stop = new AtomicBoolean();
+
+        val writers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+
+            writers.add(new Thread(() -> {
+
+                for (int op = 0; op < 50_000; op++) {
+
+                    val key = ThreadLocalRandom.current().nextInt(counts.length);
+
+                    if (op % 100 == 0) {
+
+                        striped.writingAll(List.of(key, (key + 1) % counts.length), () -> {
+
+                            counts[key]++;
+                            counts[(key + 1) % counts.length]--;
+                            return null;
+                        });
+                    }
+
+                    striped.writing(key, () -> counts[key]++);
+                }
+            }));
+        }
+
+        val resizer = new Thread(() -> {
+
+            while (!stop.get()) {
+
+                striped.resizeTo(MIN_SIZE * 8);
+                striped.resizeTo(MIN_SIZE);
+            }
+        });
+
+        //act
+        resizer.start();
+        writers.forEach(Thread::start);
+        for (val writer : writers) {
+
+            writer.join();
+        }
+        stop.set(true);
+        resizer.join();
+
+        Assertions.assertThat(IntStream.range(0, counts.length).mapToLong(i -> counts[i]).sum()).isEqualTo(4 * 50_000);
+    }
+
+    @Test
+    public void resizeBlockedByOneStripeDoesNotPauseOthers() throws InterruptedException {
+
+        val held = "held";
+        val heldRoot = ResizingStriped.hash(held) & (MIN_SIZE - 1);
+        val holding = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+
+        val holder = new Thread(() -> striped.writing(held, () -> {
+
+            holding.countDown();
+            try {
+
+                return release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+            }
+        }));
+        holder.start();
+        holding.await();
+
+        val resizer = new Thread(() -> striped.resizeTo(MIN_SIZE * 4));
+        resizer.start();
+
+        //act
+        long maxNanos = 0;
+        int operations = 0;
+
+        for (int i = 0; i < 100_000; i++) {
+
+            val key = "key-" + i;
+            if ((ResizingStriped.hash(key) & (MIN_SIZE - 1)) == heldRoot) {
+
+                continue;
+            }
+
+            val start = System.nanoTime();
+            striped.writing(key, () -> null);
+            maxNanos = Math.max(maxNanos, System.nanoTime() - start);
+            operations++;
+        }
+
+        // resize waits for the held stripe only
+        Assertions.assertThat(resizer.isAlive()).isTrue();
+        Assertions.assertThat(operations).isPositive();
+        Assertions.assertThat(maxNanos).isLessThan(TimeUnit.SECONDS.toNanos(1));
+
+        release.countDown();
+        resizer.join();
+        holder.join();
+
+        Assertions.assertThat(striped.size()).isEqualTo(MIN_SIZE * 4);
+    }
+
+    @Test
+    public void sampleReportsWaitsAndResets() throws InterruptedException {
+
+        val holding = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+
+        val holder = new Thread(() -> striped.writing("key", () -> {
+
+            holding.countDown();
+            try {
+
+                return release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+            }
+        }));
+        holder.start();
+        holding.await();
+
+        val waiter = new Thread(() -> striped.reading("key", () -> null));
+        waiter.start();
+
+        while (waiter.getState() != Thread.State.WAITING) {
+
+            Thread.onSpinWait();
+        }
+
+        //act
+        val queued = striped.sample();
+        Thread.sleep(50);
+        release.countDown();
+        waiter.join();
+        holder.join();
+        val waited = striped.sample();
+        val idle = striped.sample();
+
+        Assertions.assertThat(queued.getMaxQueueLength()).isEqualTo(1);
+        Assertions.assertThat(waited.getContended()).isEqualTo(1);
+        Assertions.assertThat(waited.getWaitNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        Assertions.assertThat(waited.getMaxStripeWaitNanos()).isEqualTo(waited.getWaitNanos());
+        Assertions.assertThat(idle.getContended()).isZero();
+        Assertions.assertThat(idle.getWaitNanos()).isZero();
+    }
+
+    @Test
+    public void rootsFollowMinimalSize() {
+
+        //act
+        val custom = new ResizingStriped(() -> 0, manual(100));
+        custom.resizeTo(1);
+
+        Assertions.assertThat(custom.size()).isEqualTo(MIN_SIZE);
+    }
+
+    /**
+     * @return settings keeping background resizer out of the way of the test
+     */
+    private static ResizeSettings manual(int minSize) {
+
+        val settings = new ResizeSettings();
+        settings.setMinSize(minSize);
+        settings.setInterval(Duration.ofDays(1));
+        return settings;
+    }
+}
@@ -0,0 +1,112 @@
+package io.ruv.counters.util.striped;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class StampedStripedTest {
+
+    private final StampedStriped striped = new StampedStriped(16);
+
+    @Test
+    public void optimisticReadWithoutWriterRunsOnce() {
+
+        val attempts = new AtomicInteger();
+
+        //act
+        val result = striped.optimisticReading("key", attempts::incrementAndGet);
+
+        Assertions.assertThat(result).isEqualTo(1);
+        Assertions.assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    public void optimisticReadInterruptedByWriterRunsAgainUnderReadLock() {
+
+        val attempts = new AtomicInteger();
+
+        //act
+        val result = striped.optimisticReading("key", () -> {
+
+            if (attempts.incrementAndGet() == 1) {
+
+                interfere("key");
+                throw new IllegalStateException("torn");
+            }
+
+            return attempts.get();
+        });
+
+        Assertions.assertThat(result).isEqualTo(2);
+    }
+
+    @Test
+    public void optimisticReadFailureWithoutWriterIsThrown() {
+
+        //act
+        Assertions.assertThatThrownBy(() -> striped.optimisticReading("key", () -> {
+
+                    throw new IllegalStateException("broken");
+                }))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void writersStayExclusive() throws InterruptedException {
+
+        val counts = new long[100];
+
+        val writers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+
+            writers.add(new Thread(() -> {
+
+                for (int op = 0; op < 50_000; op++) {
+
+                    val key = ThreadLocalRandom.current().nextInt(counts.length);
+
+                    if (op % 100 == 0) {
+
+                        val other = (key + 1) % counts.length;
+                        striped.writingAll(List.of(key, other, key), () -> {
+
+                            counts[key]++;
+                            counts[other]--;
+                            return null;
+                        });
+                    }
+
+                    striped.writing(key, () -> counts[key]++);
+                }
+            }));
+        }
+
+        //act
+        writers.forEach(Thread::start);
+        for (val writer : writers) {
+
+            writer.join();
+        }
+
+        Assertions.assertThat(IntStream.range(0, counts.length).mapToLong(i -> counts[i]).sum()).isEqualTo(4 * 50_000);
+    }
+
+    private void interfere(String key) {
+
+        val writer = new Thread(() -> striped.writing(key, () -> null));
+        writer.start();
+        try {
+
+            writer.join();
+        } catch (InterruptedException e) {
+
+            throw new RuntimeException(e);
+        }
+    }
+}
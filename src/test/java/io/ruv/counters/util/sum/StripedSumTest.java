@@ -0,0 +1,74 @@
+package io.ruv.counters.util.sum;
+
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+public class StripedSumTest {
+
+    private final StripedSum sum = new StripedSum();
+
+    @Test
+    public void emptySumIsZero() {
+
+        //act
+        val result = sum.sum();
+
+        Assertions.assertThat(result).isEqualTo(BigInteger.ZERO);
+    }
+
+    @Test
+    public void sumBeyondLongRangeIsExact() {
+
+        sum.add(Long.MAX_VALUE);
+        sum.add(Long.MAX_VALUE);
+        sum.add(Long.MAX_VALUE);
+
+        //act
+        val result = sum.sum();
+
+        Assertions.assertThat(result).isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(3)));
+    }
+
+    @Test
+    public void negativeSumBeyondLongRangeIsExact() {
+
+        sum.add(Long.MIN_VALUE);
+        sum.add(Long.MIN_VALUE);
+        sum.add(-1);
+
+        //act
+        val result = sum.sum();
+
+        Assertions.assertThat(result)
+                .isEqualTo(BigInteger.valueOf(Long.MIN_VALUE).multiply(BigInteger.TWO).subtract(BigInteger.ONE));
+    }
+
+    @Test
+    public void subtractReversesAdd() {
+
+        sum.add(Long.MIN_VALUE);
+        sum.add(Long.MAX_VALUE);
+        sum.add(0);
+        sum.add(42);
+
+        //act
+        sum.subtract(Long.MIN_VALUE);
+        sum.subtract(Long.MAX_VALUE);
+        sum.subtract(0);
+
+        Assertions.assertThat(sum.sum()).isEqualTo(BigInteger.valueOf(42));
+    }
+
+    @Test
+    public void concurrentAddsAreNotLost() {
+
+        //act
+        IntStream.range(0, 100_000).parallel().forEach(i -> sum.add(Long.MAX_VALUE));
+
+        Assertions.assertThat(sum.sum()).isEqualTo(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(100_000)));
+    }
+}
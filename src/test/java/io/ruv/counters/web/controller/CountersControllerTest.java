@@ -4,11 +4,21 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.ruv.counters.service.*;
 import io.ruv.counters.service.impl.CountersServiceImpl;
+import io.ruv.counters.util.snapshot.SnapshotFormat;
+import io.ruv.counters.util.snapshot.SnapshotReader;
+import io.ruv.counters.util.snapshot.SnapshotWriter;
+import io.ruv.counters.web.converter.CounterLines;
+import io.ruv.counters.web.converter.CounterSnapshots;
+import io.ruv.counters.web.dto.BatchIncrementDto;
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
 import io.ruv.counters.web.dto.CounterDto;
 import io.ruv.counters.web.dto.CounterNamesDto;
 import io.ruv.counters.web.dto.CounterSumDto;
+import io.ruv.counters.web.dto.ImportResultDto;
+import io.ruv.counters.web.dto.IncrementResultDto;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.restdocs.RestDocumentationContextProvider;
 import org.springframework.restdocs.RestDocumentationExtension;
@@ -31,14 +42,27 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SuppressWarnings("SameParameterValue")
@@ -101,6 +125,23 @@ public class CountersControllerTest {
         return MockMvcRequestBuilders.get(String.format("%s%s", baseUrl, "/extension/names-list"));
     }
 
+    private MockHttpServletRequestBuilder export() {
+
+        return MockMvcRequestBuilders.get(String.format("%s%s", baseUrl, "/extension/export"));
+    }
+
+    private MockHttpServletRequestBuilder importCounters(MediaType contentType) {
+
+        return MockMvcRequestBuilders.post(String.format("%s%s", baseUrl, "/extension/import"))
+                .contentType(contentType);
+    }
+
+    private MockHttpServletRequestBuilder batchIncrement() {
+
+        return MockMvcRequestBuilders.post(String.format("%s%s", baseUrl, "/extension/batch-increment"))
+                .contentType(MediaType.APPLICATION_JSON);
+    }
+
     private byte[] json(Object o) throws JsonProcessingException {
 
         return objectMapper.writeValueAsBytes(o);
@@ -324,6 +365,110 @@ public class CountersControllerTest {
                 .andExpect(jsonPath("errors[0].message").value(containsString(oneName)));
     }
 
+    @Test
+    public void addExistingReturnsOkDto() throws Exception {
+
+        val added = new CounterDto();
+        added.setName(oneName);
+        added.setValue(oneValue + 500);
+
+        Mockito.when(service.addByName(oneName, 500))
+                .thenReturn(added);
+
+        //act
+        mockMvc.perform(increment(oneName).param("delta", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("name").value(oneName))
+                .andExpect(jsonPath("value").value(oneValue + 500))
+                .andDo(document("add-example"));
+    }
+
+    @Test
+    public void addOverflowingReturnsInsufficientStorage() throws Exception {
+
+        Mockito.when(service.addByName(oneName, Long.MAX_VALUE))
+                .thenThrow(OverflowException.of(oneName, new ArithmeticException()));
+
+        //act
+        mockMvc.perform(increment(oneName).param("delta", String.valueOf(Long.MAX_VALUE)))
+                .andExpect(status().isInsufficientStorage())
+                .andExpect(jsonPath("errors[0].message").value(containsString(oneName)));
+    }
+
+    @Test
+    public void addRelaxedReturnsBadRequest() throws Exception {
+
+        //act
+        mockMvc.perform(increment(oneName).param("delta", "5").param("relaxed", "true"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0].message").value(containsString("delta")));
+
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    public void incrementRelaxedExistingReturnsNoContent() throws Exception {
+
+        //act
+        mockMvc.perform(increment(oneName).param("relaxed", "true"))
+                .andExpect(status().isNoContent())
+                .andDo(document("increment-relaxed-example"));
+
+        Mockito.verify(service).incrementByNameRelaxed(oneName);
+    }
+
+    @Test
+    public void incrementRelaxedNonExistingReturnsNotFound() throws Exception {
+
+        Mockito.doThrow(NotFoundException.of(oneName))
+                .when(service).incrementByNameRelaxed(Mockito.any());
+
+        //act
+        mockMvc.perform(increment(oneName).param("relaxed", "true"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("errors[0].message").value(containsString(oneName)));
+    }
+
+    @Test
+    public void batchIncrementReturnsOkResults() throws Exception {
+
+        val deltas = new LinkedHashMap<String, Long>();
+        deltas.put(oneName, 5L);
+        deltas.put("max-name", 1L);
+        deltas.put("missing-name", 1L);
+
+        val batch = new BatchIncrementDto();
+        batch.setDeltas(deltas);
+
+        val results = new LinkedHashMap<String, IncrementResultDto>();
+        results.put(oneName, new IncrementResultDto(IncrementResultDto.Status.UPDATED, oneValue + 5));
+        results.put("max-name", new IncrementResultDto(IncrementResultDto.Status.OVERFLOW, null));
+        results.put("missing-name", new IncrementResultDto(IncrementResultDto.Status.NOT_FOUND, null));
+
+        Mockito.when(service.incrementAll(batch))
+                .thenReturn(new BatchIncrementResultDto(results));
+
+        //act
+        mockMvc.perform(batchIncrement().content(json(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("results['one-name'].status").value("UPDATED"))
+                .andExpect(jsonPath("results['one-name'].value").value(oneValue + 5))
+                .andExpect(jsonPath("results['max-name'].status").value("OVERFLOW"))
+                .andExpect(jsonPath("results['missing-name'].status").value("NOT_FOUND"))
+                .andDo(document("batch-increment-example"));
+    }
+
+    @Test
+    public void batchIncrementIllegalBatchReturnsBadRequest() throws Exception {
+
+        Mockito.when(service.incrementAll(Mockito.any()))
+                .thenThrow(IllegalBatchException.nullDeltas());
+
+        //act
+        mockMvc.perform(batchIncrement().content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void getExistingReturnsOkDto() throws Exception {
 
@@ -418,7 +563,7 @@ public class CountersControllerTest {
     @Test
     public void counterNamesExistingReturnsOkNames() throws Exception {
 
-        Mockito.when(service.getCounterNames())
+        Mockito.when(service.getCounterNames(null, null))
                 .thenReturn(new CounterNamesDto(List.of(oneName)));
 
         //act
@@ -433,7 +578,7 @@ public class CountersControllerTest {
     @Test
     public void counterNamesExistingReturnsOkEmpty() throws Exception {
 
-        Mockito.when(service.getCounterNames())
+        Mockito.when(service.getCounterNames(null, null))
                 .thenReturn(new CounterNamesDto(List.of()));
 
         //act
@@ -442,4 +587,225 @@ public class CountersControllerTest {
                 .andExpect(jsonPath("names").isArray())
                 .andExpect(jsonPath("names").value(Matchers.empty()));
     }
+
+    @Test
+    public void counterNamesPageReturnsOkNamesAndNext() throws Exception {
+
+        val anotherName = "other-name";
+
+        Mockito.when(service.getCounterNames(oneName, 1))
+                .thenReturn(new CounterNamesDto(List.of(anotherName), anotherName));
+
+        //act
+        mockMvc.perform(names().param("after", oneName).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("names").value(Matchers.contains(anotherName)))
+                .andExpect(jsonPath("next").value(anotherName))
+                .andDo(document("counter-names-page-example"));
+    }
+
+    @Test
+    public void counterNamesIllegalLimitReturnsBadRequest() throws Exception {
+
+        Mockito.when(service.getCounterNames(null, 0))
+                .thenThrow(IllegalLimitException.outOfRange(0, CountersServiceImpl.MAX_NAMES_LIMIT));
+
+        //act
+        mockMvc.perform(names().param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void counterNamesStreamAcceptingNdjsonReturnsOkLines() throws Exception {
+
+        val anotherName = "other-name";
+
+        Mockito.when(service.streamCounterNames(null))
+                .thenReturn(Stream.of(oneName, anotherName));
+
+        //act
+        val started = mockMvc.perform(names().param("stream", "true").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("\"" + oneName + "\"\n\"" + anotherName + "\"\n"))
+                .andDo(document("counter-names-stream-example"));
+    }
+
+    @Test
+    public void exportReturnsOkArrayOfCounters() throws Exception {
+
+        Mockito.when(service.streamCounters(null))
+                .thenReturn(Stream.of(oneDto));
+
+        //act
+        val started = mockMvc.perform(export())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].name").value(oneName))
+                .andExpect(jsonPath("$[0].value").value(oneValue))
+                .andDo(document("export-example"));
+    }
+
+    @Test
+    public void exportAcceptingGzipReturnsCompressedLines() throws Exception {
+
+        Mockito.when(service.streamCounters(oneName))
+                .thenReturn(Stream.of(oneDto));
+
+        //act
+        val started = mockMvc.perform(export().param("after", oneName)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        val response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        try (val in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+
+            Assertions.assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(new String(json(oneDto), StandardCharsets.UTF_8) + "\n");
+        }
+    }
+
+    @Test
+    public void exportAcceptingSnapshotReturnsCompressedSnapshot() throws Exception {
+
+        Mockito.when(service.streamCounters(null))
+                .thenReturn(Stream.of(oneDto));
+
+        //act
+        val started = mockMvc.perform(export()
+                        .accept(CounterSnapshots.MEDIA_TYPE)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        val response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CounterSnapshots.MEDIA_TYPE))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse();
+
+        try (val reader = new SnapshotReader(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+
+            Assertions.assertThat(reader.getCompression()).isEqualTo(SnapshotFormat.Compression.DEFLATE);
+            Assertions.assertThat(reader.next()).isTrue();
+            Assertions.assertThat(reader.getName()).isEqualTo(oneName);
+            Assertions.assertThat(reader.getValue()).isEqualTo(oneValue);
+            Assertions.assertThat(reader.next()).isFalse();
+        }
+    }
+
+    /**
+     * Makes service consume imported counters, reporting names it has seen as created
+     */
+    private List<String> importedNames() {
+
+        val names = new ArrayList<String>();
+
+        Mockito.when(service.importCounters(Mockito.any()))
+                .thenAnswer(invocation -> {
+
+                    Iterator<CounterDto> counters = invocation.getArgument(0);
+                    counters.forEachRemaining(counter -> names.add(counter.getName()));
+
+                    return new ImportResultDto(names.size(), 0, 0);
+                });
+
+        return names;
+    }
+
+    @Test
+    public void importNdjsonReturnsOkSummary() throws Exception {
+
+        val names = importedNames();
+
+        //act
+        mockMvc.perform(importCounters(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"" + oneName + "\",\"value\":5}\n{\"name\":\"other-name\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("created").value(2))
+                .andExpect(jsonPath("duplicate").value(0))
+                .andExpect(jsonPath("invalid").value(0))
+                .andDo(document("import-example"));
+
+        Assertions.assertThat(names).containsExactly(oneName, "other-name");
+    }
+
+    @Test
+    public void importGzippedCsvReturnsOkSummary() throws Exception {
+
+        val names = importedNames();
+
+        val compressed = new ByteArrayOutputStream();
+        try (val out = new GZIPOutputStream(compressed)) {
+
+            out.write((oneName + ",5\nother-name\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        //act
+        mockMvc.perform(importCounters(CounterLines.TEXT_CSV)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(compressed.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("created").value(2));
+
+        Assertions.assertThat(names).containsExactly(oneName, "other-name");
+    }
+
+    private byte[] snapshot(String... names) throws Exception {
+
+        val out = new ByteArrayOutputStream();
+
+        try (val writer = new SnapshotWriter(out, SnapshotFormat.Compression.NONE)) {
+
+            for (val name : names) {
+
+                writer.add(name, oneValue);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    @Test
+    public void importSnapshotReturnsOkSummary() throws Exception {
+
+        val names = importedNames();
+
+        //act
+        mockMvc.perform(importCounters(CounterSnapshots.MEDIA_TYPE)
+                        .content(snapshot(oneName, "other-name")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("created").value(2));
+
+        Assertions.assertThat(names).containsExactly(oneName, "other-name");
+    }
+
+    @Test
+    public void importCorruptSnapshotReturnsBadRequest() throws Exception {
+
+        importedNames();
+
+        val snapshot = snapshot(oneName, "other-name");
+        snapshot[snapshot.length - 1] ^= 1;
+
+        //act
+        mockMvc.perform(importCounters(CounterSnapshots.MEDIA_TYPE)
+                        .content(snapshot))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0].message").value(containsString("checksum")));
+    }
 }
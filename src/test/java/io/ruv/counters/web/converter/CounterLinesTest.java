@@ -0,0 +1,155 @@
+package io.ruv.counters.web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CounterLinesTest {
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private static InputStream body(String body) {
+
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads records into name-value pairs, null name standing for a malformed record
+     */
+    private static List<Map.Entry<String, Long>> read(CounterLines lines) {
+
+        val records = new ArrayList<Map.Entry<String, Long>>();
+        lines.forEachRemaining(counter -> records.add(record(counter.getName(), counter.getValue())));
+
+        return records;
+    }
+
+    private static Map.Entry<String, Long> record(@Nullable String name, long value) {
+
+        return new AbstractMap.SimpleEntry<>(name, value);
+    }
+
+    @Test
+    public void ndjsonRecordsAreReadLineByLine() {
+
+        val body = """
+                {"name":"a","value":1}
+                {"value":-2,"name":"b","extra":[1,{"x":null}]}\r
+
+                {"name":"esc\\"aped \\u00e9"}
+                {"name":"bad"
+                "just a string"
+                null
+                {"name":"last","value":3}""";
+
+        //act
+        val records = read(new CounterLines(body(body), CounterLines.Format.NDJSON, mapper));
+
+        Assertions.assertThat(records).containsExactly(
+                record("a", 1),
+                record("b", -2),
+                record("esc\"aped é", 0),
+                record(null, 0),
+                record(null, 0),
+                record(null, 0),
+                record("last", 3));
+    }
+
+    @Test
+    public void csvRecordsAreReadWithQuotedNamesAndOptionalValues() {
+
+        val body = """
+                name,value
+                a,1
+                "quoted, with ""quotes""\",-2
+                plain only
+
+                x,not-a-number
+                "unterminated,4
+                y,5,6
+                """;
+
+        //act
+        val records = read(new CounterLines(body(body), CounterLines.Format.CSV, mapper));
+
+        Assertions.assertThat(records).containsExactly(
+                record("a", 1),
+                record("quoted, with \"quotes\"", -2),
+                record("plain only", 0),
+                record(null, 0),
+                record(null, 0),
+                record(null, 0));
+    }
+
+    @Test
+    public void bodyArrivingInPiecesIsReadWhole() {
+
+        val body = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+
+            body.append("{\"name\":\"counter-").append(i).append("\",\"value\":").append(i).append("}\n");
+        }
+
+        val bytes = new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+        val trickling = new InputStream() {
+
+            @Override
+            public int read() {
+
+                return bytes.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+
+                return bytes.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        //act
+        val records = read(new CounterLines(trickling, CounterLines.Format.NDJSON, mapper));
+
+        Assertions.assertThat(records).hasSize(50_000);
+        Assertions.assertThat(records.get(49_999)).isEqualTo(record("counter-49999", 49_999));
+    }
+
+    @Test
+    public void overlongLineIsReportedMalformedAndSkipped() {
+
+        val name = "x".repeat(CounterLines.MAX_LINE_LENGTH * 2);
+        val body = "a,1\n" + name + ",2\nb,3\n" + name;
+
+        //act
+        val records = read(new CounterLines(body(body), CounterLines.Format.CSV, mapper));
+
+        Assertions.assertThat(records).containsExactly(
+                record("a", 1),
+                record(null, 0),
+                record("b", 3),
+                record(null, 0));
+    }
+
+    @Test
+    public void formatFollowsContentType() {
+
+        //act
+        Assertions.assertThat(CounterLines.Format.of(MediaType.parseMediaType("text/csv;charset=UTF-8")))
+                .isEqualTo(CounterLines.Format.CSV);
+        Assertions.assertThat(CounterLines.Format.of(MediaType.APPLICATION_NDJSON))
+                .isEqualTo(CounterLines.Format.NDJSON);
+        Assertions.assertThat(CounterLines.Format.of(null))
+                .isEqualTo(CounterLines.Format.NDJSON);
+    }
+}
@@ -0,0 +1,101 @@
+package io.ruv.counters.web.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ruv.counters.web.dto.BatchIncrementResultDto;
+import io.ruv.counters.web.dto.CounterDto;
+import io.ruv.counters.web.dto.CounterNamesDto;
+import io.ruv.counters.web.dto.CounterSumDto;
+import io.ruv.counters.web.dto.IncrementResultDto;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class JsonDtoConvertersTest {
+
+    private static final String TRICKY = "quote\" back\\slash\n\t\u0001 café € 😀";
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final CounterDtoConverter counters = new CounterDtoConverter(mapper);
+
+    private static CounterDto counter(String name, long value) {
+
+        val dto = new CounterDto();
+        dto.setName(name);
+        dto.setValue(value);
+
+        return dto;
+    }
+
+    private CounterDto read(String body) throws Exception {
+
+        return counters.read(CounterDto.class, new MockHttpInputMessage(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void writtenDocumentsAreThoseOfJackson() throws Exception {
+
+        val results = new LinkedHashMap<String, IncrementResultDto>();
+        results.put(TRICKY, new IncrementResultDto(IncrementResultDto.Status.UPDATED, Long.MIN_VALUE));
+        results.put("missing", new IncrementResultDto(IncrementResultDto.Status.NOT_FOUND, null));
+        results.put("max", new IncrementResultDto(IncrementResultDto.Status.OVERFLOW, null));
+
+        val counter = counter(TRICKY, -1234567890123L);
+        val unnamed = counter(null, Long.MAX_VALUE);
+        val sum = new CounterSumDto(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN));
+        val names = new CounterNamesDto(List.of("a", TRICKY), TRICKY);
+        val lastNames = new CounterNamesDto(List.of());
+        val batch = new BatchIncrementResultDto(results);
+
+        //act
+        Assertions.assertThat(new String(counters.toJson(counter), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(counter));
+        Assertions.assertThat(new String(counters.toJson(unnamed), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(unnamed));
+        Assertions.assertThat(new String(new CounterSumDtoConverter().toJson(sum), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(sum));
+        Assertions.assertThat(new String(new CounterNamesDtoConverter().toJson(names), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(names));
+        Assertions.assertThat(new String(new CounterNamesDtoConverter().toJson(lastNames), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(lastNames));
+        Assertions.assertThat(new String(new BatchIncrementResultDtoConverter().toJson(batch), StandardCharsets.UTF_8))
+                .isEqualTo(mapper.writeValueAsString(batch));
+    }
+
+    @Test
+    public void readParsesPlainDocuments() throws Exception {
+
+        //act
+        Assertions.assertThat(read("{\"name\":\"café\",\"value\":42}")).isEqualTo(counter("café", 42));
+        Assertions.assertThat(read(" {\n \"value\" : -9223372036854775808 ,\"name\" : null } "))
+                .isEqualTo(counter(null, Long.MIN_VALUE));
+        Assertions.assertThat(read("{\"extra\":{\"a\":[1,2.5e3,\"x\\\"y\",true,null]},\"name\":\"n\"}"))
+                .isEqualTo(counter("n", 0));
+        Assertions.assertThat(read("{}")).isEqualTo(counter(null, 0));
+    }
+
+    @Test
+    public void readFallsBackToJacksonBeyondPlainSubset() throws Exception {
+
+        //act
+        Assertions.assertThat(read("{\"name\":\"a\\\"b\\u00e9\",\"value\":1}")).isEqualTo(counter("a\"bé", 1));
+        Assertions.assertThat(read("{\"name\":\"n\",\"value\":\"7\"}")).isEqualTo(counter("n", 7));
+        Assertions.assertThat(read("{\"name\":\"n\",\"value\":7.0}")).isEqualTo(counter("n", 7));
+
+        Assertions.assertThat(read("{\"extra\":" + "[".repeat(100_000) + "]".repeat(100_000) + ",\"name\":\"n\"}"))
+                .isEqualTo(counter("n", 0));
+
+        Assertions.assertThatThrownBy(() -> read("")).isInstanceOf(HttpMessageNotReadableException.class);
+        Assertions.assertThatThrownBy(() -> read("{\"name\":")).isInstanceOf(HttpMessageNotReadableException.class);
+        Assertions.assertThatThrownBy(() -> read("{\"value\":9223372036854775808}"))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+}
@@ -0,0 +1,149 @@
+package io.ruv.counters.web.converter;
+
+import io.ruv.counters.web.dto.CounterDto;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+public class JsonStreamsTest {
+
+    private static CounterDto counter(String name, long value) {
+
+        val dto = new CounterDto();
+        dto.setName(name);
+        dto.setValue(value);
+
+        return dto;
+    }
+
+    private static String written(StreamingResponseBody body) throws IOException {
+
+        val out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void elementsAreWrittenAsArrayOrLines() throws Exception {
+
+        val counters = List.of(counter("a", 1), counter("b\"", -2));
+
+        //act
+        Assertions.assertThat(written(JsonStreams.names(Stream.of("a", "b\""), JsonStreams.Format.ARRAY, false)))
+                .isEqualTo("[\"a\",\"b\\\"\"]");
+        Assertions.assertThat(written(JsonStreams.names(Stream.of("a", "b\""), JsonStreams.Format.NDJSON, false)))
+                .isEqualTo("\"a\"\n\"b\\\"\"\n");
+        Assertions.assertThat(written(JsonStreams.counters(counters.stream(), JsonStreams.Format.ARRAY, false)))
+                .isEqualTo("[{\"name\":\"a\",\"value\":1},{\"name\":\"b\\\"\",\"value\":-2}]");
+        Assertions.assertThat(written(JsonStreams.counters(counters.stream(), JsonStreams.Format.NDJSON, false)))
+                .isEqualTo("{\"name\":\"a\",\"value\":1}\n{\"name\":\"b\\\"\",\"value\":-2}\n");
+    }
+
+    @Test
+    public void emptyStreamIsWrittenAsEmptyArrayOrNothing() throws Exception {
+
+        //act
+        Assertions.assertThat(written(JsonStreams.names(Stream.empty(), JsonStreams.Format.ARRAY, false)))
+                .isEqualTo("[]");
+        Assertions.assertThat(written(JsonStreams.names(Stream.empty(), JsonStreams.Format.NDJSON, false)))
+                .isEmpty();
+    }
+
+    @Test
+    public void largeStreamIsWrittenInBoundedChunksAndClosed() throws Exception {
+
+        val closed = new AtomicBoolean();
+        val names = IntStream.range(0, 100_000).mapToObj(i -> "counter-" + i).onClose(() -> closed.set(true));
+        val writes = new AtomicInteger();
+        val largestWrite = new AtomicInteger();
+        val lines = new AtomicInteger();
+
+        val out = new OutputStream() {
+
+            @Override
+            public void write(int b) {
+
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+
+                writes.incrementAndGet();
+                largestWrite.accumulateAndGet(len, Math::max);
+
+                for (int i = off; i < off + len; i++) {
+
+                    if (b[i] == '\n') {
+
+                        lines.incrementAndGet();
+                    }
+                }
+            }
+        };
+
+        //act
+        JsonStreams.names(names, JsonStreams.Format.NDJSON, false).writeTo(out);
+
+        Assertions.assertThat(lines).hasValue(100_000);
+        Assertions.assertThat(writes.get()).isGreaterThan(100);
+        Assertions.assertThat(largestWrite.get()).isLessThan(9 * 1024);
+        Assertions.assertThat(closed).isTrue();
+    }
+
+    @Test
+    public void gzipBodyIsCompressedOnTheFly() throws Exception {
+
+        val out = new ByteArrayOutputStream();
+        val names = IntStream.range(0, 10_000).mapToObj(i -> "counter-" + i);
+
+        //act
+        JsonStreams.names(names, JsonStreams.Format.ARRAY, true).writeTo(out);
+
+        try (val in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+
+            val json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+            Assertions.assertThat(json).startsWith("[\"counter-0\",").endsWith(",\"counter-9999\"]");
+            Assertions.assertThat(out.size()).isLessThan(json.length() / 4);
+        }
+    }
+
+    @Test
+    public void formatIsNegotiatedFromAcceptedTypes() {
+
+        //act
+        Assertions.assertThat(JsonStreams.Format.negotiate(List.of()))
+                .isEqualTo(JsonStreams.Format.ARRAY);
+        Assertions.assertThat(JsonStreams.Format.negotiate(List.of(MediaType.ALL)))
+                .isEqualTo(JsonStreams.Format.ARRAY);
+        Assertions.assertThat(JsonStreams.Format.negotiate(MediaType.parseMediaTypes("application/x-ndjson;q=0.9, */*")))
+                .isEqualTo(JsonStreams.Format.NDJSON);
+    }
+
+    @Test
+    public void gzipIsAcceptedUnlessRejected() {
+
+        //act
+        Assertions.assertThat(JsonStreams.acceptsGzip(null)).isFalse();
+        Assertions.assertThat(JsonStreams.acceptsGzip(List.of("identity"))).isFalse();
+        Assertions.assertThat(JsonStreams.acceptsGzip(List.of("deflate, GZIP;q=0.5"))).isTrue();
+        Assertions.assertThat(JsonStreams.acceptsGzip(List.of("br", "*"))).isTrue();
+        Assertions.assertThat(JsonStreams.acceptsGzip(List.of("gzip;q=0"))).isFalse();
+    }
+}
@@ -0,0 +1,54 @@
+package io.ruv.counters.web.exception;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.ruv.counters.web.dto.ErrorDto;
+import io.ruv.counters.web.dto.ResponseWrapper;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public class ErrorBodiesTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Instant now = Instant.parse("2024-02-03T04:05:06.789Z");
+
+    private final ErrorBodies bodies = new ErrorBodies(mapper, Clock.fixed(now, ZoneOffset.UTC));
+
+    @Test
+    public void renderMatchesSerializedWrapper() throws Exception {
+
+        val message = "Counter with name 'quote\" back\\slash é' does not exist.";
+
+        //act
+        val body = bodies.render(HttpStatus.NOT_FOUND, message);
+
+        val expected = ResponseWrapper.error(HttpStatus.NOT_FOUND, ZonedDateTime.ofInstant(now, ZoneOffset.UTC),
+                List.of(new ErrorDto(message)));
+
+        Assertions.assertThat(mapper.readTree(body)).isEqualTo(mapper.readTree(mapper.writeValueAsBytes(expected)));
+    }
+
+    @Test
+    public void renderReusesTimestampWithinMillisecond() throws Exception {
+
+        //act
+        val first = mapper.readTree(bodies.render(HttpStatus.BAD_REQUEST, "first"));
+        val second = mapper.readTree(bodies.render(HttpStatus.INSUFFICIENT_STORAGE, "second"));
+
+        Assertions.assertThat(first.get("timestamp")).isEqualTo(second.get("timestamp"));
+        Assertions.assertThat(first.get("httpStatus").asText()).isEqualTo(HttpStatus.BAD_REQUEST.name());
+        Assertions.assertThat(second.get("errors").get(0).get("message").asText()).isEqualTo("second");
+    }
+}